@@ -312,7 +312,7 @@ public class FanartActivity extends GenericActivity {
     public void onSaveInstanceState(Bundle savedInstanceState) {
         savedInstanceState.putInt(STATE_ARTWORK_POINTER, mCurrentFanart);
         savedInstanceState.putInt(STATE_ARTWORK_POINTER_NEXT, mNextFanart);
-        savedInstanceState.putParcelable(STATE_LAST_TRACK, mLastTrack);
+        savedInstanceState.putSerializable(STATE_LAST_TRACK, mLastTrack);
 
         // Always call the superclass so it can save the view hierarchy state
         super.onSaveInstanceState(savedInstanceState);
@@ -325,7 +325,7 @@ public class FanartActivity extends GenericActivity {
         // Restore state members from saved instance
         mCurrentFanart = savedInstanceState.getInt(STATE_ARTWORK_POINTER);
         mNextFanart = savedInstanceState.getInt(STATE_ARTWORK_POINTER_NEXT);
-        mLastTrack = savedInstanceState.getParcelable(STATE_LAST_TRACK);
+        mLastTrack = (MPDFile) savedInstanceState.getSerializable(STATE_LAST_TRACK);
     }
 
 
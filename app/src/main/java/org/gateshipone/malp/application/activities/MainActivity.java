@@ -335,7 +335,7 @@ public class MainActivity extends GenericActivity
                     // Open song details dialog
                     SongDetailsDialog songDetailsDialog = new SongDetailsDialog();
                     Bundle songArgs = new Bundle();
-                    songArgs.putParcelable(SongDetailsDialog.EXTRA_FILE, (MPDFile) track);
+                    songArgs.putSerializable(SongDetailsDialog.EXTRA_FILE, (MPDFile) track);
                     songDetailsDialog.setArguments(songArgs);
                     songDetailsDialog.show(getSupportFragmentManager(), "SongDetails");
                     return true;
@@ -493,7 +493,7 @@ public class MainActivity extends GenericActivity
         // Create fragment and give it an argument for the selected article
         AlbumTracksFragment newFragment = new AlbumTracksFragment();
         Bundle args = new Bundle();
-        args.putParcelable(AlbumTracksFragment.BUNDLE_STRING_EXTRA_ALBUM, album);
+        args.putSerializable(AlbumTracksFragment.BUNDLE_STRING_EXTRA_ALBUM, album);
 
         newFragment.setArguments(args);
 
@@ -525,7 +525,7 @@ public class MainActivity extends GenericActivity
         AlbumsFragment newFragment = new AlbumsFragment();
         Bundle args = new Bundle();
         args.putString(AlbumsFragment.BUNDLE_STRING_EXTRA_ARTISTNAME, artist.getArtistName());
-        args.putParcelable(AlbumsFragment.BUNDLE_STRING_EXTRA_ARTIST, artist);
+        args.putSerializable(AlbumsFragment.BUNDLE_STRING_EXTRA_ARTIST, artist);
 
 
         newFragment.setArguments(args);
@@ -637,6 +637,10 @@ public class MainActivity extends GenericActivity
     @Override
     public void removeProfile(MPDServerProfile profile) {
         mProfileManager.deleteProfile(profile);
+        // The server parameters of the profile change, so the cached capabilities are invalid.
+        mProfileManager.deleteServerCapabilities(profile);
+        // The copy of the database belongs to the old server as well
+        ConnectionManager.deleteLibraryMirror(getApplicationContext(), profile);
     }
 
     @Override
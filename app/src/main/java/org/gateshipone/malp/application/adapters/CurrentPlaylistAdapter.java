@@ -135,6 +135,11 @@ public class CurrentPlaylistAdapter extends ScrollSpeedAdapter {
      */
     private PlaylistFetchResponseHandler mTrackResponseHandler;
 
+    /**
+     * ResponseHandler that receives the tracks that changed since the last known playlist version.
+     */
+    private PlaylistChangesResponseHandler mChangesResponseHandler;
+
     /**
      * This handler receives status updates from the MPDStateMonitoringHandler asychronously.
      */
@@ -171,6 +176,7 @@ public class CurrentPlaylistAdapter extends ScrollSpeedAdapter {
         mContext = context;
 
         mTrackResponseHandler = new PlaylistFetchResponseHandler();
+        mChangesResponseHandler = new PlaylistChangesResponseHandler();
         mStateListener = new PlaylistStateListener();
         mConnectionListener = new ConnectionStateChangeListener();
 
@@ -383,11 +389,17 @@ public class CurrentPlaylistAdapter extends ScrollSpeedAdapter {
             }
 
             // Save the status for use in other methods of this adapter
+            MPDCurrentStatus previousStatus = mLastStatus;
             mLastStatus = status;
 
             // If the playlist changed on the server side, update the internal list state of this adapter.
+            // If an older version is known, only the changes since that version are requested.
             if (newPl) {
-                updatePlaylist();
+                if (null != previousStatus) {
+                    updatePlaylistChanges(previousStatus.getPlaylistVersion());
+                } else {
+                    updatePlaylist();
+                }
             }
         }
 
@@ -416,15 +428,29 @@ public class CurrentPlaylistAdapter extends ScrollSpeedAdapter {
          */
         @Override
         public void handleTracks(List<MPDFileEntry> trackList, int start, int end) {
+            // Response to a request that was sent before the playlist changed, the data is outdated.
+            if (this != mTrackResponseHandler) {
+                return;
+            }
+
             // If the ranged playlist feature is disabled
             if (!mWindowEnabled) {
-                // Save the new playlist
-                mPlaylist = trackList;
+                // The playlist is received in chunks. The first one replaces the old playlist,
+                // the following ones are appended.
+                if (0 == start) {
+                    mPlaylist = trackList;
+                } else if ((null != mPlaylist) && (null != trackList) && (mPlaylist.size() == start)) {
+                    mPlaylist.addAll(trackList);
+                } else {
+                    // Chunk of an old playlist, abort handling.
+                    return;
+                }
 
-                // Set the index active for the currently playing/paused song (if any)
+                // Set the index active for the currently playing/paused song (if any) once
+                // the chunk containing it is received
                 if (null != mLastStatus) {
                     int index = mLastStatus.getCurrentSongIndex();
-                    if ((null != mPlaylist) && (index < mPlaylist.size())) {
+                    if ((null != mPlaylist) && (index >= start) && (index < mPlaylist.size())) {
                         setCurrentIndex(index);
                     }
                 }
@@ -472,6 +498,86 @@ public class CurrentPlaylistAdapter extends ScrollSpeedAdapter {
         }
     }
 
+    /**
+     * Private class to handle the tracks that changed in the playlist since the last known version.
+     * Every track is put to its new position within the local list (blocks). Tracks at the end of
+     * the list were already removed when the new playlist length was received.
+     */
+    private class PlaylistChangesResponseHandler extends MPDResponseFileList {
+
+        /**
+         * Called when a chunk of changed tracks is ready.
+         *
+         * @param trackList List of changed tracks with their new position
+         * @param start     Position of the chunk within all changes (not used)
+         * @param end       End of the chunk within all changes (not used)
+         */
+        @Override
+        public void handleTracks(List<MPDFileEntry> trackList, int start, int end) {
+            if (null == trackList) {
+                // The changes could not be fetched, the local list is in an unknown state now.
+                updatePlaylist();
+                return;
+            }
+
+            if (!mWindowEnabled) {
+                if (null == mPlaylist) {
+                    return;
+                }
+                for (MPDFileEntry entry : trackList) {
+                    if (!(entry instanceof MPDFile)) {
+                        continue;
+                    }
+                    int position = ((MPDFile) entry).getSongPosition();
+                    if (position < mPlaylist.size()) {
+                        mPlaylist.set(position, entry);
+                    } else if (position == mPlaylist.size()) {
+                        mPlaylist.add(entry);
+                    } else {
+                        // Gap in the local list, should not happen. Start over with the complete list.
+                        updatePlaylist();
+                        return;
+                    }
+                }
+            } else {
+                try {
+                    mListsLock.acquire();
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+
+                for (MPDFileEntry entry : trackList) {
+                    if (!(entry instanceof MPDFile)) {
+                        continue;
+                    }
+                    int position = ((MPDFile) entry).getSongPosition();
+                    int listIndex = position / WINDOW_SIZE;
+
+                    // Only list blocks that are in memory need to be updated, the others are fetched when needed.
+                    if (listIndex >= mWindowedListStates.length || mWindowedListStates[listIndex] != LIST_STATE.LIST_READY) {
+                        continue;
+                    }
+
+                    List<MPDFileEntry> list = mWindowedPlaylists[listIndex];
+                    int listPosition = position % WINDOW_SIZE;
+                    if (listPosition < list.size()) {
+                        list.set(listPosition, entry);
+                    } else if (listPosition == list.size()) {
+                        list.add(entry);
+                    } else {
+                        // Gap in the list block, fetch it again when needed.
+                        mWindowedPlaylists[listIndex] = null;
+                        mWindowedListStates[listIndex] = LIST_STATE.LIST_EMPTY;
+                    }
+                }
+
+                mListsLock.release();
+            }
+
+            notifyDataSetChanged();
+        }
+    }
+
     /**
      * Handler used to react on connects/disconnects from the MPD server.
      */
@@ -533,6 +639,75 @@ public class CurrentPlaylistAdapter extends ScrollSpeedAdapter {
         mPlaylist = null;
     }
 
+    /**
+     * Updates the internal playlist state with only the tracks that changed on the server since
+     * the given playlist version. The local list (blocks) are cut to the new playlist length and
+     * the changed tracks are requested with plchanges. This costs O(changes) instead of a reload
+     * of the whole playlist.
+     *
+     * @param version Playlist version the local list state belongs to.
+     */
+    private void updatePlaylistChanges(int version) {
+        int length = mLastStatus.getPlaylistLength();
+
+        if (!mWindowEnabled) {
+            if (null == mPlaylist) {
+                updatePlaylist();
+                return;
+            }
+            // Remove tracks at the end of the list.
+            if (mPlaylist.size() > length) {
+                mPlaylist.subList(length, mPlaylist.size()).clear();
+            }
+        } else {
+            if (null == mWindowedPlaylists) {
+                updatePlaylist();
+                return;
+            }
+
+            try {
+                mListsLock.acquire();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+
+            // Running block requests could return tracks from before the change. Use a new
+            // response handler so that their responses are dropped.
+            mTrackResponseHandler = new PlaylistFetchResponseHandler();
+
+            // Resize the list block arrays to the new playlist length and keep the loaded blocks.
+            int listCount = (length / WINDOW_SIZE) + 1;
+            List<MPDFileEntry>[] windowedPlaylists = (List<MPDFileEntry>[]) new List[listCount];
+            LIST_STATE[] windowedListStates = new LIST_STATE[listCount];
+            for (int i = 0; i < listCount; i++) {
+                if (i < mWindowedListStates.length && mWindowedListStates[i] == LIST_STATE.LIST_READY) {
+                    windowedPlaylists[i] = mWindowedPlaylists[i];
+                    windowedListStates[i] = LIST_STATE.LIST_READY;
+                } else {
+                    windowedPlaylists[i] = null;
+                    windowedListStates[i] = LIST_STATE.LIST_EMPTY;
+                }
+            }
+
+            // Remove tracks at the end of the last list block.
+            List<MPDFileEntry> lastList = windowedPlaylists[listCount - 1];
+            if (null != lastList && lastList.size() > length % WINDOW_SIZE) {
+                lastList.subList(length % WINDOW_SIZE, lastList.size()).clear();
+            }
+
+            mWindowedPlaylists = windowedPlaylists;
+            mWindowedListStates = windowedListStates;
+            if (mLastAccessedList >= listCount) {
+                mLastAccessedList = listCount - 1;
+            }
+
+            mListsLock.release();
+        }
+
+        MPDQueryHandler.getCurrentPlaylistChanges(mChangesResponseHandler, version);
+        notifyDataSetChanged();
+    }
+
     /**
      * This methods updates the internal playlist state when the server-side playlist changed.
      */
@@ -540,7 +715,7 @@ public class CurrentPlaylistAdapter extends ScrollSpeedAdapter {
         // If ranged playlist is not available just request the complete list.
         if (!mWindowEnabled) {
             // The playlist has changed and we need to fetch a new one.
-            MPDQueryHandler.getCurrentPlaylist(mTrackResponseHandler);
+            MPDQueryHandler.getCurrentPlaylist(mTrackResponseHandler, null);
         } else {
             // If ranged playlists are available check if we know how many tracks are in the server side list.
             // This determines how many list blocks we need locally.
@@ -552,6 +727,9 @@ public class CurrentPlaylistAdapter extends ScrollSpeedAdapter {
                     e.printStackTrace();
                 }
 
+                // Block requests for the old playlist are outdated now
+                mTrackResponseHandler = new PlaylistFetchResponseHandler();
+
                 // Calculate the number of needed list blocks
                 int listCount = (mLastStatus.getPlaylistLength() / WINDOW_SIZE) + 1;
                 // Create the array that later contains the list blocks
@@ -78,14 +78,16 @@ public abstract class GenericSectionAdapter<T extends MPDGenericItem> extends Sc
      * Clears old section data and model data and recreates sectionScrolling
      * data.
      *
+     * The list is used directly and not copied, so it must not be changed afterwards.
+     * This keeps compact lists (e.g. MPDTrackStore) compact.
+     *
      * @param data Actual model data
      */
     public void swapModel(List<T> data) {
         if (data == null) {
-            mModelData.clear();
+            mModelData = new ArrayList<>();
         } else {
-            mModelData.clear();
-            mModelData.addAll(data);
+            mModelData = data;
         }
         synchronized (mFilteredModelData) {
             mFilteredModelData.clear();
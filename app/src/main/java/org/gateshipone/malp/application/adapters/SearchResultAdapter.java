@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gateshipone.malp.application.adapters;
+
+
+import android.content.Context;
+import android.util.SparseArray;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.List;
+
+import org.gateshipone.malp.application.listviewitems.FileListItem;
+import org.gateshipone.malp.application.loaders.SearchResultLoader;
+import org.gateshipone.malp.mpdservice.handlers.MPDMainThreadExecutor;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDAsyncQueries;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDCommands;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDFuture;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFile;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDTrackStore;
+
+/**
+ * Adapter class that shows the results of a search. Only the first page of results is part of
+ * the {@link SearchResultLoader.SearchResult}, the following pages are requested from the server
+ * when they are scrolled into view. Until then the items show the loading text.
+ * <p/>
+ * If the server could count the results the list has its final length from the start. Otherwise
+ * the list ends with one loading item as long as the last received page was full.
+ */
+public class SearchResultAdapter extends ScrollSpeedAdapter {
+
+    private Context mContext;
+
+    /**
+     * Search the results belong to. Null if no search is shown.
+     */
+    private String mSearchString;
+
+    private MPDCommands.MPD_SEARCH_TYPE mSearchType;
+
+    /**
+     * Total number of results or -1 if not yet known
+     */
+    private int mCount;
+
+    /**
+     * Results received so far. Positions of pages that were not received yet are null.
+     */
+    private final MPDTrackStore mResults;
+
+    /**
+     * All results if they were received at once, used instead of copying them to mResults.
+     */
+    private List<MPDFileEntry> mCompleteResults;
+
+    /**
+     * Pages that are currently requested from the server, by page index.
+     */
+    private final SparseArray<MPDFuture<List<MPDFileEntry>>> mPageRequests;
+
+    public SearchResultAdapter(Context context) {
+        super();
+
+        mContext = context;
+        mResults = new MPDTrackStore();
+        mPageRequests = new SparseArray<>();
+        mCount = -1;
+    }
+
+    /**
+     * Shows a new search result. Requests for pages of the previous search are cancelled.
+     *
+     * @param result Result of the {@link SearchResultLoader} or null to clear the list
+     */
+    public void swapSearch(SearchResultLoader.SearchResult result) {
+        for (int i = 0; i < mPageRequests.size(); i++) {
+            mPageRequests.valueAt(i).cancel(false);
+        }
+        mPageRequests.clear();
+        mResults.clear();
+        mCompleteResults = null;
+        setScrollSpeed(0);
+
+        if (null == result) {
+            mSearchString = null;
+            mSearchType = null;
+            mCount = 0;
+        } else {
+            mSearchString = result.getSearchString();
+            mSearchType = result.getSearchType();
+            mCount = result.getCount();
+            if (mCount == result.getFirstPage().size()) {
+                // Nothing to request, the objects are created when the items are shown
+                mCompleteResults = result.getFirstPage();
+            } else {
+                setPage(0, result.getFirstPage());
+            }
+        }
+
+        notifyDataSetChanged();
+    }
+
+    @Override
+    public int getCount() {
+        if (mCount >= 0) {
+            return mCount;
+        }
+        // Length is not known yet, show one loading item at the end to request the next page.
+        return mResults.size() + 1;
+    }
+
+    /**
+     * Returns the result at the given position. If it is not yet received the page containing
+     * it is requested from the server.
+     *
+     * @param position Position of the result
+     * @return The result or null if it is not yet available.
+     */
+    @Override
+    public Object getItem(int position) {
+        if (null != mCompleteResults) {
+            return mCompleteResults.get(position);
+        }
+        MPDFileEntry entry = position < mResults.size() ? mResults.get(position) : null;
+        if (null == entry) {
+            requestPage(position / SearchResultLoader.PAGE_SIZE);
+        }
+        return entry;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        MPDFileEntry file = (MPDFileEntry) getItem(position);
+        MPDFile track = file instanceof MPDFile ? (MPDFile) file : null;
+
+        if (null != convertView) {
+            ((FileListItem) convertView).setTrack(track, mContext);
+            return convertView;
+        } else if (null != track) {
+            return new FileListItem(mContext, track, false);
+        } else {
+            // Not yet received, show the loading text
+            return new FileListItem(mContext, false);
+        }
+    }
+
+    /**
+     * Requests a page of results from the server if it is not requested already.
+     *
+     * @param page Index of the page
+     */
+    private void requestPage(final int page) {
+        if (null == mSearchString || null != mPageRequests.get(page)) {
+            return;
+        }
+
+        final int start = page * SearchResultLoader.PAGE_SIZE;
+        final MPDFuture<List<MPDFileEntry>> request = MPDAsyncQueries.getInstance().getSearchedFiles(mSearchString, mSearchType,
+                start, start + SearchResultLoader.PAGE_SIZE);
+        mPageRequests.put(page, request);
+
+        request.whenComplete(new MPDFuture.Callback<List<MPDFileEntry>>() {
+            @Override
+            public void onSuccess(List<MPDFileEntry> result) {
+                if (mPageRequests.get(page) != request) {
+                    // Result of a previous search
+                    return;
+                }
+                mPageRequests.remove(page);
+                setPage(start, result);
+                notifyDataSetChanged();
+            }
+
+            @Override
+            public void onFailure(Throwable error) {
+                if (mPageRequests.get(page) == request) {
+                    // Requested again when the page is shown the next time
+                    mPageRequests.remove(page);
+                }
+            }
+        }, MPDMainThreadExecutor.getInstance());
+    }
+
+    /**
+     * Inserts a received page into the results. A page that is not full is the last one, this
+     * also covers servers that send all results at once because they do not support windows.
+     *
+     * @param start Position of the first result of the page
+     * @param page  Results of the page
+     */
+    private void setPage(int start, List<MPDFileEntry> page) {
+        if (start == mResults.size()) {
+            // Next page while scrolling down, appended without creating objects for the results
+            mResults.addAll(page);
+        } else {
+            while (mResults.size() < start + page.size()) {
+                mResults.add(null);
+            }
+            for (int i = 0; i < page.size(); i++) {
+                mResults.set(start + i, page.get(i));
+            }
+        }
+
+        if (page.size() != SearchResultLoader.PAGE_SIZE) {
+            // The database can change between the count and the page, the page is more recent.
+            mCount = start + page.size();
+            if (mResults.size() > mCount) {
+                mResults.subList(mCount, mResults.size()).clear();
+            }
+        }
+    }
+}
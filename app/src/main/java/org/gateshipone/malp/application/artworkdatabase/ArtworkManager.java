@@ -44,6 +44,7 @@ import org.gateshipone.malp.R;
 import org.gateshipone.malp.application.artworkdatabase.network.MALPRequestQueue;
 import org.gateshipone.malp.application.artworkdatabase.network.artprovider.FanartTVManager;
 import org.gateshipone.malp.application.artworkdatabase.network.artprovider.LastFMManager;
+import org.gateshipone.malp.application.artworkdatabase.network.artprovider.MPDAlbumImageProvider;
 import org.gateshipone.malp.application.artworkdatabase.network.artprovider.MusicBrainzManager;
 import org.gateshipone.malp.application.artworkdatabase.network.responses.AlbumFetchError;
 import org.gateshipone.malp.application.artworkdatabase.network.responses.AlbumImageResponse;
@@ -367,6 +368,17 @@ public class ArtworkManager implements ArtistFetchError, AlbumFetchError {
      * @param album Album to fetch an image for.
      */
     public void fetchAlbumImage(final MPDAlbum album) {
+        if (mAlbumProvider.equals(mContext.getString(R.string.pref_artwork_provider_mpd_key))) {
+            // Images from the MPD server are fetched over the same network as the music, skip the network check.
+            MPDAlbumImageProvider.getInstance().fetchAlbumImage(album, new Response.Listener<AlbumImageResponse>() {
+                @Override
+                public void onResponse(AlbumImageResponse response) {
+                    new InsertAlbumImageTask().execute(response);
+                }
+            }, this);
+            return;
+        }
+
         ConnectivityManager cm =
                 (ConnectivityManager) mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
 
@@ -747,7 +759,7 @@ public class ArtworkManager implements ArtistFetchError, AlbumFetchError {
                 public void handleAlbums(List<MPDAlbum> albumList) {
                     new ParseMPDAlbumListTask().execute(albumList);
                 }
-            });
+            }, null);
         }
 
         if (!mArtistProvider.equals(mContext.getString((R.string.pref_artwork_provider_none_key)))) {
@@ -756,7 +768,7 @@ public class ArtworkManager implements ArtistFetchError, AlbumFetchError {
                 public void handleArtists(List<MPDArtist> artistList) {
                     new ParseMPDArtistListTask().execute(artistList);
                 }
-            });
+            }, null);
         }
     }
 
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gateshipone.malp.application.artworkdatabase.network.artprovider;
+
+
+import com.android.volley.Response;
+
+import org.gateshipone.malp.application.artworkdatabase.network.responses.AlbumFetchError;
+import org.gateshipone.malp.application.artworkdatabase.network.responses.AlbumImageResponse;
+import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseAlbumImage;
+import org.gateshipone.malp.mpdservice.handlers.serverhandler.MPDArtworkHandler;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
+
+/**
+ * Gets album images from the connected MPD server itself (cover files next to the music or
+ * pictures embedded in the tags). This needs no internet connection and works for albums
+ * that are not known to any online database.
+ */
+public class MPDAlbumImageProvider implements AlbumImageProvider {
+    private static final String TAG = MPDAlbumImageProvider.class.getSimpleName();
+
+    /**
+     * Singleton instance
+     */
+    private static MPDAlbumImageProvider mInstance;
+
+    private MPDAlbumImageProvider() {
+    }
+
+    public static synchronized MPDAlbumImageProvider getInstance() {
+        if (mInstance == null) {
+            mInstance = new MPDAlbumImageProvider();
+        }
+        return mInstance;
+    }
+
+    /**
+     * Fetch an image for an given {@link MPDAlbum}. The listener is also called if the server
+     * has no image, with an empty response, so that the album is not requested again.
+     * @param album Album to get the image for.
+     * @param listener ResponseListener that receives the image.
+     * @param errorListener Not used, the server only answers with an image or without.
+     */
+    @Override
+    public void fetchAlbumImage(final MPDAlbum album, final Response.Listener<AlbumImageResponse> listener, final AlbumFetchError errorListener) {
+        MPDArtworkHandler.getAlbumImage(album, new MPDResponseAlbumImage() {
+            @Override
+            public void handleAlbumImage(byte[] image) {
+                AlbumImageResponse response = new AlbumImageResponse();
+                response.album = album;
+                response.url = null;
+                response.image = image;
+                listener.onResponse(response);
+            }
+        });
+    }
+}
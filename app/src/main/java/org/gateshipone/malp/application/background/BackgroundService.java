@@ -36,7 +36,6 @@ import org.gateshipone.malp.mpdservice.handlers.MPDConnectionStateChangeHandler;
 import org.gateshipone.malp.mpdservice.handlers.MPDStatusChangeHandler;
 import org.gateshipone.malp.mpdservice.handlers.serverhandler.MPDCommandHandler;
 import org.gateshipone.malp.mpdservice.handlers.serverhandler.MPDStateMonitoringHandler;
-import org.gateshipone.malp.mpdservice.mpdprotocol.MPDConnection;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDCurrentStatus;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFile;
 import org.gateshipone.malp.mpdservice.profilemanagement.MPDProfileManager;
@@ -294,7 +293,7 @@ public class BackgroundService extends Service {
      * Disconnects from MPD server
      */
     private void onMPDDisconnect() {
-        MPDCommandHandler.disconnectFromMPDServer();
+        ConnectionManager.disconnectFromServer();
     }
 
     /**
@@ -344,7 +343,7 @@ public class BackgroundService extends Service {
      * Ensures an MPD server is connected before performing an action.
      */
     private void checkMPDConnection() {
-        if (!MPDConnection.getInstance().isConnected() && !mConnecting) {
+        if (!ConnectionManager.isConnected() && !mConnecting) {
             mLastTrack = new MPDFile("");
             mLastStatus = new MPDCurrentStatus();
             connectMPDServer();
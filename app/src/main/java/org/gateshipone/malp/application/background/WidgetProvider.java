@@ -219,7 +219,7 @@ public class WidgetProvider extends AppWidgetProvider {
         if (intent.getAction().equals(BackgroundService.ACTION_STATUS_CHANGED)) {
 
             // Extract the payload from the intent
-            MPDCurrentStatus status = intent.getParcelableExtra(BackgroundService.INTENT_EXTRA_STATUS);
+            MPDCurrentStatus status = (MPDCurrentStatus) intent.getSerializableExtra(BackgroundService.INTENT_EXTRA_STATUS);
 
             // Check if a payload was sent
             if (null != status) {
@@ -229,7 +229,7 @@ public class WidgetProvider extends AppWidgetProvider {
         } else if (intent.getAction().equals(BackgroundService.ACTION_TRACK_CHANGED)) {
 
             // Extract the payload from the intent
-            MPDFile track = intent.getParcelableExtra(BackgroundService.INTENT_EXTRA_TRACK);
+            MPDFile track = (MPDFile) intent.getSerializableExtra(BackgroundService.INTENT_EXTRA_TRACK);
 
             // Check if a payload was sent
             if (null != track) {
@@ -93,7 +93,7 @@ public class AlbumTracksFragment extends GenericMPDFragment<List<MPDFileEntry>>
         /* Check if an artistname/albumame was given in the extras */
         Bundle args = getArguments();
         if (null != args) {
-            mAlbum = args.getParcelable(BUNDLE_STRING_EXTRA_ALBUM);
+            mAlbum = (MPDAlbum) args.getSerializable(BUNDLE_STRING_EXTRA_ALBUM);
             if ( null != mAlbum) {
                 Log.v(TAG,"Album:" + mAlbum.getName() + ":" + mAlbum.getArtistName());
             }
@@ -206,7 +206,7 @@ public class AlbumTracksFragment extends GenericMPDFragment<List<MPDFileEntry>>
         // Open song details dialog
         SongDetailsDialog songDetailsDialog = new SongDetailsDialog();
         Bundle args = new Bundle();
-        args.putParcelable(SongDetailsDialog.EXTRA_FILE, (MPDFile) mFileAdapter.getItem(position));
+        args.putSerializable(SongDetailsDialog.EXTRA_FILE, (MPDFile) mFileAdapter.getItem(position));
         songDetailsDialog.setArguments(args);
         songDetailsDialog.show(((AppCompatActivity) getContext()).getSupportFragmentManager(), "SongDetails");
     }
@@ -130,7 +130,7 @@ public class AlbumsFragment extends GenericMPDFragment<List<MPDAlbum>> implement
         Bundle args = getArguments();
         if (null != args) {
             mAlbumsPath = args.getString(BUNDLE_STRING_EXTRA_PATH);
-            mArtist = args.getParcelable(BUNDLE_STRING_EXTRA_ARTIST);
+            mArtist = (MPDArtist) args.getSerializable(BUNDLE_STRING_EXTRA_ARTIST);
         } else {
             mAlbumsPath = "";
             // Create dummy album
@@ -405,7 +405,7 @@ public class FilesFragment extends GenericMPDFragment<List<MPDFileEntry>> implem
             // Open song details dialog
             SongDetailsDialog songDetailsDialog = new SongDetailsDialog();
             Bundle args = new Bundle();
-            args.putParcelable(SongDetailsDialog.EXTRA_FILE, (MPDFile)file);
+            args.putSerializable(SongDetailsDialog.EXTRA_FILE, (MPDFile)file);
             songDetailsDialog.setArguments(args);
             songDetailsDialog.show(((AppCompatActivity) getContext()).getSupportFragmentManager(), "SongDetails");
         }
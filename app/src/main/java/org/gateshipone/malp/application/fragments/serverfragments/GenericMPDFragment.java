@@ -28,10 +28,15 @@ import android.support.v4.content.Loader;
 import android.support.v4.widget.SwipeRefreshLayout;
 
 import java.lang.ref.WeakReference;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 import org.gateshipone.malp.mpdservice.handlers.MPDConnectionStateChangeHandler;
+import org.gateshipone.malp.mpdservice.handlers.MPDSubsystemChangeHandler;
 import org.gateshipone.malp.mpdservice.handlers.serverhandler.MPDQueryHandler;
+import org.gateshipone.malp.mpdservice.handlers.serverhandler.MPDStateMonitoringHandler;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDCommands;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
 
 public abstract class GenericMPDFragment<T extends Object> extends Fragment implements LoaderManager.LoaderCallbacks<T> {
@@ -39,10 +44,13 @@ public abstract class GenericMPDFragment<T extends Object> extends Fragment impl
 
     protected ConnectionStateListener mConnectionStateListener;
 
+    private SubsystemChangeListener mSubsystemChangeListener;
+
     protected SwipeRefreshLayout mSwipeRefreshLayout = null;
 
     protected GenericMPDFragment() {
         mConnectionStateListener = new ConnectionStateListener(this);
+        mSubsystemChangeListener = new SubsystemChangeListener(this);
     }
 
     @Override
@@ -50,7 +58,7 @@ public abstract class GenericMPDFragment<T extends Object> extends Fragment impl
         super.onResume();
         refreshContent();
         MPDQueryHandler.registerConnectionStateListener(mConnectionStateListener);
-
+        MPDStateMonitoringHandler.registerSubsystemListener(mSubsystemChangeListener);
     }
 
     @Override
@@ -59,6 +67,7 @@ public abstract class GenericMPDFragment<T extends Object> extends Fragment impl
         synchronized (this) {
             getLoaderManager().destroyLoader(0);
             MPDQueryHandler.unregisterConnectionStateListener(mConnectionStateListener);
+            MPDStateMonitoringHandler.unregisterSubsystemListener(mSubsystemChangeListener);
         }
     }
 
@@ -101,6 +110,41 @@ public abstract class GenericMPDFragment<T extends Object> extends Fragment impl
         }
     }
 
+    private static class SubsystemChangeListener extends MPDSubsystemChangeHandler {
+        private WeakReference<GenericMPDFragment> pFragment;
+
+        public SubsystemChangeListener(GenericMPDFragment fragment) {
+            pFragment = new WeakReference<GenericMPDFragment>(fragment);
+        }
+
+        @Override
+        public void onSubsystemsChanged(Set<MPDCommands.MPD_IDLE_SUBSYSTEM> changedSubsystems) {
+            GenericMPDFragment fragment = pFragment.get();
+            if (null == fragment) {
+                return;
+            }
+            Set<MPDCommands.MPD_IDLE_SUBSYSTEM> invalidating = fragment.getInvalidatingSubsystems();
+            for (MPDCommands.MPD_IDLE_SUBSYSTEM subsystem : changedSubsystems) {
+                if (invalidating.contains(subsystem)) {
+                    fragment.refreshContent();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Subsystems of MPD whose changes make the shown content outdated. The content is reloaded
+     * if the server reports a change of one of them.
+     * <p/>
+     * Defaults to the database. Subclasses showing other data should override this.
+     *
+     * @return Set of subsystems to react to
+     */
+    protected Set<MPDCommands.MPD_IDLE_SUBSYSTEM> getInvalidatingSubsystems() {
+        return EnumSet.of(MPDCommands.MPD_IDLE_SUBSYSTEM.MPD_IDLE_SUBSYSTEM_DATABASE);
+    }
+
     private void finishedLoading() {
         if (null != mSwipeRefreshLayout) {
             mSwipeRefreshLayout.post(new Runnable() {
@@ -32,13 +32,16 @@ import android.widget.AbsListView;
 import android.widget.AdapterView;
 import android.widget.ListView;
 
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 import org.gateshipone.malp.R;
 import org.gateshipone.malp.application.adapters.OutputAdapter;
 import org.gateshipone.malp.application.callbacks.FABFragmentCallback;
 import org.gateshipone.malp.application.loaders.OutputsLoader;
 import org.gateshipone.malp.mpdservice.handlers.serverhandler.MPDCommandHandler;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDCommands;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDOutput;
 
 public class OutputsFragment extends GenericMPDFragment<List<MPDOutput>> implements  AbsListView.OnItemClickListener{
@@ -97,4 +100,12 @@ public class OutputsFragment extends GenericMPDFragment<List<MPDOutput>> impleme
         mAdapter.swapModel(null);
     }
 
+    /**
+     * Reload the outputs if they were changed on the server (e.g. by another client).
+     */
+    @Override
+    protected Set<MPDCommands.MPD_IDLE_SUBSYSTEM> getInvalidatingSubsystems() {
+        return EnumSet.of(MPDCommands.MPD_IDLE_SUBSYSTEM.MPD_IDLE_SUBSYSTEM_OUTPUT);
+    }
+
 }
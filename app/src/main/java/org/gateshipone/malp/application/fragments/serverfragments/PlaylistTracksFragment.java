@@ -40,7 +40,9 @@ import android.view.ViewGroup;
 import android.widget.AdapterView;
 import android.widget.ListView;
 
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 import org.gateshipone.malp.R;
 import org.gateshipone.malp.application.adapters.FileAdapter;
@@ -50,6 +52,7 @@ import org.gateshipone.malp.application.loaders.PlaylistTrackLoader;
 import org.gateshipone.malp.application.utils.ThemeUtils;
 import org.gateshipone.malp.mpdservice.handlers.serverhandler.MPDCommandHandler;
 import org.gateshipone.malp.mpdservice.handlers.serverhandler.MPDQueryHandler;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDCommands;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFile;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
 
@@ -131,6 +134,15 @@ public class PlaylistTracksFragment extends GenericMPDFragment<List<MPDFileEntry
 
     }
 
+    /**
+     * Reload the tracks if the stored playlists or the database changed on the server.
+     */
+    @Override
+    protected Set<MPDCommands.MPD_IDLE_SUBSYSTEM> getInvalidatingSubsystems() {
+        return EnumSet.of(MPDCommands.MPD_IDLE_SUBSYSTEM.MPD_IDLE_SUBSYSTEM_STORED_PLAYLIST,
+                MPDCommands.MPD_IDLE_SUBSYSTEM.MPD_IDLE_SUBSYSTEM_DATABASE);
+    }
+
     /**
      * Called when the fragment is first attached to its context.
      */
@@ -320,7 +332,7 @@ public class PlaylistTracksFragment extends GenericMPDFragment<List<MPDFileEntry
         // Open song details dialog
         SongDetailsDialog songDetailsDialog = new SongDetailsDialog();
         Bundle args = new Bundle();
-        args.putParcelable(SongDetailsDialog.EXTRA_FILE, (MPDFile) mFileAdapter.getItem(position));
+        args.putSerializable(SongDetailsDialog.EXTRA_FILE, (MPDFile) mFileAdapter.getItem(position));
         songDetailsDialog.setArguments(args);
         songDetailsDialog.show(((AppCompatActivity) getContext()).getSupportFragmentManager(), "SongDetails");
     }
@@ -38,7 +38,9 @@ import android.widget.AbsListView;
 import android.widget.AdapterView;
 import android.widget.ListView;
 
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 import org.gateshipone.malp.R;
 import org.gateshipone.malp.application.adapters.FileAdapter;
@@ -47,6 +49,7 @@ import org.gateshipone.malp.application.callbacks.PlaylistCallback;
 import org.gateshipone.malp.application.loaders.PlaylistsLoader;
 import org.gateshipone.malp.application.utils.ThemeUtils;
 import org.gateshipone.malp.mpdservice.handlers.serverhandler.MPDQueryHandler;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDCommands;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDPlaylist;
 
@@ -120,6 +123,14 @@ public class SavedPlaylistsFragment extends GenericMPDFragment<List<MPDFileEntry
         }
     }
 
+    /**
+     * Reload the playlists if the stored playlists changed on the server.
+     */
+    @Override
+    protected Set<MPDCommands.MPD_IDLE_SUBSYSTEM> getInvalidatingSubsystems() {
+        return EnumSet.of(MPDCommands.MPD_IDLE_SUBSYSTEM.MPD_IDLE_SUBSYSTEM_STORED_PLAYLIST);
+    }
+
     /**
      * Called when the fragment is first attached to its context.
      */
@@ -45,10 +45,8 @@ import android.widget.ListView;
 import android.widget.SearchView;
 import android.widget.Spinner;
 
-import java.util.List;
-
 import org.gateshipone.malp.R;
-import org.gateshipone.malp.application.adapters.FileAdapter;
+import org.gateshipone.malp.application.adapters.SearchResultAdapter;
 import org.gateshipone.malp.application.callbacks.AddPathToPlaylist;
 import org.gateshipone.malp.application.callbacks.FABFragmentCallback;
 import org.gateshipone.malp.application.loaders.SearchResultLoader;
@@ -56,15 +54,19 @@ import org.gateshipone.malp.application.utils.ThemeUtils;
 import org.gateshipone.malp.mpdservice.handlers.serverhandler.MPDQueryHandler;
 import org.gateshipone.malp.mpdservice.mpdprotocol.MPDCommands;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFile;
-import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
 
-public class SearchFragment extends GenericMPDFragment<List<MPDFileEntry>> implements AdapterView.OnItemClickListener {
+public class SearchFragment extends GenericMPDFragment<SearchResultLoader.SearchResult> implements AdapterView.OnItemClickListener {
     public static final String TAG = SearchFragment.class.getSimpleName();
 
     /**
      * Adapter used by the ListView
      */
-    private FileAdapter mFileAdapter;
+    private SearchResultAdapter mSearchResultAdapter;
+
+    /**
+     * Result that is currently shown, null if none
+     */
+    private SearchResultLoader.SearchResult mSearchResult;
 
     /**
      * Main ListView of this fragment
@@ -96,10 +98,10 @@ public class SearchFragment extends GenericMPDFragment<List<MPDFileEntry>> imple
 
 
         // Create the needed adapter for the ListView
-        mFileAdapter = new FileAdapter(getActivity(), false, true);
+        mSearchResultAdapter = new SearchResultAdapter(getActivity());
 
         // Combine the two to a happy couple
-        mListView.setAdapter(mFileAdapter);
+        mListView.setAdapter(mSearchResultAdapter);
         mListView.setOnItemClickListener(this);
         registerForContextMenu(mListView);
 
@@ -190,15 +192,16 @@ public class SearchFragment extends GenericMPDFragment<List<MPDFileEntry>> imple
     }
 
     @Override
-    public Loader<List<MPDFileEntry>> onCreateLoader(int id, Bundle args) {
+    public Loader<SearchResultLoader.SearchResult> onCreateLoader(int id, Bundle args) {
         return new SearchResultLoader(getActivity(), mSearchText, mSearchType);
     }
 
     @Override
-    public void onLoadFinished(Loader<List<MPDFileEntry>> loader, List<MPDFileEntry> data) {
+    public void onLoadFinished(Loader<SearchResultLoader.SearchResult> loader, SearchResultLoader.SearchResult data) {
         super.onLoadFinished(loader, data);
-        mFileAdapter.swapModel(data);
-        if (null != data && !data.isEmpty()) {
+        mSearchResult = data;
+        mSearchResultAdapter.swapSearch(data);
+        if (null != data && !data.getFirstPage().isEmpty()) {
             showFAB(true);
         } else {
             showFAB(false);
@@ -206,9 +209,10 @@ public class SearchFragment extends GenericMPDFragment<List<MPDFileEntry>> imple
     }
 
     @Override
-    public void onLoaderReset(Loader<List<MPDFileEntry>> loader) {
+    public void onLoaderReset(Loader<SearchResultLoader.SearchResult> loader) {
         super.onLoaderReset(loader);
-        mFileAdapter.swapModel(null);
+        mSearchResult = null;
+        mSearchResultAdapter.swapSearch(null);
     }
 
     /**
@@ -237,7 +241,11 @@ public class SearchFragment extends GenericMPDFragment<List<MPDFileEntry>> imple
         }
 
 
-        MPDFile track = (MPDFile) mFileAdapter.getItem(info.position);
+        MPDFile track = (MPDFile) mSearchResultAdapter.getItem(info.position);
+        if (null == track) {
+            // Not yet received
+            return true;
+        }
 
         mListView.requestFocus();
 
@@ -257,7 +265,7 @@ public class SearchFragment extends GenericMPDFragment<List<MPDFileEntry>> imple
                 ChoosePlaylistDialog choosePlaylistDialog = new ChoosePlaylistDialog();
                 Bundle args = new Bundle();
                 args.putBoolean(ChoosePlaylistDialog.EXTRA_SHOW_NEW_ENTRY, true);
-                choosePlaylistDialog.setCallback(new AddPathToPlaylist((MPDFileEntry) mFileAdapter.getItem(info.position), getContext()));
+                choosePlaylistDialog.setCallback(new AddPathToPlaylist(track, getContext()));
                 choosePlaylistDialog.setArguments(args);
                 choosePlaylistDialog.show(((AppCompatActivity) getContext()).getSupportFragmentManager(), "ChoosePlaylistDialog");
                 return true;
@@ -311,7 +319,12 @@ public class SearchFragment extends GenericMPDFragment<List<MPDFileEntry>> imple
     public boolean onOptionsItemSelected(MenuItem item) {
         switch (item.getItemId()) {
             case R.id.action_add_search_result:
-                MPDQueryHandler.searchAddFiles(mSearchText, mSearchType);
+                if (null != mSearchResult && mSearchResult.isComplete()) {
+                    // Add exactly the shown tracks, the local search can differ from the server search
+                    MPDQueryHandler.addTrackList(mSearchResult.getFirstPage());
+                } else {
+                    MPDQueryHandler.searchAddFiles(mSearchText, mSearchType);
+                }
                 return true;
         }
 
@@ -320,10 +333,16 @@ public class SearchFragment extends GenericMPDFragment<List<MPDFileEntry>> imple
 
     @Override
     public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
+        MPDFile track = (MPDFile) mSearchResultAdapter.getItem(position);
+        if (null == track) {
+            // Not yet received
+            return;
+        }
+
         // Open song details dialog
         SongDetailsDialog songDetailsDialog = new SongDetailsDialog();
         Bundle args = new Bundle();
-        args.putParcelable(SongDetailsDialog.EXTRA_FILE, (MPDFile) mFileAdapter.getItem(position));
+        args.putSerializable(SongDetailsDialog.EXTRA_FILE, track);
         songDetailsDialog.setArguments(args);
         songDetailsDialog.show(((AppCompatActivity) getContext()).getSupportFragmentManager(), "SongDetails");
     }
@@ -338,7 +357,12 @@ public class SearchFragment extends GenericMPDFragment<List<MPDFileEntry>> imple
 
         @Override
         public void onClick(View v) {
-            MPDQueryHandler.searchPlayFiles(mSearchText, mSearchType);
+            if (null != mSearchResult && mSearchResult.isComplete()) {
+                // Play exactly the shown tracks, the local search can differ from the server search
+                MPDQueryHandler.playTrackList(mSearchResult.getFirstPage());
+            } else {
+                MPDQueryHandler.searchPlayFiles(mSearchText, mSearchType);
+            }
         }
     }
 
@@ -374,6 +398,11 @@ public class SearchFragment extends GenericMPDFragment<List<MPDFileEntry>> imple
             // Write settings values
             prefEditor.apply();
 
+            if (SearchResultLoader.hasLocalSearch() && null != mSearchText) {
+                // Show the results for the new type right away
+                getLoaderManager().restartLoader(0, getArguments(), SearchFragment.this);
+            }
+
             mSearchView.setActivated(true);
             mSearchView.requestFocus();
 
@@ -399,7 +428,13 @@ public class SearchFragment extends GenericMPDFragment<List<MPDFileEntry>> imple
 
         @Override
         public boolean onQueryTextChange(String newText) {
-            return false;
+            if (!SearchResultLoader.hasLocalSearch()) {
+                // Searching on the server only when the search is submitted
+                return false;
+            }
+            mSearchText = newText;
+            getLoaderManager().restartLoader(0, getArguments(), SearchFragment.this);
+            return true;
         }
     }
 
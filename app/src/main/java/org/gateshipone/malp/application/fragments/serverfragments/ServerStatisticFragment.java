@@ -30,14 +30,21 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import org.gateshipone.malp.R;
 import org.gateshipone.malp.application.callbacks.FABFragmentCallback;
 import org.gateshipone.malp.application.utils.FormatHelper;
 import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseServerStatistics;
 import org.gateshipone.malp.mpdservice.handlers.serverhandler.MPDQueryHandler;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDCommandMetrics;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDStatistics;
 
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Locale;
+
 public class ServerStatisticFragment extends Fragment {
     public final static String TAG = ServerStatisticFragment.class.getSimpleName();
 
@@ -50,6 +57,13 @@ public class ServerStatisticFragment extends Fragment {
     private TextView mLastUpdate;
     private TextView mDBLength;
 
+    private TextView mCommandMetrics;
+
+    /**
+     * File name of the exported protocol statistics
+     */
+    private static final String METRICS_EXPORT_FILE = "mpd_command_metrics.csv";
+
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
         // Inflate the layout for this fragment
@@ -64,7 +78,10 @@ public class ServerStatisticFragment extends Fragment {
         mLastUpdate = (TextView)rootView.findViewById(R.id.server_statistic_db_update);
         mDBLength = (TextView)rootView.findViewById(R.id.server_statistic_db_playtime);
 
+        mCommandMetrics = (TextView)rootView.findViewById(R.id.server_statistic_command_metrics);
+
         ((Button)rootView.findViewById(R.id.server_statistic_update_db_btn)).setOnClickListener(new DBUpdateBtnListener());
+        ((Button)rootView.findViewById(R.id.server_statistic_export_metrics_btn)).setOnClickListener(new MetricsExportBtnListener());
 
         // Return the ready inflated and configured fragment view.
         return rootView;
@@ -78,6 +95,29 @@ public class ServerStatisticFragment extends Fragment {
         super.onResume();
 
         MPDQueryHandler.getStatistics(new StatisticResponseHandler());
+
+        showCommandMetrics();
+    }
+
+    /**
+     * Shows one line per MPD command with its count, average and 95th percentile of the
+     * response time, the transferred bytes and the bytes per song.
+     */
+    private void showCommandMetrics() {
+        MPDCommandMetrics metrics = MPDCommandMetrics.getInstance();
+        StringBuilder text = new StringBuilder();
+        for (MPDCommandMetrics.CommandStatistics statistics : metrics.getCommandStatistics()) {
+            long count = statistics.getCount();
+            long p95 = statistics.getLastLinePercentile(95);
+            text.append(String.format(Locale.getDefault(), "%-16s %6d %7.1fms %6s %9d B %5d B%n",
+                    statistics.getCommand(), count,
+                    statistics.getLastLineNanos() / (count * 1000000.0),
+                    p95 == -1 ? ">5s" : ("<" + p95 + "ms"),
+                    statistics.getBytes(), statistics.getBytesPerSong()));
+        }
+        text.append(String.format(Locale.getDefault(), "idle %d / noidle %d",
+                metrics.getIdleCount(), metrics.getDeidleCount()));
+        mCommandMetrics.setText(text.toString());
     }
 
 
@@ -103,4 +143,36 @@ public class ServerStatisticFragment extends Fragment {
             MPDQueryHandler.updateDatabase();
         }
     }
+
+    private class MetricsExportBtnListener implements View.OnClickListener {
+
+        @Override
+        public void onClick(View v) {
+            Context context = getContext();
+            File directory = context.getExternalFilesDir(null);
+            if (null == directory) {
+                directory = context.getFilesDir();
+            }
+            File file = new File(directory, METRICS_EXPORT_FILE);
+
+            FileWriter writer = null;
+            try {
+                writer = new FileWriter(file);
+                MPDCommandMetrics.getInstance().writeCSV(writer);
+                Toast.makeText(context, getString(R.string.server_statistic_command_metrics_exported, file.getAbsolutePath()), Toast.LENGTH_LONG).show();
+            } catch (IOException e) {
+                e.printStackTrace();
+                Toast.makeText(context, R.string.server_statistic_command_metrics_export_failed, Toast.LENGTH_SHORT).show();
+            } finally {
+                if (null != writer) {
+                    try {
+                        writer.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+            showCommandMetrics();
+        }
+    }
 }
@@ -66,7 +66,7 @@ public class SongDetailsDialog extends DialogFragment {
         /* Check if an artistname/albumame was given in the extras */
         Bundle args = getArguments();
         if (null != args) {
-            mFile = args.getParcelable(EXTRA_FILE);
+            mFile = (MPDFile) args.getSerializable(EXTRA_FILE);
         }
 
         mTrackTitle = (TextView) rootView.findViewById(R.id.now_playing_text_track_title);
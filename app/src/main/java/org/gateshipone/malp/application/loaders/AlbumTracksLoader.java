@@ -27,14 +27,29 @@ import android.support.v4.content.Loader;
 
 import java.util.List;
 
+import org.gateshipone.malp.mpdservice.handlers.MPDMainThreadExecutor;
 import org.gateshipone.malp.mpdservice.handlers.serverhandler.MPDQueryHandler;
 import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseFileList;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDCancellationToken;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDFuture;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDLibrary;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDLibraryMirror;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
 
 /**
  * Loader class for albumtracks and artist album tracks
  */
 public class AlbumTracksLoader extends Loader<List<MPDFileEntry>> {
+    /**
+     * Token of the running request, cancelled if the loader is stopped or reset.
+     */
+    private MPDCancellationToken mCancellationToken;
+
+    /**
+     * Running request to the copy of the server database, cancelled if the loader is stopped or reset.
+     */
+    private MPDFuture<List<MPDFileEntry>> mRequest;
+
     /**
      * Response handler used for the asynchronous callback of the networking thread
      */
@@ -95,7 +110,12 @@ public class AlbumTracksLoader extends Loader<List<MPDFileEntry>> {
      */
     @Override
     public void onStopLoading() {
+        cancelRequest();
+    }
 
+    @Override
+    protected void onReset() {
+        cancelRequest();
     }
 
     /**
@@ -104,10 +124,59 @@ public class AlbumTracksLoader extends Loader<List<MPDFileEntry>> {
      */
     @Override
     public void onForceLoad() {
+        cancelRequest();
+
+        // Use the copy of the server database if available, this needs no request to the server
+        final MPDFuture<List<MPDFileEntry>> request = MPDLibraryMirror.getInstance().query(new MPDLibraryMirror.Query<List<MPDFileEntry>>() {
+            @Override
+            public List<MPDFileEntry> run(MPDLibrary library) {
+                String mbid = null == mAlbumMBID ? "" : mAlbumMBID;
+                if ((null == mArtistName) || mArtistName.equals("")) {
+                    return library.getAlbumTracks(mAlbumName, mbid);
+                } else {
+                    return library.getArtistAlbumTracks(mAlbumName, mArtistName, mbid);
+                }
+            }
+        });
+        if (null != request) {
+            mRequest = request;
+            request.whenComplete(new MPDFuture.Callback<List<MPDFileEntry>>() {
+                @Override
+                public void onSuccess(List<MPDFileEntry> result) {
+                    if (request == mRequest) {
+                        deliverResult(result);
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable error) {
+                    if (request == mRequest) {
+                        deliverResult(null);
+                    }
+                }
+            }, MPDMainThreadExecutor.getInstance());
+            return;
+        }
+
+        mCancellationToken = new MPDCancellationToken();
         if ( (null == mArtistName) || mArtistName.equals("") ) {
-            MPDQueryHandler.getAlbumTracks(pTrackResponseHandler,mAlbumName,mAlbumMBID);
+            MPDQueryHandler.getAlbumTracks(pTrackResponseHandler, mAlbumName, mAlbumMBID, mCancellationToken);
         } else {
-            MPDQueryHandler.getArtistAlbumTracks(pTrackResponseHandler,mAlbumName,mArtistName,mAlbumMBID);
+            MPDQueryHandler.getArtistAlbumTracks(pTrackResponseHandler, mAlbumName, mArtistName, mAlbumMBID, mCancellationToken);
+        }
+    }
+
+    /**
+     * Cancels the running request, its result is not needed anymore.
+     */
+    private void cancelRequest() {
+        if (null != mRequest) {
+            mRequest.cancel(false);
+            mRequest = null;
+        }
+        if (null != mCancellationToken) {
+            mCancellationToken.cancel();
+            mCancellationToken = null;
         }
     }
 }
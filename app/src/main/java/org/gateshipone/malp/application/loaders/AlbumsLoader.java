@@ -27,12 +27,26 @@ import android.support.v4.content.Loader;
 
 import java.util.List;
 
+import org.gateshipone.malp.mpdservice.handlers.MPDMainThreadExecutor;
 import org.gateshipone.malp.mpdservice.handlers.serverhandler.MPDQueryHandler;
 import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseAlbumList;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDCancellationToken;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDFuture;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDLibrary;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDLibraryMirror;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
 
 
 public class AlbumsLoader extends Loader<List<MPDAlbum>> {
+    /**
+     * Token of the running request, cancelled if the loader is stopped or reset.
+     */
+    private MPDCancellationToken mCancellationToken;
+
+    /**
+     * Running request to the copy of the server database, cancelled if the loader is stopped or reset.
+     */
+    private MPDFuture<List<MPDAlbum>> mRequest;
 
     private MPDResponseAlbumList pAlbumsResponseHandler;
 
@@ -67,19 +81,76 @@ public class AlbumsLoader extends Loader<List<MPDAlbum>> {
 
     @Override
     public void onStopLoading() {
+        cancelRequest();
+    }
 
+    @Override
+    protected void onReset() {
+        cancelRequest();
     }
 
     @Override
     public void onForceLoad() {
+        cancelRequest();
+
+        // Use the copy of the server database if available, this needs no request to the server
+        final MPDFuture<List<MPDAlbum>> request = MPDLibraryMirror.getInstance().query(new MPDLibraryMirror.Query<List<MPDAlbum>>() {
+            @Override
+            public List<MPDAlbum> run(MPDLibrary library) {
+                if ((null == mArtistName) || mArtistName.isEmpty()) {
+                    if (null == mAlbumsPath || mAlbumsPath.isEmpty()) {
+                        return library.getAlbums();
+                    } else {
+                        return library.getAlbumsInPath(mAlbumsPath);
+                    }
+                } else {
+                    return library.getArtistAlbums(mArtistName);
+                }
+            }
+        });
+        if (null != request) {
+            mRequest = request;
+            request.whenComplete(new MPDFuture.Callback<List<MPDAlbum>>() {
+                @Override
+                public void onSuccess(List<MPDAlbum> result) {
+                    if (request == mRequest) {
+                        deliverResult(result);
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable error) {
+                    if (request == mRequest) {
+                        deliverResult(null);
+                    }
+                }
+            }, MPDMainThreadExecutor.getInstance());
+            return;
+        }
+
+        mCancellationToken = new MPDCancellationToken();
         if ( (null == mArtistName) || mArtistName.isEmpty() ) {
             if ( null == mAlbumsPath || mAlbumsPath.isEmpty()) {
-                MPDQueryHandler.getAlbums(pAlbumsResponseHandler);
+                MPDQueryHandler.getAlbums(pAlbumsResponseHandler, mCancellationToken);
             } else {
-                MPDQueryHandler.getAlbumsInPath(mAlbumsPath, pAlbumsResponseHandler);
+                MPDQueryHandler.getAlbumsInPath(mAlbumsPath, pAlbumsResponseHandler, mCancellationToken);
             }
         } else {
-            MPDQueryHandler.getArtistAlbums(pAlbumsResponseHandler,mArtistName);
+            MPDQueryHandler.getArtistAlbums(pAlbumsResponseHandler, mArtistName, mCancellationToken);
+        }
+    }
+
+    /**
+     * Cancels the running request, its result is not needed anymore.
+     */
+    private void cancelRequest() {
+        if (null != mRequest) {
+            mRequest.cancel(false);
+            mRequest = null;
+        }
+        if (null != mCancellationToken) {
+            mCancellationToken.cancel();
+            mCancellationToken = null;
         }
     }
 }
@@ -27,12 +27,26 @@ import android.support.v4.content.Loader;
 
 import java.util.List;
 
+import org.gateshipone.malp.mpdservice.handlers.MPDMainThreadExecutor;
 import org.gateshipone.malp.mpdservice.handlers.serverhandler.MPDQueryHandler;
 import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseArtistList;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDCancellationToken;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDFuture;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDLibrary;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDLibraryMirror;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDArtist;
 
 
 public class ArtistsLoader extends Loader<List<MPDArtist>> {
+    /**
+     * Token of the running request, cancelled if the loader is stopped or reset.
+     */
+    private MPDCancellationToken mCancellationToken;
+
+    /**
+     * Running request to the copy of the server database, cancelled if the loader is stopped or reset.
+     */
+    private MPDFuture<List<MPDArtist>> mRequest;
 
     private MPDResponseArtistList pArtistResponseHandler;
 
@@ -61,15 +75,64 @@ public class ArtistsLoader extends Loader<List<MPDArtist>> {
 
     @Override
     public void onStopLoading() {
+        cancelRequest();
+    }
 
+    @Override
+    protected void onReset() {
+        cancelRequest();
     }
 
     @Override
     public void onForceLoad() {
+        cancelRequest();
+
+        // Use the copy of the server database if available, this needs no request to the server
+        final MPDFuture<List<MPDArtist>> request = MPDLibraryMirror.getInstance().query(new MPDLibraryMirror.Query<List<MPDArtist>>() {
+            @Override
+            public List<MPDArtist> run(MPDLibrary library) {
+                return mUseAlbumArtists ? library.getAlbumArtists() : library.getArtists();
+            }
+        });
+        if (null != request) {
+            mRequest = request;
+            request.whenComplete(new MPDFuture.Callback<List<MPDArtist>>() {
+                @Override
+                public void onSuccess(List<MPDArtist> result) {
+                    if (request == mRequest) {
+                        deliverResult(result);
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable error) {
+                    if (request == mRequest) {
+                        deliverResult(null);
+                    }
+                }
+            }, MPDMainThreadExecutor.getInstance());
+            return;
+        }
+
+        mCancellationToken = new MPDCancellationToken();
         if( !mUseAlbumArtists) {
-            MPDQueryHandler.getArtists(pArtistResponseHandler);
+            MPDQueryHandler.getArtists(pArtistResponseHandler, mCancellationToken);
         } else {
-            MPDQueryHandler.getAlbumArtists(pArtistResponseHandler);
+            MPDQueryHandler.getAlbumArtists(pArtistResponseHandler, mCancellationToken);
+        }
+    }
+
+    /**
+     * Cancels the running request, its result is not needed anymore.
+     */
+    private void cancelRequest() {
+        if (null != mRequest) {
+            mRequest.cancel(false);
+            mRequest = null;
+        }
+        if (null != mCancellationToken) {
+            mCancellationToken.cancel();
+            mCancellationToken = null;
         }
     }
 }
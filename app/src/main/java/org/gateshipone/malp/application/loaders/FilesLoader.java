@@ -27,14 +27,29 @@ import android.support.v4.content.Loader;
 
 import java.util.List;
 
+import org.gateshipone.malp.mpdservice.handlers.MPDMainThreadExecutor;
 import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseFileList;
 import org.gateshipone.malp.mpdservice.handlers.serverhandler.MPDQueryHandler;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDCancellationToken;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDFuture;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDLibrary;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDLibraryMirror;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
 
 /**
  * Loads a list of files, directories and playlists from the MPDQueryHandler
  */
 public class FilesLoader extends Loader<List<MPDFileEntry>> {
+    /**
+     * Token of the running request, cancelled if the loader is stopped or reset.
+     */
+    private MPDCancellationToken mCancellationToken;
+
+    /**
+     * Running request to the copy of the server database, cancelled if the loader is stopped or reset.
+     */
+    private MPDFuture<List<MPDFileEntry>> mRequest;
+
     private FilesResponseHandler mFilesResponseHandler;
 
     /**
@@ -82,7 +97,12 @@ public class FilesLoader extends Loader<List<MPDFileEntry>> {
      */
     @Override
     public void onStopLoading() {
+        cancelRequest();
+    }
 
+    @Override
+    protected void onReset() {
+        cancelRequest();
     }
 
     /**
@@ -90,6 +110,51 @@ public class FilesLoader extends Loader<List<MPDFileEntry>> {
      */
     @Override
     public void onForceLoad() {
-        MPDQueryHandler.getFiles(mFilesResponseHandler,mPath);
+        cancelRequest();
+
+        // Use the copy of the server database if available, this needs no request to the server.
+        // The root directory also lists the stored playlists, they are not part of the copy.
+        final MPDFuture<List<MPDFileEntry>> request = mPath.isEmpty() ? null : MPDLibraryMirror.getInstance().query(new MPDLibraryMirror.Query<List<MPDFileEntry>>() {
+            @Override
+            public List<MPDFileEntry> run(MPDLibrary library) {
+                return library.getFiles(mPath);
+            }
+        });
+        if (null != request) {
+            mRequest = request;
+            request.whenComplete(new MPDFuture.Callback<List<MPDFileEntry>>() {
+                @Override
+                public void onSuccess(List<MPDFileEntry> result) {
+                    if (request == mRequest) {
+                        deliverResult(result);
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable error) {
+                    if (request == mRequest) {
+                        deliverResult(null);
+                    }
+                }
+            }, MPDMainThreadExecutor.getInstance());
+            return;
+        }
+
+        mCancellationToken = new MPDCancellationToken();
+        MPDQueryHandler.getFiles(mFilesResponseHandler, mPath, mCancellationToken);
+    }
+
+    /**
+     * Cancels the running request, its result is not needed anymore.
+     */
+    private void cancelRequest() {
+        if (null != mRequest) {
+            mRequest.cancel(false);
+            mRequest = null;
+        }
+        if (null != mCancellationToken) {
+            mCancellationToken.cancel();
+            mCancellationToken = null;
+        }
     }
 }
@@ -29,12 +29,19 @@ import java.util.List;
 
 import org.gateshipone.malp.mpdservice.handlers.serverhandler.MPDQueryHandler;
 import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseFileList;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDCancellationToken;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDTrackStore;
 
 /**
  * Loader class for albumtracks and artist album tracks
  */
 public class PlaylistTrackLoader extends Loader<List<MPDFileEntry>> {
+    /**
+     * Token of the running request, cancelled if the loader is stopped or reset.
+     */
+    private MPDCancellationToken mCancellationToken;
+
     /**
      * Response handler used for the asynchronous callback of the networking thread
      */
@@ -45,6 +52,11 @@ public class PlaylistTrackLoader extends Loader<List<MPDFileEntry>> {
      */
     private String mPlaylistPath;
 
+    /**
+     * Tracks received so far. The chunks of the response are appended to it.
+     */
+    private MPDTrackStore mTrackList;
+
 
 
     /**
@@ -69,7 +81,16 @@ public class PlaylistTrackLoader extends Loader<List<MPDFileEntry>> {
     private class TrackResponseHandler extends MPDResponseFileList {
         @Override
         public void handleTracks(List<MPDFileEntry> trackList, int start, int end) {
-            deliverResult(trackList);
+            // The list is received in chunks. Deliver a new list for every chunk so that
+            // the results are shown progressively. The snapshots share the tracks received
+            // before, so they are not copied for every chunk.
+            if (0 == start || null == mTrackList) {
+                mTrackList = new MPDTrackStore();
+            }
+            if (null != trackList) {
+                mTrackList.addAll(trackList);
+            }
+            deliverResult(mTrackList.snapshot());
         }
     }
 
@@ -87,7 +108,12 @@ public class PlaylistTrackLoader extends Loader<List<MPDFileEntry>> {
      */
     @Override
     public void onStopLoading() {
+        cancelRequest();
+    }
 
+    @Override
+    protected void onReset() {
+        cancelRequest();
     }
 
 
@@ -97,10 +123,22 @@ public class PlaylistTrackLoader extends Loader<List<MPDFileEntry>> {
      */
     @Override
     public void onForceLoad() {
+        cancelRequest();
+        mCancellationToken = new MPDCancellationToken();
         if ( (null == mPlaylistPath) || mPlaylistPath.equals("")) {
-            MPDQueryHandler.getCurrentPlaylist(pTrackResponseHandler);
+            MPDQueryHandler.getCurrentPlaylist(pTrackResponseHandler, mCancellationToken);
         } else {
-            MPDQueryHandler.getSavedPlaylist(pTrackResponseHandler, mPlaylistPath);
+            MPDQueryHandler.getSavedPlaylist(pTrackResponseHandler, mPlaylistPath, mCancellationToken);
+        }
+    }
+
+    /**
+     * Cancels the running request, its result is not needed anymore.
+     */
+    private void cancelRequest() {
+        if (null != mCancellationToken) {
+            mCancellationToken.cancel();
+            mCancellationToken = null;
         }
     }
 }
@@ -30,11 +30,16 @@ import java.util.List;
 import org.gateshipone.malp.R;
 import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseFileList;
 import org.gateshipone.malp.mpdservice.handlers.serverhandler.MPDQueryHandler;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDCancellationToken;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDPlaylist;
 
 
 public class PlaylistsLoader extends Loader<List<MPDFileEntry>> {
+    /**
+     * Token of the running request, cancelled if the loader is stopped or reset.
+     */
+    private MPDCancellationToken mCancellationToken;
 
     private PlaylistResponseHandler mPlaylistResponseHandler;
 
@@ -67,12 +72,29 @@ public class PlaylistsLoader extends Loader<List<MPDFileEntry>> {
 
     @Override
     public void onStopLoading() {
+        cancelRequest();
+    }
 
+    @Override
+    protected void onReset() {
+        cancelRequest();
     }
 
 
     @Override
     public void onForceLoad() {
-        MPDQueryHandler.getSavedPlaylists(mPlaylistResponseHandler);
+        cancelRequest();
+        mCancellationToken = new MPDCancellationToken();
+        MPDQueryHandler.getSavedPlaylists(mPlaylistResponseHandler, mCancellationToken);
+    }
+
+    /**
+     * Cancels the running request, its result is not needed anymore.
+     */
+    private void cancelRequest() {
+        if (null != mCancellationToken) {
+            mCancellationToken.cancel();
+            mCancellationToken = null;
+        }
     }
 }
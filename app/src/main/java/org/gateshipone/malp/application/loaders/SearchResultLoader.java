@@ -27,19 +27,80 @@ import android.support.v4.content.Loader;
 
 import java.util.List;
 
-import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseFileList;
-import org.gateshipone.malp.mpdservice.handlers.serverhandler.MPDQueryHandler;
+import org.gateshipone.malp.mpdservice.handlers.MPDMainThreadExecutor;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDAsyncQueries;
 import org.gateshipone.malp.mpdservice.mpdprotocol.MPDCommands;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDFuture;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDLibrary;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDLibraryMirror;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
 
 /**
- * Loader class for search result tracks
+ * Loader class for search result tracks. Only the number of results and the first page of them
+ * are loaded here, the {@link org.gateshipone.malp.application.adapters.SearchResultAdapter}
+ * requests the following pages when they are scrolled into view.
+ * <p/>
+ * If the search index of the copy of the server database is ready (see
+ * {@link MPDLibrary#getSearchIndex()}) all results are delivered at once without a request to
+ * the server.
  */
-public class SearchResultLoader extends Loader<List<MPDFileEntry>> {
+public class SearchResultLoader extends Loader<SearchResultLoader.SearchResult> {
     /**
-     * Response handler used for the asynchronous callback of the networking thread
+     * Number of results requested at once
      */
-    private MPDResponseFileList pTrackResponseHandler;
+    public static final int PAGE_SIZE = 500;
+
+    /**
+     * Result of a search. Keeps the search term and type, so that following pages are requested
+     * for the same search even if the user changed the search type in the meantime.
+     */
+    public static class SearchResult {
+        private final String mSearchString;
+
+        private final MPDCommands.MPD_SEARCH_TYPE mSearchType;
+
+        private final int mCount;
+
+        private final List<MPDFileEntry> mFirstPage;
+
+        private SearchResult(String searchString, MPDCommands.MPD_SEARCH_TYPE searchType, int count, List<MPDFileEntry> firstPage) {
+            mSearchString = searchString;
+            mSearchType = searchType;
+            mCount = count;
+            mFirstPage = firstPage;
+        }
+
+        public String getSearchString() {
+            return mSearchString;
+        }
+
+        public MPDCommands.MPD_SEARCH_TYPE getSearchType() {
+            return mSearchType;
+        }
+
+        /**
+         * @return Total number of results or -1 if the server can not count them
+         */
+        public int getCount() {
+            return mCount;
+        }
+
+        /**
+         * @return Results from position 0 to {@link #PAGE_SIZE}. Contains all results if the
+         * server does not support windows or the results were found without the server.
+         */
+        public List<MPDFileEntry> getFirstPage() {
+            return mFirstPage;
+        }
+
+        /**
+         * @return True if {@link #getFirstPage()} contains all results. This is always the case
+         * for results found with the search index of the copy of the server database.
+         */
+        public boolean isComplete() {
+            return mCount == mFirstPage.size();
+        }
+    }
 
     /**
      * String to instruct the server to search for
@@ -51,30 +112,36 @@ public class SearchResultLoader extends Loader<List<MPDFileEntry>> {
      */
     private MPDCommands.MPD_SEARCH_TYPE mSearchType;
 
+    /**
+     * Running request, cancelled if the loader is reset or restarted.
+     */
+    private MPDFuture<SearchResult> mRequest;
+
+    /**
+     * Number of results of the running request. It is only combined with the first page when
+     * the page arrives, so it is cancelled separately.
+     */
+    private MPDFuture<Integer> mCountRequest;
+
 
     public SearchResultLoader(Context context, String searchTerm, MPDCommands.MPD_SEARCH_TYPE type) {
         super(context);
 
-        // Create a new Handler for asynchronous callback
-        pTrackResponseHandler = new TrackResponseHandler();
-
-        // Set the playlist properties
+        // Set the search properties
         mSearchString = searchTerm;
         mSearchType = type;
     }
 
 
     /**
-     * Private class for the response handler.
+     * @return True if searches are answered without a request to the server, fast enough to
+     * search while the search term is typed.
      */
-    private class TrackResponseHandler extends MPDResponseFileList {
-        @Override
-        public void handleTracks(List<MPDFileEntry> trackList, int start, int end) {
-            deliverResult(trackList);
-        }
+    public static boolean hasLocalSearch() {
+        MPDLibrary library = MPDLibraryMirror.getInstance().getLibrary();
+        return null != library && library.hasSearchIndex();
     }
 
-
     /**
      * Starts the loading process
      */
@@ -88,19 +155,93 @@ public class SearchResultLoader extends Loader<List<MPDFileEntry>> {
      */
     @Override
     public void onStopLoading() {
+        cancelRequest();
+    }
 
+    /**
+     * Cancels the running request, its result is not needed anymore.
+     */
+    @Override
+    protected void onReset() {
+        cancelRequest();
     }
 
     /**
-     * Start the actual laoding process. Check if an playlistpath is provided.
-     * If not it will just fetch the current playlist.
+     * Searches the copy of the server database in the background or requests the number of
+     * results and the first page in parallel from the server.
      */
     @Override
     public void onForceLoad() {
-        if (null != mSearchString && !mSearchString.isEmpty()) {
-            MPDQueryHandler.searchFiles(mSearchString, mSearchType, pTrackResponseHandler);
-        } else {
+        cancelRequest();
+        if (null == mSearchString || mSearchString.isEmpty()) {
             deliverResult(null);
+            return;
+        }
+
+        final String searchString = mSearchString;
+        final MPDCommands.MPD_SEARCH_TYPE searchType = mSearchType;
+
+        // Search the copy of the server database if its index is ready, this needs no request
+        // to the server
+        MPDFuture<SearchResult> localRequest = null;
+        if (hasLocalSearch()) {
+            localRequest = MPDLibraryMirror.getInstance().query(new MPDLibraryMirror.Query<SearchResult>() {
+                @Override
+                public SearchResult run(MPDLibrary library) {
+                    List<MPDFileEntry> results = library.getSearchIndex().search(searchString, searchType);
+                    return new SearchResult(searchString, searchType, results.size(), results);
+                }
+            });
+        }
+
+        final MPDFuture<SearchResult> request;
+        if (null != localRequest) {
+            request = localRequest;
+        } else {
+            MPDAsyncQueries queries = MPDAsyncQueries.getInstance();
+            final MPDFuture<Integer> count = queries.getSearchedFilesCount(searchString, searchType);
+            MPDFuture<List<MPDFileEntry>> firstPage = queries.getSearchedFiles(searchString, searchType, 0, PAGE_SIZE);
+
+            request = firstPage.thenCompose(new MPDFuture.AsyncFunction<List<MPDFileEntry>, SearchResult>() {
+                @Override
+                public MPDFuture<SearchResult> apply(final List<MPDFileEntry> page) {
+                    return count.thenApply(new MPDFuture.Function<Integer, SearchResult>() {
+                        @Override
+                        public SearchResult apply(Integer count) {
+                            return new SearchResult(searchString, searchType, count, page);
+                        }
+                    });
+                }
+            });
+            mCountRequest = count;
+        }
+        mRequest = request;
+
+        request.whenComplete(new MPDFuture.Callback<SearchResult>() {
+            @Override
+            public void onSuccess(SearchResult result) {
+                if (request == mRequest) {
+                    deliverResult(result);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable error) {
+                if (request == mRequest) {
+                    deliverResult(null);
+                }
+            }
+        }, MPDMainThreadExecutor.getInstance());
+    }
+
+    private void cancelRequest() {
+        if (null != mRequest) {
+            mRequest.cancel(false);
+            mRequest = null;
+        }
+        if (null != mCountRequest) {
+            mCountRequest.cancel(false);
+            mCountRequest = null;
         }
     }
 }
@@ -27,22 +27,34 @@ import android.content.SharedPreferences;
 import android.preference.PreferenceManager;
 import android.util.Log;
 
+import java.io.File;
 import java.util.Timer;
 import java.util.TimerTask;
 
 import org.gateshipone.malp.R;
 import org.gateshipone.malp.application.background.BackgroundService;
 import org.gateshipone.malp.mpdservice.handlers.MPDConnectionStateChangeHandler;
+import org.gateshipone.malp.mpdservice.handlers.serverhandler.MPDArtworkHandler;
 import org.gateshipone.malp.mpdservice.handlers.serverhandler.MPDCommandHandler;
 import org.gateshipone.malp.mpdservice.handlers.serverhandler.MPDQueryHandler;
 import org.gateshipone.malp.mpdservice.handlers.serverhandler.MPDStateMonitoringHandler;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDAsyncQueries;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDCapabilities;
 import org.gateshipone.malp.mpdservice.mpdprotocol.MPDConnection;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDConnectionPool;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDFuture;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDLibraryMirror;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDLog;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDSessionRecorder;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDCurrentStatus;
 import org.gateshipone.malp.mpdservice.profilemanagement.MPDProfileManager;
+import org.gateshipone.malp.mpdservice.profilemanagement.MPDServerCapabilityCache;
 import org.gateshipone.malp.mpdservice.profilemanagement.MPDServerProfile;
 
 /**
- * Simple class that manages the three MPD Connections (Queries, State monitoring, Commands)
+ * Simple class that manages the MPD Connections (Queries, State monitoring, Commands) of the
+ * {@link MPDConnectionPool}. Each role uses its own connection, queries are spread over multiple
+ * connections.
  */
 public class ConnectionManager extends MPDConnectionStateChangeHandler {
     private static final String TAG = ConnectionManager.class.getSimpleName();
@@ -65,6 +77,16 @@ public class ConnectionManager extends MPDConnectionStateChangeHandler {
 
     private static final int SHORT_RECONNECT_TRIES = 5;
 
+    /**
+     * Directory (in the external files directory) for the session recordings
+     */
+    private static final String SESSION_RECORD_DIRECTORY = "sessions";
+
+    /**
+     * Directory (in the files directory) for the copies of the server databases
+     */
+    private static final String LIBRARY_MIRROR_DIRECTORY = "libraries";
+
     private String mHostname;
     private String mPassword;
     private int mPort;
@@ -84,7 +106,16 @@ public class ConnectionManager extends MPDConnectionStateChangeHandler {
 
     private MPDServerProfile mServerProfile;
 
+    /**
+     * True while the capabilities taken from the cache are verified with the server, or after
+     * they were verified for the current server parameters.
+     */
+    private boolean mCapabilitiesVerified;
+
     private ConnectionManager() {
+        // The protocol library has no Android dependency, forward its messages to the Android log
+        MPDLog.setLogger(new AndroidLogger());
+
         MPDStateMonitoringHandler.registerConnectionStateListener(this);
         MPDQueryHandler.registerConnectionStateListener(this);
         MPDCommandHandler.registerConnectionStateListener(this);
@@ -119,7 +150,77 @@ public class ConnectionManager extends MPDConnectionStateChangeHandler {
         int port = getInstance().mPort;
         mConnectionManager.mServerProfile = profile;
 
-        MPDConnection.getInstance().setServerParameters(hostname, password, port);
+        MPDConnectionPool.getInstance().setServerParameters(hostname, password, port);
+
+        // Reuse the capabilities of the last connection to this profile to save round trips
+        MPDConnectionPool.getInstance().setCapabilityCache(new MPDServerCapabilityCache(profileManager, profile));
+        mConnectionManager.mCapabilitiesVerified = false;
+
+        setupSessionRecording(context);
+        setupLibraryMirror(context, profile);
+    }
+
+    /**
+     * Enables the recording of the server sessions if it is enabled in the preferences. This only
+     * affects connections that are established afterwards.
+     * @param context Context used to read the preferences and to find the files directory.
+     */
+    private static void setupSessionRecording(Context context) {
+        SharedPreferences sharedPref = PreferenceManager.getDefaultSharedPreferences(context);
+        boolean recordSessions = sharedPref.getBoolean(context.getString(R.string.pref_record_sessions_key), context.getResources().getBoolean(R.bool.pref_record_sessions_default));
+        if (!recordSessions) {
+            MPDSessionRecorder.setRecordDirectory(null);
+            return;
+        }
+
+        File directory = context.getExternalFilesDir(null);
+        if (null == directory) {
+            directory = context.getFilesDir();
+        }
+        directory = new File(directory, SESSION_RECORD_DIRECTORY);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.e(TAG, "Could not create directory for session recordings: " + directory);
+            MPDSessionRecorder.setRecordDirectory(null);
+            return;
+        }
+        MPDSessionRecorder.setRecordDirectory(directory);
+    }
+
+    /**
+     * Enables the copy of the server database if it is enabled in the preferences. Every profile
+     * has its own copy.
+     * @param context Context used to read the preferences and to find the files directory.
+     * @param profile Profile of the server
+     */
+    private static void setupLibraryMirror(Context context, MPDServerProfile profile) {
+        SharedPreferences sharedPref = PreferenceManager.getDefaultSharedPreferences(context);
+        boolean mirrorLibrary = sharedPref.getBoolean(context.getString(R.string.pref_library_mirror_key), context.getResources().getBoolean(R.bool.pref_library_mirror_default));
+        if (!mirrorLibrary) {
+            MPDLibraryMirror.getInstance().setFile(null);
+            return;
+        }
+
+        File directory = new File(context.getFilesDir(), LIBRARY_MIRROR_DIRECTORY);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.e(TAG, "Could not create directory for library copies: " + directory);
+            MPDLibraryMirror.getInstance().setFile(null);
+            return;
+        }
+        MPDLibraryMirror.getInstance().setFile(getLibraryMirrorFile(context, profile));
+    }
+
+    /**
+     * Deletes the copy of the server database of the profile.
+     * @param context Context used to find the files directory.
+     * @param profile Profile of the server
+     */
+    public static void deleteLibraryMirror(Context context, MPDServerProfile profile) {
+        MPDLibraryMirror.getInstance().deleteFile(getLibraryMirrorFile(context, profile));
+    }
+
+    private static File getLibraryMirrorFile(Context context, MPDServerProfile profile) {
+        File directory = new File(context.getFilesDir(), LIBRARY_MIRROR_DIRECTORY);
+        return new File(directory, String.valueOf(profile.getCreationDate()));
     }
 
     public static void reconnectLastServer(Context context) {
@@ -132,13 +233,27 @@ public class ConnectionManager extends MPDConnectionStateChangeHandler {
 
         instance.mDisconnectRequested = false;
 
+        // Every role has its own connection, connect all of them.
         MPDCommandHandler.connectToMPDServer();
+        MPDStateMonitoringHandler.connectToMPDServer();
+        MPDQueryHandler.connectToMPDServer();
+        MPDArtworkHandler.connectToMPDServer();
     }
 
     public static void disconnectFromServer() {
         Log.v(TAG,"Disconnecting from server");
+        getInstance().mDisconnectRequested = true;
         MPDCommandHandler.disconnectFromMPDServer();
-        mConnectionManager.mDisconnectRequested = true;
+        MPDStateMonitoringHandler.disconnectFromMPDServer();
+        MPDQueryHandler.disconnectFromMPDServer();
+        MPDArtworkHandler.disconnectFromMPDServer();
+    }
+
+    /**
+     * @return True if the connections of the pool are connected to the server.
+     */
+    public static boolean isConnected() {
+        return MPDConnectionPool.getInstance().isConnected();
     }
 
     public static void autoConnect(Context context) {
@@ -207,6 +322,44 @@ public class ConnectionManager extends MPDConnectionStateChangeHandler {
             mReconnectTimer.purge();
             mReconnectTimer = null;
         }
+
+        verifyCachedCapabilities();
+
+        // Check if the copy of the database is still up to date
+        if (null != MPDLibraryMirror.getInstance().getFile()) {
+            MPDLibraryMirror.getInstance().refresh();
+        }
+    }
+
+    /**
+     * Requests the server capabilities once in the background, if the connections were set up
+     * with capabilities from the cache. This detects configuration changes of the server that
+     * did not change its version.
+     */
+    private void verifyCachedCapabilities() {
+        if (mCapabilitiesVerified || !MPDConnectionPool.getInstance().hasCachedCapabilities()) {
+            return;
+        }
+        mCapabilitiesVerified = true;
+
+        MPDAsyncQueries.getInstance().submit(new MPDAsyncQueries.Query<MPDCapabilities>() {
+            @Override
+            public MPDCapabilities run(MPDConnection connection) {
+                return MPDConnectionPool.getInstance().refreshServerCapabilities(connection);
+            }
+        }).whenComplete(new MPDFuture.Callback<MPDCapabilities>() {
+            @Override
+            public void onSuccess(MPDCapabilities result) {
+            }
+
+            @Override
+            public void onFailure(Throwable error) {
+                // Try again with the next connect
+                synchronized (ConnectionManager.this) {
+                    mCapabilitiesVerified = false;
+                }
+            }
+        });
     }
 
     public synchronized static void setAutoconnect(boolean enabled) {
@@ -285,4 +438,24 @@ public class ConnectionManager extends MPDConnectionStateChangeHandler {
     public static String getProfileName() {
         return mConnectionManager.mServerProfile.getProfileName();
     }
+
+    /**
+     * Writes the messages of the protocol library to the Android log.
+     */
+    private static class AndroidLogger implements MPDLog.Logger {
+        @Override
+        public void v(String tag, String message) {
+            Log.v(tag, message);
+        }
+
+        @Override
+        public void w(String tag, String message) {
+            Log.w(tag, message);
+        }
+
+        @Override
+        public void e(String tag, String message) {
+            Log.e(tag, message);
+        }
+    }
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gateshipone.malp.mpdservice.handlers;
+
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Executor that runs the tasks on the UI thread. Use this for the callbacks of
+ * {@link org.gateshipone.malp.mpdservice.mpdprotocol.MPDFuture} that touch views.
+ */
+public class MPDMainThreadExecutor implements Executor {
+
+    private static MPDMainThreadExecutor mInstance;
+
+    private final Handler mHandler;
+
+    private MPDMainThreadExecutor() {
+        mHandler = new Handler(Looper.getMainLooper());
+    }
+
+    public static synchronized MPDMainThreadExecutor getInstance() {
+        if (null == mInstance) {
+            mInstance = new MPDMainThreadExecutor();
+        }
+        return mInstance;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            command.run();
+        } else {
+            mHandler.post(command);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gateshipone.malp.mpdservice.handlers;
+
+import android.os.Handler;
+import android.os.Message;
+
+import java.util.Set;
+
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDCommands;
+
+/**
+ * Class to handle changes of MPD subsystems reported by the MPDStateMonitoringHandler.
+ * This can be used to refresh views only if the data they show has changed (e.g. library views
+ * after a database update).
+ */
+public abstract class MPDSubsystemChangeHandler extends Handler {
+
+    /**
+     * Handles the change of the subsystems
+     * @param msg Message object
+     */
+    @Override
+    public void handleMessage(Message msg) {
+        super.handleMessage(msg);
+        if (msg.obj instanceof Set) {
+            onSubsystemsChanged((Set<MPDCommands.MPD_IDLE_SUBSYSTEM>) msg.obj);
+        }
+    }
+
+    public void subsystemsChanged(Set<MPDCommands.MPD_IDLE_SUBSYSTEM> changedSubsystems) {
+        Message msg = this.obtainMessage();
+        msg.obj = changedSubsystems;
+
+        this.sendMessage(msg);
+    }
+
+    /**
+     * Called in the thread of this handler when subsystems of MPD changed.
+     * @param changedSubsystems Set of the changed subsystems. Must not be modified.
+     */
+    abstract protected void onSubsystemsChanged(Set<MPDCommands.MPD_IDLE_SUBSYSTEM> changedSubsystems);
+}
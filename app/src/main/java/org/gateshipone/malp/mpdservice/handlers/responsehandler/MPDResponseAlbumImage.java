@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gateshipone.malp.mpdservice.handlers.responsehandler;
+
+
+import android.os.Looper;
+import android.os.Message;
+
+public abstract class MPDResponseAlbumImage extends MPDResponseHandler {
+
+    /**
+     * Artwork requests are also started from background threads without a looper (e.g. the bulk
+     * download), so the response is always handled in the UI thread.
+     */
+    public MPDResponseAlbumImage() {
+        super(Looper.getMainLooper());
+    }
+
+    /**
+     * Handle function for the album image. This only calls the abstract method
+     * which needs to get implemented by the user of this class.
+     * @param msg Message object containing the raw image data or null
+     */
+    @Override
+    public void handleMessage(Message msg) {
+        super.handleMessage(msg);
+
+        handleAlbumImage((byte[]) msg.obj);
+    }
+
+    /**
+     * Abstract method to be implemented by the user of the MPD implementation.
+     * This should be a callback for the UI thread and run in the UI thread.
+     * @param image Raw image data as sent by the server, null if the server has no image
+     */
+    abstract public void handleAlbumImage(byte[] image);
+}
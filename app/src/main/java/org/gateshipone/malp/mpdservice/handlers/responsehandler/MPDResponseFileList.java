@@ -59,6 +59,10 @@ public abstract class MPDResponseFileList extends MPDResponseHandler {
      * Abstract method to be implemented by the user of the MPD implementation.
      * This should be a callback for the UI thread and run in the UI thread.
      * This can be used for updating lists of adapters and views.
+     * <p/>
+     * Large lists (current playlist, saved playlists, search results) are delivered in chunks.
+     * In this case windowstart and windowend give the position of the chunk within the complete
+     * list. A chunk with windowstart 0 always starts a new list.
      * @param trackList List of MPDFile objects containing a list of mpds tracks response.
      */
     abstract public void handleTracks(List<MPDFileEntry> fileList, int windowstart, int windowend);
@@ -23,6 +23,7 @@ package org.gateshipone.malp.mpdservice.handlers.responsehandler;
 
 
 import android.os.Handler;
+import android.os.Looper;
 import android.os.Message;
 
 /**
@@ -30,4 +31,14 @@ import android.os.Message;
  */
 public abstract class MPDResponseHandler extends Handler {
 
+    public MPDResponseHandler() {
+
+    }
+
+    /**
+     * @param looper Looper of the thread that should handle the response
+     */
+    public MPDResponseHandler(Looper looper) {
+        super(looper);
+    }
 }
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gateshipone.malp.mpdservice.handlers.serverhandler;
+
+
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Message;
+
+import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseAlbumImage;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDConnectionPool;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
+
+/**
+ * Loads cover images from the MPD server (albumart, readpicture). The images are transferred
+ * in chunks over a connection of their own, so that downloading covers does not delay the
+ * queries of the {@link MPDQueryHandler}.
+ */
+public class MPDArtworkHandler extends MPDGenericHandler {
+    private static final String TAG = "MPDArtworkHandler";
+
+    /**
+     * Name of the thread created for the Looper.
+     */
+    private static final String THREAD_NAME = "NetArtworkHandler";
+
+    /**
+     * Size of the binary chunks requested from the server. Covers are usually bigger than the
+     * default of MPD (8 KiB), bigger chunks need less round trips.
+     */
+    private static final int BINARY_CHUNK_SIZE = 128 * 1024;
+
+    /**
+     * HandlerThread that is used by the looper. This ensures that all requests to this handler
+     * are done multi-threaded and do not block the UI.
+     */
+    private static HandlerThread mHandlerThread = null;
+    private static MPDArtworkHandler mHandlerSingleton = null;
+
+    /**
+     * Private constructor for use in singleton. Called by the static singleton retrieval method.
+     *
+     * @param looper Looper of a HandlerThread (that is NOT the UI thread)
+     */
+    protected MPDArtworkHandler(Looper looper) {
+        super(looper, MPDConnectionPool.getInstance().getConnection(MPDConnectionPool.CONNECTION_ROLE.ROLE_ARTWORK));
+        mMPDConnection.setBinaryLimit(BINARY_CHUNK_SIZE);
+    }
+
+    /**
+     * Private method to ensure that the singleton runs in a separate thread.
+     * Otherwise android will deny network access because of UI blocks.
+     *
+     * @return The singleton instance of this handler
+     */
+    private synchronized static MPDArtworkHandler getHandler() {
+        if (null == mHandlerSingleton) {
+            mHandlerThread = new HandlerThread(THREAD_NAME);
+            mHandlerThread.start();
+            mHandlerSingleton = new MPDArtworkHandler(mHandlerThread.getLooper());
+        }
+        return mHandlerSingleton;
+    }
+
+    /**
+     * This is the main entry point of messages.
+     * Here all possible messages types need to be handled with the MPDConnection.
+     * Have a look into the baseclass MPDGenericHandler for more information about the handling.
+     *
+     * @param msg Message to process.
+     */
+    @Override
+    public void handleMessage(Message msg) {
+        super.handleMessage(msg);
+
+        // Type checking
+        if (!(msg.obj instanceof MPDHandlerAction)) {
+            /* Check if the message object is of correct type. Otherwise just abort here. */
+            return;
+        }
+
+        MPDHandlerAction mpdAction = (MPDHandlerAction) msg.obj;
+        MPDHandlerAction.NET_HANDLER_ACTION action = mpdAction.getAction();
+
+        if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_ALBUM_IMAGE) {
+            String albumName = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ALBUM_NAME);
+            String artistName = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ARTIST_NAME);
+            String albumMBID = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ALBUM_MBID);
+            MPDResponseAlbumImage responseHandler = (MPDResponseAlbumImage) mpdAction.getResponseHandler();
+
+            byte[] image = null;
+            if (mMPDConnection.isConnected()) {
+                // The cover is requested by the path of one of the tracks of the album
+                String path = mMPDConnection.findAlbumTrackPath(albumName, artistName, albumMBID);
+                if (null != path) {
+                    image = mMPDConnection.getAlbumImage(path);
+                }
+            }
+
+            Message responseMessage = this.obtainMessage();
+            responseMessage.obj = image;
+            responseHandler.sendMessage(responseMessage);
+        }
+    }
+
+    /**
+     * Connect to the previously configured MPD server.
+     */
+    public static void connectToMPDServer() {
+        MPDHandlerAction action = new MPDHandlerAction(MPDHandlerAction.NET_HANDLER_ACTION.ACTION_CONNECT_MPD_SERVER);
+        Message msg = Message.obtain();
+        if (msg == null) {
+            return;
+        }
+        msg.obj = action;
+        MPDArtworkHandler.getHandler().sendMessage(msg);
+    }
+
+    /**
+     * Disconnect to the previously connected MPD server.
+     */
+    public static void disconnectFromMPDServer() {
+        MPDHandlerAction action = new MPDHandlerAction(MPDHandlerAction.NET_HANDLER_ACTION.ACTION_DISCONNECT_MPD_SERVER);
+        Message msg = Message.obtain();
+        if (msg == null) {
+            return;
+        }
+        msg.obj = action;
+        MPDArtworkHandler.getHandler().sendMessage(msg);
+    }
+
+    /**
+     * Requests the cover image of an album from the server.
+     *
+     * @param album           Album to get the image for
+     * @param responseHandler Handler that receives the raw image data (or null if there is none)
+     */
+    public static void getAlbumImage(MPDAlbum album, MPDResponseAlbumImage responseHandler) {
+        MPDHandlerAction action = new MPDHandlerAction(MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_ALBUM_IMAGE);
+        Message msg = Message.obtain();
+        if (msg == null) {
+            return;
+        }
+        action.setStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ALBUM_NAME, album.getName());
+        action.setStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ARTIST_NAME, album.getArtistName());
+        action.setStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ALBUM_MBID, album.getMBID());
+        action.setResponseHandler(responseHandler);
+
+        msg.obj = action;
+        MPDArtworkHandler.getHandler().sendMessage(msg);
+    }
+}
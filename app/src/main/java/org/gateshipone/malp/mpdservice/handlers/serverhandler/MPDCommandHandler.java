@@ -33,7 +33,7 @@ import java.util.TimerTask;
 import org.gateshipone.malp.mpdservice.handlers.MPDConnectionStateChangeHandler;
 import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseAlbumList;
 import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseHandler;
-import org.gateshipone.malp.mpdservice.mpdprotocol.MPDConnection;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDConnectionPool;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDCurrentStatus;
 
 /**
@@ -69,8 +69,7 @@ public class MPDCommandHandler extends MPDGenericHandler {
      * @param looper Looper of a HandlerThread (that is NOT the UI thread)
      */
     protected MPDCommandHandler(Looper looper) {
-        super(looper);
-        mMPDConnection.setID("Command");
+        super(looper, MPDConnectionPool.getInstance().getConnection(MPDConnectionPool.CONNECTION_ROLE.ROLE_CONTROL));
     }
 
     /**
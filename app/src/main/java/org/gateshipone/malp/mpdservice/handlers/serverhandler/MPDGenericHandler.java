@@ -32,6 +32,7 @@ import java.util.ArrayList;
 import org.gateshipone.malp.mpdservice.handlers.MPDConnectionStateChangeHandler;
 import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseHandler;
 import org.gateshipone.malp.mpdservice.mpdprotocol.MPDConnection;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDConnectionPool;
 
 /**
  * This class is a base class for all derived handlers that talk to the MPD server.
@@ -48,6 +49,8 @@ import org.gateshipone.malp.mpdservice.mpdprotocol.MPDConnection;
  * <p/>
  * All handlers are static singletons and run in a new spawned thread. You can get the singleton via
  * an static method. Each handler has one MPDConnection object, that is used for talking to the mpd server.
+ * The connections are taken from the {@link MPDConnectionPool} according to the role of the handler,
+ * so that a long running query does not block a playback command.
  */
 public abstract class MPDGenericHandler extends Handler implements MPDConnection.MPDConnectionStateChangeListener {
 
@@ -68,13 +71,14 @@ public abstract class MPDGenericHandler extends Handler implements MPDConnection
      * Protected constructor that has to be called from subclasses. If it is not called
      * the MPDConnection objcet is not ready for use and the class will cause a crash.
      *
-     * @param looper Looper that is used by this handler. Needs to be created by the
-     *               subclass otherwise the network communication is not handled in a separate thread.
+     * @param looper     Looper that is used by this handler. Needs to be created by the
+     *                   subclass otherwise the network communication is not handled in a separate thread.
+     * @param connection MPDConnection (from the {@link MPDConnectionPool}) that is exclusively used by this handler.
      */
-    protected MPDGenericHandler(Looper looper) {
+    protected MPDGenericHandler(Looper looper, MPDConnection connection) {
         super(looper);
         mConnectionStateListener = new ArrayList<>();
-        mMPDConnection = MPDConnection.getInstance();
+        mMPDConnection = connection;
 
         // Register all handlers as StateObservers with the MPDConnection. This ensures that all subclasses
         // will get a notification about connection state changes.
@@ -23,8 +23,11 @@ package org.gateshipone.malp.mpdservice.handlers.serverhandler;
 
 
 import java.util.HashMap;
+import java.util.List;
 
 import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseHandler;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDCancellationToken;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
 
 public class MPDHandlerAction {
 
@@ -49,6 +52,7 @@ public class MPDHandlerAction {
         ACTION_GET_SERVER_STATISTICS,
         ACTION_GET_CURRENT_PLAYLIST,
         ACTION_GET_CURRENT_PLAYLIST_WINDOW,
+        ACTION_GET_CURRENT_PLAYLIST_CHANGES,
         ACTION_GET_SAVED_PLAYLIST,
         ACTION_GET_SAVED_PLAYLISTS,
         ACTION_GET_FILES,
@@ -92,7 +96,11 @@ public class MPDHandlerAction {
         ACTION_UPDATE_DATABASE,
         ACTION_SEARCH_FILES,
         ACTION_ADD_SEARCH_FILES,
-        ACTION_PLAY_SEARCH_FILES
+        ACTION_ADD_SEARCH_FILES_TO_PLAYLIST,
+        ACTION_PLAY_SEARCH_FILES,
+        ACTION_ADD_TRACK_LIST,
+        ACTION_PLAY_TRACK_LIST,
+        ACTION_GET_ALBUM_IMAGE
     }
 
 
@@ -128,6 +136,7 @@ public class MPDHandlerAction {
         EXTRA_VOLUME,
         EXTRA_WINDOW_START,
         EXTRA_WINDOW_END,
+        EXTRA_PLAYLIST_VERSION,
         EXTRA_OUTPUT_ID,
         EXTRA_SEARCH_TYPE,
     }
@@ -143,8 +152,18 @@ public class MPDHandlerAction {
      */
     HashMap<NET_HANDLER_EXTRA_INT, Integer> pIntExtras = null;
 
+    /**
+     * Tracks to add, only used by the track list actions.
+     */
+    private List<MPDFileEntry> pTrackList = null;
+
     private MPDResponseHandler pResponseHandler = null;
 
+    /**
+     * Token to cancel the request, null if it can not be cancelled.
+     */
+    private MPDCancellationToken pCancellationToken = null;
+
     /**
      * The action type for this message.
      */
@@ -198,6 +217,21 @@ public class MPDHandlerAction {
         pIntExtras.put(type, value);
     }
 
+    /**
+     * Sets the tracks for the track list actions.
+     * @param trackList Tracks to add, the list must not be changed afterwards.
+     */
+    public void setTrackList(List<MPDFileEntry> trackList) {
+        pTrackList = trackList;
+    }
+
+    /**
+     * @return The tracks of the track list actions, null if not attached to this message
+     */
+    public List<MPDFileEntry> getTrackList() {
+        return pTrackList;
+    }
+
     /**
      * Set the handler that is needed for the asynchronous response. Can be a Handler running in
      * the main UI thread.
@@ -216,6 +250,22 @@ public class MPDHandlerAction {
         return pResponseHandler;
     }
 
+    /**
+     * Set the token that the caller uses to cancel the request if the response is not needed
+     * anymore.
+     * @param cancellationToken Token of the request, can be null.
+     */
+    public void setCancellationToken(MPDCancellationToken cancellationToken) {
+        pCancellationToken = cancellationToken;
+    }
+
+    /**
+     * @return The token to cancel the request, null if it can not be cancelled.
+     */
+    public MPDCancellationToken getCancellationToken() {
+        return pCancellationToken;
+    }
+
     /**
      *
      * @param type Type of the extra value
@@ -35,9 +35,11 @@ import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseFileL
 import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseHandler;
 import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseOutputList;
 import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseServerStatistics;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDCancellationToken;
 import org.gateshipone.malp.mpdservice.mpdprotocol.MPDCapabilities;
 import org.gateshipone.malp.mpdservice.mpdprotocol.MPDCommands;
 import org.gateshipone.malp.mpdservice.mpdprotocol.MPDConnection;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDConnectionPool;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDArtist;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDCurrentStatus;
@@ -48,6 +50,7 @@ import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDStatistics;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This handler is used for all long running queries to the mpd server. This includes:
@@ -60,6 +63,11 @@ import java.util.List;
  * <p/>
  * UI-Thread --> QueryHandler |(send message to another thread)-->    MPDConnection
  * <--(send message to another thread)<--ResponseHandler<-- MPDConnection
+ * <p/>
+ * There is one handler (with its own thread and MPDConnection) per query lane of the
+ * {@link MPDConnectionPool}. Read-only requests are dispatched to the least busy lane, so that
+ * independent requests are handled in parallel. Requests that modify the server state are always
+ * handled by the first lane to keep their order.
  */
 public class MPDQueryHandler extends MPDGenericHandler {
     private static final String TAG = "MPDQueryHandler";
@@ -70,42 +78,104 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
 
     /**
-     * HandlerThread that is used by the looper. This ensures that all requests to this handler
-     * are done multi-threaded and do not block the UI.
+     * HandlerThreads that are used by the loopers. This ensures that all requests to this handler
+     * are done multi-threaded and do not block the UI. One thread per query lane.
+     */
+    private static HandlerThread[] mHandlerThreads = null;
+    private static MPDQueryHandler[] mHandlers = null;
+
+    /**
+     * Number of messages sent to this handler that are not yet handled.
+     * Used to find the least busy lane.
      */
-    private static HandlerThread mHandlerThread = null;
-    private static MPDQueryHandler mHandlerSingleton = null;
+    private final AtomicInteger mPendingRequests;
+
+    /**
+     * Token of the request that is currently handled, null if it can not be cancelled.
+     */
+    private MPDCancellationToken mCancellationToken;
 
     /**
      * Private constructor for use in singleton. Called by the static singleton retrieval method.
      *
      * @param looper Looper of a HandlerThread (that is NOT the UI thread)
+     * @param lane   Index of the query connection used by this handler
      */
-    protected MPDQueryHandler(Looper looper) {
-        super(looper);
-        mMPDConnection.setID("Query");
+    protected MPDQueryHandler(Looper looper, int lane) {
+        super(looper, MPDConnectionPool.getInstance().getConnection(MPDConnectionPool.CONNECTION_ROLE.ROLE_QUERY, lane));
+        mPendingRequests = new AtomicInteger(0);
     }
 
     /**
-     * Private method to ensure that the singleton runs in a separate thread.
+     * Private method to ensure that the handlers run in separate threads.
      * Otherwise android will deny network access because of UI blocks.
      *
-     * @return
+     * @return All handlers, one for each query lane.
      */
-    private synchronized static MPDQueryHandler getHandler() {
-        // Check if handler was accessed before. If not create the singleton object for the first
+    private synchronized static MPDQueryHandler[] getHandlers() {
+        // Check if handler was accessed before. If not create the handler objects for the first
         // time.
-        if (null == mHandlerSingleton) {
-            // Create a new thread used as a looper for this handler.
-            // This is the thread in which all messages sent to this handler are handled.
-            mHandlerThread = new HandlerThread(THREAD_NAME);
-            // It is important to start the thread before using it as a thread for the Handler.
-            // Otherwise the handler will cause a crash.
-            mHandlerThread.start();
-            // Create the actual singleton instance.
-            mHandlerSingleton = new MPDQueryHandler(mHandlerThread.getLooper());
+        if (null == mHandlers) {
+            int laneCount = MPDConnectionPool.getInstance().getLaneCount(MPDConnectionPool.CONNECTION_ROLE.ROLE_QUERY);
+            mHandlerThreads = new HandlerThread[laneCount];
+            mHandlers = new MPDQueryHandler[laneCount];
+            for (int i = 0; i < laneCount; i++) {
+                // Create a new thread used as a looper for this handler.
+                // This is the thread in which all messages sent to this handler are handled.
+                mHandlerThreads[i] = new HandlerThread(THREAD_NAME + '-' + i);
+                // It is important to start the thread before using it as a thread for the Handler.
+                // Otherwise the handler will cause a crash.
+                mHandlerThreads[i].start();
+                // Create the actual handler instance.
+                mHandlers[i] = new MPDQueryHandler(mHandlerThreads[i].getLooper(), i);
+            }
         }
-        return mHandlerSingleton;
+        return mHandlers;
+    }
+
+    /**
+     * Returns the handler of the first lane. All requests that modify the state of the server
+     * are sent to this handler to guarantee their order.
+     *
+     * @return Handler of the first query lane
+     */
+    private static MPDQueryHandler getHandler() {
+        return getHandlers()[0];
+    }
+
+    /**
+     * Sends a message to the handler of the first lane.
+     *
+     * @param msg Message to send
+     */
+    private static void sendOrderedMessage(Message msg) {
+        MPDQueryHandler handler = getHandler();
+        handler.mPendingRequests.incrementAndGet();
+        handler.sendMessage(msg);
+    }
+
+    /**
+     * Sends a message to the least busy handler. Only use this for read-only requests, because
+     * the order to other requests is not guaranteed.
+     *
+     * @param msg Message to send
+     */
+    private static void sendParallelMessage(Message msg) {
+        MPDQueryHandler[] handlers = getHandlers();
+        MPDQueryHandler handler = handlers[0];
+        for (MPDQueryHandler laneHandler : handlers) {
+            if (laneHandler.mPendingRequests.get() < handler.mPendingRequests.get()) {
+                handler = laneHandler;
+            }
+        }
+        handler.mPendingRequests.incrementAndGet();
+        handler.sendMessage(msg);
+    }
+
+    @Override
+    public void dispatchMessage(Message msg) {
+        super.dispatchMessage(msg);
+        mPendingRequests.decrementAndGet();
     }
 
 
@@ -130,6 +200,31 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
         MPDHandlerAction mpdAction = (MPDHandlerAction) msg.obj;
 
+        // Requests whose caller is already gone are not sent to the server
+        MPDCancellationToken cancellationToken = mpdAction.getCancellationToken();
+        if (null != cancellationToken && cancellationToken.isCancelled()) {
+            return;
+        }
+
+        // Hold the connection, so that the token does not apply to requests of other threads
+        synchronized (mMPDConnection) {
+            mCancellationToken = cancellationToken;
+            mMPDConnection.setCancellationToken(cancellationToken);
+            try {
+                handleAction(mpdAction);
+            } finally {
+                mMPDConnection.setCancellationToken(null);
+                mCancellationToken = null;
+            }
+        }
+    }
+
+    /**
+     * Executes the requested action with the MPDConnection.
+     *
+     * @param mpdAction Action to execute
+     */
+    private void handleAction(MPDHandlerAction mpdAction) {
         // ResponseHandler used to return the requested items to the caller
         MPDResponseHandler responseHandler;
 
@@ -152,7 +247,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
             Message responseMessage = this.obtainMessage();
             responseMessage.obj = albumList;
-            responseHandler.sendMessage(responseMessage);
+            sendResponse(responseHandler, responseMessage);
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_ALBUMS_IN_PATH) {
             responseHandler = mpdAction.getResponseHandler();
             if (!(responseHandler instanceof MPDResponseAlbumList)) {
@@ -163,7 +258,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
             Message responseMessage = this.obtainMessage();
             responseMessage.obj = albumList;
-            responseHandler.sendMessage(responseMessage);
+            sendResponse(responseHandler, responseMessage);
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_ARTIST_ALBUMS) {
             String artistName = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ARTIST_NAME);
             responseHandler = mpdAction.getResponseHandler();
@@ -175,7 +270,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
             Message responseMessage = this.obtainMessage();
             responseMessage.obj = albumList;
-            responseHandler.sendMessage(responseMessage);
+            sendResponse(responseHandler, responseMessage);
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_ARTISTS) {
             responseHandler = mpdAction.getResponseHandler();
 
@@ -188,7 +283,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
             Message artistResponseMsg = this.obtainMessage();
             artistResponseMsg.obj = artistList;
 
-            responseHandler.sendMessage(artistResponseMsg);
+            sendResponse(responseHandler, artistResponseMsg);
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_ALBUMARTISTS) {
             responseHandler = mpdAction.getResponseHandler();
 
@@ -201,7 +296,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
             Message artistResponseMsg = this.obtainMessage();
             artistResponseMsg.obj = artistList;
 
-            responseHandler.sendMessage(artistResponseMsg);
+            sendResponse(responseHandler, artistResponseMsg);
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_ALBUM_TRACKS) {
             String albumName = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ALBUM_NAME);
             String albumMBID = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ALBUM_MBID);
@@ -214,7 +309,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
             Message responseMessage = this.obtainMessage();
             responseMessage.obj = trackList;
-            responseHandler.sendMessage(responseMessage);
+            sendResponse(responseHandler, responseMessage);
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_ARTIST_ALBUM_TRACKS) {
             String artistName = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ARTIST_NAME);
             String albumName = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ALBUM_NAME);
@@ -228,18 +323,30 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
             Message responseMessage = this.obtainMessage();
             responseMessage.obj = trackList;
-            responseHandler.sendMessage(responseMessage);
+            sendResponse(responseHandler, responseMessage);
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_CURRENT_PLAYLIST) {
             responseHandler = mpdAction.getResponseHandler();
             if (!(responseHandler instanceof MPDResponseFileList)) {
                 return;
             }
 
-            List<MPDFileEntry> trackList = mMPDConnection.getCurrentPlaylist();
+            // Hand out the playlist in chunks so that large playlists are shown progressively
+            FileListChunkForwarder forwarder = new FileListChunkForwarder(responseHandler, mCancellationToken);
+            if (!mMPDConnection.getCurrentPlaylist(forwarder)) {
+                forwarder.onFailure();
+            }
+        } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_CURRENT_PLAYLIST_CHANGES) {
+            int version = mpdAction.getIntExtra(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_PLAYLIST_VERSION);
+            responseHandler = mpdAction.getResponseHandler();
+            if (!(responseHandler instanceof MPDResponseFileList)) {
+                return;
+            }
 
-            Message responseMessage = this.obtainMessage();
-            responseMessage.obj = trackList;
-            responseHandler.sendMessage(responseMessage);
+            FileListChunkForwarder forwarder = new FileListChunkForwarder(responseHandler, mCancellationToken);
+            if (!mMPDConnection.getCurrentPlaylistChanges(version, forwarder)) {
+                // Forwarded changes are already applied, the receiver has to start over
+                forwarder.onChangesFailed();
+            }
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_CURRENT_PLAYLIST_WINDOW) {
             int start = mpdAction.getIntExtra(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_WINDOW_START);
             int end = mpdAction.getIntExtra(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_WINDOW_END);
@@ -256,7 +363,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
             data.putInt(MPDResponseFileList.EXTRA_WINDOW_START, start);
             data.putInt(MPDResponseFileList.EXTRA_WINDOW_END, end);
             responseMessage.setData(data);
-            responseHandler.sendMessage(responseMessage);
+            sendResponse(responseHandler, responseMessage);
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_SAVED_PLAYLIST) {
             String playlistName = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_PLAYLIST_NAME);
             responseHandler = mpdAction.getResponseHandler();
@@ -264,11 +371,10 @@ public class MPDQueryHandler extends MPDGenericHandler {
                 return;
             }
 
-            List<MPDFileEntry> trackList = mMPDConnection.getSavedPlaylist(playlistName);
-
-            Message responseMessage = this.obtainMessage();
-            responseMessage.obj = trackList;
-            responseHandler.sendMessage(responseMessage);
+            FileListChunkForwarder forwarder = new FileListChunkForwarder(responseHandler, mCancellationToken);
+            if (!mMPDConnection.getSavedPlaylist(playlistName, forwarder)) {
+                forwarder.onFailure();
+            }
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_SAVED_PLAYLISTS) {
             responseHandler = mpdAction.getResponseHandler();
             if (!(responseHandler instanceof MPDResponseFileList)) {
@@ -279,7 +385,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
             Message responseMessage = this.obtainMessage();
             responseMessage.obj = playlistList;
-            responseHandler.sendMessage(responseMessage);
+            sendResponse(responseHandler, responseMessage);
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_SAVE_PLAYLIST) {
             String playlistName = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_PLAYLIST_NAME);
 
@@ -395,7 +501,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
             Message responseMessage = this.obtainMessage();
             responseMessage.obj = fileList;
-            responseHandler.sendMessage(responseMessage);
+            sendResponse(responseHandler, responseMessage);
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_PLAY_DIRECTORY) {
             String path = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_PATH);
 
@@ -409,7 +515,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
             Message responseMessage = this.obtainMessage();
             responseMessage.obj = outputList;
-            responseHandler.sendMessage(responseMessage);
+            sendResponse(responseHandler, responseMessage);
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_SERVER_STATISTICS) {
             responseHandler = mpdAction.getResponseHandler();
 
@@ -419,7 +525,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
             Message responseMessage = this.obtainMessage();
             responseMessage.obj = stats;
-            responseHandler.sendMessage(responseMessage);
+            sendResponse(responseHandler, responseMessage);
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_UPDATE_DATABASE) {
 
             mMPDConnection.updateDatabase();
@@ -432,38 +538,33 @@ public class MPDQueryHandler extends MPDGenericHandler {
                 return;
             }
 
-            List<MPDFileEntry> fileList = mMPDConnection.getSearchedFiles(term, type);
-
-            Message responseMessage = this.obtainMessage();
-            responseMessage.obj = fileList;
-            responseHandler.sendMessage(responseMessage);
+            FileListChunkForwarder forwarder = new FileListChunkForwarder(responseHandler, mCancellationToken);
+            if (!mMPDConnection.getSearchedFiles(term, type, forwarder)) {
+                forwarder.onFailure();
+            }
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_ADD_SEARCH_FILES) {
             String term = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_SEARCH_TERM);
             MPDCommands.MPD_SEARCH_TYPE type = MPDCommands.MPD_SEARCH_TYPE.values()[mpdAction.getIntExtra(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_SEARCH_TYPE)];
 
-            // Check if server has the add search result capability
-            if (mMPDConnection.getServerCapabilities().hasSearchAdd()) {
-                mMPDConnection.addSearchedFiles(term, type);
-            } else {
-                // Fetch search results and add them
-                List<MPDFileEntry> searchResults = mMPDConnection.getSearchedFiles(term, type);
-                mMPDConnection.addTrackList(searchResults);
-            }
+            mMPDConnection.addSearchedFiles(term, type);
+        } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_ADD_SEARCH_FILES_TO_PLAYLIST) {
+            String term = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_SEARCH_TERM);
+            MPDCommands.MPD_SEARCH_TYPE type = MPDCommands.MPD_SEARCH_TYPE.values()[mpdAction.getIntExtra(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_SEARCH_TYPE)];
+            String playlistName = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_PLAYLIST_NAME);
+
+            mMPDConnection.addSearchedFilesToPlaylist(playlistName, term, type);
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_PLAY_SEARCH_FILES) {
             String term = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_SEARCH_TERM);
             MPDCommands.MPD_SEARCH_TYPE type = MPDCommands.MPD_SEARCH_TYPE.values()[mpdAction.getIntExtra(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_SEARCH_TYPE)];
 
             mMPDConnection.clearPlaylist();
-
-            // Check if server has the add search result capability
-            if (mMPDConnection.getServerCapabilities().hasSearchAdd()) {
-                mMPDConnection.addSearchedFiles(term, type);
-            } else {
-                // Fetch search results and add them
-                List<MPDFileEntry> searchResults = mMPDConnection.getSearchedFiles(term, type);
-                mMPDConnection.addTrackList(searchResults);
-            }
-
+            mMPDConnection.addSearchedFiles(term, type);
+            mMPDConnection.playSongIndex(0);
+        } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_ADD_TRACK_LIST) {
+            mMPDConnection.addTrackList(mpdAction.getTrackList());
+        } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_PLAY_TRACK_LIST) {
+            mMPDConnection.clearPlaylist();
+            mMPDConnection.addTrackList(mpdAction.getTrackList());
             mMPDConnection.playSongIndex(0);
         }
     }
@@ -497,7 +598,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
         action.setStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_SERVER_PASSWORD, password);
         action.setIntExtras(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_SERVER_PORT, port);
         msg.obj = action;
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendOrderedMessage(msg);
     }
 
     /**
@@ -505,16 +606,18 @@ public class MPDQueryHandler extends MPDGenericHandler {
      *
      * @param responseHandler The Handler that is used for asynchronous callback calls when the result
      *                        of the MPD server is ready and parsed.
+     * @param cancellationToken Token to cancel the request, can be null
      */
-    public static void getAlbums(MPDResponseAlbumList responseHandler) {
+    public static void getAlbums(MPDResponseAlbumList responseHandler, MPDCancellationToken cancellationToken) {
         MPDHandlerAction action = new MPDHandlerAction(MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_ALBUMS);
         Message msg = Message.obtain();
         if (msg == null) {
             return;
         }
         action.setResponseHandler(responseHandler);
+        action.setCancellationToken(cancellationToken);
         msg.obj = action;
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendParallelMessage(msg);
     }
 
     /**
@@ -525,8 +628,9 @@ public class MPDQueryHandler extends MPDGenericHandler {
      * @param path            Path to list albums for
      * @param responseHandler The Handler that is used for asynchronous callback calls when the result
      *                        of the MPD server is ready and parsed.
+     * @param cancellationToken Token to cancel the request, can be null
      */
-    public static void getAlbumsInPath(String path, MPDResponseAlbumList responseHandler) {
+    public static void getAlbumsInPath(String path, MPDResponseAlbumList responseHandler, MPDCancellationToken cancellationToken) {
         MPDHandlerAction action = new MPDHandlerAction(MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_ALBUMS_IN_PATH);
         Message msg = Message.obtain();
         if (msg == null) {
@@ -534,8 +638,9 @@ public class MPDQueryHandler extends MPDGenericHandler {
         }
         action.setStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_PATH, path);
         action.setResponseHandler(responseHandler);
+        action.setCancellationToken(cancellationToken);
         msg.obj = action;
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendParallelMessage(msg);
     }
 
     /**
@@ -543,8 +648,9 @@ public class MPDQueryHandler extends MPDGenericHandler {
      *
      * @param responseHandler The handler used to send the requested data
      * @param artist          Artist to get a list of albums from.
+     * @param cancellationToken Token to cancel the request, can be null
      */
-    public static void getArtistAlbums(MPDResponseAlbumList responseHandler, String artist) {
+    public static void getArtistAlbums(MPDResponseAlbumList responseHandler, String artist, MPDCancellationToken cancellationToken) {
         MPDHandlerAction action = new MPDHandlerAction(MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_ARTIST_ALBUMS);
         Message msg = Message.obtain();
         if (msg == null) {
@@ -552,42 +658,47 @@ public class MPDQueryHandler extends MPDGenericHandler {
         }
         action.setStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ARTIST_NAME, artist);
         action.setResponseHandler(responseHandler);
+        action.setCancellationToken(cancellationToken);
         msg.obj = action;
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendParallelMessage(msg);
     }
 
     /**
      * Requests a list of all the artists available on this server
      *
      * @param responseHandler The handler used to send the requested data
+     * @param cancellationToken Token to cancel the request, can be null
      */
-    public static void getArtists(MPDResponseHandler responseHandler) {
+    public static void getArtists(MPDResponseHandler responseHandler, MPDCancellationToken cancellationToken) {
         MPDHandlerAction action = new MPDHandlerAction(MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_ARTISTS);
         Message msg = Message.obtain();
         if (null == msg) {
             return;
         }
         action.setResponseHandler(responseHandler);
+        action.setCancellationToken(cancellationToken);
         msg.obj = action;
 
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendParallelMessage(msg);
     }
 
     /**
      * Requests a list of all the album artists available on this server
      *
      * @param responseHandler The handler used to send the requested data
+     * @param cancellationToken Token to cancel the request, can be null
      */
-    public static void getAlbumArtists(MPDResponseHandler responseHandler) {
+    public static void getAlbumArtists(MPDResponseHandler responseHandler, MPDCancellationToken cancellationToken) {
         MPDHandlerAction action = new MPDHandlerAction(MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_ALBUMARTISTS);
         Message msg = Message.obtain();
         if (null == msg) {
             return;
         }
         action.setResponseHandler(responseHandler);
+        action.setCancellationToken(cancellationToken);
         msg.obj = action;
 
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendParallelMessage(msg);
     }
 
     /**
@@ -595,19 +706,21 @@ public class MPDQueryHandler extends MPDGenericHandler {
      *
      * @param responseHandler The handler used to send the requested data
      * @param albumName       Album to get tracks from
+     * @param cancellationToken Token to cancel the request, can be null
      */
-    public static void getAlbumTracks(MPDResponseFileList responseHandler, String albumName, String mbid) {
+    public static void getAlbumTracks(MPDResponseFileList responseHandler, String albumName, String mbid, MPDCancellationToken cancellationToken) {
         MPDHandlerAction action = new MPDHandlerAction(MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_ALBUM_TRACKS);
         Message msg = Message.obtain();
         if (null == msg) {
             return;
         }
         action.setResponseHandler(responseHandler);
+        action.setCancellationToken(cancellationToken);
         action.setStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ALBUM_NAME, albumName);
         action.setStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ALBUM_MBID, mbid);
         msg.obj = action;
 
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendParallelMessage(msg);
     }
 
     /**
@@ -617,37 +730,69 @@ public class MPDQueryHandler extends MPDGenericHandler {
      * @param responseHandler The handler used to send the requested data
      * @param albumName       Album go get tracks from
      * @param artistName      Artist name to filter results with
+     * @param cancellationToken Token to cancel the request, can be null
      */
-    public static void getArtistAlbumTracks(MPDResponseFileList responseHandler, String albumName, String artistName, String mbid) {
+    public static void getArtistAlbumTracks(MPDResponseFileList responseHandler, String albumName, String artistName, String mbid, MPDCancellationToken cancellationToken) {
         MPDHandlerAction action = new MPDHandlerAction(MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_ARTIST_ALBUM_TRACKS);
         Message msg = Message.obtain();
         if (null == msg) {
             return;
         }
         action.setResponseHandler(responseHandler);
+        action.setCancellationToken(cancellationToken);
         action.setStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ALBUM_NAME, albumName);
         action.setStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ARTIST_NAME, artistName);
         action.setStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ALBUM_MBID, mbid);
         msg.obj = action;
 
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendParallelMessage(msg);
     }
 
     /**
      * Requests a list of all tracks enlisted in the current playlist.
+     * The tracks are delivered in chunks, starting with the window start 0.
+     * <p/>
+     * This request is handled by the ordered lane, so that the chunks of two subsequent requests
+     * for the same response handler are not mixed up.
      *
      * @param responseHandler The handler used to send the requested data
+     * @param cancellationToken Token to cancel the request, can be null
      */
-    public static void getCurrentPlaylist(MPDResponseFileList responseHandler) {
+    public static void getCurrentPlaylist(MPDResponseFileList responseHandler, MPDCancellationToken cancellationToken) {
         MPDHandlerAction action = new MPDHandlerAction(MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_CURRENT_PLAYLIST);
         Message msg = Message.obtain();
         if (null == msg) {
             return;
         }
         action.setResponseHandler(responseHandler);
+        action.setCancellationToken(cancellationToken);
         msg.obj = action;
 
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendOrderedMessage(msg);
+    }
+
+    /**
+     * Requests the tracks of the current playlist that changed since the given playlist version
+     * (plchanges). The tracks are delivered in chunks, every track contains its new position
+     * in the playlist. If the request fails null is delivered.
+     * <p/>
+     * This request is handled by the ordered lane, so that the changes are applied in the order
+     * they were requested and after a running complete playlist request.
+     *
+     * @param responseHandler The handler used to send the changed tracks
+     * @param version         Playlist version known by the caller
+     */
+    public static void getCurrentPlaylistChanges(MPDResponseFileList responseHandler, int version) {
+        MPDHandlerAction action = new MPDHandlerAction(MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_CURRENT_PLAYLIST_CHANGES);
+        Message msg = Message.obtain();
+        if (null == msg) {
+            return;
+        }
+        action.setResponseHandler(responseHandler);
+        action.setIntExtras(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_PLAYLIST_VERSION, version);
+        msg.obj = action;
+
+        sendOrderedMessage(msg);
     }
 
     /**
@@ -668,25 +813,27 @@ public class MPDQueryHandler extends MPDGenericHandler {
         action.setIntExtras(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_WINDOW_END, end);
         msg.obj = action;
 
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendParallelMessage(msg);
     }
 
     /**
      * Requests a list of playlists saved on the server.
      *
      * @param responseHandler The handler used to send the requested data
+     * @param cancellationToken Token to cancel the request, can be null
      */
-    public static void getSavedPlaylists(MPDResponseFileList responseHandler) {
+    public static void getSavedPlaylists(MPDResponseFileList responseHandler, MPDCancellationToken cancellationToken) {
         MPDHandlerAction action = new MPDHandlerAction(MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_SAVED_PLAYLISTS);
         Message msg = Message.obtain();
         if (null == msg) {
             return;
         }
         action.setResponseHandler(responseHandler);
+        action.setCancellationToken(cancellationToken);
 
         msg.obj = action;
 
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendParallelMessage(msg);
     }
 
     /**
@@ -694,19 +841,21 @@ public class MPDQueryHandler extends MPDGenericHandler {
      *
      * @param responseHandler The handler used to send the requested data
      * @param playlistName    Name of the playlist to get the tracks from.
+     * @param cancellationToken Token to cancel the request, can be null
      */
-    public static void getSavedPlaylist(MPDResponseFileList responseHandler, String playlistName) {
+    public static void getSavedPlaylist(MPDResponseFileList responseHandler, String playlistName, MPDCancellationToken cancellationToken) {
         MPDHandlerAction action = new MPDHandlerAction(MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_SAVED_PLAYLIST);
         Message msg = Message.obtain();
         if (null == msg) {
             return;
         }
         action.setResponseHandler(responseHandler);
+        action.setCancellationToken(cancellationToken);
         action.setStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_PLAYLIST_NAME, playlistName);
 
         msg.obj = action;
 
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendParallelMessage(msg);
     }
 
     /**
@@ -714,19 +863,21 @@ public class MPDQueryHandler extends MPDGenericHandler {
      *
      * @param responseHandler The handler used to send the requested data
      * @param path            Path to get the files/directory/playlist from
+     * @param cancellationToken Token to cancel the request, can be null
      */
-    public static void getFiles(MPDResponseFileList responseHandler, String path) {
+    public static void getFiles(MPDResponseFileList responseHandler, String path, MPDCancellationToken cancellationToken) {
         MPDHandlerAction action = new MPDHandlerAction(MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_FILES);
         Message msg = Message.obtain();
         if (null == msg) {
             return;
         }
         action.setResponseHandler(responseHandler);
+        action.setCancellationToken(cancellationToken);
         action.setStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_PATH, path);
 
         msg.obj = action;
 
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendParallelMessage(msg);
     }
 
     /**
@@ -744,7 +895,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
         msg.obj = action;
 
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendParallelMessage(msg);
     }
 
     /**
@@ -762,7 +913,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
         msg.obj = action;
 
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendParallelMessage(msg);
     }
 
     /**
@@ -784,7 +935,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
         msg.obj = action;
 
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendOrderedMessage(msg);
     }
 
     /**
@@ -806,7 +957,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
         msg.obj = action;
 
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendOrderedMessage(msg);
     }
 
     /**
@@ -825,7 +976,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
         msg.obj = action;
 
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendOrderedMessage(msg);
     }
 
     /**
@@ -844,7 +995,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
         msg.obj = action;
 
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendOrderedMessage(msg);
     }
 
     /**
@@ -863,7 +1014,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
         msg.obj = action;
 
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendOrderedMessage(msg);
     }
 
 
@@ -878,7 +1029,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
         msg.obj = action;
 
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendOrderedMessage(msg);
     }
 
 
@@ -893,7 +1044,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
         msg.obj = action;
 
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendOrderedMessage(msg);
     }
 
     public static void playSongNext(String url) {
@@ -908,7 +1059,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
         msg.obj = action;
 
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendOrderedMessage(msg);
     }
 
     public static void clearPlaylist() {
@@ -920,7 +1071,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
         msg.obj = action;
 
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendOrderedMessage(msg);
     }
 
     public static void removeSongFromCurrentPlaylist(int index) {
@@ -932,7 +1083,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
         msg.obj = action;
         action.setIntExtras(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_SONG_INDEX, index);
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendOrderedMessage(msg);
     }
 
     public static void playIndexAsNext(int index) {
@@ -944,7 +1095,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
         msg.obj = action;
         action.setIntExtras(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_SONG_INDEX, index);
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendOrderedMessage(msg);
     }
 
     public static void savePlaylist(String name) {
@@ -958,7 +1109,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
         msg.obj = action;
 
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendOrderedMessage(msg);
     }
 
     public static void addURLToSavedPlaylist(String playlistName, String url) {
@@ -973,7 +1124,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
         msg.obj = action;
 
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendOrderedMessage(msg);
     }
 
     public static void removeSongFromSavedPlaylist(String playlistName, int position) {
@@ -988,7 +1139,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
         msg.obj = action;
 
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendOrderedMessage(msg);
     }
 
     public static void removePlaylist(String name) {
@@ -1002,7 +1153,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
         msg.obj = action;
 
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendOrderedMessage(msg);
     }
 
     public static void loadPlaylist(String name) {
@@ -1016,7 +1167,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
         msg.obj = action;
 
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendOrderedMessage(msg);
     }
 
     public static void playPlaylist(String name) {
@@ -1030,7 +1181,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
         msg.obj = action;
 
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendOrderedMessage(msg);
     }
 
 
@@ -1043,7 +1194,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
         msg.obj = action;
 
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendOrderedMessage(msg);
     }
 
     /**
@@ -1065,7 +1216,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
         msg.obj = action;
 
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendParallelMessage(msg);
     }
 
     /**
@@ -1085,7 +1236,30 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
         msg.obj = action;
 
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendOrderedMessage(msg);
+    }
+
+    /**
+     * Requests to add the results of a search to a saved playlist. The playlist is created if
+     * it does not exist.
+     *
+     * @param playlistName Name of the saved playlist
+     * @param term         The string to search for
+     * @param type         The type of items to search for
+     */
+    public static void searchAddFilesToPlaylist(String playlistName, String term, MPDCommands.MPD_SEARCH_TYPE type) {
+        MPDHandlerAction action = new MPDHandlerAction(MPDHandlerAction.NET_HANDLER_ACTION.ACTION_ADD_SEARCH_FILES_TO_PLAYLIST);
+        Message msg = Message.obtain();
+        if (null == msg) {
+            return;
+        }
+        action.setStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_PLAYLIST_NAME, playlistName);
+        action.setStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_SEARCH_TERM, term);
+        action.setIntExtras(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_SEARCH_TYPE, type.ordinal());
+
+        msg.obj = action;
+
+        sendOrderedMessage(msg);
     }
 
     /**
@@ -1105,7 +1279,76 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
         msg.obj = action;
 
-        MPDQueryHandler.getHandler().sendMessage(msg);
+        sendOrderedMessage(msg);
+    }
+
+    /**
+     * Requests to add a list of tracks by their paths. This sends one command list, so it
+     * adds exactly the given tracks without searching on the server again.
+     *
+     * @param tracks Tracks to add, the list must not be changed afterwards
+     */
+    public static void addTrackList(List<MPDFileEntry> tracks) {
+        MPDHandlerAction action = new MPDHandlerAction(MPDHandlerAction.NET_HANDLER_ACTION.ACTION_ADD_TRACK_LIST);
+        Message msg = Message.obtain();
+        if (null == msg) {
+            return;
+        }
+        action.setTrackList(tracks);
+
+        msg.obj = action;
+
+        sendOrderedMessage(msg);
+    }
+
+    /**
+     * Requests to replace the current playlist with a list of tracks and to play it
+     *
+     * @param tracks Tracks to play, the list must not be changed afterwards
+     */
+    public static void playTrackList(List<MPDFileEntry> tracks) {
+        MPDHandlerAction action = new MPDHandlerAction(MPDHandlerAction.NET_HANDLER_ACTION.ACTION_PLAY_TRACK_LIST);
+        Message msg = Message.obtain();
+        if (null == msg) {
+            return;
+        }
+        action.setTrackList(tracks);
+
+        msg.obj = action;
+
+        sendOrderedMessage(msg);
+    }
+
+    /**
+     * Connect all query connections to the previously configured MPD server.
+     */
+    public static void connectToMPDServer() {
+        for (MPDQueryHandler handler : getHandlers()) {
+            MPDHandlerAction action = new MPDHandlerAction(MPDHandlerAction.NET_HANDLER_ACTION.ACTION_CONNECT_MPD_SERVER);
+            Message msg = Message.obtain();
+            if (null == msg) {
+                return;
+            }
+            msg.obj = action;
+            handler.mPendingRequests.incrementAndGet();
+            handler.sendMessage(msg);
+        }
+    }
+
+    /**
+     * Disconnect all query connections from the previously connected MPD server.
+     */
+    public static void disconnectFromMPDServer() {
+        for (MPDQueryHandler handler : getHandlers()) {
+            MPDHandlerAction action = new MPDHandlerAction(MPDHandlerAction.NET_HANDLER_ACTION.ACTION_DISCONNECT_MPD_SERVER);
+            Message msg = Message.obtain();
+            if (null == msg) {
+                return;
+            }
+            msg.obj = action;
+            handler.mPendingRequests.incrementAndGet();
+            handler.sendMessage(msg);
+        }
     }
 
     public static MPDCapabilities getServerCapabilities() {
@@ -1119,4 +1362,80 @@ public class MPDQueryHandler extends MPDGenericHandler {
     public static void unregisterConnectionStateListener(MPDConnectionStateChangeHandler stateHandler) {
         getHandler().internalUnregisterConnectionStateListener(stateHandler);
     }
+
+    /**
+     * Sends the result of a request to the response handler. The result of a cancelled request
+     * is incomplete and nobody waits for it, so it is dropped.
+     *
+     * @param responseHandler Handler of the caller
+     * @param responseMessage Message with the result
+     */
+    private void sendResponse(MPDResponseHandler responseHandler, Message responseMessage) {
+        if (null != mCancellationToken && mCancellationToken.isCancelled()) {
+            return;
+        }
+        responseHandler.sendMessage(responseMessage);
+    }
+
+    /**
+     * Forwards the chunks of a file list to a {@link MPDResponseFileList}. Each chunk is sent
+     * as a separate message with its window (start, end) within the complete list.
+     */
+    private static class FileListChunkForwarder implements MPDConnection.MPDFileListChunkListener {
+        private final MPDResponseHandler mResponseHandler;
+
+        /**
+         * Token of the request, no chunks are forwarded once it is cancelled. Can be null.
+         */
+        private final MPDCancellationToken mCancellationToken;
+
+        /**
+         * Number of entries already forwarded to the response handler
+         */
+        private int mForwardedEntries;
+
+        FileListChunkForwarder(MPDResponseHandler responseHandler, MPDCancellationToken cancellationToken) {
+            mResponseHandler = responseHandler;
+            mCancellationToken = cancellationToken;
+            mForwardedEntries = 0;
+        }
+
+        @Override
+        public void onFileListChunk(List<MPDFileEntry> chunk, int start, int end) {
+            sendChunk(chunk, start, end);
+            mForwardedEntries = end;
+        }
+
+        /**
+         * Called if the request failed. If nothing was forwarded so far, null is sent to the
+         * response handler like for the non chunked requests.
+         */
+        void onFailure() {
+            if (mForwardedEntries == 0) {
+                sendChunk(null, 0, 0);
+            }
+        }
+
+        /**
+         * Called if a request for changes failed. Null is sent to the response handler even if
+         * chunks were forwarded already, because a part of the changes leaves the receiver in an
+         * unknown state.
+         */
+        void onChangesFailed() {
+            sendChunk(null, 0, 0);
+        }
+
+        private void sendChunk(List<MPDFileEntry> chunk, int start, int end) {
+            if (null != mCancellationToken && mCancellationToken.isCancelled()) {
+                return;
+            }
+            Message responseMessage = Message.obtain();
+            responseMessage.obj = chunk;
+            Bundle data = new Bundle();
+            data.putInt(MPDResponseFileList.EXTRA_WINDOW_START, start);
+            data.putInt(MPDResponseFileList.EXTRA_WINDOW_END, end);
+            responseMessage.setData(data);
+            mResponseHandler.sendMessage(responseMessage);
+        }
+    }
 }
@@ -29,13 +29,19 @@ import android.util.Log;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 
 import org.gateshipone.malp.mpdservice.handlers.MPDConnectionStateChangeHandler;
 import org.gateshipone.malp.mpdservice.handlers.MPDStatusChangeHandler;
+import org.gateshipone.malp.mpdservice.handlers.MPDSubsystemChangeHandler;
 import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseHandler;
 import org.gateshipone.malp.mpdservice.mpdprotocol.MPDConnection;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDCommandPipeline;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDCommands;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDConnectionPool;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDCurrentStatus;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFile;
 
@@ -65,6 +71,11 @@ public class MPDStateMonitoringHandler extends MPDGenericHandler implements MPDC
      */
     private static ArrayList<MPDStatusChangeHandler> mStatusListeners;
 
+    /**
+     * Callback handlers for the GUI to get notified on changes of MPD subsystems (e.g. database)
+     */
+    private static ArrayList<MPDSubsystemChangeHandler> mSubsystemListeners;
+
     /**
      * Timer used to periodically resync the state with the mpd server between interpolating
      * the time values.
@@ -91,8 +102,7 @@ public class MPDStateMonitoringHandler extends MPDGenericHandler implements MPDC
      * @param looper Looper of a HandlerThread (that is NOT the UI thread)
      */
     private MPDStateMonitoringHandler(Looper looper) {
-        super(looper);
-        mMPDConnection.setID("Status");
+        super(looper, MPDConnectionPool.getInstance().getConnection(MPDConnectionPool.CONNECTION_ROLE.ROLE_STATUS));
         mLastStatus = new MPDCurrentStatus();
     }
 
@@ -110,6 +120,7 @@ public class MPDStateMonitoringHandler extends MPDGenericHandler implements MPDC
             mHandlerSingleton = new MPDStateMonitoringHandler(mHandlerThread.getLooper());
 
             mStatusListeners = new ArrayList<>();
+            mSubsystemListeners = new ArrayList<>();
 
             mHandlerSingleton.mMPDConnection.setpIdleListener(mHandlerSingleton);
 
@@ -162,8 +173,41 @@ public class MPDStateMonitoringHandler extends MPDGenericHandler implements MPDC
         MPDStateMonitoringHandler.getHandler().sendMessage(msg);
     }
 
+    /**
+     * Connect the status connection to the previously configured MPD server.
+     */
+    public static void connectToMPDServer() {
+        MPDHandlerAction action = new MPDHandlerAction(MPDHandlerAction.NET_HANDLER_ACTION.ACTION_CONNECT_MPD_SERVER);
+        Message msg = Message.obtain();
+        if (msg == null) {
+            return;
+        }
+        msg.obj = action;
+        MPDStateMonitoringHandler.getHandler().sendMessage(msg);
+    }
+
+    /**
+     * Disconnect the status connection from the previously connected MPD server.
+     */
+    public static void disconnectFromMPDServer() {
+        MPDHandlerAction action = new MPDHandlerAction(MPDHandlerAction.NET_HANDLER_ACTION.ACTION_DISCONNECT_MPD_SERVER);
+        Message msg = Message.obtain();
+        if (msg == null) {
+            return;
+        }
+        msg.obj = action;
+        MPDStateMonitoringHandler.getHandler().sendMessage(msg);
+    }
+
 
-    private void resyncState() {
+    /**
+     * Requests the status of the server and distributes it to the listeners.
+     *
+     * @param fetchCurrentSong True if the current song could have changed (player or playlist
+     *                         change). It is requested together with the status then. Otherwise
+     *                         it is only requested if the status shows a new song.
+     */
+    private void resyncState(boolean fetchCurrentSong) {
         synchronized (this) {
 
             // Stop the interpolation
@@ -183,12 +227,27 @@ public class MPDStateMonitoringHandler extends MPDGenericHandler implements MPDC
         }
         mLastTimeBase = System.nanoTime();
 
-        MPDCurrentStatus status = mMPDConnection.getCurrentServerStatus();
+        // Request the status and if necessary the current song in one round trip.
+        MPDCommandPipeline pipeline = new MPDCommandPipeline();
+        MPDCommandPipeline.PipelinedCommand<MPDCurrentStatus> statusCommand = pipeline.addStatus();
+        MPDCommandPipeline.PipelinedCommand<MPDFile> currentSongCommand = null;
+        if (fetchCurrentSong) {
+            currentSongCommand = pipeline.addCurrentSong();
+        }
+        mMPDConnection.executePipeline(pipeline);
 
+        MPDCurrentStatus status = statusCommand.getResult();
+        if (null == status) {
+            status = new MPDCurrentStatus();
+        }
 
         if (status.getCurrentSongIndex() != mLastStatus.getCurrentSongIndex() || status.getPlaylistVersion() != mLastStatus.getPlaylistVersion()) {
-            // New track started playing. Get it and inform the listener.
-            mLastFile = mMPDConnection.getCurrentSong();
+            // New track started playing. Inform the listener.
+            if (null != currentSongCommand) {
+                mLastFile = currentSongCommand.getResult();
+            } else {
+                mLastFile = mMPDConnection.getCurrentSong();
+            }
             distributeNewTrack(mLastFile);
         }
 
@@ -269,6 +328,24 @@ public class MPDStateMonitoringHandler extends MPDGenericHandler implements MPDC
         }
     }
 
+    public static void registerSubsystemListener(MPDSubsystemChangeHandler handler) {
+        if (null != handler) {
+            getHandler().mSubsystemListeners.add(handler);
+        }
+    }
+
+    public static void unregisterSubsystemListener(MPDSubsystemChangeHandler handler) {
+        if (null != handler) {
+            getHandler().mSubsystemListeners.remove(handler);
+        }
+    }
+
+    private void distributeSubsystemChanges(Set<MPDCommands.MPD_IDLE_SUBSYSTEM> changedSubsystems) {
+        for (MPDSubsystemChangeHandler handler : mSubsystemListeners) {
+            handler.subsystemsChanged(changedSubsystems);
+        }
+    }
+
     private void distributeNewTrack(MPDFile track) {
         for (MPDStatusChangeHandler handler : mStatusListeners) {
             handler.newMPDTrackReady(track);
@@ -282,7 +359,7 @@ public class MPDStateMonitoringHandler extends MPDGenericHandler implements MPDC
         mLastFile = new MPDFile("");
         distributeNewStatus(mLastStatus);
         distributeNewTrack(mLastFile);
-        resyncState();
+        resyncState(true);
     }
 
     @Override
@@ -309,9 +386,24 @@ public class MPDStateMonitoringHandler extends MPDGenericHandler implements MPDC
     }
 
     @Override
-    public void onNonIdle() {
-        // Server idle is over (reason unclear), resync the state
-        resyncState();
+    public void onNonIdle(Set<MPDCommands.MPD_IDLE_SUBSYSTEM> changedSubsystems) {
+        if (changedSubsystems.isEmpty()) {
+            // Idle was stopped by this connection to send a request, nothing changed on the server.
+            return;
+        }
+
+        // Only refresh what changed. Volume (mixer) or option changes do not need the current song.
+        boolean songChanged = changedSubsystems.contains(MPDCommands.MPD_IDLE_SUBSYSTEM.MPD_IDLE_SUBSYSTEM_PLAYER)
+                || changedSubsystems.contains(MPDCommands.MPD_IDLE_SUBSYSTEM.MPD_IDLE_SUBSYSTEM_PLAYLIST);
+        boolean statusChanged = songChanged
+                || changedSubsystems.contains(MPDCommands.MPD_IDLE_SUBSYSTEM.MPD_IDLE_SUBSYSTEM_MIXER)
+                || changedSubsystems.contains(MPDCommands.MPD_IDLE_SUBSYSTEM.MPD_IDLE_SUBSYSTEM_OPTIONS)
+                || changedSubsystems.contains(MPDCommands.MPD_IDLE_SUBSYSTEM.MPD_IDLE_SUBSYSTEM_UPDATE);
+        if (statusChanged) {
+            resyncState(songChanged);
+        }
+
+        distributeSubsystemChanges(Collections.unmodifiableSet(changedSubsystems));
     }
 
     public static void setRefreshInterval(int interval) {
@@ -323,7 +415,7 @@ public class MPDStateMonitoringHandler extends MPDGenericHandler implements MPDC
 
         @Override
         public void run() {
-            resyncState();
+            resyncState(false);
         }
     }
 
@@ -34,7 +34,7 @@ public class MPDProfileDBHelper extends SQLiteOpenHelper{
     /**
      * Database version, used for migrating to new versions.
      */
-    public static final int DATABASE_VERSION = 1;
+    public static final int DATABASE_VERSION = 2;
 
     /**
      * Constructor to create the database.
@@ -52,18 +52,20 @@ public class MPDProfileDBHelper extends SQLiteOpenHelper{
     @Override
     public void onCreate(SQLiteDatabase database) {
         MPDServerProfileTable.onCreate(database);
+        MPDServerCapabilitiesTable.onCreate(database);
     }
 
     /**
-     * Method to migrate the database to a new version. Nothing implemented for now.
+     * Method to migrate the database to a new version.
      * @param database Database to migrate to a different version.
      * @param oldVersion Old version of the database to migrate from
      * @param newVersion New version of the database to migrate to
      */
     @Override
     public void onUpgrade(SQLiteDatabase database, int oldVersion, int newVersion) {
-        /**
-         * No migrations necessary for now.
-         */
+        // Version 2 added the cache for the server capabilities
+        if (oldVersion < 2) {
+            MPDServerCapabilitiesTable.onCreate(database);
+        }
     }
 }
@@ -26,9 +26,13 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.nfc.Tag;
+import android.text.TextUtils;
 import android.util.Log;
 
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDCapabilities;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class MPDProfileManager {
@@ -178,4 +182,69 @@ public class MPDProfileManager {
         return null;
     }
 
+    /**
+     * Returns the cached capabilities of the server of a profile.
+     * @param profile Profile to get the capabilities for.
+     * @return The stored capabilities or null if none are stored.
+     */
+    public MPDCapabilities getServerCapabilities(MPDServerProfile profile) {
+        SQLiteDatabase db = mDBHelper.getReadableDatabase();
+        Cursor cursor = db.query(MPDServerCapabilitiesTable.SQL_TABLE_NAME, MPDServerCapabilitiesTable.PROJECTION_SERVER_CAPABILITIES,
+                MPDServerCapabilitiesTable.COLUMN_PROFILE_DATE_CREATED + "=?", new String[]{String.valueOf(profile.getCreationDate())}, null, null, null);
+
+        MPDCapabilities capabilities = null;
+        if (cursor.moveToFirst()) {
+            String version = cursor.getString(cursor.getColumnIndex(MPDServerCapabilitiesTable.COLUMN_SERVER_VERSION));
+            String commands = cursor.getString(cursor.getColumnIndex(MPDServerCapabilitiesTable.COLUMN_SERVER_COMMANDS));
+            String tags = cursor.getString(cursor.getColumnIndex(MPDServerCapabilitiesTable.COLUMN_SERVER_TAGS));
+
+            capabilities = new MPDCapabilities(version, splitList(commands), splitList(tags));
+        }
+
+        cursor.close();
+        db.close();
+        return capabilities;
+    }
+
+    /**
+     * Stores the capabilities of the server of a profile. Replaces earlier stored capabilities.
+     * @param profile Profile to store the capabilities for.
+     * @param capabilities Capabilities requested from the server.
+     */
+    public void setServerCapabilities(MPDServerProfile profile, MPDCapabilities capabilities) {
+        SQLiteDatabase db = mDBHelper.getWritableDatabase();
+
+        ContentValues values = new ContentValues();
+        values.put(MPDServerCapabilitiesTable.COLUMN_PROFILE_DATE_CREATED, profile.getCreationDate());
+        values.put(MPDServerCapabilitiesTable.COLUMN_SERVER_VERSION, capabilities.getVersionString());
+        values.put(MPDServerCapabilitiesTable.COLUMN_SERVER_COMMANDS, TextUtils.join(MPDServerCapabilitiesTable.LIST_SEPARATOR, capabilities.getCommands()));
+        values.put(MPDServerCapabilitiesTable.COLUMN_SERVER_TAGS, TextUtils.join(MPDServerCapabilitiesTable.LIST_SEPARATOR, capabilities.getTags()));
+
+        db.replace(MPDServerCapabilitiesTable.SQL_TABLE_NAME, null, values);
+
+        db.close();
+    }
+
+    /**
+     * Removes the cached capabilities of a profile. Necessary if the server parameters of the
+     * profile changed or the profile is removed.
+     * @param profile Profile to remove the capabilities for.
+     */
+    public void deleteServerCapabilities(MPDServerProfile profile) {
+        SQLiteDatabase db = mDBHelper.getWritableDatabase();
+        String whereClause = MPDServerCapabilitiesTable.COLUMN_PROFILE_DATE_CREATED + "=?";
+
+        String[] whereValues = {String.valueOf(profile.getCreationDate())};
+        db.delete(MPDServerCapabilitiesTable.SQL_TABLE_NAME, whereClause, whereValues);
+
+        db.close();
+    }
+
+    private static List<String> splitList(String list) {
+        if (null == list || list.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return Arrays.asList(TextUtils.split(list, MPDServerCapabilitiesTable.LIST_SEPARATOR));
+    }
+
 }
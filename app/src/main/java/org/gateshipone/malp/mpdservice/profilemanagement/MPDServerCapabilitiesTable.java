@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gateshipone.malp.mpdservice.profilemanagement;
+
+
+import android.database.sqlite.SQLiteDatabase;
+
+public class MPDServerCapabilitiesTable {
+    /**
+     * Table name of the SQL table inside a database
+     */
+    public static final String SQL_TABLE_NAME = "andrompd_mpd_server_capabilities";
+
+    /**
+     * Column descriptions
+     */
+    public static final String COLUMN_PROFILE_DATE_CREATED = "profile_date";
+    public static final String COLUMN_SERVER_VERSION = "server_version";
+    public static final String COLUMN_SERVER_COMMANDS = "server_commands";
+    public static final String COLUMN_SERVER_TAGS = "server_tags";
+
+    /**
+     * Separator of the entries in the commands and tags columns
+     */
+    public static final String LIST_SEPARATOR = "\n";
+
+    /**
+     * Projection string array used for queries on this table
+     */
+    public static final String[] PROJECTION_SERVER_CAPABILITIES = {COLUMN_PROFILE_DATE_CREATED, COLUMN_SERVER_VERSION,
+            COLUMN_SERVER_COMMANDS, COLUMN_SERVER_TAGS
+    };
+
+
+    /**
+     * String to initially create the table. One row per server profile, referenced by the
+     * creation date of the profile.
+     */
+    public static final String DATABASE_CREATE = "create table if not exists " + SQL_TABLE_NAME + " (" +
+            COLUMN_PROFILE_DATE_CREATED + " integer PRIMARY KEY," + COLUMN_SERVER_VERSION + " text," +
+            COLUMN_SERVER_COMMANDS + " text," + COLUMN_SERVER_TAGS + " text);";
+
+    /**
+     * Creates the inital database table.
+     * @param database Database to use for table creation.
+     */
+    public static void onCreate(SQLiteDatabase database) {
+        /*
+         * Create table in the given database here.
+         */
+        database.execSQL(DATABASE_CREATE);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gateshipone.malp.mpdservice.profilemanagement;
+
+
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDCapabilities;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDConnection;
+
+/**
+ * Cache for the capabilities of the server of one profile. The capabilities are stored in the
+ * profile database, so that the connections can skip the "commands" and "tagtypes" requests on
+ * the next connect to the same server version.
+ * <p/>
+ * The cache is shared by all connections of the pool, the database is only read once.
+ */
+public class MPDServerCapabilityCache implements MPDConnection.MPDCapabilityCache {
+
+    private final MPDProfileManager mProfileManager;
+
+    private final MPDServerProfile mProfile;
+
+    /**
+     * Last known capabilities of the profile. Only valid if mLoaded is true.
+     */
+    private MPDCapabilities mCapabilities;
+
+    private boolean mLoaded;
+
+    public MPDServerCapabilityCache(MPDProfileManager profileManager, MPDServerProfile profile) {
+        mProfileManager = profileManager;
+        mProfile = profile;
+    }
+
+    @Override
+    public synchronized MPDCapabilities getCapabilities(String version) {
+        if (!mLoaded) {
+            mCapabilities = mProfileManager.getServerCapabilities(mProfile);
+            mLoaded = true;
+        }
+
+        if (null != mCapabilities && mCapabilities.getVersionString().equals(version)) {
+            return mCapabilities;
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized void putCapabilities(MPDCapabilities capabilities) {
+        // Every connection reports the capabilities, only write changes to the database.
+        if (mLoaded && capabilities.equals(mCapabilities)) {
+            return;
+        }
+        mCapabilities = capabilities;
+        mLoaded = true;
+        mProfileManager.setServerCapabilities(mProfile, capabilities);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDArtist;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDCurrentStatus;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures complete requests of {@link MPDConnection} against the {@link FakeMPDServer}:
+ * command round trips and loading the whole library. Unlike {@link ResponseParsingBenchmark}
+ * the server creates every response on request and can add latency, so the results include
+ * the network behaviour of the connection.
+ * <p>
+ * Run with: ./gradlew :mpdprotocol:jmh -Pjmh.include=EndToEndBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class EndToEndBenchmark {
+    private static final long SEED = 0x653265L;
+
+    private static final int QUEUE_LENGTH = 1000;
+
+    @Param({"10000", "100000", "500000"})
+    public int trackCount;
+
+    /**
+     * Latency of the server in milliseconds
+     */
+    @Param({"0", "20"})
+    public int latency;
+
+    private FakeMPDServer mServer;
+
+    private MPDConnection mConnection;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        mServer = new FakeMPDServer("0.20.0", new FakeMPDLibrary(trackCount, SEED));
+        mServer.fillQueue(QUEUE_LENGTH);
+        mServer.setLatency(latency);
+        mServer.start();
+
+        mConnection = new MPDConnection("Benchmark");
+        mConnection.setServerParameters("127.0.0.1", "", mServer.getPort());
+        mConnection.connectToServer();
+        if (!mConnection.isConnected()) {
+            throw new IOException("Could not connect to fake server");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        mConnection.disconnectFromServer();
+        mServer.stop();
+    }
+
+    @Benchmark
+    public MPDCurrentStatus statusRoundTrip() {
+        return mConnection.getCurrentServerStatus();
+    }
+
+    @Benchmark
+    public List<MPDFileEntry> playlistWindow() {
+        return mConnection.getCurrentPlaylistWindow(0, 100);
+    }
+
+    @Benchmark
+    public List<MPDFileEntry> loadAllTracks() {
+        return mConnection.getAllTracks();
+    }
+
+    @Benchmark
+    public List<MPDAlbum> loadAlbums() {
+        return mConnection.getAlbums();
+    }
+
+    @Benchmark
+    public List<MPDArtist> loadArtists() {
+        return mConnection.getArtists();
+    }
+
+    @Benchmark
+    public List<MPDFileEntry> loadAlbumTracks() {
+        return mConnection.getArtistAlbumTracks("Album 42", "Artist 8", "");
+    }
+}
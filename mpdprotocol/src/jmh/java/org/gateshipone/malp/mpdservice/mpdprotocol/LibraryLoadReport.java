@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDArtist;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
+
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * End-to-end report of the connection pool against the {@link FakeMPDServer}. It connects all
+ * connections of the {@link MPDConnectionPool}, measures status round trips (back to back,
+ * after idling and while the library is loaded on a query connection), loads the complete
+ * library and prints the peak heap, the thread counts and the {@link MPDCommandMetrics}.
+ * <p>
+ * The numbers of single runs vary, compare several runs before and after a change.
+ * <p>
+ * Run with: ./gradlew :mpdprotocol:benchmarkReport -PtrackCount=100000 -Platency=20 -Pbandwidth=0
+ */
+public class LibraryLoadReport {
+    private static final long SEED = 0x7265706fL;
+
+    private static final int QUEUE_LENGTH = 5000;
+
+    private static final int ROUND_TRIPS = 200;
+
+    private static final int IDLE_ROUND_TRIPS = 10;
+
+    /* Longer than the idle wait time of MPDConnection, so the connection is idling again */
+    private static final int IDLE_PAUSE = 700;
+
+    private static final int[] PERCENTILES = {50, 90, 99, 100};
+
+    /**
+     * @param args track count, latency in ms, bandwidth in bytes per second (0 for unlimited)
+     */
+    public static void main(String[] args) throws Exception {
+        int trackCount = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int latency = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        int bandwidth = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+
+        System.out.printf(Locale.ROOT, "Library: %d tracks, latency: %d ms, bandwidth: %s%n", trackCount, latency,
+                bandwidth > 0 ? (bandwidth / 1024) + " KiB/s" : "unlimited");
+
+        FakeMPDServer server = new FakeMPDServer("0.20.0", new FakeMPDLibrary(trackCount, SEED));
+        server.fillQueue(QUEUE_LENGTH);
+        server.setLatency(latency);
+        server.setBandwidth(bandwidth);
+        server.start();
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        int baseThreads = threads.getThreadCount();
+        threads.resetPeakThreadCount();
+        System.gc();
+        resetHeapPeak();
+        long baseHeap = getUsedHeap();
+        MPDCommandMetrics.getInstance().reset();
+
+        MPDConnectionPool pool = MPDConnectionPool.getInstance();
+        pool.setServerParameters("127.0.0.1", "", server.getPort());
+        long start = System.nanoTime();
+        for (MPDConnectionPool.CONNECTION_ROLE role : MPDConnectionPool.CONNECTION_ROLE.values()) {
+            for (int lane = 0; lane < pool.getLaneCount(role); lane++) {
+                pool.getConnection(role, lane).connectToServer();
+            }
+        }
+        printTime("Connect pool", System.nanoTime() - start);
+
+        final MPDConnection status = pool.getConnection(MPDConnectionPool.CONNECTION_ROLE.ROLE_STATUS);
+        MPDConnection query = pool.getConnection(MPDConnectionPool.CONNECTION_ROLE.ROLE_QUERY);
+
+        long[] roundTrips = new long[ROUND_TRIPS];
+        for (int i = 0; i < ROUND_TRIPS; i++) {
+            start = System.nanoTime();
+            status.getCurrentServerStatus();
+            roundTrips[i] = System.nanoTime() - start;
+        }
+        printPercentiles("Status round trip (busy)", roundTrips);
+
+        long[] idleRoundTrips = new long[IDLE_ROUND_TRIPS];
+        for (int i = 0; i < IDLE_ROUND_TRIPS; i++) {
+            Thread.sleep(IDLE_PAUSE);
+            start = System.nanoTime();
+            status.getCurrentServerStatus();
+            idleRoundTrips[i] = System.nanoTime() - start;
+        }
+        printPercentiles("Status round trip (idle)", idleRoundTrips);
+
+        // Poll the status like the GUI does while the library is loaded on a query connection
+        final List<Long> loadRoundTrips = new ArrayList<>();
+        final AtomicBoolean loading = new AtomicBoolean(true);
+        Thread poller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (loading.get()) {
+                    long pollStart = System.nanoTime();
+                    status.getCurrentServerStatus();
+                    loadRoundTrips.add(System.nanoTime() - pollStart);
+                }
+            }
+        }, "StatusPoller");
+        poller.start();
+
+        start = System.nanoTime();
+        List<MPDFileEntry> tracks = query.getAllTracks();
+        printTime("Load all tracks (" + (null == tracks ? 0 : tracks.size()) + ')', System.nanoTime() - start);
+        loading.set(false);
+        poller.join();
+        long[] polled = new long[loadRoundTrips.size()];
+        for (int i = 0; i < polled.length; i++) {
+            polled[i] = loadRoundTrips.get(i);
+        }
+        printPercentiles("Status round trip (loading)", polled);
+
+        start = System.nanoTime();
+        List<MPDAlbum> albums = query.getAlbums();
+        printTime("Load albums (" + albums.size() + ')', System.nanoTime() - start);
+
+        start = System.nanoTime();
+        List<MPDArtist> artists = query.getArtists();
+        printTime("Load artists (" + artists.size() + ')', System.nanoTime() - start);
+
+        start = System.nanoTime();
+        List<MPDFileEntry> playlist = query.getCurrentPlaylist();
+        printTime("Load current playlist (" + playlist.size() + ')', System.nanoTime() - start);
+
+        System.gc();
+        System.out.printf(Locale.ROOT, "Heap: peak %d MiB, retained with loaded library %d MiB%n",
+                (getPeakHeap() - baseHeap) >> 20, (getUsedHeap() - baseHeap) >> 20);
+        // Uses the results after measuring, so they are still reachable during the measurement
+        System.out.printf(Locale.ROOT, "Retained: %d tracks, %d albums, %d artists, %d playlist entries%n",
+                null == tracks ? 0 : tracks.size(), albums.size(), artists.size(), playlist.size());
+        System.out.printf(Locale.ROOT, "Threads: %d live (%d before connecting), %d peak%n",
+                threads.getThreadCount(), baseThreads, threads.getPeakThreadCount());
+
+        System.out.println();
+        Writer writer = new OutputStreamWriter(System.out);
+        MPDCommandMetrics.getInstance().writeCSV(writer);
+        writer.flush();
+
+        for (MPDConnectionPool.CONNECTION_ROLE role : MPDConnectionPool.CONNECTION_ROLE.values()) {
+            for (int lane = 0; lane < pool.getLaneCount(role); lane++) {
+                pool.getConnection(role, lane).disconnectFromServer();
+            }
+        }
+        server.stop();
+        System.exit(0);
+    }
+
+    private static void printTime(String name, long nanos) {
+        System.out.printf(Locale.ROOT, "%-30s %10.1f ms%n", name, nanos / 1000000.0);
+    }
+
+    private static void printPercentiles(String name, long[] nanos) {
+        if (nanos.length == 0) {
+            System.out.printf(Locale.ROOT, "%-30s no samples%n", name);
+            return;
+        }
+        Arrays.sort(nanos);
+        StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "%-30s", name));
+        for (int percentile : PERCENTILES) {
+            int index = Math.min(nanos.length - 1, (nanos.length * percentile + 99) / 100 - 1);
+            line.append(String.format(Locale.ROOT, "  p%d %.2f ms", percentile, nanos[Math.max(0, index)] / 1000000.0));
+        }
+        line.append(String.format(Locale.ROOT, "  (%d samples)", nanos.length));
+        System.out.println(line);
+    }
+
+    private static void resetHeapPeak() {
+        for (MemoryPoolMXBean memoryPool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (memoryPool.getType() == MemoryType.HEAP) {
+                memoryPool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Sum of the peak usage of all heap pools. The pools peak at different times, so this is
+     * an upper bound of the actual peak.
+     */
+    private static long getPeakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean memoryPool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (memoryPool.getType() == MemoryType.HEAP) {
+                peak += memoryPool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static long getUsedHeap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDCurrentStatus;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFile;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a recorded session (see {@link MPDSessionRecorder}) through the public calls of
+ * {@link MPDConnection}, so that field recordings of problematic servers become repeatable
+ * benchmarks of the parsers, the playlist windows and the artwork requests.
+ * <p>
+ * Run with: ./gradlew :mpdprotocol:jmh -Pjmh.include=ReplayBenchmark -Pcapture=FILE
+ * <p>
+ * Without a recording a session against the {@link FakeMPDServer} is recorded first.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReplayBenchmark {
+    private static final String CAPTURE_PROPERTY = "mpd.capture";
+
+    /**
+     * Call of the connection that creates a recorded request.
+     */
+    private interface ReplayCall {
+        /**
+         * @return Number of received objects, consumed so the call is not optimized away
+         */
+        int execute(MPDConnection connection);
+    }
+
+    private ReplayMPDServer mServer;
+
+    private MPDConnection mConnection;
+
+    private List<ReplayCall> mCalls;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        String captureFile = System.getProperty(CAPTURE_PROPERTY);
+        File file = (null == captureFile || captureFile.isEmpty()) ? recordSampleSession() : new File(captureFile);
+        MPDSessionCapture capture = MPDSessionCapture.read(file);
+        mCalls = createCalls(capture);
+
+        mServer = new ReplayMPDServer(capture, false);
+        mServer.start();
+        mConnection = new MPDConnection(capture.getConnectionID());
+        mConnection.setServerParameters("127.0.0.1", "", mServer.getPort());
+        mConnection.connectToServer();
+        if (!mConnection.isConnected()) {
+            throw new IOException("Could not connect to replay server");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        mConnection.disconnectFromServer();
+        mServer.stop();
+    }
+
+    @Benchmark
+    public int replaySession() {
+        int objects = 0;
+        for (ReplayCall call : mCalls) {
+            objects += call.execute(mConnection);
+        }
+        return objects;
+    }
+
+    /**
+     * Maps the recorded requests to the calls of the connection that create them. Requests
+     * that are sent by the connection itself (connecting, idling, artwork chunks) are skipped.
+     * Everything else runs through a {@link MPDCommandPipeline}, so the responses are still
+     * parsed by the parsers of the connection.
+     */
+    private static List<ReplayCall> createCalls(MPDSessionCapture capture) {
+        List<ReplayCall> calls = new ArrayList<>();
+        List<MPDSessionCapture.Exchange> exchanges = capture.getExchanges();
+        for (int i = 1; i < exchanges.size(); i++) {
+            final String request = exchanges.get(i).getRequest();
+            String name = request.split("[ \n]", 2)[0];
+            switch (name) {
+                case MPDCommands.MPD_COMMAND_START_IDLE:
+                case MPDCommands.MPD_COMMAND_STOP_IDLE:
+                case MPDCommands.MPD_COMMAND_CLOSE:
+                case MPDCommands.MPD_COMMAND_GET_COMMANDS:
+                case MPDCommands.MPD_COMMAND_GET_TAGS:
+                case MPDCommands.MPD_COMMAND_BINARY_LIMIT_CMD_NAME:
+                case "password":
+                    break;
+                case MPDCommands.MPD_COMMAND_GET_CURRENT_STATUS:
+                    calls.add(new ReplayCall() {
+                        @Override
+                        public int execute(MPDConnection connection) {
+                            MPDCurrentStatus status = connection.getCurrentServerStatus();
+                            return null == status ? 0 : 1;
+                        }
+                    });
+                    break;
+                case MPDCommands.MPD_COMMAND_GET_CURRENT_SONG:
+                    calls.add(new ReplayCall() {
+                        @Override
+                        public int execute(MPDConnection connection) {
+                            MPDFile song = connection.getCurrentSong();
+                            return null == song ? 0 : 1;
+                        }
+                    });
+                    break;
+                case MPDCommands.MPD_COMMAND_ALBUMART_CMD_NAME:
+                case MPDCommands.MPD_COMMAND_READ_PICTURE_CMD_NAME:
+                    List<String> arguments = FakeMPDServer.parseArguments(request);
+                    // Later chunks and the readpicture fallback are requested by the connection
+                    if (name.equals(MPDCommands.MPD_COMMAND_ALBUMART_CMD_NAME) && arguments.size() == 3 && arguments.get(2).equals("0")) {
+                        final String path = arguments.get(1);
+                        calls.add(new ReplayCall() {
+                            @Override
+                            public int execute(MPDConnection connection) {
+                                byte[] image = connection.getAlbumImage(path);
+                                return null == image ? 0 : image.length;
+                            }
+                        });
+                    }
+                    break;
+                case "list":
+                    calls.add(createListCall(request));
+                    break;
+                default:
+                    calls.add(createPipelineCall(request));
+                    break;
+            }
+        }
+        return calls;
+    }
+
+    /**
+     * Creates a call for a list request. The connection creates the grouped variants of the
+     * requests from the capabilities of the server, which are part of the recording as well.
+     */
+    private static ReplayCall createListCall(String request) {
+        if (request.equals(MPDCommands.MPD_COMMAND_REQUEST_ARTISTS(true)) || request.equals(MPDCommands.MPD_COMMAND_REQUEST_ARTISTS(false))) {
+            return new ReplayCall() {
+                @Override
+                public int execute(MPDConnection connection) {
+                    return connection.getArtists().size();
+                }
+            };
+        } else if (request.equals(MPDCommands.MPD_COMMAND_REQUEST_ALBUMARTISTS(true)) || request.equals(MPDCommands.MPD_COMMAND_REQUEST_ALBUMARTISTS(false))) {
+            return new ReplayCall() {
+                @Override
+                public int execute(MPDConnection connection) {
+                    return connection.getAlbumArtists().size();
+                }
+            };
+        } else if (request.equals(MPDCommands.MPD_COMMAND_REQUEST_ALBUMS(true)) || request.equals(MPDCommands.MPD_COMMAND_REQUEST_ALBUMS(false))) {
+            return new ReplayCall() {
+                @Override
+                public int execute(MPDConnection connection) {
+                    return connection.getAlbums().size();
+                }
+            };
+        }
+        return createPipelineCall(request);
+    }
+
+    /**
+     * Creates a call that sends the request (a single command or a command list) as a pipeline.
+     * Commands that return songs are parsed as file lists.
+     */
+    private static ReplayCall createPipelineCall(String request) {
+        final List<String> commands = new ArrayList<>();
+        for (String line : request.split("\n")) {
+            if (!line.startsWith("command_list_")) {
+                commands.add(line);
+            }
+        }
+        return new ReplayCall() {
+            @Override
+            public int execute(MPDConnection connection) {
+                MPDCommandPipeline pipeline = new MPDCommandPipeline();
+                List<MPDCommandPipeline.PipelinedCommand<List<MPDFileEntry>>> fileLists = new ArrayList<>();
+                for (String command : commands) {
+                    if (command.equals(MPDCommands.MPD_COMMAND_GET_CURRENT_STATUS)) {
+                        pipeline.addStatus();
+                    } else if (command.equals(MPDCommands.MPD_COMMAND_GET_CURRENT_SONG)) {
+                        pipeline.addCurrentSong();
+                    } else if (isFileListCommand(command)) {
+                        fileLists.add(pipeline.addFileListCommand(command));
+                    } else {
+                        pipeline.addCommand(command);
+                    }
+                }
+                connection.executePipeline(pipeline);
+
+                int objects = 0;
+                for (MPDCommandPipeline.PipelinedCommand<List<MPDFileEntry>> fileList : fileLists) {
+                    if (fileList.isSuccessful()) {
+                        objects += fileList.getResult().size();
+                    }
+                }
+                return objects;
+            }
+        };
+    }
+
+    private static boolean isFileListCommand(String command) {
+        String name = command.split(" ", 2)[0];
+        switch (name) {
+            case "playlistinfo":
+            case "plchanges":
+            case "listallinfo":
+            case "lsinfo":
+            case "find":
+            case "search":
+            case "listplaylistinfo":
+            case "playlistfind":
+            case "playlistsearch":
+            case "listplaylists":
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records a typical session of the GUI against the {@link FakeMPDServer}.
+     *
+     * @return The recorded file
+     */
+    private static File recordSampleSession() throws IOException {
+        File directory = File.createTempFile("mpdsession", "");
+        if (!directory.delete() || !directory.mkdir()) {
+            throw new IOException("Could not create directory for the recording");
+        }
+        directory.deleteOnExit();
+
+        FakeMPDServer server = new FakeMPDServer("0.21.0", new FakeMPDLibrary(20000, 0x7265636fL));
+        server.fillQueue(2000);
+        server.start();
+
+        MPDSessionRecorder.setRecordDirectory(directory);
+        MPDConnection connection = new MPDConnection("Sample");
+        connection.setServerParameters("127.0.0.1", "", server.getPort());
+        connection.connectToServer();
+        MPDSessionRecorder.setRecordDirectory(null);
+
+        connection.getCurrentServerStatus();
+        connection.getCurrentSong();
+        for (int start = 0; start < 300; start += 100) {
+            connection.getCurrentPlaylistWindow(start, start + 100);
+        }
+        connection.getArtists();
+        connection.getAlbums();
+        connection.getArtistAlbumTracks("Album 42", "Artist 8", "");
+        connection.getSearchedFiles("Title 12", MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_TRACK);
+        connection.getAllTracks();
+        connection.getAlbumImage("music/Artist 0/Album 0/1 - Title 0.flac");
+        connection.disconnectFromServer();
+        server.stop();
+
+        File[] files = directory.listFiles();
+        if (null == files || files.length != 1) {
+            throw new IOException("Recording of the sample session failed");
+        }
+        files[0].deleteOnExit();
+        return files[0];
+    }
+}
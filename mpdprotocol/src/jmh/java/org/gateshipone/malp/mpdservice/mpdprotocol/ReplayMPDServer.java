@@ -0,0 +1,290 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Serves a session recorded by the {@link MPDSessionRecorder} to clients. Every request of a
+ * client is answered with the recorded response of the same request. Requests are searched
+ * from the position of the last answered request onwards, so a client that repeats the recorded
+ * session gets exactly the recorded responses, even if the same command was answered
+ * differently at different times.
+ * <p>
+ * Command lists that were not recorded as a whole are answered from the recorded responses of
+ * their single commands. Requests that are not part of the recording fail with an ACK.
+ * <p>
+ * In real time mode the recorded delays between a request and the chunks of its response are
+ * reproduced, otherwise responses are sent as fast as possible.
+ * <p>
+ * Run standalone with: ./gradlew :mpdprotocol:replayServer -Pcapture=FILE -Pport=6600 -Prealtime=true
+ */
+class ReplayMPDServer implements Runnable {
+    private static final byte[] RESPONSE_OK = "OK\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] RESPONSE_LIST_OK = "list_OK\n".getBytes(StandardCharsets.UTF_8);
+
+    private final List<MPDSessionCapture.Exchange> mExchanges;
+
+    private final boolean mRealTime;
+
+    private final ServerSocket mServerSocket;
+
+    private final Thread mThread;
+
+    /**
+     * @param capture  Session to serve
+     * @param realTime True to reproduce the recorded delays
+     * @param address  Address to listen on
+     * @param port     Port to listen on, 0 for any free port
+     */
+    ReplayMPDServer(MPDSessionCapture capture, boolean realTime, InetAddress address, int port) throws IOException {
+        mExchanges = capture.getExchanges();
+        mRealTime = realTime;
+        mServerSocket = new ServerSocket(port, 50, address);
+        mThread = new Thread(this, "ReplayMPDServer");
+        mThread.setDaemon(true);
+    }
+
+    ReplayMPDServer(MPDSessionCapture capture, boolean realTime) throws IOException {
+        this(capture, realTime, InetAddress.getLoopbackAddress(), 0);
+    }
+
+    int getPort() {
+        return mServerSocket.getLocalPort();
+    }
+
+    void start() {
+        mThread.start();
+    }
+
+    void stop() throws IOException {
+        mServerSocket.close();
+    }
+
+    @Override
+    public void run() {
+        while (!mServerSocket.isClosed()) {
+            try {
+                final Socket socket = mServerSocket.accept();
+                Thread client = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        serve(socket);
+                    }
+                }, "ReplayMPDClient");
+                client.setDaemon(true);
+                client.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            OutputStream output = socket.getOutputStream();
+
+            // The first exchange is the greeting of the server
+            sendResponse(output, mExchanges.get(0));
+
+            int position = 1;
+            boolean idling = false;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String request = line;
+                if (line.equals(MPDCommands.MPD_START_COMMAND_LIST) || line.equals(MPDCommands.MPD_START_COMMAND_LIST_OK)) {
+                    StringBuilder commandList = new StringBuilder(line);
+                    do {
+                        line = reader.readLine();
+                        if (null == line) {
+                            return;
+                        }
+                        commandList.append('\n').append(line);
+                    } while (!line.equals(MPDCommands.MPD_END_COMMAND_LIST));
+                    request = commandList.toString();
+                }
+
+                if (request.equals(MPDCommands.MPD_COMMAND_STOP_IDLE) && !idling) {
+                    // The recorded idle was already answered with a change, MPD ignores noidle then
+                    continue;
+                }
+                if (request.equals(MPDCommands.MPD_COMMAND_CLOSE)) {
+                    break;
+                }
+
+                int index = findExchange(request, position);
+                boolean idle = request.equals(MPDCommands.MPD_COMMAND_START_IDLE) || request.startsWith(MPDCommands.MPD_COMMAND_START_IDLE + ' ');
+                if (index >= 0) {
+                    position = index + 1;
+                    MPDSessionCapture.Exchange exchange = mExchanges.get(index);
+                    idling = idle && exchange.getResponse().isEmpty();
+                    sendResponse(output, exchange);
+                } else if (idle) {
+                    // Not recorded, wait for noidle
+                    idling = true;
+                } else if (request.equals(MPDCommands.MPD_COMMAND_STOP_IDLE)) {
+                    idling = false;
+                    output.write(RESPONSE_OK);
+                    output.flush();
+                } else {
+                    output.write(createCommandListResponse(request, position));
+                    output.flush();
+                }
+            }
+            socket.close();
+        } catch (IOException e) {
+            // Client disconnected
+        }
+    }
+
+    /**
+     * Searches a recorded request, first from the position onwards, then from the beginning.
+     *
+     * @return Index of the exchange or -1 if the request was not recorded
+     */
+    private int findExchange(String request, int position) {
+        for (int i = position; i < mExchanges.size(); i++) {
+            if (mExchanges.get(i).getRequest().equals(request)) {
+                return i;
+            }
+        }
+        for (int i = 1; i < position && i < mExchanges.size(); i++) {
+            if (mExchanges.get(i).getRequest().equals(request)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Creates the response of a request that was not recorded as a whole from the recorded
+     * responses of its commands. A single command is handled as a command list with one entry.
+     */
+    private byte[] createCommandListResponse(String request, int position) {
+        List<String> lines = Arrays.asList(request.split("\n"));
+        boolean commandList = lines.size() > 1;
+        boolean listOK = commandList && lines.get(0).equals(MPDCommands.MPD_START_COMMAND_LIST_OK);
+        List<String> commands = commandList ? lines.subList(1, lines.size() - 1) : lines;
+
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        for (int i = 0; i < commands.size(); i++) {
+            String command = commands.get(i);
+            int index = findExchange(command, position);
+            if (index < 0) {
+                String name = command.split(" ", 2)[0];
+                byte[] error = ("ACK [5@" + i + "] {" + name + "} not part of the recording\n").getBytes(StandardCharsets.UTF_8);
+                response.write(error, 0, error.length);
+                return response.toByteArray();
+            }
+            position = index + 1;
+
+            byte[] data = mExchanges.get(index).getResponseData();
+            int ackStart = findACK(data);
+            if (ackStart >= 0) {
+                // Fix the index of the failed command in the command list
+                String ack = new String(data, ackStart, data.length - ackStart, StandardCharsets.UTF_8)
+                        .replaceFirst("^ACK \\[(\\d+)@\\d+\\]", "ACK [$1@" + i + "]");
+                response.write(data, 0, ackStart);
+                byte[] error = ack.getBytes(StandardCharsets.UTF_8);
+                response.write(error, 0, error.length);
+                return response.toByteArray();
+            }
+            // Strip the final OK of the single command
+            int length = data.length >= RESPONSE_OK.length ? data.length - RESPONSE_OK.length : data.length;
+            response.write(data, 0, length);
+            if (listOK) {
+                response.write(RESPONSE_LIST_OK, 0, RESPONSE_LIST_OK.length);
+            }
+        }
+        response.write(RESPONSE_OK, 0, RESPONSE_OK.length);
+        return response.toByteArray();
+    }
+
+    /**
+     * @return Start of a final ACK line in the response or -1 if the response is no error
+     */
+    private static int findACK(byte[] data) {
+        int lineStart = data.length - 1;
+        // Skip the line break of the last line
+        while (lineStart > 0 && data[lineStart - 1] != '\n') {
+            lineStart--;
+        }
+        if (lineStart >= 0 && data.length - lineStart > 4 && new String(data, lineStart, 4, StandardCharsets.UTF_8).equals("ACK ")) {
+            return lineStart;
+        }
+        return -1;
+    }
+
+    private void sendResponse(OutputStream output, MPDSessionCapture.Exchange exchange) throws IOException {
+        long start = System.nanoTime();
+        for (MPDSessionCapture.Chunk chunk : exchange.getResponse()) {
+            if (mRealTime) {
+                long delay = (chunk.getTime() - exchange.getTime()) * 1000 - (System.nanoTime() - start);
+                if (delay > 0) {
+                    try {
+                        Thread.sleep(delay / 1000000, (int) (delay % 1000000));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+            output.write(chunk.getData());
+        }
+        output.flush();
+    }
+
+    /**
+     * @param args capture file, port (default 6600), "true" for real time replay (default false)
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1 || args[0].isEmpty()) {
+            System.err.println("Usage: ReplayMPDServer CAPTURE [PORT] [REALTIME]");
+            System.exit(1);
+        }
+        MPDSessionCapture capture = MPDSessionCapture.read(new File(args[0]));
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 6600;
+        boolean realTime = args.length > 2 && Boolean.parseBoolean(args[2]);
+
+        // Listen on all interfaces, so that devices and emulators can connect
+        ReplayMPDServer server = new ReplayMPDServer(capture, realTime, null, port);
+        System.out.println("Replaying " + capture.getExchanges().size() + " exchanges of connection \""
+                + capture.getConnectionID() + "\" on port " + server.getPort() + (realTime ? " in real time" : ""));
+        server.mThread.setDaemon(false);
+        server.start();
+        server.mThread.join();
+    }
+}
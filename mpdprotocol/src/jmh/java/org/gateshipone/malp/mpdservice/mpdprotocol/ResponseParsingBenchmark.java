@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDArtist;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDCurrentStatus;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the response parsers of {@link MPDConnection} with a large synthetic library.
+ * The responses are created once by the {@link FakeMPDServer} and then served from memory
+ * over the loopback interface, so the results are dominated by tokenizing and object creation.
+ * The GC profiler configured in build.gradle reports the allocated bytes per operation.
+ * <p>
+ * Run with: ./gradlew :mpdprotocol:jmh -Pjmh.include=ResponseParsingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ResponseParsingBenchmark {
+    private static final long SEED = 0x6d7064L;
+
+    @Param({"1000", "10000", "100000"})
+    public int trackCount;
+
+    private FakeMPDServer mServer;
+
+    private MPDConnection mConnection;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        mServer = new FakeMPDServer("0.20.0", new FakeMPDLibrary(trackCount, SEED));
+        mServer.fillQueue(trackCount);
+        mServer.cacheResponse(MPDCommands.MPD_COMMAND_REQUEST_ALL_FILES);
+        mServer.cacheResponse(MPDCommands.MPD_COMMAND_GET_CURRENT_PLAYLIST);
+        mServer.cacheResponse(MPDCommands.MPD_COMMAND_GET_CURRENT_STATUS);
+        mServer.cacheResponse(MPDCommands.MPD_COMMAND_REQUEST_ARTISTS(true));
+        mServer.start();
+
+        mConnection = new MPDConnection("Benchmark");
+        mConnection.setServerParameters("127.0.0.1", "", mServer.getPort());
+        mConnection.connectToServer();
+        if (!mConnection.isConnected()) {
+            throw new IOException("Could not connect to loopback server");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        mConnection.disconnectFromServer();
+        mServer.stop();
+    }
+
+    /**
+     * Parses the complete database like the library view does (listallinfo).
+     */
+    @Benchmark
+    public List<MPDFileEntry> parseAllTracks() {
+        return mConnection.getAllTracks();
+    }
+
+    @Benchmark
+    public List<MPDFileEntry> parseCurrentPlaylist() {
+        return mConnection.getCurrentPlaylist();
+    }
+
+    @Benchmark
+    public List<MPDArtist> parseArtists() {
+        return mConnection.getArtists();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public MPDCurrentStatus parseStatus() {
+        return mConnection.getCurrentServerStatus();
+    }
+}
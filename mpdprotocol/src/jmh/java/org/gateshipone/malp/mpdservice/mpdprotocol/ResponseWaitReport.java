@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+
+/**
+ * Measures the CPU time that {@link MPDConnection} spends while it waits for responses of a slow
+ * server. It sends simple commands to the {@link FakeMPDServer} with a fixed latency and
+ * compares the CPU time of the calling thread with the wall time. A connection that blocks on
+ * the socket uses almost no CPU time, one that polls the socket uses up to one core per waiting
+ * thread.
+ * <p>
+ * Run with: ./gradlew :mpdprotocol:responseWaitReport -PcommandCount=20 -Platency=50
+ */
+public class ResponseWaitReport {
+    private static final long SEED = 0x77616974L;
+
+    private static final int TRACK_COUNT = 1000;
+
+    private static final int WARMUP_COMMANDS = 20;
+
+    /**
+     * @param args command count, latency in ms
+     */
+    public static void main(String[] args) throws Exception {
+        int commandCount = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int latency = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!threads.isCurrentThreadCpuTimeSupported()) {
+            System.out.println("Thread CPU time is not supported by this JVM");
+            System.exit(1);
+        }
+        threads.setThreadCpuTimeEnabled(true);
+
+        FakeMPDServer server = new FakeMPDServer("0.20.0", new FakeMPDLibrary(TRACK_COUNT, SEED));
+        server.start();
+
+        MPDConnection connection = new MPDConnection("ResponseWait");
+        connection.setServerParameters("127.0.0.1", "", server.getPort());
+        connection.connectToServer();
+        if (!connection.isConnected()) {
+            System.out.println("Could not connect to fake server");
+            System.exit(1);
+        }
+
+        // Warm up without latency, so the measurement does not include class loading and JIT
+        for (int i = 0; i < WARMUP_COMMANDS; i++) {
+            connection.pause(0 == i % 2);
+        }
+
+        server.setLatency(latency);
+        System.out.printf(Locale.ROOT, "Commands: %d, latency: %d ms%n", commandCount, latency);
+
+        long wallStart = System.nanoTime();
+        long cpuStart = threads.getCurrentThreadCpuTime();
+        for (int i = 0; i < commandCount; i++) {
+            connection.pause(0 == i % 2);
+        }
+        long cpu = threads.getCurrentThreadCpuTime() - cpuStart;
+        long wall = System.nanoTime() - wallStart;
+
+        System.out.printf(Locale.ROOT, "Wall time %10.1f ms%n", wall / 1000000.0);
+        System.out.printf(Locale.ROOT, "CPU time  %10.1f ms (%.1f %% of one core)%n", cpu / 1000000.0,
+                100.0 * cpu / wall);
+
+        connection.disconnectFromServer();
+        server.stop();
+        System.exit(0);
+    }
+}
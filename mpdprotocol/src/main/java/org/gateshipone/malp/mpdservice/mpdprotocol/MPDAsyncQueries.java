@@ -0,0 +1,404 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDArtist;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDOutput;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDStatistics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous, read-only requests to the server that return an {@link MPDFuture} instead of
+ * sending the result to a ResponseHandler. This uses the same query connections of the
+ * {@link MPDConnectionPool} as the MPDQueryHandler, but with one worker thread per query lane.
+ * Requests are dispatched to the least busy lane, so independent requests run in parallel.
+ * <p/>
+ * A request that fails (e.g. because the connection was lost) fails its future with an
+ * IOException.
+ */
+public class MPDAsyncQueries {
+    private static final String THREAD_NAME = "MPDAsyncQueries";
+
+    /**
+     * Request that is executed with one of the query connections.
+     *
+     * @param <T> Type of the result. A result of null is treated as an error.
+     */
+    public interface Query<T> {
+        T run(MPDConnection connection) throws Exception;
+    }
+
+    private static MPDAsyncQueries mInstance;
+
+    private final MPDConnectionPool mConnectionPool;
+
+    private final ExecutorService[] mLaneExecutors;
+
+    /**
+     * Number of requests per lane that are not yet finished.
+     */
+    private final AtomicInteger[] mPendingRequests;
+
+    public static synchronized MPDAsyncQueries getInstance() {
+        if (null == mInstance) {
+            mInstance = new MPDAsyncQueries(MPDConnectionPool.getInstance());
+        }
+        return mInstance;
+    }
+
+    private MPDAsyncQueries(MPDConnectionPool connectionPool) {
+        mConnectionPool = connectionPool;
+
+        int laneCount = connectionPool.getLaneCount(MPDConnectionPool.CONNECTION_ROLE.ROLE_QUERY);
+        mLaneExecutors = new ExecutorService[laneCount];
+        mPendingRequests = new AtomicInteger[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            final String threadName = THREAD_NAME + '-' + i;
+            mLaneExecutors[i] = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, threadName);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            mPendingRequests[i] = new AtomicInteger(0);
+        }
+    }
+
+    /**
+     * Runs a request with the least busy query connection. Requests that are cancelled before
+     * they are started are not sent to the server. If the future is cancelled (or times out) while
+     * the request is running, the rest of the response is skipped, see
+     * {@link MPDCancellationToken}.
+     *
+     * @param query Request to run
+     * @return Future for the result of the request
+     */
+    public <T> MPDFuture<T> submit(final Query<T> query) {
+        int lane = 0;
+        for (int i = 1; i < mPendingRequests.length; i++) {
+            if (mPendingRequests[i].get() < mPendingRequests[lane].get()) {
+                lane = i;
+            }
+        }
+
+        final MPDFuture<T> future = new MPDFuture<>();
+        final MPDCancellationToken cancellationToken = new MPDCancellationToken();
+        future.whenComplete(new MPDFuture.Callback<T>() {
+            @Override
+            public void onSuccess(T result) {
+            }
+
+            @Override
+            public void onFailure(Throwable error) {
+                cancellationToken.cancel();
+            }
+        });
+        final MPDConnection connection = mConnectionPool.getConnection(MPDConnectionPool.CONNECTION_ROLE.ROLE_QUERY, lane);
+        final AtomicInteger pendingRequests = mPendingRequests[lane];
+        pendingRequests.incrementAndGet();
+        mLaneExecutors[lane].execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (future.isDone()) {
+                        return;
+                    }
+                    T result;
+                    synchronized (connection) {
+                        connection.setCancellationToken(cancellationToken);
+                        try {
+                            result = query.run(connection);
+                        } finally {
+                            connection.setCancellationToken(null);
+                        }
+                    }
+                    if (null == result) {
+                        future.fail(new IOException("Request to the server failed"));
+                    } else {
+                        future.complete(result);
+                    }
+                } catch (Exception e) {
+                    future.fail(e);
+                } finally {
+                    pendingRequests.decrementAndGet();
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * @return Future for the list of all albums
+     */
+    public MPDFuture<List<MPDAlbum>> getAlbums() {
+        return submit(new Query<List<MPDAlbum>>() {
+            @Override
+            public List<MPDAlbum> run(MPDConnection connection) {
+                return connection.getAlbums();
+            }
+        });
+    }
+
+    /**
+     * @param path Path to get the albums from
+     * @return Future for the list of albums in the path
+     */
+    public MPDFuture<List<MPDAlbum>> getAlbumsInPath(final String path) {
+        return submit(new Query<List<MPDAlbum>>() {
+            @Override
+            public List<MPDAlbum> run(MPDConnection connection) {
+                return connection.getAlbumsInPath(path);
+            }
+        });
+    }
+
+    /**
+     * @param artistName Artist to get the albums for
+     * @return Future for the list of albums of the artist
+     */
+    public MPDFuture<List<MPDAlbum>> getArtistAlbums(final String artistName) {
+        return submit(new Query<List<MPDAlbum>>() {
+            @Override
+            public List<MPDAlbum> run(MPDConnection connection) {
+                return connection.getArtistAlbums(artistName);
+            }
+        });
+    }
+
+    /**
+     * @return Future for the list of all artists
+     */
+    public MPDFuture<List<MPDArtist>> getArtists() {
+        return submit(new Query<List<MPDArtist>>() {
+            @Override
+            public List<MPDArtist> run(MPDConnection connection) {
+                return connection.getArtists();
+            }
+        });
+    }
+
+    /**
+     * @return Future for the list of all album artists
+     */
+    public MPDFuture<List<MPDArtist>> getAlbumArtists() {
+        return submit(new Query<List<MPDArtist>>() {
+            @Override
+            public List<MPDArtist> run(MPDConnection connection) {
+                return connection.getAlbumArtists();
+            }
+        });
+    }
+
+    /**
+     * @param albumName Album to get the tracks for
+     * @param mbid      MusicBrainz ID of the album, can be empty
+     * @return Future for the sorted track list of the album
+     */
+    public MPDFuture<List<MPDFileEntry>> getAlbumTracks(final String albumName, final String mbid) {
+        return submit(new Query<List<MPDFileEntry>>() {
+            @Override
+            public List<MPDFileEntry> run(MPDConnection connection) {
+                return connection.getAlbumTracks(albumName, mbid);
+            }
+        });
+    }
+
+    /**
+     * @param albumName  Album to get the tracks for
+     * @param artistName Artist to filter the tracks with
+     * @param mbid       MusicBrainz ID of the album, can be empty
+     * @return Future for the sorted track list of the album
+     */
+    public MPDFuture<List<MPDFileEntry>> getArtistAlbumTracks(final String albumName, final String artistName, final String mbid) {
+        return submit(new Query<List<MPDFileEntry>>() {
+            @Override
+            public List<MPDFileEntry> run(MPDConnection connection) {
+                return connection.getArtistAlbumTracks(albumName, artistName, mbid);
+            }
+        });
+    }
+
+    /**
+     * Requests the albums of an artist and then the tracks of all these albums. The track
+     * requests are spread over all query lanes.
+     *
+     * @param artistName Artist to get the tracks for
+     * @return Future for the tracks of the artist, sorted by album and track number.
+     */
+    public MPDFuture<List<MPDFileEntry>> getArtistTracks(final String artistName) {
+        return getArtistAlbums(artistName).thenCompose(new MPDFuture.AsyncFunction<List<MPDAlbum>, List<List<MPDFileEntry>>>() {
+            @Override
+            public MPDFuture<List<List<MPDFileEntry>>> apply(List<MPDAlbum> albums) {
+                List<MPDFuture<List<MPDFileEntry>>> albumTracks = new ArrayList<>(albums.size());
+                for (MPDAlbum album : albums) {
+                    albumTracks.add(getArtistAlbumTracks(album.getName(), artistName, album.getMBID()));
+                }
+                return MPDFuture.allOf(albumTracks);
+            }
+        }).thenApply(new MPDFuture.Function<List<List<MPDFileEntry>>, List<MPDFileEntry>>() {
+            @Override
+            public List<MPDFileEntry> apply(List<List<MPDFileEntry>> albumTracks) {
+                List<MPDFileEntry> tracks = new ArrayList<>();
+                for (List<MPDFileEntry> album : albumTracks) {
+                    tracks.addAll(album);
+                }
+                return tracks;
+            }
+        });
+    }
+
+    /**
+     * @return Future for the list of saved playlists
+     */
+    public MPDFuture<List<MPDFileEntry>> getPlaylists() {
+        return submit(new Query<List<MPDFileEntry>>() {
+            @Override
+            public List<MPDFileEntry> run(MPDConnection connection) {
+                return connection.getPlaylists();
+            }
+        });
+    }
+
+    /**
+     * @param playlistName Name of the saved playlist
+     * @return Future for the tracks of the saved playlist
+     */
+    public MPDFuture<List<MPDFileEntry>> getSavedPlaylist(final String playlistName) {
+        return submit(new Query<List<MPDFileEntry>>() {
+            @Override
+            public List<MPDFileEntry> run(MPDConnection connection) {
+                return connection.getSavedPlaylist(playlistName);
+            }
+        });
+    }
+
+    /**
+     * @param path Directory to list
+     * @return Future for the files and directories in the path
+     */
+    public MPDFuture<List<MPDFileEntry>> getFiles(final String path) {
+        return submit(new Query<List<MPDFileEntry>>() {
+            @Override
+            public List<MPDFileEntry> run(MPDConnection connection) {
+                return connection.getFiles(path);
+            }
+        });
+    }
+
+    /**
+     * @param term Term to search for
+     * @param type Tag to search in
+     * @return Future for the matching tracks
+     */
+    public MPDFuture<List<MPDFileEntry>> getSearchedFiles(final String term, final MPDCommands.MPD_SEARCH_TYPE type) {
+        return submit(new Query<List<MPDFileEntry>>() {
+            @Override
+            public List<MPDFileEntry> run(MPDConnection connection) {
+                return connection.getSearchedFiles(term, type);
+            }
+        });
+    }
+
+    /**
+     * @param term  Term to search for
+     * @param type  Tag to search in
+     * @param start Position of the first result (inclusive)
+     * @param end   Position of the last result (exclusive)
+     * @return Future for the matching tracks within the window. Contains all matching tracks
+     * if the server does not support windows.
+     */
+    public MPDFuture<List<MPDFileEntry>> getSearchedFiles(final String term, final MPDCommands.MPD_SEARCH_TYPE type, final int start, final int end) {
+        return submit(new Query<List<MPDFileEntry>>() {
+            @Override
+            public List<MPDFileEntry> run(MPDConnection connection) {
+                return connection.getSearchedFiles(term, type, start, end);
+            }
+        });
+    }
+
+    /**
+     * @param term Term to search for
+     * @param type Tag to search in
+     * @return Future for the number of matching tracks, -1 if the server can not count them
+     */
+    public MPDFuture<Integer> getSearchedFilesCount(final String term, final MPDCommands.MPD_SEARCH_TYPE type) {
+        return submit(new Query<Integer>() {
+            @Override
+            public Integer run(MPDConnection connection) {
+                return connection.getSearchedFilesCount(term, type);
+            }
+        });
+    }
+
+    /**
+     * @return Future for the list of outputs
+     */
+    public MPDFuture<List<MPDOutput>> getOutputs() {
+        return submit(new Query<List<MPDOutput>>() {
+            @Override
+            public List<MPDOutput> run(MPDConnection connection) {
+                return connection.getOutputs();
+            }
+        });
+    }
+
+    /**
+     * @return Future for the server statistics
+     */
+    public MPDFuture<MPDStatistics> getStatistics() {
+        return submit(new Query<MPDStatistics>() {
+            @Override
+            public MPDStatistics run(MPDConnection connection) {
+                return connection.getServerStatistics();
+            }
+        });
+    }
+
+    /**
+     * Sends all commands of the pipeline in one command list.
+     *
+     * @param pipeline Pipeline to execute
+     * @return Future for the pipeline, which contains the results of all commands. Fails if one
+     * of the commands failed.
+     */
+    public MPDFuture<MPDCommandPipeline> executePipeline(final MPDCommandPipeline pipeline) {
+        return submit(new Query<MPDCommandPipeline>() {
+            @Override
+            public MPDCommandPipeline run(MPDConnection connection) {
+                return connection.executePipeline(pipeline) ? pipeline : null;
+            }
+        });
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+
+/**
+ * Cancels a request to the server whose result is not needed anymore, e.g. because the view
+ * that requested it was closed.
+ * <p/>
+ * A request that is not sent yet is dropped. If the response of a running request is read, the
+ * remaining lines of the response are skipped without creating any objects, so that the
+ * connection is free for the next request as soon as possible. See
+ * {@link MPDConnection#setCancellationToken(MPDCancellationToken)}.
+ * <p/>
+ * A token can be cancelled from any thread and can not be reset.
+ */
+public class MPDCancellationToken {
+    private volatile boolean mCancelled;
+
+    public void cancel() {
+        mCancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class MPDCapabilities {
+    private static final String TAG = MPDCapabilities.class.getSimpleName();
+
+    private String pVersionString;
+    private int pMajorVersion;
+    private int pMinorVersion;
+
+    private boolean mHasIdle;
+    private boolean mHasRangedCurrentPlaylist;
+    private boolean mHasSearchAdd;
+    private boolean mHasSearchAddPlaylist;
+    private boolean mHasFindAdd;
+
+    private boolean mHasMusicBrainzTags;
+    private boolean mHasListGroup;
+
+    private boolean mHasListFiltering;
+
+    private boolean mHasFilterExpressions;
+
+    private boolean mHasModifiedSince;
+
+    private boolean mHasSearchWindow;
+    private boolean mHasSearchCount;
+
+    private boolean mHasTagTypeMask;
+
+    private boolean mHasAlbumArt;
+    private boolean mHasReadPicture;
+    private boolean mHasBinaryLimit;
+
+    /**
+     * Raw responses the capabilities are parsed from. Kept to store them in a cache.
+     */
+    private final List<String> mCommands;
+    private final List<String> mTags;
+
+    public MPDCapabilities(String version, List<String> commands, List<String> tags) {
+        pVersionString = version;
+        mCommands = null == commands ? Collections.<String>emptyList() : new ArrayList<>(commands);
+        mTags = null == tags ? Collections.<String>emptyList() : new ArrayList<>(tags);
+
+        String[] versions = version.split("\\.");
+        if (versions.length == 3) {
+            pMajorVersion = Integer.valueOf(versions[0]);
+            pMinorVersion = Integer.valueOf(versions[1]);
+        }
+
+        // Only MPD servers greater version 0.14 have ranged playlist fetching, this allows fallback
+        if ( pMinorVersion > 14 || pMajorVersion > 0) {
+            mHasRangedCurrentPlaylist = true;
+        } else {
+            mHasRangedCurrentPlaylist = false;
+        }
+
+        if ( pMinorVersion >= 19 || pMajorVersion > 0 ) {
+            mHasListGroup = true;
+            mHasListFiltering = true;
+            // "find modified-since TIME"
+            mHasModifiedSince = true;
+        }
+
+        // "window START:END" for find and search exists since MPD 0.20
+        if ( pMinorVersion >= 20 || pMajorVersion > 0 ) {
+            mHasSearchWindow = true;
+        }
+
+        // Filter expressions like "((artist == 'foo') AND (!(album == 'bar')))" exist since MPD 0.21
+        if ( pMinorVersion >= 21 || pMajorVersion > 0 ) {
+            mHasFilterExpressions = true;
+            // "tagtypes clear/all/enable/disable" to select the tags sent per connection
+            mHasTagTypeMask = true;
+        }
+
+        if ( null != commands ) {
+            if (commands.contains(MPDCommands.MPD_COMMAND_START_IDLE)) {
+                mHasIdle = true;
+            } else {
+                mHasIdle = false;
+            }
+
+            if (commands.contains(MPDCommands.MPD_COMMAND_ADD_SEARCH_FILES_CMD_NAME)) {
+                MPDLog.v(TAG, "Searchadd available");
+                mHasSearchAdd = true;
+            } else {
+                MPDLog.v(TAG, "Searchadd not available");
+                mHasSearchAdd = false;
+            }
+
+            mHasSearchAddPlaylist = commands.contains(MPDCommands.MPD_COMMAND_ADD_SEARCH_FILES_TO_PLAYLIST_CMD_NAME);
+            mHasFindAdd = commands.contains(MPDCommands.MPD_COMMAND_FIND_ADD_CMD_NAME);
+            mHasSearchCount = commands.contains(MPDCommands.MPD_COMMAND_SEARCH_COUNT_CMD_NAME);
+
+            mHasAlbumArt = commands.contains(MPDCommands.MPD_COMMAND_ALBUMART_CMD_NAME);
+            mHasReadPicture = commands.contains(MPDCommands.MPD_COMMAND_READ_PICTURE_CMD_NAME);
+            mHasBinaryLimit = commands.contains(MPDCommands.MPD_COMMAND_BINARY_LIMIT_CMD_NAME);
+        }
+
+
+
+        if ( null != tags ) {
+            for (String tag : tags ) {
+                if ( tag.contains("MUSICBRAINZ")) {
+                    mHasMusicBrainzTags = true;
+                    MPDLog.v(TAG,"Server has MusicBrainz support");
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Version string of the server, as sent in the greeting.
+     */
+    public String getVersionString() {
+        return pVersionString;
+    }
+
+    /**
+     * @return Commands available on the server (response of "commands")
+     */
+    public List<String> getCommands() {
+        return Collections.unmodifiableList(mCommands);
+    }
+
+    /**
+     * @return Tags supported by the server (response of "tagtypes")
+     */
+    public List<String> getTags() {
+        return Collections.unmodifiableList(mTags);
+    }
+
+    /**
+     * @param tag Name of the tag, case is ignored like MPD does
+     * @return True if the server supports the tag and it can be used in "find" clauses
+     */
+    public boolean hasTag(String tag) {
+        for (String serverTag : mTags) {
+            if (serverTag.equalsIgnoreCase(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof MPDCapabilities)) {
+            return false;
+        }
+        MPDCapabilities other = (MPDCapabilities) object;
+        return pVersionString.equals(other.pVersionString) && mCommands.equals(other.mCommands) && mTags.equals(other.mTags);
+    }
+
+    @Override
+    public int hashCode() {
+        return pVersionString.hashCode() * 31 + mCommands.hashCode();
+    }
+
+    public boolean hasIdling() {
+        return mHasIdle;
+    }
+
+    public boolean hasRangedCurrentPlaylist() {
+        return mHasRangedCurrentPlaylist;
+    }
+
+    public boolean hasSearchAdd() {
+        return mHasSearchAdd;
+    }
+
+    public boolean hasSearchAddPlaylist() {
+        return mHasSearchAddPlaylist;
+    }
+
+    public boolean hasFindAdd() {
+        return mHasFindAdd;
+    }
+
+    public boolean hasFilterExpressions() {
+        return mHasFilterExpressions;
+    }
+
+    public boolean hasModifiedSince() {
+        return mHasModifiedSince;
+    }
+
+    public boolean hasTagTypeMask() {
+        return mHasTagTypeMask;
+    }
+
+    public boolean hasAlbumArt() {
+        return mHasAlbumArt;
+    }
+
+    public boolean hasReadPicture() {
+        return mHasReadPicture;
+    }
+
+    public boolean hasBinaryLimit() {
+        return mHasBinaryLimit;
+    }
+
+    public boolean hasSearchWindow() {
+        return mHasSearchWindow;
+    }
+
+    public boolean hasSearchCount() {
+        return mHasSearchCount;
+    }
+
+    public boolean hasListGroup() { return mHasListGroup;}
+
+    public boolean hasListFiltering() { return mHasListFiltering;}
+
+    public boolean hasMusicBrainzTags() {
+        return mHasMusicBrainzTags;
+    }
+}
@@ -0,0 +1,373 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collects timing and transfer statistics of all {@link MPDConnection}s, grouped by the command
+ * verb (e.g. "status", "find", "command_list").
+ * <p/>
+ * For every finished command the following is recorded:
+ * - Time to first byte: from sending the command until the first byte of the response arrived
+ * - Time to last line: from sending the command until the final OK/ACK was read
+ * - Parse time: time to last line minus the time spent blocked in socket reads, so the time
+ * the connection needed to parse (and hand out) the response
+ * - Bytes and lines read
+ * - Songs read, to see the bytes per song of list and search responses
+ * <p/>
+ * Additionally the idle/deidle transitions of all connections are counted.
+ * <p/>
+ * All values are kept in atomic counters, so recording does not need a lock and the counters can
+ * be read from the UI thread while the connections are busy.
+ */
+public class MPDCommandMetrics {
+
+    /**
+     * Upper bounds of the latency histogram buckets in milliseconds. The last bucket contains
+     * all values above the last bound.
+     */
+    private static final long[] HISTOGRAM_BOUNDS_MS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000};
+
+    public static final int HISTOGRAM_BUCKET_COUNT = HISTOGRAM_BOUNDS_MS.length + 1;
+
+    private static final long NANOS_PER_MS = 1000 * 1000;
+
+    /**
+     * Statistics of one command verb.
+     */
+    public static class CommandStatistics {
+        private final String mCommand;
+
+        private final AtomicLong mCount = new AtomicLong();
+        private final AtomicLong mErrorCount = new AtomicLong();
+
+        private final AtomicLong mFirstByteNanos = new AtomicLong();
+        private final AtomicLong mLastLineNanos = new AtomicLong();
+        private final AtomicLong mParseNanos = new AtomicLong();
+        private final AtomicLong mMaxLastLineNanos = new AtomicLong();
+
+        private final AtomicLong mBytes = new AtomicLong();
+        private final AtomicLong mLines = new AtomicLong();
+        private final AtomicLong mSongs = new AtomicLong();
+
+        private final AtomicLongArray mFirstByteHistogram = new AtomicLongArray(HISTOGRAM_BUCKET_COUNT);
+        private final AtomicLongArray mLastLineHistogram = new AtomicLongArray(HISTOGRAM_BUCKET_COUNT);
+
+        private CommandStatistics(String command) {
+            mCommand = command;
+        }
+
+        private void record(long firstByteNanos, long lastLineNanos, long parseNanos, long bytes, long lines, long songs, boolean error) {
+            mCount.incrementAndGet();
+            if (error) {
+                mErrorCount.incrementAndGet();
+            }
+            mFirstByteNanos.addAndGet(firstByteNanos);
+            mLastLineNanos.addAndGet(lastLineNanos);
+            mParseNanos.addAndGet(parseNanos);
+            mBytes.addAndGet(bytes);
+            mLines.addAndGet(lines);
+            mSongs.addAndGet(songs);
+
+            mFirstByteHistogram.incrementAndGet(getBucket(firstByteNanos));
+            mLastLineHistogram.incrementAndGet(getBucket(lastLineNanos));
+
+            long max = mMaxLastLineNanos.get();
+            while (lastLineNanos > max && !mMaxLastLineNanos.compareAndSet(max, lastLineNanos)) {
+                max = mMaxLastLineNanos.get();
+            }
+        }
+
+        public String getCommand() {
+            return mCommand;
+        }
+
+        public long getCount() {
+            return mCount.get();
+        }
+
+        public long getErrorCount() {
+            return mErrorCount.get();
+        }
+
+        public long getBytes() {
+            return mBytes.get();
+        }
+
+        public long getLines() {
+            return mLines.get();
+        }
+
+        public long getSongs() {
+            return mSongs.get();
+        }
+
+        /**
+         * @return Average number of bytes per song, 0 if no songs were read
+         */
+        public long getBytesPerSong() {
+            long songs = mSongs.get();
+            return songs == 0 ? 0 : mBytes.get() / songs;
+        }
+
+        /**
+         * @return Sum of the times to first byte in ns
+         */
+        public long getFirstByteNanos() {
+            return mFirstByteNanos.get();
+        }
+
+        /**
+         * @return Sum of the times to last line in ns
+         */
+        public long getLastLineNanos() {
+            return mLastLineNanos.get();
+        }
+
+        /**
+         * @return Sum of the parse times in ns
+         */
+        public long getParseNanos() {
+            return mParseNanos.get();
+        }
+
+        /**
+         * @return Longest time to last line in ns
+         */
+        public long getMaxLastLineNanos() {
+            return mMaxLastLineNanos.get();
+        }
+
+        /**
+         * @param bucket Index of the bucket, see {@link #getBucketBound(int)}
+         * @return Number of commands with a time to first byte within this bucket
+         */
+        public long getFirstByteHistogram(int bucket) {
+            return mFirstByteHistogram.get(bucket);
+        }
+
+        /**
+         * @param bucket Index of the bucket, see {@link #getBucketBound(int)}
+         * @return Number of commands with a time to last line within this bucket
+         */
+        public long getLastLineHistogram(int bucket) {
+            return mLastLineHistogram.get(bucket);
+        }
+
+        /**
+         * Estimates a percentile of the time to last line from the histogram.
+         *
+         * @param percentile Percentile between 0 and 100
+         * @return Upper bound of the bucket in ms that contains the percentile. -1 for the last
+         * bucket (no upper bound) or if no command was recorded.
+         */
+        public long getLastLinePercentile(int percentile) {
+            long count = 0;
+            for (int i = 0; i < HISTOGRAM_BUCKET_COUNT; i++) {
+                count += mLastLineHistogram.get(i);
+            }
+            if (count == 0) {
+                return -1;
+            }
+
+            long threshold = (count * percentile + 99) / 100;
+            long sum = 0;
+            for (int i = 0; i < HISTOGRAM_BUCKET_COUNT; i++) {
+                sum += mLastLineHistogram.get(i);
+                if (sum >= threshold) {
+                    return getBucketBound(i);
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static MPDCommandMetrics mInstance;
+
+    private final ConcurrentHashMap<String, CommandStatistics> mCommands;
+
+    private final AtomicLong mIdleCount;
+    private final AtomicLong mDeidleCount;
+
+    public static synchronized MPDCommandMetrics getInstance() {
+        if (null == mInstance) {
+            mInstance = new MPDCommandMetrics();
+        }
+        return mInstance;
+    }
+
+    private MPDCommandMetrics() {
+        mCommands = new ConcurrentHashMap<>();
+        mIdleCount = new AtomicLong();
+        mDeidleCount = new AtomicLong();
+    }
+
+    /**
+     * Records one finished command. Called by the {@link MPDConnection}.
+     *
+     * @param command        Verb of the command
+     * @param firstByteNanos Time until the first byte of the response arrived
+     * @param lastLineNanos  Time until the last line of the response was read
+     * @param parseNanos     Time not spent in socket reads
+     * @param bytes          Number of bytes read
+     * @param lines          Number of lines read
+     * @param songs          Number of songs read
+     * @param error          True if the server answered with ACK
+     */
+    void recordCommand(String command, long firstByteNanos, long lastLineNanos, long parseNanos, long bytes, long lines, long songs, boolean error) {
+        CommandStatistics statistics = mCommands.get(command);
+        if (null == statistics) {
+            statistics = new CommandStatistics(command);
+            CommandStatistics previous = mCommands.putIfAbsent(command, statistics);
+            if (null != previous) {
+                statistics = previous;
+            }
+        }
+        statistics.record(firstByteNanos, lastLineNanos, parseNanos, bytes, lines, songs, error);
+    }
+
+    void recordIdle() {
+        mIdleCount.incrementAndGet();
+    }
+
+    void recordDeidle() {
+        mDeidleCount.incrementAndGet();
+    }
+
+    /**
+     * @return Number of times a connection went to idle
+     */
+    public long getIdleCount() {
+        return mIdleCount.get();
+    }
+
+    /**
+     * @return Number of times a connection had to be woken up (noidle) to send a command
+     */
+    public long getDeidleCount() {
+        return mDeidleCount.get();
+    }
+
+    /**
+     * @return Statistics of all commands recorded so far, sorted by the command verb.
+     */
+    public List<CommandStatistics> getCommandStatistics() {
+        List<CommandStatistics> statistics = new ArrayList<>(mCommands.values());
+        Collections.sort(statistics, new Comparator<CommandStatistics>() {
+            @Override
+            public int compare(CommandStatistics o1, CommandStatistics o2) {
+                return o1.getCommand().compareTo(o2.getCommand());
+            }
+        });
+        return statistics;
+    }
+
+    /**
+     * Removes all recorded values.
+     */
+    public void reset() {
+        mCommands.clear();
+        mIdleCount.set(0);
+        mDeidleCount.set(0);
+    }
+
+    /**
+     * Writes all recorded values as CSV (one line per command) for offline analysis.
+     *
+     * @param writer Writer to write to. It is not closed.
+     * @throws IOException
+     */
+    public void writeCSV(Writer writer) throws IOException {
+        StringBuilder line = new StringBuilder();
+        line.append("command,count,errors,bytes,lines,songs,bytes_per_song,first_byte_total_ns,last_line_total_ns,parse_total_ns,last_line_max_ns");
+        for (int i = 0; i < HISTOGRAM_BUCKET_COUNT; i++) {
+            line.append(",first_byte_le_").append(getBucketName(i));
+        }
+        for (int i = 0; i < HISTOGRAM_BUCKET_COUNT; i++) {
+            line.append(",last_line_le_").append(getBucketName(i));
+        }
+        line.append('\n');
+        writer.write(line.toString());
+
+        for (CommandStatistics statistics : getCommandStatistics()) {
+            line.setLength(0);
+            line.append(statistics.getCommand()).append(',')
+                    .append(statistics.getCount()).append(',')
+                    .append(statistics.getErrorCount()).append(',')
+                    .append(statistics.getBytes()).append(',')
+                    .append(statistics.getLines()).append(',')
+                    .append(statistics.getSongs()).append(',')
+                    .append(statistics.getBytesPerSong()).append(',')
+                    .append(statistics.getFirstByteNanos()).append(',')
+                    .append(statistics.getLastLineNanos()).append(',')
+                    .append(statistics.getParseNanos()).append(',')
+                    .append(statistics.getMaxLastLineNanos());
+            for (int i = 0; i < HISTOGRAM_BUCKET_COUNT; i++) {
+                line.append(',').append(statistics.getFirstByteHistogram(i));
+            }
+            for (int i = 0; i < HISTOGRAM_BUCKET_COUNT; i++) {
+                line.append(',').append(statistics.getLastLineHistogram(i));
+            }
+            line.append('\n');
+            writer.write(line.toString());
+        }
+
+        writer.write("idle," + getIdleCount() + '\n');
+        writer.write("deidle," + getDeidleCount() + '\n');
+    }
+
+    /**
+     * @param bucket Index of the histogram bucket
+     * @return Upper bound of the bucket in ms, -1 for the last bucket
+     */
+    public static long getBucketBound(int bucket) {
+        if (bucket < HISTOGRAM_BOUNDS_MS.length) {
+            return HISTOGRAM_BOUNDS_MS[bucket];
+        }
+        return -1;
+    }
+
+    private static String getBucketName(int bucket) {
+        long bound = getBucketBound(bucket);
+        return bound == -1 ? "inf" : String.valueOf(bound) + "ms";
+    }
+
+    private static int getBucket(long nanos) {
+        for (int i = 0; i < HISTOGRAM_BOUNDS_MS.length; i++) {
+            if (nanos <= HISTOGRAM_BOUNDS_MS[i] * NANOS_PER_MS) {
+                return i;
+            }
+        }
+        return HISTOGRAM_BOUNDS_MS.length;
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDCurrentStatus;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFile;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
+
+/**
+ * Collects multiple independent commands that are sent to MPD in one command list
+ * (command_list_ok_begin). MPD answers all of them at once and separates the responses with
+ * "list_OK", so the whole pipeline costs only one round trip to the server.
+ * <p/>
+ * Use {@link MPDConnection#executePipeline(MPDCommandPipeline)} to send the commands. Afterwards
+ * every {@link PipelinedCommand} contains its own result or the ACK of the server. MPD aborts the
+ * command list on the first error, so all commands after a failed one are not executed and also
+ * marked as failed.
+ */
+public class MPDCommandPipeline {
+
+    /**
+     * Type of the response that is expected for a command. This decides how the response is parsed.
+     */
+    public enum RESPONSE_TYPE {
+        // Simple command without data, only OK or ACK
+        RESPONSE_OK,
+        // Response of the status command
+        RESPONSE_STATUS,
+        // Response of the currentsong command
+        RESPONSE_CURRENT_SONG,
+        // List of files, directories or playlists
+        RESPONSE_FILE_LIST,
+        // Number of songs of the count command
+        RESPONSE_SONG_COUNT
+    }
+
+    /**
+     * One command of the pipeline together with its result.
+     *
+     * @param <T> Type of the result of the command
+     */
+    public static class PipelinedCommand<T> {
+        private final String mCommand;
+        private final RESPONSE_TYPE mResponseType;
+
+        private boolean mSuccessful;
+        private String mError;
+        private T mResult;
+
+        private PipelinedCommand(String command, RESPONSE_TYPE responseType) {
+            mCommand = command;
+            mResponseType = responseType;
+        }
+
+        public String getCommand() {
+            return mCommand;
+        }
+
+        public RESPONSE_TYPE getResponseType() {
+            return mResponseType;
+        }
+
+        /**
+         * @return True if the server answered the command with OK
+         */
+        public boolean isSuccessful() {
+            return mSuccessful;
+        }
+
+        /**
+         * @return The ACK line of the server if the command failed, null otherwise
+         */
+        public String getError() {
+            return mError;
+        }
+
+        /**
+         * @return Parsed response of the command. null for RESPONSE_OK or if the command failed.
+         */
+        public T getResult() {
+            return mResult;
+        }
+
+        @SuppressWarnings("unchecked")
+        void setResult(Object result) {
+            mResult = (T) result;
+            mSuccessful = true;
+            mError = null;
+        }
+
+        void setError(String error) {
+            mResult = null;
+            mSuccessful = false;
+            mError = error;
+        }
+    }
+
+    private final List<PipelinedCommand<?>> mCommands;
+
+    public MPDCommandPipeline() {
+        mCommands = new ArrayList<>();
+    }
+
+    /**
+     * Adds a simple command to the pipeline that only returns OK or ACK.
+     *
+     * @param command Command to send (see {@link MPDCommands})
+     * @return Handle to check the result after execution
+     */
+    public PipelinedCommand<Void> addCommand(String command) {
+        PipelinedCommand<Void> pipelinedCommand = new PipelinedCommand<>(command, RESPONSE_TYPE.RESPONSE_OK);
+        mCommands.add(pipelinedCommand);
+        return pipelinedCommand;
+    }
+
+    /**
+     * Adds the status command to the pipeline.
+     *
+     * @return Handle to get the status after execution
+     */
+    public PipelinedCommand<MPDCurrentStatus> addStatus() {
+        PipelinedCommand<MPDCurrentStatus> pipelinedCommand = new PipelinedCommand<>(MPDCommands.MPD_COMMAND_GET_CURRENT_STATUS, RESPONSE_TYPE.RESPONSE_STATUS);
+        mCommands.add(pipelinedCommand);
+        return pipelinedCommand;
+    }
+
+    /**
+     * Adds the currentsong command to the pipeline.
+     *
+     * @return Handle to get the current song after execution. The result is null if no song is active.
+     */
+    public PipelinedCommand<MPDFile> addCurrentSong() {
+        PipelinedCommand<MPDFile> pipelinedCommand = new PipelinedCommand<>(MPDCommands.MPD_COMMAND_GET_CURRENT_SONG, RESPONSE_TYPE.RESPONSE_CURRENT_SONG);
+        mCommands.add(pipelinedCommand);
+        return pipelinedCommand;
+    }
+
+    /**
+     * Adds a request for a window of the current playlist to the pipeline.
+     *
+     * @param start Start of the window
+     * @param end   End of the window
+     * @return Handle to get the tracks after execution
+     */
+    public PipelinedCommand<List<MPDFileEntry>> addCurrentPlaylistWindow(int start, int end) {
+        return addFileListCommand(MPDCommands.MPD_COMMAND_GET_CURRENT_PLAYLIST_WINDOW(start, end));
+    }
+
+    /**
+     * Adds a command to the pipeline that returns a list of files, directories or playlists.
+     *
+     * @param command Command to send (see {@link MPDCommands})
+     * @return Handle to get the list after execution
+     */
+    public PipelinedCommand<List<MPDFileEntry>> addFileListCommand(String command) {
+        PipelinedCommand<List<MPDFileEntry>> pipelinedCommand = new PipelinedCommand<>(command, RESPONSE_TYPE.RESPONSE_FILE_LIST);
+        mCommands.add(pipelinedCommand);
+        return pipelinedCommand;
+    }
+
+    /**
+     * Adds a count command to the pipeline.
+     *
+     * @param command Count command to send (see {@link MPDCommands})
+     * @return Handle to get the number of songs after execution
+     */
+    public PipelinedCommand<Integer> addSongCountCommand(String command) {
+        PipelinedCommand<Integer> pipelinedCommand = new PipelinedCommand<>(command, RESPONSE_TYPE.RESPONSE_SONG_COUNT);
+        mCommands.add(pipelinedCommand);
+        return pipelinedCommand;
+    }
+
+    List<PipelinedCommand<?>> getCommands() {
+        return mCommands;
+    }
+
+    public boolean isEmpty() {
+        return mCommands.isEmpty();
+    }
+}
@@ -0,0 +1,563 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+import java.util.List;
+import java.util.Set;
+
+public class MPDCommands {
+
+    public static final String MPD_COMMAND_CLOSE = "close";
+
+    public static final String MPD_COMMAND_PASSWORD = "password ";
+
+    /* Database request commands */
+    public static final String MPD_COMMAND_REQUEST_ALBUMS(boolean groupFeatures) {
+        if ( groupFeatures) {
+            return "list album group albumartist group musicbrainz_albumid";
+        } else {
+            return "list album";
+        }
+    }
+
+
+
+    public static String MPD_COMMAND_REQUEST_ARTIST_ALBUMS(String artistName, boolean groupFeatures) {
+        if ( groupFeatures ) {
+            return "list album artist \"" + artistName.replaceAll("\"","\\\\\"") + "\" group AlbumArtist group musicbrainz_albumid";
+        } else {
+            return "list album \"" + artistName.replaceAll("\"", "\\\\\"") + "\"";
+        }
+    }
+
+    public static final String MPD_COMMAND_REQUEST_ALBUMS_FOR_PATH(String path, boolean groupFeatures) {
+        if ( groupFeatures) {
+            return "list album base \"" + path + "\" group albumartist group musicbrainz_albumid";
+        } else {
+            return "list album";
+        }
+    }
+
+    public static String MPD_COMMAND_REQUEST_ALBUMARTIST_ALBUMS(String artistName) {
+        return "list album AlbumArtist \"" + artistName.replaceAll("\"","\\\\\"") + "\" group AlbumArtist group musicbrainz_albumid";
+    }
+
+    public static String MPD_COMMAND_REQUEST_ALBUM_TRACKS(String albumName) {
+        return "find album \"" + MPD_ESCAPE_ARGUMENT(albumName) + "\"";
+    }
+
+    /**
+     * Requests the tracks of an album with additional tag clauses (legacy syntax without filter
+     * expressions). MPD only returns tracks that match all given clauses.
+     * @param albumName Name of the album
+     * @param artistTag Tag to match the artist with (e.g. {@link #MPD_TAG_ALBUM_ARTIST}), ignored if artistName is empty
+     * @param artistName Name of the artist, can be empty
+     * @param mbid MusicBrainz album id to filter with, can be empty
+     * @return command string for MPD
+     */
+    public static String MPD_COMMAND_REQUEST_ALBUM_TRACKS(String albumName, String artistTag, String artistName, String mbid) {
+        String command = MPD_COMMAND_REQUEST_ALBUM_TRACKS(albumName);
+        if (!artistName.isEmpty()) {
+            command += ' ' + artistTag + " \"" + MPD_ESCAPE_ARGUMENT(artistName) + '\"';
+        }
+        if (!mbid.isEmpty()) {
+            command += ' ' + MPD_TAG_ALBUM_MBID + " \"" + MPD_ESCAPE_ARGUMENT(mbid) + '\"';
+        }
+        return command;
+    }
+
+    public static String MPD_COMMAND_REQUEST_ARTIST_TRACKS(String artistName) {
+        return "find artist \"" + artistName.replaceAll("\"","\\\\\"") + "\"";
+    }
+
+    public static String MPD_COMMAND_REQUEST_ALBUMARTIST_TRACKS(String artistName) {
+        return "find albumartist \"" + artistName.replaceAll("\"","\\\\\"") + "\"";
+    }
+
+    public static String MPD_COMMAND_REQUEST_ARTISTS(boolean groupMBID) {
+        if ( !groupMBID ) {
+            return "list artist";
+        } else {
+            return "list artist group MUSICBRAINZ_ARTISTID";
+        }
+    }
+
+    public static String MPD_COMMAND_REQUEST_ALBUMARTISTS(boolean groupMBID) {
+        if ( !groupMBID ) {
+            return "list albumartist";
+        } else {
+            return "list albumartist group MUSICBRAINZ_ARTISTID";
+        }
+    }
+
+    public static final String MPD_COMMAND_REQUEST_ALL_FILES = "listallinfo";
+
+    /* Control commands */
+    public static String MPD_COMMAND_PAUSE(boolean pause) {
+        return "pause " + (pause ? "1" : "0");
+    }
+
+    public static final String MPD_COMMAND_NEXT = "next";
+    public static final String MPD_COMMAND_PREVIOUS = "previous";
+    public static final String MPD_COMMAND_STOP = "stop";
+
+    public static final String MPD_COMMAND_GET_CURRENT_STATUS = "status";
+    public static final String MPD_COMMAND_GET_STATISTICS = "stats";
+
+    public static final String MPD_COMMAND_GET_SAVED_PLAYLISTS = "listplaylists";
+
+    public static final String MPD_COMMAND_GET_CURRENT_PLAYLIST = "playlistinfo";
+
+    public static final String MPD_COMMAND_GET_CURRENT_PLAYLIST_WINDOW(int start, int end) {
+        return "playlistinfo " + String.valueOf(start) + ':' + String.valueOf(end);
+    }
+
+    public static String MPD_COMMAND_GET_CURRENT_PLAYLIST_CHANGES(int version) {
+        return "plchanges " + String.valueOf(version);
+    }
+
+    public static String MPD_COMMAND_GET_SAVED_PLAYLIST(String playlistName) {
+        return "listplaylistinfo \"" + playlistName + "\"";
+    }
+
+    public static String MPD_COMMAND_GET_FILES_INFO(String path) {
+        return "lsinfo \"" + path + "\"";
+    }
+
+    public static String MPD_COMMAND_SAVE_PLAYLIST(String playlistName) {
+        return "save \"" + playlistName + "\"";
+    }
+
+    public static String MPD_COMMAND_REMOVE_PLAYLIST(String playlistName) {
+        return "rm \"" + playlistName + "\"";
+    }
+
+    public static String MPD_COMMAND_LOAD_PLAYLIST(String playlistName) {
+        return "load \"" + playlistName + "\"";
+    }
+
+    public static String MPD_COMMAND_ADD_TRACK_TO_PLAYLIST(String playlistName, String url) {
+        return "playlistadd \"" + playlistName + "\" \"" + url + '\"';
+    }
+
+    public static String MPD_COMMAND_GET_SAVED_PLAYLIST_FILES(String playlistName) {
+        return "listplaylist \"" + playlistName + "\"";
+    }
+
+    public static String MPD_COMMAND_REMOVE_TRACK_FROM_PLAYLIST(String playlistName, int position) {
+        return "playlistdelete \"" + playlistName + "\" " + String.valueOf(position);
+    }
+
+    public static final String MPD_COMMAND_GET_CURRENT_SONG = "currentsong";
+
+    public static final String MPD_COMMAND_START_IDLE = "idle";
+
+    /**
+     * Subsystems of MPD that can be used to filter the idle command. The server reports
+     * changes of them with "changed: name".
+     */
+    public enum MPD_IDLE_SUBSYSTEM {
+        MPD_IDLE_SUBSYSTEM_DATABASE("database"),
+        MPD_IDLE_SUBSYSTEM_UPDATE("update"),
+        MPD_IDLE_SUBSYSTEM_STORED_PLAYLIST("stored_playlist"),
+        MPD_IDLE_SUBSYSTEM_PLAYLIST("playlist"),
+        MPD_IDLE_SUBSYSTEM_PLAYER("player"),
+        MPD_IDLE_SUBSYSTEM_MIXER("mixer"),
+        MPD_IDLE_SUBSYSTEM_OUTPUT("output"),
+        MPD_IDLE_SUBSYSTEM_OPTIONS("options");
+
+        private final String mName;
+
+        MPD_IDLE_SUBSYSTEM(String name) {
+            mName = name;
+        }
+
+        /**
+         * @return Name of the subsystem as used by the MPD protocol
+         */
+        public String getName() {
+            return mName;
+        }
+
+        /**
+         * @param name Name of the subsystem as used by the MPD protocol
+         * @return The subsystem or null if it is not known
+         */
+        public static MPD_IDLE_SUBSYSTEM fromName(String name) {
+            for (MPD_IDLE_SUBSYSTEM subsystem : values()) {
+                if (subsystem.mName.equals(name)) {
+                    return subsystem;
+                }
+            }
+            return null;
+        }
+    }
+
+    public static String MPD_COMMAND_START_IDLE(Set<MPD_IDLE_SUBSYSTEM> subsystems) {
+        if (null == subsystems || subsystems.isEmpty()) {
+            return MPD_COMMAND_START_IDLE;
+        }
+        StringBuilder command = new StringBuilder(MPD_COMMAND_START_IDLE);
+        for (MPD_IDLE_SUBSYSTEM subsystem : subsystems) {
+            command.append(' ').append(subsystem.getName());
+        }
+        return command.toString();
+    }
+    public static final String MPD_COMMAND_STOP_IDLE = "noidle";
+
+    public static final String MPD_START_COMMAND_LIST = "command_list_begin";
+    public static final String MPD_START_COMMAND_LIST_OK = "command_list_ok_begin";
+    public static final String MPD_END_COMMAND_LIST = "command_list_end";
+
+    public static  String MPD_COMMAND_ADD_FILE(String url) {
+        return "add \"" + url + "\"";
+    }
+
+    public static  String MPD_COMMAND_ADD_FILE_AT_INDEX(String url, int index) {
+        return "addid \"" + url + "\"  " + String.valueOf(index);
+    }
+
+    public static String MPD_COMMAND_REMOVE_SONG_FROM_CURRENT_PLAYLIST(int index) {
+        return "delete " + String.valueOf(index);
+    }
+
+    public static String MPD_COMMAND_MOVE_SONG_FROM_INDEX_TO_INDEX(int from, int to) {
+        return "move " + String.valueOf(from) + ' ' + String.valueOf(to);
+    }
+
+    public static final String MPD_COMMAND_CLEAR_PLAYLIST = "clear";
+
+    public static String MPD_COMMAND_SET_RANDOM(boolean random) {
+        return "random " + (random ? "1" : "0");
+    }
+
+    public static String MPD_COMMAND_SET_REPEAT(boolean repeat) {
+        return "repeat " + (repeat ? "1" : "0");
+    }
+
+    public static String MPD_COMMAND_SET_SINGLE(boolean single) {
+        return "single " + (single ? "1" : "0");
+    }
+
+    public static String MPD_COMMAND_SET_CONSUME(boolean consume) {
+        return "consume " + (consume ? "1" : "0");
+    }
+
+
+    public static String MPD_COMMAND_PLAY_SONG_INDEX(int index) {
+        return "play " + String.valueOf(index);
+    }
+
+    public static String MPD_COMMAND_SEEK_SECONDS(int index, int seconds) {
+        return "seek " + String.valueOf(index) + ' ' + String.valueOf(seconds);
+    }
+
+    public static String MPD_COMMAND_SET_VOLUME(int volume) {
+        if ( volume > 100 ) {
+            volume = 100;
+        } else if ( volume < 0 ) {
+            volume = 0;
+        }
+        return "setvol " + volume;
+    }
+
+    public static final String MPD_COMMAND_GET_OUTPUTS = "outputs";
+
+    public static String MPD_COMMAND_TOGGLE_OUTPUT(int id) {
+        return "toggleoutput " + String.valueOf(id);
+    }
+
+    public static final String MPD_COMMAND_UPDATE_DATABASE = "update";
+
+    public enum MPD_SEARCH_TYPE {
+        MPD_SEARCH_TRACK,
+        MPD_SEARCH_ALBUM,
+        MPD_SEARCH_ARTIST,
+        MPD_SEARCH_FILE,
+        MPD_SEARCH_ANY,
+    }
+
+    public static final String MPD_COMMAND_SEARCH_FILES(String searchTerm, MPD_SEARCH_TYPE type) {
+        return "search " + MPD_SEARCH_TYPE_TAG(type) + " \"" + MPD_ESCAPE_ARGUMENT(searchTerm) + '\"';
+    }
+
+    /**
+     * Requests a window of the search results (MPD 0.20+). The server only sends the results
+     * from start (inclusive) to end (exclusive).
+     * @param searchTerm Term to search for
+     * @param type Tag to search in
+     * @param start Start of the window
+     * @param end End of the window
+     * @return command string for MPD
+     */
+    public static String MPD_COMMAND_SEARCH_FILES_WINDOW(String searchTerm, MPD_SEARCH_TYPE type, int start, int end) {
+        return MPD_COMMAND_SEARCH_FILES(searchTerm, type) + " window " + String.valueOf(start) + ':' + String.valueOf(end);
+    }
+
+    public static final String MPD_COMMAND_SEARCH_COUNT_CMD_NAME = "searchcount";
+
+    /**
+     * Counts the search results without sending them. "count" matches exactly like "find",
+     * so only "searchcount" returns the number of results a "search" would return.
+     * @param searchTerm Term to search for
+     * @param type Tag to search in
+     * @return command string for MPD
+     */
+    public static String MPD_COMMAND_SEARCH_COUNT(String searchTerm, MPD_SEARCH_TYPE type) {
+        return MPD_COMMAND_SEARCH_COUNT_CMD_NAME + ' ' + MPD_SEARCH_TYPE_TAG(type) + " \"" + MPD_ESCAPE_ARGUMENT(searchTerm) + '\"';
+    }
+
+    public static final String MPD_COMMAND_ADD_SEARCH_FILES_CMD_NAME = "searchadd";
+
+    public static final String MPD_COMMAND_ADD_SEARCH_FILES(String searchTerm, MPD_SEARCH_TYPE type) {
+        return MPD_COMMAND_ADD_SEARCH_FILES_CMD_NAME + ' ' + MPD_SEARCH_TYPE_TAG(type) + " \"" + MPD_ESCAPE_ARGUMENT(searchTerm) + '\"';
+    }
+
+    public static final String MPD_COMMAND_ADD_SEARCH_FILES_TO_PLAYLIST_CMD_NAME = "searchaddpl";
+
+    public static String MPD_COMMAND_ADD_SEARCH_FILES_TO_PLAYLIST(String playlistName, String searchTerm, MPD_SEARCH_TYPE type) {
+        return MPD_COMMAND_ADD_SEARCH_FILES_TO_PLAYLIST_CMD_NAME + " \"" + MPD_ESCAPE_ARGUMENT(playlistName) + "\" " + MPD_SEARCH_TYPE_TAG(type)
+                + " \"" + MPD_ESCAPE_ARGUMENT(searchTerm) + '\"';
+    }
+
+    private static String MPD_SEARCH_TYPE_TAG(MPD_SEARCH_TYPE type) {
+        switch (type) {
+            case MPD_SEARCH_TRACK:
+                return "title";
+            case MPD_SEARCH_ALBUM:
+                return "album";
+            case MPD_SEARCH_ARTIST:
+                return "artist";
+            case MPD_SEARCH_FILE:
+                return "file";
+            case MPD_SEARCH_ANY:
+            default:
+                return "any";
+        }
+    }
+
+    public static final String MPD_COMMAND_FIND_ADD_CMD_NAME = "findadd";
+
+    /**
+     * Adds all tracks of an album to the current playlist (legacy syntax without filter expressions).
+     * @param albumName Name of the album
+     * @param mbid MusicBrainz album id to filter with, can be empty
+     * @return command string for MPD
+     */
+    public static String MPD_COMMAND_FIND_ADD_ALBUM_TRACKS(String albumName, String mbid) {
+        String command = MPD_COMMAND_FIND_ADD_CMD_NAME + ' ' + MPD_TAG_ALBUM + " \"" + MPD_ESCAPE_ARGUMENT(albumName) + '\"';
+        if (!mbid.isEmpty()) {
+            command += ' ' + MPD_TAG_ALBUM_MBID + " \"" + MPD_ESCAPE_ARGUMENT(mbid) + '\"';
+        }
+        return command;
+    }
+
+    /**
+     * Adds all tracks matching a filter expression to the current playlist (MPD 0.21+).
+     * @param filter Filter expression created with the MPD_FILTER_* methods
+     * @return command string for MPD
+     */
+    public static String MPD_COMMAND_FIND_ADD_FILTER(String filter) {
+        return MPD_COMMAND_FIND_ADD_CMD_NAME + " \"" + MPD_ESCAPE_ARGUMENT(filter) + "\"";
+    }
+
+    /**
+     * Filter expression that matches if the tag has exactly the given value.
+     */
+    public static String MPD_FILTER_TAG_EQUALS(String tag, String value) {
+        return "(" + tag + " == \"" + MPD_ESCAPE_ARGUMENT(value) + "\")";
+    }
+
+    /**
+     * Filter expression that matches if the file was modified after the given time.
+     * @param time Seconds since the epoch
+     */
+    public static String MPD_FILTER_MODIFIED_SINCE(long time) {
+        return "(modified-since \"" + String.valueOf(time) + "\")";
+    }
+
+    /**
+     * Filter expression that negates the given expression.
+     */
+    public static String MPD_FILTER_NOT(String filter) {
+        return "(!" + filter + ")";
+    }
+
+    /**
+     * Filter expression that matches if all given expressions match.
+     */
+    public static String MPD_FILTER_AND(String... filters) {
+        if (filters.length == 1) {
+            return filters[0];
+        }
+        StringBuilder expression = new StringBuilder("(");
+        for (int i = 0; i < filters.length; i++) {
+            if (i > 0) {
+                expression.append(" AND ");
+            }
+            expression.append(filters[i]);
+        }
+        return expression.append(')').toString();
+    }
+
+    /**
+     * Escapes backslashes and quotes of a value that is put inside quotes. Filter expressions
+     * are quoted twice (value inside the expression, expression as argument), so they need
+     * to be escaped twice as well.
+     */
+    private static String MPD_ESCAPE_ARGUMENT(String argument) {
+        return argument.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    public static final String MPD_COMMAND_ALBUMART_CMD_NAME = "albumart";
+
+    /**
+     * Requests a chunk of the cover file (e.g. cover.jpg) in the directory of a song.
+     * @param url URL of the song
+     * @param offset Offset of the chunk in the file
+     * @return command string for MPD
+     */
+    public static String MPD_COMMAND_GET_ALBUMART(String url, int offset) {
+        return MPD_COMMAND_ALBUMART_CMD_NAME + " \"" + MPD_ESCAPE_ARGUMENT(url) + "\" " + String.valueOf(offset);
+    }
+
+    public static final String MPD_COMMAND_READ_PICTURE_CMD_NAME = "readpicture";
+
+    /**
+     * Requests a chunk of the picture embedded in the tags of a song.
+     * @param url URL of the song
+     * @param offset Offset of the chunk in the picture
+     * @return command string for MPD
+     */
+    public static String MPD_COMMAND_READ_PICTURE(String url, int offset) {
+        return MPD_COMMAND_READ_PICTURE_CMD_NAME + " \"" + MPD_ESCAPE_ARGUMENT(url) + "\" " + String.valueOf(offset);
+    }
+
+    public static final String MPD_COMMAND_BINARY_LIMIT_CMD_NAME = "binarylimit";
+
+    /**
+     * Sets the maximum size of binary chunks (albumart, readpicture) the server sends.
+     * @param size Chunk size in bytes
+     * @return command string for MPD
+     */
+    public static String MPD_COMMAND_SET_BINARY_LIMIT(int size) {
+        return MPD_COMMAND_BINARY_LIMIT_CMD_NAME + ' ' + String.valueOf(size);
+    }
+
+    /**
+     * Requests all tracks matching a filter expression (MPD 0.21+).
+     * @param filter Filter expression created with the MPD_FILTER_* methods
+     * @return command string for MPD
+     */
+    public static String MPD_COMMAND_FIND_FILTER(String filter) {
+        return "find \"" + MPD_ESCAPE_ARGUMENT(filter) + '\"';
+    }
+
+    /**
+     * Requests the tracks matching a filter expression within a window of the result (MPD 0.21+).
+     * @param filter Filter expression created with the MPD_FILTER_* methods
+     * @param start Start of the window
+     * @param end End of the window
+     * @return command string for MPD
+     */
+    public static String MPD_COMMAND_FIND_FILTER_WINDOW(String filter, int start, int end) {
+        return "find \"" + MPD_ESCAPE_ARGUMENT(filter) + "\" window " + String.valueOf(start) + ':' + String.valueOf(end);
+    }
+
+    /**
+     * Counts the tracks within a directory and all its subdirectories.
+     * @param path Path of the directory
+     * @param filterExpressions True to use a filter expression (MPD 0.21+)
+     * @return command string for MPD
+     */
+    public static String MPD_COMMAND_COUNT_BASE(String path, boolean filterExpressions) {
+        if (filterExpressions) {
+            return "count \"" + MPD_ESCAPE_ARGUMENT("(base \"" + MPD_ESCAPE_ARGUMENT(path) + "\")") + '\"';
+        }
+        return "count base \"" + MPD_ESCAPE_ARGUMENT(path) + '\"';
+    }
+
+    /**
+     * Requests all tracks whose files were modified after the given time (MPD 0.19+).
+     * @param time Seconds since the epoch
+     * @param filterExpressions True to use a filter expression (MPD 0.21+)
+     * @return command string for MPD
+     */
+    public static String MPD_COMMAND_FIND_MODIFIED_SINCE(long time, boolean filterExpressions) {
+        if (filterExpressions) {
+            return MPD_COMMAND_FIND_FILTER(MPD_FILTER_MODIFIED_SINCE(time));
+        }
+        return "find modified-since \"" + String.valueOf(time) + '\"';
+    }
+
+    public static final String MPD_COMMAND_GET_COMMANDS = "commands";
+
+    public static final String MPD_COMMAND_GET_TAGS = "tagtypes";
+
+    /**
+     * Disables all tags for the songs sent on this connection (MPD 0.21+).
+     */
+    public static final String MPD_COMMAND_TAGTYPES_CLEAR = "tagtypes clear";
+
+    /**
+     * Enables all tags for the songs sent on this connection again (MPD 0.21+).
+     */
+    public static final String MPD_COMMAND_TAGTYPES_ALL = "tagtypes all";
+
+    /**
+     * Enables tags for the songs sent on this connection (MPD 0.21+).
+     * @param tags Names of the tags to enable
+     * @return command string for MPD
+     */
+    public static String MPD_COMMAND_TAGTYPES_ENABLE(List<String> tags) {
+        StringBuilder command = new StringBuilder("tagtypes enable");
+        for (String tag : tags) {
+            command.append(' ').append(tag);
+        }
+        return command.toString();
+    }
+
+    /**
+     * Names of the tags as used by the tagtypes command
+     */
+    public static final String MPD_TAG_ARTIST = "Artist";
+    public static final String MPD_TAG_ALBUM_ARTIST = "AlbumArtist";
+    public static final String MPD_TAG_ALBUM = "Album";
+    public static final String MPD_TAG_TITLE = "Title";
+    public static final String MPD_TAG_TRACK = "Track";
+    public static final String MPD_TAG_DISC = "Disc";
+    public static final String MPD_TAG_DATE = "Date";
+    public static final String MPD_TAG_ARTIST_MBID = "MUSICBRAINZ_ARTISTID";
+    public static final String MPD_TAG_ALBUM_MBID = "MUSICBRAINZ_ALBUMID";
+    public static final String MPD_TAG_ALBUM_ARTIST_MBID = "MUSICBRAINZ_ALBUMARTISTID";
+    public static final String MPD_TAG_TRACK_MBID = "MUSICBRAINZ_TRACKID";
+
+    /**
+     * Searches the song of an given URL in the current playlist. MPD will respond by
+     * returning a track object if found or nothing else.
+     * @param url URL to search for.
+     * @return command string for MPD
+     */
+    public static String MPD_COMMAND_PLAYLIST_FIND_URI(String url) {
+        return "playlistfind file \"" + url + "\"";
+    }
+}
@@ -0,0 +1,3658 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDArtist;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDCurrentStatus;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDDirectory;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFile;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDOutput;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDPlaylist;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDStatistics;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDTrackStore;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.Semaphore;
+
+/**
+ * This is the main MPDConnection class. It will connect to an MPD server via an java TCP socket.
+ * If no action, query, or other command to the server is send, this connection will immediately
+ * start to idle. This means that the connection is waiting for a response from the mpd server.
+ * <p/>
+ * For this this class spawns a new thread which is then blocked by the waiting read operation
+ * on the reader of the socket.
+ * <p/>
+ * If a new command is requested by the handler thread the stopIdling function is called, which
+ * will send the "noidle" command to the server and requests to deidle the connection. Only then the
+ * server is ready again to receive commands. If this is not done properly the server will just
+ * terminate the connection.
+ * <p/>
+ * This mpd connection needs to be run in a different thread than the UI otherwise the UI will block
+ * (or android will just throw an exception).
+ * <p/>
+ * For more information check the protocol definition of the mpd server or contact me via mail.
+ */
+
+public class MPDConnection {
+    private static final String TAG = "MPDConnection";
+
+    private String mID;
+
+    /**
+     * Set this flag to enable debugging in this class. DISABLE before releasing
+     */
+    private static final boolean DEBUG_ENABLED = false;
+
+    /**
+     * Timeout to wait for socket operations (time in ms)
+     */
+    private static final int SOCKET_TIMEOUT = 5 * 1000;
+
+    /**
+     * Time to wait for response from server. If server is not answering this prevents a livelock
+     * after 5 seconds. (time in ms)
+     */
+    private static final int RESPONSE_TIMEOUT = 5 * 1000;
+
+    private static final int IDLE_WAIT_TIME = 500;
+
+    /**
+     * Maximum number of entries handed out at once to a {@link MPDFileListChunkListener}
+     */
+    private static final int FILE_LIST_CHUNK_SIZE = 500;
+
+    /**
+     * Maximum time to collect entries before they are handed out to a
+     * {@link MPDFileListChunkListener} (time in ms)
+     */
+    private static final int FILE_LIST_CHUNK_TIME = 200;
+
+    /**
+     * Largest file accepted by {@link #getAlbumImage(String)}. The size announced by the server is
+     * allocated at once, so larger (or corrupt) sizes are rejected. (size in bytes)
+     */
+    private static final int MAX_BINARY_SIZE = 32 * 1024 * 1024;
+
+    /**
+     * Error set for commands of a pipeline that were not executed because of an earlier error
+     */
+    private static final String PIPELINE_COMMAND_NOT_EXECUTED = "Not executed";
+
+    /**
+     * Error set for commands of a pipeline whose response could not be parsed
+     */
+    private static final String PIPELINE_COMMAND_INVALID_RESPONSE = "Invalid response";
+
+    /* Internal server parameters used for initiating the connection */
+    private String pHostname;
+    private String pPassword;
+    private int pPort;
+
+    private Socket pSocket;
+
+    /* Reader for all reading from the socket */
+    private MPDResponseReader pReader;
+
+    /* PrintWriter for all writing to the socket */
+    private PrintWriter pWriter;
+
+    /* True only if server is ready to receive commands */
+    private boolean pMPDConnectionReady = false;
+
+    /* True if server connection is in idleing state. Needs to be deidled before sending command */
+    private boolean pMPDConnectionIdle = false;
+
+    /* MPD server properties */
+    private MPDCapabilities mServerCapabilities;
+
+    /**
+     * Only get the server capabilities if server parameters changed
+     */
+    private boolean mCapabilitiesChanged;
+
+    /**
+     * True if the capabilities were taken from the cache and not requested from the server
+     */
+    private boolean mCapabilitiesCached;
+
+    private MPDCapabilityCache mCapabilityCache;
+
+    /**
+     * Tags requested for the songs sent on this connection, null for all tags of the server
+     */
+    private List<String> mTagTypes;
+
+    /**
+     * True if the tags of this connection were restricted with "tagtypes". The server then
+     * only lists the enabled tags on a "tagtypes" request.
+     */
+    private boolean mTagTypesNegotiated;
+
+    /**
+     * One listener for the state of the connection (connected, disconnected)
+     */
+    private ArrayList<MPDConnectionStateChangeListener> pStateListeners = null;
+
+    /**
+     * One listener for the idle state of the connection. Can be used to react
+     * to changes to the server from other clients. When the server is deidled (from outside)
+     * it will notify this listener.
+     */
+    private ArrayList<MPDConnectionIdleChangeListener> pIdleListeners = null;
+
+    /**
+     * Thread that will spawn when the server is not requested at the moment. Will start an
+     * blocking read operation on the socket reader.
+     */
+    private Thread pIdleThread = null;
+
+    /**
+     * Timeout to start the actual idling thread. It will start after IDLE_WAIT_TIME milliseconds
+     * passed. To prevent interfering with possible handler calls at the same time
+     * all the methods that could be called from outside are synchronized to this MPDConnection class.
+     * This means that you have to be careful when calling these functions to prevent deadlocks.
+     */
+    private Timer mIdleWait = null;
+
+    /**
+     * Semaphore lock used by the deidling process. Necessary to guarantee the correct order of
+     * deidling write / read operations.
+     */
+    Semaphore mIdleWaitLock;
+
+    /**
+     * Saves if a deidle was requested by this connection or is triggered by another client/connection.
+     */
+    boolean mRequestedDeidle;
+
+    /**
+     * Subsystems this connection waits for while idling. Null means all subsystems.
+     */
+    private Set<MPDCommands.MPD_IDLE_SUBSYSTEM> mIdleSubsystems;
+
+    /**
+     * Adds artists, albums and search results with as few round trips as possible.
+     */
+    private final MPDEnqueueEngine mEnqueueEngine;
+
+    /**
+     * Maximum size of binary chunks (albumart, readpicture) requested from the server.
+     * 0 keeps the default of the server.
+     */
+    private int mBinaryLimit;
+
+    /**
+     * Measurement of the command that is currently executed for the {@link MPDCommandMetrics}.
+     * null if no command is measured.
+     */
+    private String mMetricsCommand;
+    private long mMetricsStartNanos;
+    private long mMetricsFirstByteNanos;
+    private long mMetricsStartBytes;
+    private long mMetricsStartLines;
+    private long mMetricsStartSongs;
+    private long mMetricsStartReadNanos;
+
+    /**
+     * Records the traffic of this connection if enabled with
+     * {@link MPDSessionRecorder#setRecordDirectory(java.io.File)}. null otherwise.
+     */
+    private MPDSessionRecorder mSessionRecorder;
+
+    /**
+     * Token of the request that is currently executed, null if it can not be cancelled.
+     */
+    private volatile MPDCancellationToken mCancellationToken;
+
+    /**
+     * Creates disconnected MPDConnection with following parameters. Connections are created
+     * and handed out by the {@link MPDConnectionPool}.
+     */
+    MPDConnection(String id) {
+        pSocket = null;
+        pReader = null;
+        mIdleWaitLock = new Semaphore(1);
+        mID = id;
+        mServerCapabilities = new MPDCapabilities("", null, null);
+        pIdleListeners = new ArrayList<>();
+        pStateListeners = new ArrayList<>();
+        mEnqueueEngine = new MPDEnqueueEngine(this);
+    }
+
+    /**
+     * Private function to handle read error. Try to disconnect and remove old sockets.
+     * Clear up connection state variables.
+     */
+    private synchronized void handleSocketError() {
+        printDebug("Read error exception. Disconnecting and cleaning up");
+
+        try {
+            /* Clear reader/writer up */
+            if (null != pReader) {
+                pReader = null;
+            }
+            if (null != pWriter) {
+                pWriter = null;
+            }
+            stopSessionRecording();
+
+            /* Clear TCP-Socket up */
+            if (null != pSocket && pSocket.isConnected()) {
+                pSocket.setSoTimeout(500);
+                pSocket.close();
+            }
+            pSocket = null;
+        } catch (IOException e) {
+            printDebug("Error during read error handling");
+        }
+
+        /* Clear up connection state variables */
+        pMPDConnectionIdle = false;
+        pMPDConnectionReady = false;
+
+
+        // Notify listener
+        notifyDisconnect();
+    }
+
+    /**
+     * Set the parameters to connect to. Should be called before the connection attempt
+     * otherwise the connection object does not know where to put it.
+     *
+     * @param hostname Hostname to connect to. Can also be an ip.
+     * @param password Password for the server to authenticate with. Can be left empty.
+     * @param port     TCP port to connect to.
+     */
+    public synchronized void setServerParameters(String hostname, String password, int port) {
+        pHostname = hostname;
+        if (!password.equals("")) {
+            pPassword = password;
+        }
+        pPort = port;
+        mCapabilitiesChanged = true;
+    }
+
+    /**
+     * This is the actual start of the connection. It tries to resolve the hostname
+     * and initiates the connection to the address and the configured tcp-port.
+     */
+    public synchronized void connectToServer() {
+        /* If a socket is already open, close it and destroy it. */
+        if ((null != pSocket) && (pSocket.isConnected())) {
+            disconnectFromServer();
+        }
+
+        if ((null == pHostname) || pHostname.equals("")) {
+            return;
+        }
+        pMPDConnectionIdle = false;
+        pMPDConnectionReady = false;
+        mTagTypesNegotiated = false;
+        /* Create a new socket used for the TCP-connection. */
+        pSocket = new Socket();
+        try {
+            pSocket.connect(new InetSocketAddress(pHostname, pPort), SOCKET_TIMEOUT);
+            pSocket.setSoTimeout(SOCKET_TIMEOUT);
+        } catch (IOException e) {
+            handleSocketError();
+            return;
+        }
+
+        /* Check if the socket is connected */
+        if (pSocket.isConnected()) {
+            /* Try reading from the stream */
+
+            /* Create the reader used for reading from the socket. */
+            if (pReader == null) {
+                try {
+                    pReader = new MPDResponseReader(pSocket.getInputStream());
+                    mMetricsCommand = null;
+                    mSessionRecorder = MPDSessionRecorder.startRecording(mID);
+                    pReader.setRecorder(mSessionRecorder);
+                } catch (IOException e) {
+                    handleSocketError();
+                    return;
+                }
+            }
+
+            /* Create the writer used for writing to the socket */
+            if (pWriter == null) {
+                try {
+                    // MPD expects UTF-8, independent of the default charset of the platform
+                    pWriter = new PrintWriter(new OutputStreamWriter(pSocket.getOutputStream(), StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    handleSocketError();
+                    return;
+                }
+            }
+
+            try {
+                waitForResponse();
+            } catch (IOException e) {
+                handleSocketError();
+                return;
+            }
+
+            /* If connected try to get MPDs version */
+            String readString = null;
+
+            String versionString = "";
+            try {
+                while (readyRead()) {
+                    readString = readLine();
+                    /* Look out for the greeting message */
+                    if (readString.startsWith("OK MPD ")) {
+                        versionString = readString.substring(7);
+
+                    }
+                }
+            } catch (IOException e) {
+                handleSocketError();
+                return;
+            }
+            pMPDConnectionReady = true;
+
+            if (pPassword != null && !pPassword.equals("")) {
+                /* Authenticate with server because password is set. */
+                boolean authenticated = authenticateMPDServer();
+            }
+
+
+            if (mCapabilitiesChanged) {
+                // Reuse the capabilities of an earlier connection to the same server version. This
+                // saves the round trips for "commands" and "tagtypes".
+                MPDCapabilityCache capabilityCache = mCapabilityCache;
+                MPDCapabilities capabilities = null;
+                if (null != capabilityCache) {
+                    capabilities = capabilityCache.getCapabilities(versionString);
+                }
+
+                mCapabilitiesCached = null != capabilities;
+                if (null == capabilities) {
+                    try {
+                        capabilities = requestServerCapabilities(versionString);
+                    } catch (IOException e) {
+                        handleSocketError();
+                        return;
+                    }
+                    if (null != capabilityCache) {
+                        capabilityCache.putCapabilities(capabilities);
+                    }
+                }
+
+                mServerCapabilities = capabilities;
+                mCapabilitiesChanged = false;
+            }
+
+            // Bigger binary chunks reduce the round trips for cover images
+            if (mBinaryLimit > 0 && mServerCapabilities.hasBinaryLimit()) {
+                sendMPDCommand(MPDCommands.MPD_COMMAND_SET_BINARY_LIMIT(mBinaryLimit));
+                try {
+                    waitForResponse();
+                    readLine();
+                } catch (IOException e) {
+                    handleSocketError();
+                    return;
+                }
+            }
+
+            // Only request the tags that are needed, this shrinks the song responses
+            if (null != mTagTypes && mServerCapabilities.hasTagTypeMask()) {
+                try {
+                    negotiateTagTypes();
+                } catch (IOException e) {
+                    handleSocketError();
+                    return;
+                }
+            }
+
+
+            // Start the initial idling procedure.
+            startIdleWait();
+
+            // Set the timeout to infinite again
+            try {
+                pSocket.setSoTimeout(SOCKET_TIMEOUT);
+            } catch (SocketException e) {
+                handleSocketError();
+                return;
+            }
+
+            // Notify listener
+            notifyConnected();
+        }
+    }
+
+
+    /**
+     * If the password for the MPDConnection is set then the client should
+     * try to authenticate with the server
+     */
+    private boolean authenticateMPDServer() {
+        /* Check if connection really is good to go. */
+        if (!pMPDConnectionReady || pMPDConnectionIdle) {
+            return false;
+        }
+
+        sendMPDCommand(MPDCommands.MPD_COMMAND_PASSWORD + pPassword);
+
+        /* Check if the result was positive or negative */
+
+        String readString = null;
+
+        boolean success = false;
+        try {
+            while (readyRead()) {
+                readString = readLine();
+                if (readString.startsWith("OK")) {
+                    success = true;
+                } else if (readString.startsWith("ACK")) {
+                    success = false;
+                    printDebug("Could not successfully authenticate with mpd server");
+                }
+            }
+        } catch (IOException e) {
+            handleSocketError();
+        }
+
+
+        return success;
+    }
+
+    /**
+     * Requests to disconnect from server. This will close the conection and cleanup the socket.
+     * After this call it should be safe to reconnect to another server. If this connection is
+     * currently in idle state, then it will be deidled before.
+     */
+    public synchronized void disconnectFromServer() {
+        // Stop possible timers waiting for the timeout to go idle
+        stopIdleWait();
+
+        // Check if the connection is currently idling, if then deidle.
+        if (pMPDConnectionIdle) {
+            stopIdleing();
+        }
+
+        // Close connection gracefully
+        sendMPDRAWCommand(MPDCommands.MPD_COMMAND_CLOSE);
+
+        /* Cleanup reader/writer */
+        try {
+            /* Clear reader/writer up */
+            if (null != pReader) {
+                pReader = null;
+            }
+            if (null != pWriter) {
+                pWriter = null;
+            }
+            stopSessionRecording();
+
+            /* Clear TCP-Socket up */
+            if (null != pSocket && pSocket.isConnected()) {
+                pSocket.setSoTimeout(500);
+                pSocket.close();
+                pSocket = null;
+            }
+        } catch (IOException e) {
+            printDebug("Error during disconnecting:" + e.toString());
+        }
+
+        /* Clear up connection state variables */
+        pMPDConnectionIdle = false;
+        pMPDConnectionReady = false;
+
+        // Notify listener
+        notifyDisconnect();
+    }
+
+    /**
+     * Access to the currently server capabilities
+     *
+     * @return
+     */
+    public MPDCapabilities getServerCapabilities() {
+        if (isConnected()) {
+            return mServerCapabilities;
+        }
+        return null;
+    }
+
+    /**
+     * @return True if the capabilities of this connection were taken from the
+     * {@link MPDCapabilityCache} and not yet requested from the server.
+     */
+    public synchronized boolean hasCachedCapabilities() {
+        return mCapabilitiesCached;
+    }
+
+    /**
+     * Sets the cache for the server capabilities. It is used on the next connect.
+     *
+     * @param cache Cache to use or null to request the capabilities on every connect.
+     */
+    public synchronized void setCapabilityCache(MPDCapabilityCache cache) {
+        mCapabilityCache = cache;
+    }
+
+    /**
+     * Replaces the capabilities of this connection, e.g. after another connection of the pool
+     * refreshed them.
+     *
+     * @param capabilities New capabilities for the current server
+     */
+    synchronized void setServerCapabilities(MPDCapabilities capabilities) {
+        if (isConnected()) {
+            mServerCapabilities = capabilities;
+            mCapabilitiesCached = false;
+        }
+    }
+
+    /**
+     * Requests the capabilities from the server again and updates the cache. Used to verify
+     * capabilities that were taken from the cache.
+     *
+     * @return The current capabilities of the server or null if the request failed.
+     */
+    public synchronized MPDCapabilities refreshServerCapabilities() {
+        if (!isConnected()) {
+            return null;
+        }
+
+        MPDCapabilities capabilities;
+        try {
+            capabilities = requestServerCapabilities(mServerCapabilities.getVersionString());
+        } catch (IOException e) {
+            handleSocketError();
+            return null;
+        }
+
+        mServerCapabilities = capabilities;
+        mCapabilitiesCached = false;
+        MPDCapabilityCache capabilityCache = mCapabilityCache;
+        if (null != capabilityCache) {
+            capabilityCache.putCapabilities(capabilities);
+        }
+
+        if (null != mTagTypes && capabilities.hasTagTypeMask()) {
+            try {
+                negotiateTagTypes();
+            } catch (IOException e) {
+                handleSocketError();
+                return null;
+            }
+        }
+
+        startIdleWait();
+        return capabilities;
+    }
+
+    /**
+     * Sets the tags that are requested for songs on this connection. Takes effect with the next
+     * connect and only on servers that support "tagtypes clear" (MPD 0.21+).
+     *
+     * @param tagTypes Names of the tags to request, null to get all tags of the server.
+     */
+    public synchronized void setTagTypes(List<String> tagTypes) {
+        mTagTypes = null == tagTypes ? null : new ArrayList<>(tagTypes);
+    }
+
+    /**
+     * Restricts the tags of the songs sent on this connection to {@link #mTagTypes}. Tags that
+     * the server does not know are skipped, because they would make the server reject the
+     * whole command list.
+     *
+     * @throws IOException If the server did not answer
+     */
+    private void negotiateTagTypes() throws IOException {
+        List<String> serverTags = mServerCapabilities.getTags();
+        List<String> tags = new ArrayList<>();
+        for (String tag : mTagTypes) {
+            for (String serverTag : serverTags) {
+                if (serverTag.equalsIgnoreCase(tag)) {
+                    tags.add(serverTag);
+                    break;
+                }
+            }
+        }
+
+        StringBuilder commandList = new StringBuilder(MPDCommands.MPD_START_COMMAND_LIST);
+        commandList.append('\n').append(MPDCommands.MPD_COMMAND_TAGTYPES_CLEAR);
+        if (!tags.isEmpty()) {
+            commandList.append('\n').append(MPDCommands.MPD_COMMAND_TAGTYPES_ENABLE(tags));
+        }
+        commandList.append('\n').append(MPDCommands.MPD_END_COMMAND_LIST);
+        sendMPDCommand(commandList.toString());
+
+        waitForResponse();
+        String response = readLine();
+        if (null == response) {
+            throw new IOException("No response for tagtypes");
+        }
+        mTagTypesNegotiated = response.startsWith(MPDResponses.MPD_RESPONSE_OK);
+        if (!mTagTypesNegotiated) {
+            printDebug("Could not set tag types: " + response);
+            // The tags might be cleared already, fall back to all tags.
+            sendMPDCommand(MPDCommands.MPD_COMMAND_TAGTYPES_ALL);
+            waitForResponse();
+            readLine();
+        }
+    }
+
+    /**
+     * Requests the available commands and tags from the server.
+     *
+     * @param versionString Version of the server from the greeting message
+     * @return The capabilities of the server
+     * @throws IOException If the server did not answer
+     */
+    private MPDCapabilities requestServerCapabilities(String versionString) throws IOException {
+        // The server only lists the enabled tags, enable all of them again before asking.
+        if (mTagTypesNegotiated) {
+            sendMPDCommand(MPDCommands.MPD_COMMAND_TAGTYPES_ALL);
+            waitForResponse();
+            readLine();
+            mTagTypesNegotiated = false;
+        }
+
+        // Get available commands
+        sendMPDCommand(MPDCommands.MPD_COMMAND_GET_COMMANDS);
+        List<String> commands = parseMPDCommands();
+
+        // Get list of supported tags
+        sendMPDCommand(MPDCommands.MPD_COMMAND_GET_TAGS);
+        List<String> tags = parseMPDTagTypes();
+
+        if (!isConnected()) {
+            throw new IOException("Connection lost while requesting the server capabilities");
+        }
+        return new MPDCapabilities(versionString, commands, tags);
+    }
+
+    /**
+     * This functions sends the command to the MPD server.
+     * If the server is currently idling then it will deidle it first.
+     *
+     * @param command
+     */
+    private void sendMPDCommand(String command) {
+        printDebug("Send command: " + command);
+        // Stop possible idling timeout tasks.
+        stopIdleWait();
+
+
+        /* Check if the server is connected. */
+        if (pMPDConnectionReady) {
+
+            /*
+             * Check if server is in idling mode, this needs unidling first,
+             * otherwise the server will disconnect the client.
+             */
+            if (pMPDConnectionIdle) {
+                stopIdleing();
+            }
+
+            // During deidle a disconnect could happen, check again if connection is ready
+            if (!pMPDConnectionReady) {
+                return;
+            }
+
+            startCommandMetrics(command);
+
+            /*
+             * Send the command to the server
+             *
+             */
+            writeLine(command);
+
+            printDebug("Sent command: " + command);
+
+            // This waits until the server sends a response (OK,ACK(failure) or the requested data)
+            try {
+                waitForResponse();
+                mMetricsFirstByteNanos = System.nanoTime();
+            } catch (IOException e) {
+                handleSocketError();
+            }
+            printDebug("Sent command, got response");
+        } else {
+            printDebug("Connection not ready, command not sent");
+        }
+    }
+
+    /**
+     * This functions sends the command to the MPD server.
+     * This function is used between start command list and the end. It has no check if the
+     * connection is currently idle.
+     * Also it will not wait for a response because this would only deadlock, because the mpd server
+     * waits until the end_command is received.
+     *
+     * @param command
+     */
+    private void sendMPDRAWCommand(String command) {
+        /* Check if the server is connected. */
+        if (pMPDConnectionReady) {
+            /*
+             * Send the command to the server
+             * FIXME Should be validated in the future.
+             */
+            writeLine(command);
+
+        }
+    }
+
+    /**
+     * This will start a command list to the server. It can be used to speed up multiple requests
+     * like adding songs to the current playlist. Make sure that the idle timeout is stopped
+     * before starting a command list.
+     */
+    private void startCommandList() {
+        /* Check if the server is connected. */
+        if (pMPDConnectionReady) {
+            /* Check if server is in idling mode, this needs unidling first,
+            otherwise the server will disconnect the client.
+             */
+            if (pMPDConnectionIdle) {
+                stopIdleing();
+            }
+
+            startCommandMetrics(MPDCommands.MPD_START_COMMAND_LIST);
+
+            /*
+             * Send the command to the server
+             * FIXME Should be validated in the future.
+             */
+            writeLine(MPDCommands.MPD_START_COMMAND_LIST);
+
+
+        }
+    }
+
+    /**
+     * This command will end the command list. After this call it is important to call
+     * checkResponse to clear the possible response in the read buffer. There should be at
+     * least one "OK" or "ACK" from the mpd server.
+     */
+    private void endCommandList() {
+        /* Check if the server is connected. */
+        if (pMPDConnectionReady) {
+            /*
+             * Send the command to the server
+             * FIXME Should be validated in the future.
+             */
+            writeLine(MPDCommands.MPD_END_COMMAND_LIST);
+            try {
+                waitForResponse();
+                mMetricsFirstByteNanos = System.nanoTime();
+            } catch (IOException e) {
+                handleSocketError();
+            }
+        }
+    }
+
+
+    /**
+     * This method needs to be called before a new MPD command is sent to
+     * the server to correctly unidle. Otherwise the mpd server will disconnect
+     * the disobeying client.
+     */
+    private void stopIdleing() {
+        /* Check if server really is in idling mode */
+        if (!pMPDConnectionIdle || !pMPDConnectionReady) {
+            return;
+        }
+
+        try {
+            pSocket.setSoTimeout(SOCKET_TIMEOUT);
+        } catch (SocketException e) {
+            handleSocketError();
+        }
+
+        MPDCommandMetrics.getInstance().recordDeidle();
+
+        /* Send the "noidle" command to the server to initiate noidle */
+        writeLine(MPDCommands.MPD_COMMAND_STOP_IDLE);
+
+        printDebug("Sent deidle request");
+
+        /* Wait for idle thread to release the lock, which means we are finished waiting */
+        try {
+            mIdleWaitLock.acquire();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        printDebug("Deidle lock acquired, server usage allowed again");
+
+        mIdleWaitLock.release();
+    }
+
+    /**
+     * Initiates the idling procedure. A separate thread is started to wait (blocked)
+     * for a deidle from the MPD host. Otherwise it is impossible to get notified on changes
+     * from other mpd clients (eg. volume change)
+     */
+    private synchronized void startIdleing() {
+        /* Check if server really is in idling mode */
+        if (!pMPDConnectionReady || pMPDConnectionIdle) {
+            return;
+        }
+        printDebug("Start idle mode");
+
+        // The response of an unfinished command can not be measured anymore
+        mMetricsCommand = null;
+        MPDCommandMetrics.getInstance().recordIdle();
+
+        // Set the timeout to zero to block when no data is available
+        try {
+            pSocket.setSoTimeout(0);
+        } catch (SocketException e) {
+            e.printStackTrace();
+        }
+
+        mRequestedDeidle = false;
+
+        // This will send the idle command to the server. From there on we need to deidle before
+        // sending new requests.
+        writeLine(MPDCommands.MPD_COMMAND_START_IDLE(mIdleSubsystems));
+
+
+        // Technically we are in idle mode now, set boolean
+        pMPDConnectionIdle = true;
+
+        // Get the lock to prevent the handler thread from (stopIdling) to interfere with deidling sequence.
+        try {
+            mIdleWaitLock.acquire();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+
+        pIdleThread = new IdleThread();
+        pIdleThread.start();
+
+
+        for ( MPDConnectionIdleChangeListener listener: pIdleListeners) {
+            listener.onIdle();
+        }
+    }
+
+    /**
+     * Blocks until the reader is ready for the response. Instead of polling the reader this
+     * peeks one character with a blocking read on the socket. The read returns as soon as data
+     * arrives or throws after RESPONSE_TIMEOUT ms (SO_TIMEOUT), so the thread sleeps in the kernel
+     * while waiting for slow servers. The peeked byte stays in the buffer of the reader, so
+     * following reads see the complete response.
+     */
+    private void waitForResponse() throws IOException {
+        printDebug("Waiting for response");
+        if (null != pReader && null != pSocket) {
+            // Data already buffered, no need to block
+            if (pReader.ready()) {
+                return;
+            }
+
+            // Ensure that the blocking read is terminated if the server is not responding.
+            pSocket.setSoTimeout(RESPONSE_TIMEOUT);
+
+            int peek;
+            try {
+                peek = pReader.peek();
+            } catch (SocketTimeoutException e) {
+                // Terminate waiting after waiting to long. This indicates that the server is not responding
+                printDebug("Stuck waiting for server response");
+                printStackTrace();
+                throw e;
+            }
+
+            if (peek == -1) {
+                // End of stream, server closed the connection
+                throw new IOException();
+            }
+        } else {
+            throw new IOException();
+        }
+    }
+
+    /**
+     * Checks if a simple command was successful or not (OK vs. ACK)
+     * <p>
+     * This should only be used for simple commands like play,pause, setVolume, ...
+     *
+     * @return True if command was successfully executed, false otherwise.
+     */
+    public boolean checkResponse() throws IOException {
+        boolean success = false;
+        String response;
+
+        printDebug("Check response");
+
+        // Wait for data to be available to read. MPD communication could take some time.
+        while (readyRead()) {
+            response = readLine();
+            if (response.startsWith("OK")) {
+                success = true;
+            } else if (response.startsWith("ACK")) {
+                success = false;
+                printDebug("Server response error: " + response);
+            }
+        }
+
+        printDebug("Response: " + success);
+        // The command was handled now it is time to set the connection to idle again (after the timeout,
+        // to prevent disconnecting).
+        startIdleWait();
+        printDebug("Started idle wait");
+        // Return if successful or not.
+        return success;
+    }
+
+    public boolean isConnected() {
+        if (null != pSocket && pSocket.isConnected() && pMPDConnectionReady) {
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /*
+     * *******************************
+     * * Response handling functions *
+     * *******************************
+     */
+
+    /**
+     * Parses the return of MPD when a list of albums was requested.
+     *
+     * @return List of MPDAlbum objects
+     * @throws IOException
+     */
+    private ArrayList<MPDAlbum> parseMPDAlbums() throws IOException {
+        ArrayList<MPDAlbum> albumList = new ArrayList<MPDAlbum>();
+        if (!isConnected()) {
+            return albumList;
+        }
+        /* Parse the MPD response and create a list of MPD albums */
+        MPDResponseReader reader = pReader;
+
+        MPDAlbum tempAlbum = null;
+        while (isConnected() && readResponseLine(reader) && !reader.isResponseEnd()) {
+            switch (reader.getKey()) {
+                case KEY_ALBUM:
+                    /* We found an album, add it to the list. */
+                    if (null != tempAlbum) {
+                        albumList.add(tempAlbum);
+                    }
+                    tempAlbum = new MPDAlbum(reader.getValue());
+                    break;
+                case KEY_ALBUM_MBID:
+                    // Protocol should always send "Album:" first
+                    if (null != tempAlbum) {
+                        tempAlbum.setMBID(reader.getValue());
+                    }
+                    break;
+                case KEY_ALBUM_ARTIST:
+                    /* Check if the response is a albumartist. */
+                    if (null != tempAlbum) {
+                        tempAlbum.setArtistName(reader.getPooledValue());
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        /* Because of the loop structure the last album has to be added because no
+        "ALBUM:" is sent anymore.
+         */
+        if (null != tempAlbum) {
+            albumList.add(tempAlbum);
+        }
+
+        printDebug("Parsed: " + albumList.size() + " albums");
+
+        // Start the idling timeout again.
+        startIdleWait();
+        // Sort the albums for later sectioning.
+        Collections.sort(albumList);
+        return albumList;
+    }
+
+    /**
+     * Parses the return stream of MPD when a list of artists was requested.
+     *
+     * @return List of MPDArtists objects
+     * @throws IOException
+     */
+    private ArrayList<MPDArtist> parseMPDArtists() throws IOException {
+        ArrayList<MPDArtist> artistList = new ArrayList<MPDArtist>();
+        if (!isConnected()) {
+            return artistList;
+        }
+
+        /* Parse MPD artist return values and create a list of MPDArtist objects */
+        MPDResponseReader reader = pReader;
+
+        MPDArtist tempArtist = null;
+
+        while (isConnected() && readResponseLine(reader) && !reader.isResponseEnd()) {
+            switch (reader.getKey()) {
+                case KEY_ARTIST:
+                case KEY_ALBUM_ARTIST:
+                    if (null != tempArtist) {
+                        artistList.add(tempArtist);
+                    }
+                    tempArtist = new MPDArtist(reader.getValue());
+                    break;
+                case KEY_ARTIST_MBID:
+                    if (null != tempArtist) {
+                        tempArtist.addMBID(reader.getValue());
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        // Add last artist
+        if (null != tempArtist) {
+            artistList.add(tempArtist);
+        }
+
+        printDebug("Parsed: " + artistList.size() + " artists");
+
+        // Start the idling timeout again.
+        startIdleWait();
+
+        // Sort the artists for later sectioning.
+        Collections.sort(artistList);
+
+        // If we used MBID filtering, it could happen that a user as an artist in the list multiple times,
+        // once with and once without MBID. Try to filter this by sorting the list first by name and mbid count
+        // and then remove duplicates.
+        if (mServerCapabilities.hasMusicBrainzTags() && mServerCapabilities.hasListGroup()) {
+            ArrayList<MPDArtist> clearedList = new ArrayList<>();
+
+            // Remove multiple entries when one artist is in list with and without MBID
+            for (int i = 0; i < artistList.size(); i++) {
+                MPDArtist artist = artistList.get(i);
+                if (i + 1 != artistList.size()) {
+                    MPDArtist nextArtist = artistList.get(i + 1);
+                    if (!artist.getArtistName().equals(nextArtist.getArtistName())) {
+                        clearedList.add(artist);
+                    }
+                } else {
+                    clearedList.add(artist);
+                }
+            }
+            return clearedList;
+        } else {
+            return artistList;
+        }
+    }
+
+    /**
+     * Parses the response of mpd on requests that return track items. This is also used
+     * for MPD file, directory and playlist responses. This allows the GUI to develop
+     * one adapter for all three types. Also MPD mixes them when requesting directory listings.
+     * <p/>
+     * It will return a list of MPDFileEntry objects which is a parent class for (MPDFile, MPDPlaylist,
+     * MPDDirectory) you can use instanceof to check which type you got.
+     *
+     * @param filterArtist    Artist used for filtering against the Artist AND AlbumArtist tag. Non matching tracks
+     *                        will be discarded.
+     * @param filterAlbumMBID MusicBrainzID of the album that is also used as a filter criteria.
+     *                        This can be used to differentiate albums with same name, same artist but different MBID.
+     *                        This is often the case for soundtrack releases. (E.g. LOTR DVD-Audio vs. CD release)
+     * @return List of MPDFileEntry objects
+     * @throws IOException
+     */
+    private ArrayList<MPDFileEntry> parseMPDTracks(String filterArtist, String filterAlbumMBID) throws IOException {
+        return parseMPDTracks(filterArtist, filterAlbumMBID, null);
+    }
+
+    /**
+     * Same as {@link #parseMPDTracks(String, String)} but if a chunk listener is given the parsed
+     * entries are handed out in chunks while the response is still read. A chunk is handed out
+     * after {@link #FILE_LIST_CHUNK_SIZE} entries or after {@link #FILE_LIST_CHUNK_TIME} ms, whatever
+     * comes first. This keeps the memory used by the parser bounded and allows the GUI to show
+     * the first results of large responses early.
+     *
+     * @param filterArtist    Artist used for filtering against the Artist AND AlbumArtist tag.
+     * @param filterAlbumMBID MusicBrainzID of the album that is also used as a filter criteria.
+     * @param chunkListener   Listener that receives the chunks. If null the complete list is returned.
+     * @return List of MPDFileEntry objects. Empty if a chunk listener is used.
+     * @throws IOException
+     */
+    private ArrayList<MPDFileEntry> parseMPDTracks(String filterArtist, String filterAlbumMBID, MPDFileListChunkListener chunkListener) throws IOException {
+        ArrayList<MPDFileEntry> trackList = new ArrayList<MPDFileEntry>();
+        if (!isConnected()) {
+            return trackList;
+        }
+
+        /* Position of the first entry of the current chunk within the complete response */
+        int chunkStart = 0;
+        long lastChunkTime = System.currentTimeMillis();
+
+        MPDResponseReader reader = pReader;
+
+        /* Temporary track item (added to list later */
+        MPDFileEntry tempFileEntry = null;
+
+        /* Same object as tempFileEntry if the current entry is a file, null otherwise */
+        MPDFile tempFile = null;
+
+        /* Read the response line by line and dispatch by the key of the line */
+        while (isConnected() && readResponseLine(reader) && !reader.isResponseEnd()) {
+            MPDResponseReader.RESPONSE_KEY key = reader.getKey();
+            switch (key) {
+                case KEY_FILE:
+                case KEY_PLAYLIST:
+                case KEY_DIRECTORY: {
+                    /* A new entry starts, check the filter criteria for the previous one */
+                    if (null != tempFileEntry && matchesTrackFilter(tempFileEntry, filterArtist, filterAlbumMBID)) {
+                        trackList.add(tempFileEntry);
+                    }
+
+                    /* Hand out the parsed entries if a chunk is complete */
+                    if (null != chunkListener && !trackList.isEmpty() &&
+                            (trackList.size() >= FILE_LIST_CHUNK_SIZE || (System.currentTimeMillis() - lastChunkTime) >= FILE_LIST_CHUNK_TIME)) {
+                        chunkListener.onFileListChunk(trackList, chunkStart, chunkStart + trackList.size());
+                        chunkStart += trackList.size();
+                        trackList = new ArrayList<>();
+                        lastChunkTime = System.currentTimeMillis();
+                    }
+
+                    String path = reader.getValue();
+                    if (key == MPDResponseReader.RESPONSE_KEY.KEY_FILE) {
+                        tempFile = new MPDFile(path);
+                        tempFileEntry = tempFile;
+                    } else if (key == MPDResponseReader.RESPONSE_KEY.KEY_PLAYLIST) {
+                        tempFile = null;
+                        tempFileEntry = new MPDPlaylist(path);
+                    } else {
+                        tempFile = null;
+                        tempFileEntry = new MPDDirectory(path);
+                    }
+                    break;
+                }
+                case KEY_LAST_MODIFIED:
+                    if (null != tempFileEntry) {
+                        tempFileEntry.setLastModified(reader.getValue());
+                    }
+                    break;
+                default:
+                    if (null != tempFile) {
+                        parseMPDFileTag(reader, key, tempFile);
+                    }
+                    break;
+            }
+        }
+
+        /* Add last remaining track to list. */
+        if (null != tempFileEntry && matchesTrackFilter(tempFileEntry, filterArtist, filterAlbumMBID)) {
+            trackList.add(tempFileEntry);
+        }
+
+        /*
+         * Hand out the remaining entries. If nothing was handed out so far the empty list is
+         * delivered, so that the listener knows that the response is complete.
+         */
+        if (null != chunkListener && (!trackList.isEmpty() || chunkStart == 0)) {
+            chunkListener.onFileListChunk(trackList, chunkStart, chunkStart + trackList.size());
+            trackList = new ArrayList<>();
+        }
+        startIdleWait();
+        return trackList;
+    }
+
+    /**
+     * Same as {@link #parseMPDTracks(String, String, MPDFileListChunkListener)} without filters,
+     * but the entries are stored in a {@link MPDTrackStore} instead of one object per entry. The
+     * values are written to the store directly from the read buffer. Used for responses that can
+     * contain many thousand tracks (current playlist, saved playlists, search results).
+     *
+     * @param chunkListener Listener that receives the chunks. If null the complete list is returned.
+     * @return Store with the entries. Empty if a chunk listener is used.
+     * @throws IOException
+     */
+    private MPDTrackStore parseMPDTrackStore(MPDFileListChunkListener chunkListener) throws IOException {
+        MPDTrackStore trackStore = new MPDTrackStore();
+        if (!isConnected()) {
+            return trackStore;
+        }
+
+        /* Position of the first entry of the current chunk within the complete response */
+        int chunkStart = 0;
+        long lastChunkTime = System.currentTimeMillis();
+
+        MPDResponseReader reader = pReader;
+
+        /* Index of the current entry in the store, -1 before the first entry */
+        int entryIndex = -1;
+
+        /* Same as entryIndex if the current entry is a file, -1 otherwise */
+        int fileIndex = -1;
+
+        while (isConnected() && readResponseLine(reader) && !reader.isResponseEnd()) {
+            MPDResponseReader.RESPONSE_KEY key = reader.getKey();
+            switch (key) {
+                case KEY_FILE:
+                case KEY_PLAYLIST:
+                case KEY_DIRECTORY: {
+                    /* Hand out the parsed entries if a chunk is complete */
+                    if (null != chunkListener && !trackStore.isEmpty() &&
+                            (trackStore.size() >= FILE_LIST_CHUNK_SIZE || (System.currentTimeMillis() - lastChunkTime) >= FILE_LIST_CHUNK_TIME)) {
+                        trackStore.trimToSize();
+                        chunkListener.onFileListChunk(trackStore, chunkStart, chunkStart + trackStore.size());
+                        chunkStart += trackStore.size();
+                        trackStore = new MPDTrackStore();
+                        lastChunkTime = System.currentTimeMillis();
+                    }
+
+                    if (key == MPDResponseReader.RESPONSE_KEY.KEY_FILE) {
+                        entryIndex = trackStore.addEntry(MPDTrackStore.ENTRY_TYPE.FILE);
+                        fileIndex = entryIndex;
+                    } else if (key == MPDResponseReader.RESPONSE_KEY.KEY_PLAYLIST) {
+                        entryIndex = trackStore.addEntry(MPDTrackStore.ENTRY_TYPE.PLAYLIST);
+                        fileIndex = -1;
+                    } else {
+                        entryIndex = trackStore.addEntry(MPDTrackStore.ENTRY_TYPE.DIRECTORY);
+                        fileIndex = -1;
+                    }
+                    reader.copyValue(trackStore, entryIndex, MPDTrackStore.TEXT_COLUMN.PATH);
+                    break;
+                }
+                case KEY_LAST_MODIFIED:
+                    if (entryIndex >= 0) {
+                        reader.copyValue(trackStore, entryIndex, MPDTrackStore.TEXT_COLUMN.LAST_MODIFIED);
+                    }
+                    break;
+                default:
+                    if (fileIndex >= 0) {
+                        parseMPDTrackStoreTag(reader, key, trackStore, fileIndex);
+                    }
+                    break;
+            }
+        }
+
+        /*
+         * Hand out the remaining entries. If nothing was handed out so far the empty list is
+         * delivered, so that the listener knows that the response is complete.
+         */
+        if (null != chunkListener && (!trackStore.isEmpty() || chunkStart == 0)) {
+            trackStore.trimToSize();
+            chunkListener.onFileListChunk(trackStore, chunkStart, chunkStart + trackStore.size());
+            trackStore = new MPDTrackStore();
+        }
+        trackStore.trimToSize();
+        startIdleWait();
+        return trackStore;
+    }
+
+    /**
+     * Same as {@link #parseMPDFileTag(MPDResponseReader, MPDResponseReader.RESPONSE_KEY, MPDFile)}
+     * for an entry of a {@link MPDTrackStore}.
+     *
+     * @param reader Reader positioned on the response line
+     * @param key    Key of the response line
+     * @param store  Store containing the file
+     * @param index  Index of the file in the store
+     */
+    private static void parseMPDTrackStoreTag(MPDResponseReader reader, MPDResponseReader.RESPONSE_KEY key, MPDTrackStore store, int index) {
+        int number;
+        switch (key) {
+            case KEY_TITLE:
+                reader.copyValue(store, index, MPDTrackStore.TEXT_COLUMN.TITLE);
+                break;
+            case KEY_TRACK_MBID:
+                reader.copyValue(store, index, MPDTrackStore.TEXT_COLUMN.TRACK_MBID);
+                break;
+            case KEY_ARTIST:
+                store.setTag(index, MPDTrackStore.TAG_COLUMN.ARTIST, reader.getPooledValue());
+                break;
+            case KEY_ALBUM_ARTIST:
+                store.setTag(index, MPDTrackStore.TAG_COLUMN.ALBUM_ARTIST, reader.getPooledValue());
+                break;
+            case KEY_ALBUM:
+                store.setTag(index, MPDTrackStore.TAG_COLUMN.ALBUM, reader.getPooledValue());
+                break;
+            case KEY_DATE:
+                store.setTag(index, MPDTrackStore.TAG_COLUMN.DATE, reader.getPooledValue());
+                break;
+            case KEY_ALBUM_MBID:
+                store.setTag(index, MPDTrackStore.TAG_COLUMN.ALBUM_MBID, reader.getPooledValue());
+                break;
+            case KEY_ARTIST_MBID:
+                store.setTag(index, MPDTrackStore.TAG_COLUMN.ARTIST_MBID, reader.getPooledValue());
+                break;
+            case KEY_ALBUM_ARTIST_MBID:
+                store.setTag(index, MPDTrackStore.TAG_COLUMN.ALBUM_ARTIST_MBID, reader.getPooledValue());
+                break;
+            case KEY_TRACK_TIME:
+                number = reader.getIntValue();
+                if (number != MPDResponseReader.INVALID_NUMBER) {
+                    store.setNumber(index, MPDTrackStore.NUMBER_COLUMN.LENGTH, number);
+                }
+                break;
+            case KEY_SONG_ID:
+                number = reader.getIntValue();
+                if (number != MPDResponseReader.INVALID_NUMBER) {
+                    store.setNumber(index, MPDTrackStore.NUMBER_COLUMN.SONG_ID, number);
+                }
+                break;
+            case KEY_SONG_POS:
+                number = reader.getIntValue();
+                if (number != MPDResponseReader.INVALID_NUMBER) {
+                    store.setNumber(index, MPDTrackStore.NUMBER_COLUMN.SONG_POSITION, number);
+                }
+                break;
+            case KEY_DISC_NUMBER:
+                number = reader.getIntField(0, (byte) '/');
+                if (number != MPDResponseReader.INVALID_NUMBER) {
+                    store.setNumber(index, MPDTrackStore.NUMBER_COLUMN.DISC_NUMBER, number);
+                }
+                number = reader.getIntField(1, (byte) '/');
+                if (number != MPDResponseReader.INVALID_NUMBER) {
+                    store.setNumber(index, MPDTrackStore.NUMBER_COLUMN.ALBUM_DISC_COUNT, number);
+                }
+                break;
+            case KEY_TRACK_NUMBER:
+                number = reader.getIntField(0, (byte) '/');
+                if (number != MPDResponseReader.INVALID_NUMBER) {
+                    store.setNumber(index, MPDTrackStore.NUMBER_COLUMN.TRACK_NUMBER, number);
+                }
+                number = reader.getIntField(1, (byte) '/');
+                if (number != MPDResponseReader.INVALID_NUMBER) {
+                    store.setNumber(index, MPDTrackStore.NUMBER_COLUMN.ALBUM_TRACK_COUNT, number);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Sets the tag of the current response line to the given file.
+     *
+     * @param reader Reader positioned on the response line
+     * @param key    Key of the response line
+     * @param file   File to set the tag for
+     */
+    private static void parseMPDFileTag(MPDResponseReader reader, MPDResponseReader.RESPONSE_KEY key, MPDFile file) {
+        int number;
+        switch (key) {
+            case KEY_TITLE:
+                file.setTrackTitle(reader.getValue());
+                break;
+            case KEY_ARTIST:
+                file.setTrackArtist(reader.getPooledValue());
+                break;
+            case KEY_ALBUM_ARTIST:
+                file.setTrackAlbumArtist(reader.getPooledValue());
+                break;
+            case KEY_ALBUM:
+                file.setTrackAlbum(reader.getPooledValue());
+                break;
+            case KEY_DATE:
+                file.setDate(reader.getPooledValue());
+                break;
+            case KEY_ALBUM_MBID:
+                file.setTrackAlbumMBID(reader.getPooledValue());
+                break;
+            case KEY_ARTIST_MBID:
+                file.setTrackArtistMBID(reader.getPooledValue());
+                break;
+            case KEY_ALBUM_ARTIST_MBID:
+                file.setTrackAlbumArtistMBID(reader.getPooledValue());
+                break;
+            case KEY_TRACK_MBID:
+                file.setTrackMBID(reader.getValue());
+                break;
+            case KEY_TRACK_TIME:
+                number = reader.getIntValue();
+                if (number != MPDResponseReader.INVALID_NUMBER) {
+                    file.setLength(number);
+                }
+                break;
+            case KEY_SONG_ID:
+                number = reader.getIntValue();
+                if (number != MPDResponseReader.INVALID_NUMBER) {
+                    file.setSongID(number);
+                }
+                break;
+            case KEY_SONG_POS:
+                number = reader.getIntValue();
+                if (number != MPDResponseReader.INVALID_NUMBER) {
+                    file.setSongPosition(number);
+                }
+                break;
+            case KEY_DISC_NUMBER:
+                /*
+                 * Check if MPD returned a discnumber like: "1" or "1/3" and set disc count accordingly.
+                 */
+                number = reader.getIntField(0, (byte) '/');
+                if (number != MPDResponseReader.INVALID_NUMBER) {
+                    file.setDiscNumber(number);
+                }
+                number = reader.getIntField(1, (byte) '/');
+                if (number != MPDResponseReader.INVALID_NUMBER) {
+                    file.psetAlbumDiscCount(number);
+                }
+                break;
+            case KEY_TRACK_NUMBER:
+                /*
+                 * Check if MPD returned a tracknumber like: "12" or "12/42" and set albumtrack count accordingly.
+                 */
+                number = reader.getIntField(0, (byte) '/');
+                if (number != MPDResponseReader.INVALID_NUMBER) {
+                    file.setTrackNumber(number);
+                }
+                number = reader.getIntField(1, (byte) '/');
+                if (number != MPDResponseReader.INVALID_NUMBER) {
+                    file.setAlbumTrackCount(number);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Checks if the given entry matches the artist and album MBID filter of
+     * {@link #parseMPDTracks(String, String, MPDFileListChunkListener)}. Only {@link MPDFile}
+     * objects are filtered, directories and playlists always match.
+     *
+     * @param entry           Entry to check
+     * @param filterArtist    Artist used for filtering against the Artist AND AlbumArtist tag.
+     * @param filterAlbumMBID MusicBrainzID of the album that is also used as a filter criteria.
+     * @return True if the entry should be part of the result, false otherwise.
+     */
+    private static boolean matchesTrackFilter(MPDFileEntry entry, String filterArtist, String filterAlbumMBID) {
+        if (!(entry instanceof MPDFile)) {
+            return true;
+        }
+        MPDFile file = (MPDFile) entry;
+        return (filterArtist.isEmpty() || filterArtist.equals(file.getTrackAlbumArtist()) || filterArtist.equals(file.getTrackArtist()))
+                && (filterAlbumMBID.isEmpty() || filterAlbumMBID.equals(file.getTrackAlbumMBID()));
+    }
+
+     /*
+     * **********************
+     * * Request functions  *
+     * **********************
+     */
+
+    /**
+     * Get a list of all albums available in the database.
+     *
+     * @return List of MPDAlbum
+     */
+    public synchronized List<MPDAlbum> getAlbums() {
+        // Get a list of albums. Check if server is new enough for MB and AlbumArtist filtering
+        sendMPDCommand(MPDCommands.MPD_COMMAND_REQUEST_ALBUMS(mServerCapabilities.hasListGroup() && mServerCapabilities.hasMusicBrainzTags()));
+        try {
+            return parseMPDAlbums();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Get a list of all albums available in the database.
+     *
+     * @return List of MPDAlbum
+     */
+    public synchronized List<MPDAlbum> getAlbumsInPath(String path) {
+        // Get a list of albums. Check if server is new enough for MB and AlbumArtist filtering
+        sendMPDCommand(MPDCommands.MPD_COMMAND_REQUEST_ALBUMS_FOR_PATH(path, mServerCapabilities.hasListGroup() && mServerCapabilities.hasMusicBrainzTags()));
+        try {
+            return parseMPDAlbums();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Get a list of all albums by an artist where artist is part of or artist is the AlbumArtist (tag)
+     *
+     * @param artistName Artist to filter album list with.
+     * @return List of MPDAlbum objects
+     */
+    public synchronized List<MPDAlbum> getArtistAlbums(String artistName) {
+        // Get all albums that artistName is part of (Also the legacy album list pre v. 0.19)
+        sendMPDCommand(MPDCommands.MPD_COMMAND_REQUEST_ARTIST_ALBUMS(artistName, mServerCapabilities.hasMusicBrainzTags() && mServerCapabilities.hasListGroup()));
+
+        try {
+            if (mServerCapabilities.hasListGroup() && mServerCapabilities.hasMusicBrainzTags()) {
+                // Use a hashset for the results, to filter duplicates that will exist.
+                Set<MPDAlbum> result = new HashSet<>(parseMPDAlbums());
+
+                // Also get the list where artistName matches on AlbumArtist
+                sendMPDCommand(MPDCommands.MPD_COMMAND_REQUEST_ALBUMARTIST_ALBUMS(artistName));
+
+                result.addAll(parseMPDAlbums());
+
+                List<MPDAlbum> resultList = new ArrayList<MPDAlbum>(result);
+
+                // Sort the created list
+                Collections.sort(resultList);
+                return resultList;
+            } else {
+                List<MPDAlbum> result = parseMPDAlbums();
+                return result;
+            }
+
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Get a list of all artists available in MPDs database
+     *
+     * @return List of MPDArtist objects
+     */
+    public synchronized List<MPDArtist> getArtists() {
+        // Get a list of artists. If server is new enough this will contain MBIDs for artists, that are tagged correctly.
+        sendMPDCommand(MPDCommands.MPD_COMMAND_REQUEST_ARTISTS(mServerCapabilities.hasListGroup() && mServerCapabilities.hasMusicBrainzTags()));
+        try {
+            return parseMPDArtists();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Get a list of all album artists available in MPDs database
+     *
+     * @return List of MPDArtist objects
+     */
+    public synchronized List<MPDArtist> getAlbumArtists() {
+        // Get a list of artists. If server is new enough this will contain MBIDs for artists, that are tagged correctly.
+        sendMPDCommand(MPDCommands.MPD_COMMAND_REQUEST_ALBUMARTISTS(mServerCapabilities.hasListGroup() && mServerCapabilities.hasMusicBrainzTags()));
+        try {
+            return parseMPDArtists();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Get a list of all playlists available in MPDs database
+     *
+     * @return List of MPDArtist objects
+     */
+    public synchronized List<MPDFileEntry> getPlaylists() {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_GET_SAVED_PLAYLISTS);
+        try {
+            List<MPDFileEntry> playlists = parseMPDTracks("", "");
+            Collections.sort(playlists);
+            return playlists;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Gets all tracks from MPD server. This could take a long time to process. Be warned.
+     *
+     * @return A list of all tracks in MPDFile objects
+     */
+    public synchronized List<MPDFileEntry> getAllTracks() {
+        MPDLog.w(TAG, "This command should not be used");
+        sendMPDCommand(MPDCommands.MPD_COMMAND_REQUEST_ALL_FILES);
+        try {
+            return parseMPDTrackStore(null);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Requests all entries of the database (directories and tracks). The entries are handed out
+     * in chunks to the listener while the response is parsed.
+     *
+     * @param chunkListener Listener that receives the chunks of the database
+     * @return True if the complete database was received, false otherwise
+     */
+    public synchronized boolean getAllTracks(MPDFileListChunkListener chunkListener) {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_REQUEST_ALL_FILES);
+        try {
+            parseMPDTrackStore(chunkListener);
+            return isResponseComplete();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+
+    /**
+     * Requests the tracks whose files were modified after the given time (MPD 0.19+).
+     *
+     * @param time Seconds since the epoch
+     * @return List of the tracks or null if the request failed
+     */
+    public synchronized List<MPDFileEntry> getTracksModifiedSince(long time) {
+        MPDCapabilities capabilities = getServerCapabilities();
+        if (null == capabilities || !capabilities.hasModifiedSince()) {
+            return null;
+        }
+        sendMPDCommand(MPDCommands.MPD_COMMAND_FIND_MODIFIED_SINCE(time, capabilities.hasFilterExpressions()));
+        try {
+            List<MPDFileEntry> tracks = parseMPDTrackStore(null);
+            return isResponseComplete() ? tracks : null;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Returns the list of tracks that are part of albumName
+     *
+     * @param albumName Album to get tracks from
+     * @return List of MPDFile track objects
+     */
+    public synchronized List<MPDFileEntry> getAlbumTracks(String albumName, String mbid) {
+        return getArtistAlbumTracks(albumName, "", mbid);
+    }
+
+    /**
+     * Returns the list of tracks that are part of albumName and from artistName
+     *
+     * @param albumName  Album name used as primary filter.
+     * @param artistName Artist to filter with. This is checked with Artist AND AlbumArtist tag.
+     * @param mbid       MusicBrainzID of the album to get tracks from. Necessary if one item with the
+     *                   same name exists multiple times.
+     * @return List of MPDFile track objects
+     */
+    public synchronized List<MPDFileEntry> getArtistAlbumTracks(String albumName, String artistName, String mbid) {
+        MPDCapabilities capabilities = getServerCapabilities();
+
+        List<MPDFileEntry> result;
+        if (null != capabilities && capabilities.hasFilterExpressions()) {
+            result = findAlbumTracksFiltered(albumName, artistName, mbid);
+        } else if (null != capabilities && (artistName.isEmpty() || capabilities.hasTag(MPDCommands.MPD_TAG_ALBUM_ARTIST))
+                && (mbid.isEmpty() || capabilities.hasTag(MPDCommands.MPD_TAG_ALBUM_MBID))) {
+            result = findAlbumTracksLegacy(albumName, artistName, mbid);
+        } else {
+            // Servers without the tags can only find the album name, filter the rest here
+            sendMPDCommand(MPDCommands.MPD_COMMAND_REQUEST_ALBUM_TRACKS(albumName));
+            try {
+                result = parseMPDTracks(artistName, mbid);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+
+        if (null != result) {
+            // Sort with disc & track number
+            MPDSortHelper.sortFileListNumeric(result);
+        }
+        return result;
+    }
+
+    /**
+     * Lets the server filter the album tracks with filter expressions (MPD 0.21+). MPD has no
+     * "or" in filter expressions, so if an artist is given the tracks where it is the album
+     * artist and the tracks where it is only the artist are requested with two commands in one
+     * command list. Both results are disjoint.
+     *
+     * @param albumName  Name of the album
+     * @param artistName Artist or album artist of the tracks, can be empty
+     * @param mbid       MusicBrainz album id, can be empty
+     * @return List of tracks or null on error
+     */
+    private List<MPDFileEntry> findAlbumTracksFiltered(String albumName, String artistName, String mbid) {
+        String albumFilter = MPDCommands.MPD_FILTER_TAG_EQUALS(MPDCommands.MPD_TAG_ALBUM, albumName);
+        if (!mbid.isEmpty()) {
+            albumFilter = MPDCommands.MPD_FILTER_AND(albumFilter, MPDCommands.MPD_FILTER_TAG_EQUALS(MPDCommands.MPD_TAG_ALBUM_MBID, mbid));
+        }
+
+        if (artistName.isEmpty()) {
+            sendMPDCommand(MPDCommands.MPD_COMMAND_FIND_FILTER(albumFilter));
+            try {
+                return parseMPDTracks("", "");
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+
+        String albumArtistFilter = MPDCommands.MPD_FILTER_TAG_EQUALS(MPDCommands.MPD_TAG_ALBUM_ARTIST, artistName);
+        String artistFilter = MPDCommands.MPD_FILTER_AND(MPDCommands.MPD_FILTER_TAG_EQUALS(MPDCommands.MPD_TAG_ARTIST, artistName),
+                MPDCommands.MPD_FILTER_NOT(albumArtistFilter));
+
+        MPDCommandPipeline pipeline = new MPDCommandPipeline();
+        MPDCommandPipeline.PipelinedCommand<List<MPDFileEntry>> albumArtistTracks = pipeline.addFileListCommand(
+                MPDCommands.MPD_COMMAND_FIND_FILTER(MPDCommands.MPD_FILTER_AND(albumFilter, albumArtistFilter)));
+        MPDCommandPipeline.PipelinedCommand<List<MPDFileEntry>> artistTracks = pipeline.addFileListCommand(
+                MPDCommands.MPD_COMMAND_FIND_FILTER(MPDCommands.MPD_FILTER_AND(albumFilter, artistFilter)));
+        if (!executePipeline(pipeline)) {
+            return null;
+        }
+
+        List<MPDFileEntry> result = new ArrayList<>(albumArtistTracks.getResult());
+        result.addAll(artistTracks.getResult());
+        return result;
+    }
+
+    /**
+     * Lets the server filter the album tracks with additional "find" clauses (legacy syntax). The
+     * clauses can not express "artist or album artist", so both are requested in one command
+     * list and tracks found by both commands are removed.
+     *
+     * @param albumName  Name of the album
+     * @param artistName Artist or album artist of the tracks, can be empty
+     * @param mbid       MusicBrainz album id, can be empty
+     * @return List of tracks or null on error
+     */
+    private List<MPDFileEntry> findAlbumTracksLegacy(String albumName, String artistName, String mbid) {
+        if (artistName.isEmpty()) {
+            sendMPDCommand(MPDCommands.MPD_COMMAND_REQUEST_ALBUM_TRACKS(albumName, MPDCommands.MPD_TAG_ALBUM_ARTIST, "", mbid));
+            try {
+                return parseMPDTracks("", "");
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+
+        MPDCommandPipeline pipeline = new MPDCommandPipeline();
+        MPDCommandPipeline.PipelinedCommand<List<MPDFileEntry>> albumArtistTracks = pipeline.addFileListCommand(
+                MPDCommands.MPD_COMMAND_REQUEST_ALBUM_TRACKS(albumName, MPDCommands.MPD_TAG_ALBUM_ARTIST, artistName, mbid));
+        MPDCommandPipeline.PipelinedCommand<List<MPDFileEntry>> artistTracks = pipeline.addFileListCommand(
+                MPDCommands.MPD_COMMAND_REQUEST_ALBUM_TRACKS(albumName, MPDCommands.MPD_TAG_ARTIST, artistName, mbid));
+        if (!executePipeline(pipeline)) {
+            return null;
+        }
+
+        List<MPDFileEntry> result = new ArrayList<>(albumArtistTracks.getResult());
+        Set<String> paths = new HashSet<>();
+        for (MPDFileEntry track : result) {
+            paths.add(track.getPath());
+        }
+        for (MPDFileEntry track : artistTracks.getResult()) {
+            if (paths.add(track.getPath())) {
+                result.add(track);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Requests the current playlist of the server
+     *
+     * @return List of MPDFile items with all tracks of the current playlist
+     */
+    public synchronized List<MPDFileEntry> getCurrentPlaylist() {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_GET_CURRENT_PLAYLIST);
+        try {
+        /* Parse the return */
+            return parseMPDTrackStore(null);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Requests the current playlist of the server. The tracks are handed out in chunks to the
+     * listener while the response is parsed.
+     *
+     * @param chunkListener Listener that receives the chunks of the playlist
+     * @return True if the complete playlist was received, false otherwise
+     */
+    public synchronized boolean getCurrentPlaylist(MPDFileListChunkListener chunkListener) {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_GET_CURRENT_PLAYLIST);
+        try {
+            parseMPDTrackStore(chunkListener);
+            return isResponseComplete();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Requests the tracks of the current playlist that changed since the given playlist version.
+     * Every returned track contains its new position in the playlist. Tracks removed from the end
+     * of the playlist are not listed, the new playlist length is part of the status.
+     *
+     * @param version       Playlist version the client knows
+     * @param chunkListener Listener that receives the changed tracks in chunks
+     * @return True if all changes were received, false otherwise
+     */
+    public synchronized boolean getCurrentPlaylistChanges(int version, MPDFileListChunkListener chunkListener) {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_GET_CURRENT_PLAYLIST_CHANGES(version));
+        try {
+            parseMPDTracks("", "", chunkListener);
+            return isResponseComplete();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Requests the current playlist of the server with a window
+     *
+     * @return List of MPDFile items with all tracks of the current playlist
+     */
+    public synchronized List<MPDFileEntry> getCurrentPlaylistWindow(int start, int end) {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_GET_CURRENT_PLAYLIST_WINDOW(start, end));
+        try {
+        /* Parse the return */
+            return parseMPDTrackStore(null);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Requests the current playlist of the server
+     *
+     * @return List of MPDFile items with all tracks of the current playlist
+     */
+    public synchronized List<MPDFileEntry> getSavedPlaylist(String playlistName) {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_GET_SAVED_PLAYLIST(playlistName));
+        try {
+        /* Parse the return */
+            return parseMPDTrackStore(null);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Requests a saved playlist of the server. The tracks are handed out in chunks to the
+     * listener while the response is parsed.
+     *
+     * @param playlistName  Name of the playlist to request
+     * @param chunkListener Listener that receives the chunks of the playlist
+     * @return True if the complete playlist was received, false otherwise
+     */
+    public synchronized boolean getSavedPlaylist(String playlistName, MPDFileListChunkListener chunkListener) {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_GET_SAVED_PLAYLIST(playlistName));
+        try {
+            parseMPDTrackStore(chunkListener);
+            return isResponseComplete();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Requests the files for a specific path with info
+     *
+     * @return List of MPDFile items with all tracks of the current playlist
+     */
+    public synchronized List<MPDFileEntry> getFiles(String path) {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_GET_FILES_INFO(path));
+        try {
+        /* Parse the return */
+            List<MPDFileEntry> retList = parseMPDTracks("", "");
+            Collections.sort(retList);
+            return retList;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Requests the files for a specific search term and type
+     *
+     * @param term The search term to use
+     * @param type The type of items to search
+     * @return List of MPDFile items with all tracks matching the search
+     */
+    public synchronized List<MPDFileEntry> getSearchedFiles(String term, MPDCommands.MPD_SEARCH_TYPE type) {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_SEARCH_FILES(term, type));
+        try {
+        /* Parse the return */
+            return parseMPDTrackStore(null);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Requests the files for a specific search term and type. The results are handed out in chunks
+     * to the listener while the response is parsed.
+     *
+     * @param term          The search term to use
+     * @param type          The type of items to search
+     * @param chunkListener Listener that receives the chunks of the search results
+     * @return True if all results were received, false otherwise
+     */
+    public synchronized boolean getSearchedFiles(String term, MPDCommands.MPD_SEARCH_TYPE type, MPDFileListChunkListener chunkListener) {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_SEARCH_FILES(term, type));
+        try {
+            parseMPDTrackStore(chunkListener);
+            return isResponseComplete();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Requests a window of the results for a specific search term and type. Servers that do not
+     * support windows (MPD < 0.20) send all results, so the returned list can be longer than
+     * the window.
+     *
+     * @param term  The search term to use
+     * @param type  The type of items to search
+     * @param start Position of the first result (inclusive)
+     * @param end   Position of the last result (exclusive)
+     * @return List of found tracks or null on error
+     */
+    public synchronized List<MPDFileEntry> getSearchedFiles(String term, MPDCommands.MPD_SEARCH_TYPE type, int start, int end) {
+        MPDCapabilities capabilities = getServerCapabilities();
+        if (null != capabilities && capabilities.hasSearchWindow()) {
+            sendMPDCommand(MPDCommands.MPD_COMMAND_SEARCH_FILES_WINDOW(term, type, start, end));
+        } else {
+            sendMPDCommand(MPDCommands.MPD_COMMAND_SEARCH_FILES(term, type));
+        }
+        try {
+            return parseMPDTrackStore(null);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Counts the results for a specific search term and type without requesting them.
+     *
+     * @param term The search term to use
+     * @param type The type of items to search
+     * @return Number of results or -1 if the server can not count search results or the
+     *         response is invalid
+     */
+    public synchronized int getSearchedFilesCount(String term, MPDCommands.MPD_SEARCH_TYPE type) {
+        MPDCapabilities capabilities = getServerCapabilities();
+        if (null == capabilities || !capabilities.hasSearchCount()) {
+            return -1;
+        }
+
+        sendMPDCommand(MPDCommands.MPD_COMMAND_SEARCH_COUNT(term, type));
+
+        MPDResponseReader reader = pReader;
+        int count = parseSongCount(reader);
+        if (!isConnected() || reader.isACK() || count == MPDResponseReader.INVALID_NUMBER) {
+            count = -1;
+        }
+
+        startIdleWait();
+        return count;
+    }
+
+    /**
+     * Searches a URL in the current playlist. If available the track is part of the returned list.
+     * @param url URL to search in the current playlist.
+     * @return List with one entry or none.
+     */
+    public synchronized List<MPDFileEntry> getPlaylistFindTrack(String url) {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_PLAYLIST_FIND_URI(url));
+        try {
+            /* Parse the return */
+            return parseMPDTracks("", "");
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Requests the currentstatus package from the mpd server.
+     *
+     * @return The CurrentStatus object with all gathered information.
+     */
+    public synchronized MPDCurrentStatus getCurrentServerStatus() {
+        /* Request status */
+        sendMPDCommand(MPDCommands.MPD_COMMAND_GET_CURRENT_STATUS);
+
+        try {
+            if (!readyRead()) {
+                return new MPDCurrentStatus();
+            }
+        } catch (IOException e) {
+            handleSocketError();
+            return new MPDCurrentStatus();
+        }
+        return parseMPDCurrentStatus();
+    }
+
+    /**
+     * Parses the response of MPD to the status command.
+     *
+     * @return The CurrentStatus object with all gathered information.
+     */
+    private MPDCurrentStatus parseMPDCurrentStatus() {
+        MPDCurrentStatus status = new MPDCurrentStatus();
+
+        /* Read the response line by line and dispatch by the key of the line */
+        MPDResponseReader reader = pReader;
+        int number;
+
+        while (readResponseLine(reader) && !reader.isResponseEnd() && !pSocket.isClosed()) {
+            switch (reader.getKey()) {
+                case KEY_VOLUME:
+                    number = reader.getIntValue();
+                    if (number != MPDResponseReader.INVALID_NUMBER) {
+                        status.setVolume(number);
+                    }
+                    break;
+                case KEY_REPEAT:
+                    number = reader.getIntValue();
+                    if (number != MPDResponseReader.INVALID_NUMBER) {
+                        status.setRepeat(number);
+                    }
+                    break;
+                case KEY_RANDOM:
+                    number = reader.getIntValue();
+                    if (number != MPDResponseReader.INVALID_NUMBER) {
+                        status.setRandom(number);
+                    }
+                    break;
+                case KEY_SINGLE:
+                    number = reader.getIntValue();
+                    if (number != MPDResponseReader.INVALID_NUMBER) {
+                        status.setSinglePlayback(number);
+                    }
+                    break;
+                case KEY_CONSUME:
+                    number = reader.getIntValue();
+                    if (number != MPDResponseReader.INVALID_NUMBER) {
+                        status.setConsume(number);
+                    }
+                    break;
+                case KEY_PLAYLIST:
+                    number = reader.getIntValue();
+                    if (number != MPDResponseReader.INVALID_NUMBER) {
+                        status.setPlaylistVersion(number);
+                    }
+                    break;
+                case KEY_PLAYLIST_LENGTH:
+                    number = reader.getIntValue();
+                    if (number != MPDResponseReader.INVALID_NUMBER) {
+                        status.setPlaylistLength(number);
+                    }
+                    break;
+                case KEY_PLAYBACK_STATE:
+                    if (reader.valueEquals(MPDResponses.MPD_PLAYBACK_STATE_RESPONSE_PLAY)) {
+                        status.setPlaybackState(MPDCurrentStatus.MPD_PLAYBACK_STATE.MPD_PLAYING);
+                    } else if (reader.valueEquals(MPDResponses.MPD_PLAYBACK_STATE_RESPONSE_PAUSE)) {
+                        status.setPlaybackState(MPDCurrentStatus.MPD_PLAYBACK_STATE.MPD_PAUSING);
+                    } else if (reader.valueEquals(MPDResponses.MPD_PLAYBACK_STATE_RESPONSE_STOP)) {
+                        status.setPlaybackState(MPDCurrentStatus.MPD_PLAYBACK_STATE.MPD_STOPPED);
+                    }
+                    break;
+                case KEY_CURRENT_SONG_INDEX:
+                    number = reader.getIntValue();
+                    if (number != MPDResponseReader.INVALID_NUMBER) {
+                        status.setCurrentSongIndex(number);
+                    }
+                    break;
+                case KEY_NEXT_SONG_INDEX:
+                    number = reader.getIntValue();
+                    if (number != MPDResponseReader.INVALID_NUMBER) {
+                        status.setNextSongIndex(number);
+                    }
+                    break;
+                case KEY_TIME_INFORMATION_OLD:
+                    // Format is "elapsed:length"
+                    if (reader.getFieldCount((byte) ':') == 2) {
+                        number = reader.getIntField(0, (byte) ':');
+                        if (number != MPDResponseReader.INVALID_NUMBER) {
+                            status.setElapsedTime(number);
+                        }
+                        number = reader.getIntField(1, (byte) ':');
+                        if (number != MPDResponseReader.INVALID_NUMBER) {
+                            status.setTrackLength(number);
+                        }
+                    }
+                    break;
+                case KEY_ELAPSED_TIME:
+                    number = reader.getRoundedDecimalValue();
+                    if (number != MPDResponseReader.INVALID_NUMBER) {
+                        status.setElapsedTime(number);
+                    }
+                    break;
+                case KEY_DURATION:
+                    number = reader.getRoundedDecimalValue();
+                    if (number != MPDResponseReader.INVALID_NUMBER) {
+                        status.setTrackLength(number);
+                    }
+                    break;
+                case KEY_BITRATE:
+                    number = reader.getIntValue();
+                    if (number != MPDResponseReader.INVALID_NUMBER) {
+                        status.setBitrate(number);
+                    }
+                    break;
+                case KEY_AUDIO_INFORMATION:
+                    // Format is "samplerate:bitresolution:channels"
+                    if (reader.getFieldCount((byte) ':') == 3) {
+                        number = reader.getIntField(0, (byte) ':');
+                        if (number != MPDResponseReader.INVALID_NUMBER) {
+                            status.setSamplerate(number);
+                        }
+                        status.setBitDepth(reader.getStringField(1, (byte) ':'));
+                        number = reader.getIntField(2, (byte) ':');
+                        if (number != MPDResponseReader.INVALID_NUMBER) {
+                            status.setChannelCount(number);
+                        }
+                    }
+                    break;
+                case KEY_UPDATING_DB:
+                    number = reader.getIntValue();
+                    if (number != MPDResponseReader.INVALID_NUMBER) {
+                        status.setUpdateDBJob(number);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        startIdleWait();
+        return status;
+    }
+
+    /**
+     * Requests the server statistics package from the mpd server.
+     *
+     * @return The CurrentStatus object with all gathered information.
+     */
+    public synchronized MPDStatistics getServerStatistics() {
+        MPDStatistics stats = new MPDStatistics();
+
+        /* Request status */
+        sendMPDCommand(MPDCommands.MPD_COMMAND_GET_STATISTICS);
+
+        try {
+            if (!readyRead()) {
+                return stats;
+            }
+        } catch (IOException e) {
+            handleSocketError();
+            return stats;
+        }
+        /* Response line from MPD */
+        String response = null;
+
+        response = readLine();
+
+        while (isConnected() && response != null && !response.startsWith("OK") && !response.startsWith("ACK")) {
+            if (response.startsWith(MPDResponses.MPD_STATS_UPTIME)) {
+                stats.setServerUptime(Integer.valueOf(response.substring(MPDResponses.MPD_STATS_UPTIME.length())));
+            } else if (response.startsWith(MPDResponses.MPD_STATS_PLAYTIME)) {
+                stats.setPlayDuration(Integer.valueOf(response.substring(MPDResponses.MPD_STATS_PLAYTIME.length())));
+            } else if (response.startsWith(MPDResponses.MPD_STATS_ARTISTS)) {
+                stats.setArtistsCount(Integer.valueOf(response.substring(MPDResponses.MPD_STATS_ARTISTS.length())));
+            } else if (response.startsWith(MPDResponses.MPD_STATS_ALBUMS)) {
+                stats.setAlbumCount(Integer.valueOf(response.substring(MPDResponses.MPD_STATS_ALBUMS.length())));
+            } else if (response.startsWith(MPDResponses.MPD_STATS_SONGS)) {
+                stats.setSongCount(Integer.valueOf(response.substring(MPDResponses.MPD_STATS_SONGS.length())));
+            } else if (response.startsWith(MPDResponses.MPD_STATS_DB_PLAYTIME)) {
+                stats.setAllSongDuration(Integer.valueOf(response.substring(MPDResponses.MPD_STATS_DB_PLAYTIME.length())));
+            } else if (response.startsWith(MPDResponses.MPD_STATS_DB_LAST_UPDATE)) {
+                stats.setLastDBUpdate(Long.valueOf(response.substring(MPDResponses.MPD_STATS_DB_LAST_UPDATE.length())));
+            }
+
+            response = readLine();
+
+        }
+
+        startIdleWait();
+        return stats;
+    }
+
+    /**
+     * This will query the current song playing on the mpd server.
+     *
+     * @return MPDFile entry for the song playing.
+     */
+    public synchronized MPDFile getCurrentSong() {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_GET_CURRENT_SONG);
+
+        // Reuse the parsing function for tracks here.
+        List<MPDFileEntry> retList = null;
+        try {
+            retList = parseMPDTracks("", "");
+        } catch (IOException e) {
+            handleSocketError();
+            return null;
+        }
+        if (retList.size() == 1) {
+            // If one element is in the list it is safe to assume that this element is
+            // the current song. So casting is no problem.
+            return (MPDFile) retList.get(0);
+        } else {
+            return null;
+        }
+    }
+
+
+    /**
+     * Sets the maximum size of binary chunks that are requested after the next connect.
+     *
+     * @param binaryLimit Chunk size in bytes, 0 to keep the default of the server.
+     */
+    public synchronized void setBinaryLimit(int binaryLimit) {
+        mBinaryLimit = binaryLimit;
+    }
+
+    /**
+     * Searches one track of an album. Its path is used to request the cover of the album.
+     *
+     * @param albumName   Name of the album
+     * @param albumArtist Album artist of the album, can be empty
+     * @param mbid        MusicBrainz id of the album, can be empty
+     * @return Path of a track of the album or null if none was found.
+     */
+    public synchronized String findAlbumTrackPath(String albumName, String albumArtist, String mbid) {
+        MPDCapabilities capabilities = getServerCapabilities();
+        if (null == capabilities) {
+            return null;
+        }
+
+        List<MPDFileEntry> tracks;
+        if (capabilities.hasFilterExpressions()) {
+            // Let the server stop after the first track
+            String filter = MPDCommands.MPD_FILTER_TAG_EQUALS("album", albumName);
+            if (!mbid.isEmpty()) {
+                filter = MPDCommands.MPD_FILTER_AND(filter, MPDCommands.MPD_FILTER_TAG_EQUALS("musicbrainz_albumid", mbid));
+            } else if (!albumArtist.isEmpty()) {
+                filter = MPDCommands.MPD_FILTER_AND(filter, MPDCommands.MPD_FILTER_TAG_EQUALS("albumartist", albumArtist));
+            }
+            sendMPDCommand(MPDCommands.MPD_COMMAND_FIND_FILTER_WINDOW(filter, 0, 1));
+            try {
+                tracks = parseMPDTracks("", "");
+            } catch (IOException e) {
+                handleSocketError();
+                return null;
+            }
+        } else {
+            tracks = getArtistAlbumTracks(albumName, albumArtist, mbid);
+        }
+
+        if (null == tracks) {
+            return null;
+        }
+        for (MPDFileEntry track : tracks) {
+            if (track instanceof MPDFile) {
+                return track.getPath();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Requests the cover image for a song. First the cover file in the directory of the song is
+     * requested (albumart), if none exists the picture embedded in the song (readpicture).
+     *
+     * @param path Path of the song
+     * @return Raw image data or null if the server has no image for the song.
+     */
+    public synchronized byte[] getAlbumImage(String path) {
+        MPDCapabilities capabilities = getServerCapabilities();
+        if (null == capabilities) {
+            return null;
+        }
+
+        byte[] image = null;
+        if (capabilities.hasAlbumArt()) {
+            image = readBinaryResponse(MPDCommands.MPD_COMMAND_ALBUMART_CMD_NAME, path);
+        }
+        if (null == image && capabilities.hasReadPicture() && isConnected()) {
+            image = readBinaryResponse(MPDCommands.MPD_COMMAND_READ_PICTURE_CMD_NAME, path);
+        }
+
+        startIdleWait();
+        return image;
+    }
+
+    /**
+     * Requests a binary file chunk by chunk. Every response contains the total size of the file
+     * and one chunk ("binary: length" followed by the raw data). The chunks are read directly into
+     * the resulting array without creating strings for them.
+     *
+     * @param command Name of the binary command (albumart or readpicture)
+     * @param path    Path of the song
+     * @return Data of the file or null if the server has no data or an error occurred.
+     */
+    private byte[] readBinaryResponse(String command, String path) {
+        byte[] data = null;
+        int offset = 0;
+        MPDResponseReader reader = pReader;
+
+        do {
+            if (command.equals(MPDCommands.MPD_COMMAND_ALBUMART_CMD_NAME)) {
+                sendMPDCommand(MPDCommands.MPD_COMMAND_GET_ALBUMART(path, offset));
+            } else {
+                sendMPDCommand(MPDCommands.MPD_COMMAND_READ_PICTURE(path, offset));
+            }
+
+            int chunkSize = 0;
+            // Set if the file can not be read. The response is still read to its end, so the
+            // connection stays in sync for the next command.
+            boolean failed = false;
+            while (isConnected() && readResponseLine(reader) && !reader.isResponseEnd()) {
+                switch (reader.getKey()) {
+                    case KEY_BINARY_SIZE: {
+                        int size = reader.getIntValue();
+                        if (size <= 0) {
+                            break;
+                        }
+                        if (size > MAX_BINARY_SIZE) {
+                            failed = true;
+                        } else if (null == data) {
+                            data = new byte[size];
+                        } else if (data.length != size) {
+                            // File changed between two chunks
+                            failed = true;
+                        }
+                        break;
+                    }
+                    case KEY_BINARY: {
+                        chunkSize = reader.getIntValue();
+                        if (chunkSize < 0) {
+                            handleSocketError();
+                            return null;
+                        }
+                        try {
+                            boolean read;
+                            if (failed || null == data || offset + chunkSize > data.length) {
+                                failed = true;
+                                read = reader.skipBinary(chunkSize);
+                            } else {
+                                read = reader.readBinary(data, offset, chunkSize);
+                            }
+                            if (!read) {
+                                handleSocketError();
+                                return null;
+                            }
+                        } catch (IOException e) {
+                            handleSocketError();
+                            return null;
+                        }
+                        break;
+                    }
+                    default:
+                        break;
+                }
+            }
+
+            if (failed) {
+                return null;
+            }
+            if (reader.isACK() || null == data) {
+                // No file available (readpicture answers only OK without a picture)
+                return null;
+            }
+            if (chunkSize == 0) {
+                // No progress, avoid requesting the same chunk forever
+                return null;
+            }
+            offset += chunkSize;
+        } while (offset < data.length && isConnected());
+
+        return offset == data.length ? data : null;
+    }
+
+
+    /**
+     * Sends all commands of the pipeline at once in one command list (command_list_ok_begin).
+     * The responses are separated by "list_OK" and parsed into the commands of the pipeline,
+     * so every command gets its own result or error.
+     * <p/>
+     * MPD stops executing the command list on the first error. All commands after the failed one
+     * are marked as failed as well.
+     *
+     * @param pipeline Pipeline containing the commands to execute.
+     * @return True if all commands were successful, false otherwise.
+     */
+    public synchronized boolean executePipeline(MPDCommandPipeline pipeline) {
+        List<MPDCommandPipeline.PipelinedCommand<?>> commands = pipeline.getCommands();
+        if (commands.isEmpty()) {
+            return true;
+        }
+
+        // Send the complete command list with one write, this saves the round trips.
+        StringBuilder commandList = new StringBuilder(MPDCommands.MPD_START_COMMAND_LIST_OK);
+        for (MPDCommandPipeline.PipelinedCommand<?> command : commands) {
+            commandList.append('\n').append(command.getCommand());
+        }
+        commandList.append('\n').append(MPDCommands.MPD_END_COMMAND_LIST);
+        sendMPDCommand(commandList.toString());
+
+        MPDResponseReader reader = pReader;
+        int commandIndex = 0;
+        boolean invalidResponse = false;
+        try {
+            while (commandIndex < commands.size() && isConnected()) {
+                MPDCommandPipeline.PipelinedCommand<?> command = commands.get(commandIndex);
+                Object result = null;
+
+                /* Parse the part of the response that belongs to this command */
+                switch (command.getResponseType()) {
+                    case RESPONSE_STATUS:
+                        result = parseMPDCurrentStatus();
+                        break;
+                    case RESPONSE_CURRENT_SONG:
+                        List<MPDFileEntry> currentSong = parseMPDTracks("", "");
+                        if (currentSong.size() == 1) {
+                            result = currentSong.get(0);
+                        }
+                        break;
+                    case RESPONSE_FILE_LIST:
+                        result = parseMPDTracks("", "");
+                        break;
+                    case RESPONSE_SONG_COUNT:
+                        int songs = parseSongCount(reader);
+                        if (songs != MPDResponseReader.INVALID_NUMBER) {
+                            result = songs;
+                        }
+                        break;
+                    default:
+                        while (readResponseLine(reader) && !reader.isResponseEnd()) {
+                            // Simple commands do not return data, skip to the list_OK
+                        }
+                        break;
+                }
+
+                if (!isConnected()) {
+                    break;
+                }
+
+                commandIndex++;
+                if (reader.isACK()) {
+                    // The command failed and MPD aborted the command list.
+                    printDebug("Server response error: " + reader.getLine());
+                    command.setError(reader.getLine());
+                    break;
+                }
+                if (null == result && command.getResponseType() == MPDCommandPipeline.RESPONSE_TYPE.RESPONSE_SONG_COUNT) {
+                    // MPD executed the command, but its response is unusable. The following
+                    // responses are still read, so the reader stays in sync.
+                    command.setError(PIPELINE_COMMAND_INVALID_RESPONSE);
+                    invalidResponse = true;
+                    continue;
+                }
+                command.setResult(result);
+            }
+        } catch (IOException e) {
+            handleSocketError();
+        }
+
+        // The command list is only finished with OK if the last command did not fail with ACK
+        boolean completed = commandIndex == commands.size() && (commands.get(commandIndex - 1).isSuccessful()
+                || PIPELINE_COMMAND_INVALID_RESPONSE.equals(commands.get(commandIndex - 1).getError()));
+        if (completed) {
+            // Read the final OK of the command list
+            readResponseLine(reader);
+        }
+
+        // Mark all commands that were not executed
+        for (; commandIndex < commands.size(); commandIndex++) {
+            commands.get(commandIndex).setError(PIPELINE_COMMAND_NOT_EXECUTED);
+        }
+
+        startIdleWait();
+        // The results of a cancelled pipeline are incomplete
+        return completed && !invalidResponse && !isRequestCancelled();
+    }
+
+    /**
+     * Parses the response of a count command (count, searchcount) up to its end.
+     *
+     * @param reader Reader of the socket
+     * @return Number of songs or {@link MPDResponseReader#INVALID_NUMBER} if the response
+     * contains no valid number
+     */
+    private int parseSongCount(MPDResponseReader reader) {
+        int songs = MPDResponseReader.INVALID_NUMBER;
+        while (readResponseLine(reader) && !reader.isResponseEnd()) {
+            if (reader.getKey() == MPDResponseReader.RESPONSE_KEY.KEY_SONGS) {
+                songs = reader.getIntValue();
+            }
+        }
+        return songs;
+    }
+
+    /*
+     ***********************
+     *    Control commands *
+     ***********************
+     */
+
+    /**
+     * Sends the pause commando to MPD.
+     *
+     * @param pause 1 if playback should be paused, 0 if resumed
+     * @return
+     */
+    public synchronized boolean pause(boolean pause) {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_PAUSE(pause));
+
+    /* Return the response value of MPD */
+        try {
+            return checkResponse();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Jumps to the next song
+     *
+     * @return true if successful, false otherwise
+     */
+    public synchronized boolean nextSong() {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_NEXT);
+
+    /* Return the response value of MPD */
+        try {
+            return checkResponse();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Jumps to the previous song
+     *
+     * @return true if successful, false otherwise
+     */
+    public synchronized boolean previousSong() {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_PREVIOUS);
+
+    /* Return the response value of MPD */
+        try {
+            return checkResponse();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Stops playback
+     *
+     * @return true if successful, false otherwise
+     */
+    public synchronized boolean stopPlayback() {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_STOP);
+
+    /* Return the response value of MPD */
+        try {
+            return checkResponse();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Sets random to true or false
+     *
+     * @param random If random should be set (true) or not (false)
+     * @return True if server responed with ok
+     */
+    public synchronized boolean setRandom(boolean random) {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_SET_RANDOM(random));
+
+    /* Return the response value of MPD */
+        try {
+            return checkResponse();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Sets repeat to true or false
+     *
+     * @param repeat If repeat should be set (true) or not (false)
+     * @return True if server responed with ok
+     */
+    public synchronized boolean setRepeat(boolean repeat) {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_SET_REPEAT(repeat));
+
+    /* Return the response value of MPD */
+        try {
+            return checkResponse();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Sets single playback to enable (true) or disabled (false)
+     *
+     * @param single if single playback should be enabled or not.
+     * @return True if server responed with ok
+     */
+    public synchronized boolean setSingle(boolean single) {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_SET_SINGLE(single));
+
+    /* Return the response value of MPD */
+        try {
+            return checkResponse();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Sets if files should be removed after playback (consumed)
+     *
+     * @param consume True if yes and false if not.
+     * @return True if server responed with ok
+     */
+    public synchronized boolean setConsume(boolean consume) {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_SET_CONSUME(consume));
+
+    /* Return the response value of MPD */
+        try {
+            return checkResponse();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Plays the song with the index in the current playlist.
+     *
+     * @param index Index of the song that should be played.
+     * @return True if server responed with ok
+     */
+    public synchronized boolean playSongIndex(int index) {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_PLAY_SONG_INDEX(index));
+
+    /* Return the response value of MPD */
+        try {
+            return checkResponse();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Seeks the currently playing song to a certain position
+     *
+     * @param seconds Position in seconds to which a seek is requested to.
+     * @return True if server responed with ok
+     */
+    public synchronized boolean seekSeconds(int seconds) {
+        MPDCurrentStatus status = null;
+        status = getCurrentServerStatus();
+
+
+        sendMPDCommand(MPDCommands.MPD_COMMAND_SEEK_SECONDS(status.getCurrentSongIndex(), seconds));
+
+    /* Return the response value of MPD */
+        try {
+            return checkResponse();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Sets the volume of the mpd servers output. It is an absolute value between (0-100).
+     *
+     * @param volume Volume to set to the server.
+     * @return True if server responed with ok
+     */
+    public synchronized boolean setVolume(int volume) {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_SET_VOLUME(volume));
+
+    /* Return the response value of MPD */
+        try {
+            return checkResponse();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /*
+     ***********************
+     *    Queue commands   *
+     ***********************
+     */
+
+    /**
+     * This method adds songs in a bulk command list. Should be reasonably in performance this way.
+     *
+     * @param tracks List of MPDFileEntry objects to add to the current playlist.
+     * @return True if server responed with ok
+     */
+    public synchronized boolean addTrackList(List<MPDFileEntry> tracks) {
+        if (null == tracks) {
+            return false;
+        }
+        startCommandList();
+
+        for (MPDFileEntry track : tracks) {
+            if (track instanceof MPDFile) {
+                sendMPDRAWCommand(MPDCommands.MPD_COMMAND_ADD_FILE(track.getPath()));
+            }
+        }
+        endCommandList();
+
+    /* Return the response value of MPD */
+        try {
+            return checkResponse();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * This method adds songs to a saved playlist in a bulk command list.
+     *
+     * @param playlistName Name of the saved playlist to add the tracks to.
+     * @param tracks       List of MPDFileEntry objects to add to the saved playlist.
+     * @return True if server responed with ok
+     */
+    public synchronized boolean addTrackListToPlaylist(String playlistName, List<MPDFileEntry> tracks) {
+        if (null == tracks) {
+            return false;
+        }
+        startCommandList();
+
+        for (MPDFileEntry track : tracks) {
+            if (track instanceof MPDFile) {
+                sendMPDRAWCommand(MPDCommands.MPD_COMMAND_ADD_TRACK_TO_PLAYLIST(playlistName, track.getPath()));
+            }
+        }
+        endCommandList();
+
+        try {
+            return checkResponse();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Adds all tracks from a certain album from artistname to the current playlist.
+     *
+     * @param albumname  Name of the album to add to the current playlist.
+     * @param artistname Name of the artist of the album to add to the list. This
+     *                   allows filtering of album tracks to a specified artist. Can also
+     *                   be left empty then all tracks from the album will be added.
+     * @return True if server responed with ok
+     */
+    public synchronized boolean addAlbumTracks(String albumname, String artistname, String mbid) {
+        return mEnqueueEngine.addAlbumTracks(albumname, artistname, mbid);
+    }
+
+    /**
+     * Adds all tracks of an artist to the current playlist. A track is added if artistname is
+     * either its artist or its album artist.
+     *
+     * @param artistname Name of the artist to enqueue the tracks from.
+     * @return True if server responed with ok
+     */
+    public synchronized boolean addArtist(String artistname) {
+        return mEnqueueEngine.addArtist(artistname);
+    }
+
+    /**
+     * Adds a single File/Directory to the current playlist.
+     *
+     * @param url URL of the file or directory! to add to the current playlist.
+     * @return True if server responed with ok
+     */
+    public synchronized boolean addSong(String url) {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_ADD_FILE(url));
+
+    /* Return the response value of MPD */
+        try {
+            return checkResponse();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * This method adds a song to a specified positiion in the current playlist.
+     * This allows GUI developers to implement a method like "add after current".
+     *
+     * @param url   URL to add to the playlist.
+     * @param index Index at which the item should be added.
+     * @return True if server responed with ok
+     */
+    public synchronized boolean addSongatIndex(String url, int index) {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_ADD_FILE_AT_INDEX(url, index));
+
+    /* Return the response value of MPD */
+        try {
+            return checkResponse();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Adds files to the playlist with a search term for a specific type
+     *
+     * @param term The search term to use
+     * @param type The type of items to search
+     * @return True if server responed with ok
+     */
+    public synchronized boolean addSearchedFiles(String term, MPDCommands.MPD_SEARCH_TYPE type) {
+        return mEnqueueEngine.addSearchedFiles(term, type);
+    }
+
+    /**
+     * Adds files to a saved playlist with a search term for a specific type
+     *
+     * @param playlistName Name of the saved playlist
+     * @param term         The search term to use
+     * @param type         The type of items to search
+     * @return True if server responed with ok
+     */
+    public synchronized boolean addSearchedFilesToPlaylist(String playlistName, String term, MPDCommands.MPD_SEARCH_TYPE type) {
+        return mEnqueueEngine.addSearchedFilesToPlaylist(playlistName, term, type);
+    }
+
+    /**
+     * Instructs the mpd server to clear its current playlist.
+     *
+     * @return True if server responed with ok
+     */
+    public synchronized boolean clearPlaylist() {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_CLEAR_PLAYLIST);
+    /* Return the response value of MPD */
+        try {
+            return checkResponse();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Instructs the mpd server to remove one item from the current playlist at index.
+     *
+     * @param index Position of the item to remove from current playlist.
+     * @return True if server responed with ok
+     */
+    public synchronized boolean removeIndex(int index) {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_REMOVE_SONG_FROM_CURRENT_PLAYLIST(index));
+    /* Return the response value of MPD */
+        try {
+            return checkResponse();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Moves one item from an index in the current playlist to an new index. This allows to move
+     * tracks for example after the current to priotize songs.
+     *
+     * @param from Item to move from.
+     * @param to   Position to enter item
+     * @return
+     */
+    public synchronized boolean moveSongFromTo(int from, int to) {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_MOVE_SONG_FROM_INDEX_TO_INDEX(from, to));
+    /* Return the response value of MPD */
+        try {
+            return checkResponse();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Saves the current playlist as a new playlist with a name.
+     *
+     * @param name Name of the playlist to save to.
+     * @return True if server responed with ok
+     */
+    public synchronized boolean savePlaylist(String name) {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_SAVE_PLAYLIST(name));
+
+    /* Return the response value of MPD */
+        try {
+            return checkResponse();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Adds a song to the saved playlist
+     *
+     * @param playlistName Name of the playlist to add the url to.
+     * @param url          URL to add to the saved playlist
+     * @return True if server responed with ok
+     */
+    public synchronized boolean addSongToPlaylist(String playlistName, String url) {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_ADD_TRACK_TO_PLAYLIST(playlistName, url));
+
+    /* Return the response value of MPD */
+        try {
+            return checkResponse();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Removes a song from a saved playlist
+     *
+     * @param playlistName Name of the playlist of which the song should be removed from
+     * @param position     Index of the song to remove from the lits
+     * @return
+     */
+    public synchronized boolean removeSongFromPlaylist(String playlistName, int position) {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_REMOVE_TRACK_FROM_PLAYLIST(playlistName, position));
+
+        /* Return the response value of MPD */
+        try {
+            return checkResponse();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Removes a saved playlist from the servers database.
+     *
+     * @param name Name of the playlist to remove.
+     * @return True if server responed with ok
+     */
+    public synchronized boolean removePlaylist(String name) {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_REMOVE_PLAYLIST(name));
+
+    /* Return the response value of MPD */
+        try {
+            return checkResponse();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Loads a saved playlist (added after the last song) to the current playlist.
+     *
+     * @param name Of the playlist to add to.
+     * @return True if server responed with ok
+     */
+    public synchronized boolean loadPlaylist(String name) {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_LOAD_PLAYLIST(name));
+
+    /* Return the response value of MPD */
+        try {
+            return checkResponse();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Private parsing method for MPDs output lists.
+     *
+     * @return A list of MPDOutput objects with name,active,id values if successful. Otherwise empty list.
+     * @throws IOException
+     */
+    private List<MPDOutput> parseMPDOutputs() throws IOException {
+        ArrayList<MPDOutput> outputList = new ArrayList<>();
+        // Parse outputs
+        String outputName = null;
+        boolean outputActive = false;
+        int outputId = -1;
+
+        if (!isConnected()) {
+            return null;
+        }
+
+        /* Response line from MPD */
+        String response = readLine();
+        while (isConnected() && response != null && !response.startsWith("OK") && !response.startsWith("ACK")) {
+            if (response.startsWith(MPDResponses.MPD_OUTPUT_ID)) {
+                if (null != outputName) {
+                    MPDOutput tempOutput = new MPDOutput(outputName, outputActive, outputId);
+                    outputList.add(tempOutput);
+                }
+                outputId = Integer.valueOf(response.substring(MPDResponses.MPD_OUTPUT_ID.length()));
+            } else if (response.startsWith(MPDResponses.MPD_OUTPUT_NAME)) {
+                outputName = response.substring(MPDResponses.MPD_OUTPUT_NAME.length());
+            } else if (response.startsWith(MPDResponses.MPD_OUTPUT_ACTIVE)) {
+                String activeRespsonse = response.substring(MPDResponses.MPD_OUTPUT_ACTIVE.length());
+                if (activeRespsonse.equals("1")) {
+                    outputActive = true;
+                } else {
+                    outputActive = false;
+                }
+            }
+            response = readLine();
+        }
+
+        // Add remaining output to list
+        if (null != outputName) {
+            MPDOutput tempOutput = new MPDOutput(outputName, outputActive, outputId);
+            outputList.add(tempOutput);
+        }
+
+        return outputList;
+
+    }
+
+    /**
+     * Private parsing method for MPDs command list
+     *
+     * @return A list of Strings of commands that are allowed on the server
+     * @throws IOException
+     */
+    private List<String> parseMPDCommands() throws IOException {
+        ArrayList<String> commandList = new ArrayList<>();
+        // Parse outputs
+        String commandName = null;
+        if (!isConnected()) {
+            return commandList;
+        }
+
+        /* Response line from MPD */
+        String response = readLine();
+        while (isConnected() && response != null && !response.startsWith("OK") && !response.startsWith("ACK")) {
+            if (response.startsWith(MPDResponses.MPD_COMMAND)) {
+                commandName = response.substring(MPDResponses.MPD_COMMAND.length());
+                commandList.add(commandName);
+            }
+            response = readLine();
+        }
+        printDebug("Command list length: " + commandList.size());
+        return commandList;
+
+    }
+
+    /**
+     * Parses the response of MPDs supported tag types
+     *
+     * @return List of tags supported by the connected MPD host
+     * @throws IOException
+     */
+    private List<String> parseMPDTagTypes() throws IOException {
+        ArrayList<String> tagList = new ArrayList<>();
+        // Parse outputs
+        String tagName = null;
+        if (!isConnected()) {
+            return tagList;
+        }
+
+        /* Response line from MPD */
+        String response = readLine();
+        while (isConnected() && response != null && !response.startsWith("OK") && !response.startsWith("ACK")) {
+            if (response.startsWith(MPDResponses.MPD_TAGTYPE)) {
+                tagName = response.substring(MPDResponses.MPD_TAGTYPE.length());
+                tagList.add(tagName);
+            }
+            response = readLine();
+        }
+
+        return tagList;
+
+    }
+
+    /**
+     * Returns the list of MPDOutputs to the outside callers.
+     *
+     * @return List of MPDOutput objects or null in case of error.
+     */
+    public List<MPDOutput> getOutputs() {
+        synchronized (this) {
+            sendMPDCommand(MPDCommands.MPD_COMMAND_GET_OUTPUTS);
+
+            try {
+                return parseMPDOutputs();
+            } catch (IOException e) {
+                handleSocketError();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Toggles the state of the output with the id.
+     *
+     * @param id Id of the output to toggle (active/deactive)
+     * @return True if server responed with ok
+     */
+    public synchronized boolean toggleOutput(int id) {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_TOGGLE_OUTPUT(id));
+
+        /* Return the response value of MPD */
+        try {
+            return checkResponse();
+        } catch (IOException e) {
+            handleSocketError();
+        }
+        return false;
+    }
+
+    /**
+     * Instructs to update the database of the mpd server (path: / )
+     *
+     * @return True if server responed with ok
+     */
+    public synchronized boolean updateDatabase() {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_UPDATE_DATABASE);
+
+        /* Return the response value of MPD */
+        try {
+            return checkResponse();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+
+    }
+
+
+    /**
+     * Checks if the socket is ready for read operations
+     *
+     * @return True if ready
+     * @throws IOException
+     */
+    private boolean readyRead() throws IOException {
+        return (null != pSocket) && (null != pReader) && pSocket.isConnected() && pReader.ready();
+    }
+
+    /**
+     * Will notify a connected listener that the connection is now ready to be used.
+     */
+    private void notifyConnected() {
+        for ( MPDConnectionStateChangeListener listener: pStateListeners ) {
+            listener.onConnected();
+        }
+    }
+
+    /**
+     * Will notify a connected listener that the connection is disconnect and not ready for use.
+     */
+    private void notifyDisconnect() {
+        for ( MPDConnectionStateChangeListener listener: pStateListeners ) {
+            listener.onDisconnected();
+        }
+    }
+
+    /**
+     * Registers a listener to be notified about connection state changes
+     *
+     * @param listener Listener to be connected
+     */
+    public void setStateListener(MPDConnectionStateChangeListener listener) {
+        pStateListeners.add(listener);
+    }
+
+    /**
+     * Registers a listener to be notified about changes in idle state of this connection.
+     *
+     * @param listener
+     */
+    public void setpIdleListener(MPDConnectionIdleChangeListener listener) {
+        pIdleListeners.add(listener);
+    }
+
+    /**
+     * Interface to used to be informed about connection state changes.
+     */
+    public interface MPDConnectionStateChangeListener {
+        void onConnected();
+
+        void onDisconnected();
+    }
+
+    /**
+     * Interface to be used to be informed about connection idle state changes.
+     */
+    public interface MPDConnectionIdleChangeListener {
+        void onIdle();
+
+        /**
+         * Called when the idle state is over.
+         *
+         * @param changedSubsystems Subsystems reported as changed by the server. Empty if the idle
+         *                          state was stopped by this connection to send a command.
+         */
+        void onNonIdle(Set<MPDCommands.MPD_IDLE_SUBSYSTEM> changedSubsystems);
+    }
+
+    /**
+     * Interface for a persistent cache of the server capabilities. Implementations are
+     * responsible to only return capabilities of the server that is currently used.
+     */
+    public interface MPDCapabilityCache {
+        /**
+         * @param version Version string of the server from the greeting message
+         * @return The cached capabilities or null if none are cached for this version
+         */
+        MPDCapabilities getCapabilities(String version);
+
+        /**
+         * @param capabilities Capabilities that were requested from the server
+         */
+        void putCapabilities(MPDCapabilities capabilities);
+    }
+
+    /**
+     * Interface to receive large file lists in chunks while they are parsed.
+     */
+    public interface MPDFileListChunkListener {
+        /**
+         * Called with the next chunk of the response. The list is not used by the connection afterwards.
+         *
+         * @param chunk List of parsed entries
+         * @param start Position of the first entry of this chunk within the complete response
+         * @param end   Position after the last entry of this chunk
+         */
+        void onFileListChunk(List<MPDFileEntry> chunk, int start, int end);
+    }
+
+
+    /**
+     * This method should only be used by the idling mechanism.
+     * It buffers the read line so that the deidle method can check if deidling was successful.
+     * To guarantee predictable execution order, the buffer is secured by a semaphore. This ensures,
+     * that the read of this waiting thread is always finished before the other handler thread tries
+     * to read it.
+     *
+     * @return
+     */
+    private String waitForIdleResponse() {
+        if (null != pReader) {
+
+            printDebug("Waiting for input from server");
+            // Set thread to sleep, because there should be no line available to read.
+            String response = readLine();
+            return response;
+        }
+        return "";
+    }
+
+    /**
+     * Simple private thread class used for handling the idling of MPD.
+     * If no line is ready to read, it will suspend itself (blocking readLine() call).
+     * If suddenly a line is ready to read it can mean two things:
+     * 1. A deidling request notified the server to quit idling.
+     * 2. A change in the MPDs internal state changed and the status of this client needs updating.
+     */
+    private class IdleThread extends Thread {
+        @Override
+        public void run() {
+            /* Try to read here. This should block this separate thread because
+               readLine() inside waitForIdleResponse is blocking.
+               If the response was not "OK" it means idling was stopped by us.
+               If the response starts with "changed" we know, that the MPD state was altered from somewhere
+               else and we need to update our status.
+             */
+            boolean externalDeIdle = false;
+
+            // This will block this thread until the server has some data available to read again.
+            String response = waitForIdleResponse();
+
+            printDebug("Idle over with response: " + response);
+
+            // This happens when disconnected
+            if (null == response || response.isEmpty()) {
+                printDebug("Probably disconnected during idling");
+                // First handle the disconnect, then allow further action
+                handleSocketError();
+
+                // Release the idle mode
+                mIdleWaitLock.release();
+                return;
+            }
+            /**
+             * At this position idling is over. Check if we were the reason to deidle or if the
+             * server initiated the deidling. If it was done by the server we will trigger
+             * the idle again.
+             */
+            EnumSet<MPDCommands.MPD_IDLE_SUBSYSTEM> changedSubsystems = EnumSet.noneOf(MPDCommands.MPD_IDLE_SUBSYSTEM.class);
+            if (response.startsWith(MPDResponses.MPD_RESPONSE_CHANGED)) {
+                printDebug("Externally deidled!");
+                externalDeIdle = true;
+                // Collect all changed subsystems. The list is terminated by the OK of the idle command.
+                while (null != response && response.startsWith(MPDResponses.MPD_RESPONSE_CHANGED)) {
+                    MPDCommands.MPD_IDLE_SUBSYSTEM subsystem = MPDCommands.MPD_IDLE_SUBSYSTEM.fromName(response.substring(MPDResponses.MPD_RESPONSE_CHANGED.length()));
+                    if (null != subsystem) {
+                        changedSubsystems.add(subsystem);
+                    }
+                    response = readLine();
+                }
+                if (null != response && response.startsWith(MPDResponses.MPD_RESPONSE_ACK)) {
+                    printDebug("Server response error: " + response);
+                } else {
+                    printDebug("Deidled with status ok, changed: " + changedSubsystems);
+                }
+            } else {
+                printDebug("Deidled on purpose");
+            }
+            // Set the connection as non-idle again.
+            pMPDConnectionIdle = false;
+
+            // Reset the timeout again
+            try {
+                if (pSocket != null) {
+                    pSocket.setSoTimeout(SOCKET_TIMEOUT);
+                }
+            } catch (SocketException e) {
+                handleSocketError();
+            }
+
+            // Release the lock for possible threads waiting from outside this idling thread (handler thread).
+            mIdleWaitLock.release();
+
+            // Notify a possible listener for deidling.
+            for ( MPDConnectionIdleChangeListener listener: pIdleListeners) {
+                listener.onNonIdle(changedSubsystems);
+            }
+            printDebug("Idling over");
+
+            // Start the idle clock again, but only if we were deidled from the server. Otherwise we let the
+            // active command deidle when finished.
+            if (externalDeIdle) {
+                startIdleWait();
+            }
+        }
+    }
+
+
+    /**
+     * This will start the timeout to set the connection tto the idle state after use.
+     */
+    private synchronized void startIdleWait() {
+        /**
+         * Check if a timer was running and then remove it.
+         * This will reset the timeout.
+         */
+        if (null != mIdleWait) {
+            mIdleWait.cancel();
+            mIdleWait.purge();
+        }
+        // Start the new timer with a new Idle Task.
+        mIdleWait = new Timer();
+        mIdleWait.schedule(new IdleWaitTimeoutTask(), IDLE_WAIT_TIME);
+        printDebug("IdleWait scheduled");
+        printStackTrace();
+    }
+
+    /**
+     * This will stop a potential running timeout task.
+     */
+    private synchronized void stopIdleWait() {
+        if (null != mIdleWait) {
+            mIdleWait.cancel();
+            mIdleWait.purge();
+            mIdleWait = null;
+        }
+        printDebug("IdleWait terminated");
+    }
+
+    /**
+     * Task that will trigger the idle state of this MPDConnection.
+     */
+    private class IdleWaitTimeoutTask extends TimerTask {
+
+        @Override
+        public void run() {
+            startIdleing();
+        }
+    }
+
+    /**
+     * Sets the token of the requests that are executed next. If the token is cancelled, the
+     * responses are skipped and the requests return incomplete (usually empty) results or fail.
+     * <p/>
+     * The token applies to all requests of this connection, so the caller has to hold the lock
+     * of the connection until the token is reset:
+     * <pre>
+     * synchronized (connection) {
+     *     connection.setCancellationToken(token);
+     *     try {
+     *         albums = connection.getAlbums();
+     *     } finally {
+     *         connection.setCancellationToken(null);
+     *     }
+     * }
+     * </pre>
+     *
+     * @param token Token of the following requests, null if they can not be cancelled
+     */
+    public void setCancellationToken(MPDCancellationToken token) {
+        mCancellationToken = token;
+    }
+
+    /**
+     * @return True if the response of the last request ended with OK and was not skipped
+     * because the request was cancelled
+     */
+    private boolean isResponseComplete() {
+        return isConnected() && !pReader.isACK() && !isRequestCancelled();
+    }
+
+    /**
+     * @return True if the token of the current request was cancelled
+     */
+    private boolean isRequestCancelled() {
+        MPDCancellationToken token = mCancellationToken;
+        return null != token && token.isCancelled();
+    }
+
+    /**
+     * Sets the subsystems this connection waits for while idling. Changes of other subsystems
+     * do not wake up this connection. Takes effect with the next idle command.
+     *
+     * @param subsystems Subsystems to wait for. Null or empty to wait for all subsystems.
+     */
+    public synchronized void setIdleSubsystems(Set<MPDCommands.MPD_IDLE_SUBSYSTEM> subsystems) {
+        mIdleSubsystems = (null == subsystems || subsystems.isEmpty()) ? null : EnumSet.copyOf(subsystems);
+    }
+
+    public void setID(String id) {
+        mID = id;
+    }
+
+    /**
+     * Starts the measurement of a command for the {@link MPDCommandMetrics}.
+     *
+     * @param command Command that is sent. Only the verb is used for the statistics.
+     */
+    private void startCommandMetrics(String command) {
+        if (null == pReader) {
+            return;
+        }
+        int verbEnd = 0;
+        while (verbEnd < command.length() && command.charAt(verbEnd) != ' ' && command.charAt(verbEnd) != '\n') {
+            verbEnd++;
+        }
+        mMetricsCommand = command.substring(0, verbEnd);
+        mMetricsStartBytes = pReader.getBytesRead();
+        mMetricsStartLines = pReader.getLinesRead();
+        mMetricsStartSongs = pReader.getSongsRead();
+        mMetricsStartReadNanos = pReader.getReadNanos();
+        mMetricsStartNanos = System.nanoTime();
+        mMetricsFirstByteNanos = 0;
+    }
+
+    /**
+     * Finishes the measurement of the current command after its last line (OK/ACK) was read.
+     *
+     * @param error True if the server answered with ACK
+     */
+    private void finishCommandMetrics(boolean error) {
+        if (null == mMetricsCommand || null == pReader) {
+            return;
+        }
+        long now = System.nanoTime();
+        long lastLineNanos = now - mMetricsStartNanos;
+        long firstByteNanos = (mMetricsFirstByteNanos == 0 ? now : mMetricsFirstByteNanos) - mMetricsStartNanos;
+        long readNanos = pReader.getReadNanos() - mMetricsStartReadNanos;
+
+        MPDCommandMetrics.getInstance().recordCommand(mMetricsCommand, firstByteNanos, lastLineNanos,
+                Math.max(0, lastLineNanos - readNanos), pReader.getBytesRead() - mMetricsStartBytes,
+                pReader.getLinesRead() - mMetricsStartLines, pReader.getSongsRead() - mMetricsStartSongs, error);
+        mMetricsCommand = null;
+    }
+
+    /**
+     * Central method to read a line from the sockets reader
+     * @return The read string. null if no data is available.
+     */
+    private String readLine() {
+        if (pReader != null) {
+            try {
+                String line = pReader.readLine();
+                //printDebug("Read line: " + line);
+                if (null != line && pReader.isFinalResponseLine()) {
+                    finishCommandMetrics(line.startsWith(MPDResponses.MPD_RESPONSE_ACK));
+                }
+                return line;
+            } catch (IOException e) {
+                handleSocketError();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Central method to read a response line (key: value) with the sockets reader.
+     * @param reader Reader of the socket. The caller keeps it, so that it can access the parsed line.
+     * @return True if a line was read, false otherwise.
+     */
+    private boolean readResponseLine(MPDResponseReader reader) {
+        if (reader != null) {
+            try {
+                // Nobody waits for the response of a cancelled request, skip to its end
+                boolean read = isRequestCancelled() ? reader.skipResponse() : reader.readResponseLine();
+                if (read && reader.isFinalResponseLine()) {
+                    finishCommandMetrics(reader.isACK());
+                }
+                return read;
+            } catch (IOException e) {
+                handleSocketError();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Central method to write a line to the sockets writer. Socket will be flushed afterwards
+     * to ensure that the string is sent.
+     * @param line String to write to the socket.
+     */
+    private void writeLine(String line) {
+        if (pWriter != null) {
+            if (null != mSessionRecorder) {
+                mSessionRecorder.recordCommand(line);
+            }
+            // MPD ends lines with '\n', println() would use the line separator of the platform
+            pWriter.print(line);
+            pWriter.print('\n');
+            pWriter.flush();
+            printDebug("Write line: " + line);
+        }
+    }
+
+    private void stopSessionRecording() {
+        if (null != mSessionRecorder) {
+            mSessionRecorder.close();
+            mSessionRecorder = null;
+        }
+    }
+
+    private void printDebug(String debug) {
+        if (!DEBUG_ENABLED) {
+            return;
+        }
+
+        MPDLog.v(TAG, mID + ':' + Thread.currentThread().getId() + ':' + "Idle:" + pMPDConnectionIdle + ':' + debug);
+    }
+
+    private void printStackTrace() {
+        StackTraceElement[] st = new Exception().getStackTrace();
+        for (StackTraceElement el : st) {
+            printDebug(el.toString());
+        }
+    }
+}
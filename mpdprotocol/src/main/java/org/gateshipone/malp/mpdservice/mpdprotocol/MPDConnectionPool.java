@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Holds the MPDConnection objects used by the handlers, keyed by their role.
+ * <p/>
+ * Each role gets its own socket so that a long running query (e.g. "listallinfo") does not
+ * block a short control command (e.g. "pause") behind the synchronized methods of one shared
+ * connection. Queries are spread over multiple query connections, so that independent views
+ * (e.g. albums and artists tab) can load in parallel.
+ * <p/>
+ * The pool itself is managed by the ConnectionManager, which sets the server parameters
+ * and triggers the (dis-)connects of all lanes.
+ */
+public class MPDConnectionPool {
+
+    /**
+     * Roles of the connections held by this pool.
+     */
+    public enum CONNECTION_ROLE {
+        // Short playback commands (play, pause, volume, ...)
+        ROLE_CONTROL,
+        // Status monitoring connection (idle, status, currentsong)
+        ROLE_STATUS,
+        // Database and playlist queries
+        ROLE_QUERY,
+        // Cover images, which can transfer a lot of binary data
+        ROLE_ARTWORK
+    }
+
+    /**
+     * Number of parallel connections used for queries.
+     */
+    public static final int QUERY_CONNECTION_COUNT = 2;
+
+    /**
+     * Tags that are read from song responses. The server does not need to send any other tags.
+     */
+    private static final List<String> TRACK_TAGS = Arrays.asList(MPDCommands.MPD_TAG_ARTIST,
+            MPDCommands.MPD_TAG_ALBUM_ARTIST, MPDCommands.MPD_TAG_ALBUM, MPDCommands.MPD_TAG_TITLE,
+            MPDCommands.MPD_TAG_TRACK, MPDCommands.MPD_TAG_DISC, MPDCommands.MPD_TAG_DATE,
+            MPDCommands.MPD_TAG_ARTIST_MBID, MPDCommands.MPD_TAG_ALBUM_MBID,
+            MPDCommands.MPD_TAG_ALBUM_ARTIST_MBID, MPDCommands.MPD_TAG_TRACK_MBID);
+
+    /**
+     * The artwork connection only looks up the path of an album track.
+     */
+    private static final List<String> ARTWORK_TAGS = Arrays.asList(MPDCommands.MPD_TAG_ARTIST,
+            MPDCommands.MPD_TAG_ALBUM_ARTIST, MPDCommands.MPD_TAG_ALBUM, MPDCommands.MPD_TAG_ALBUM_MBID);
+
+    private static MPDConnectionPool mInstance;
+
+    private final MPDConnection mControlConnection;
+
+    private final MPDConnection mStatusConnection;
+
+    private final MPDConnection[] mQueryConnections;
+
+    private final MPDConnection mArtworkConnection;
+
+    public static synchronized MPDConnectionPool getInstance() {
+        if (null == mInstance) {
+            mInstance = new MPDConnectionPool();
+        }
+        return mInstance;
+    }
+
+    private MPDConnectionPool() {
+        // Only the status connection is interested in changes. The other connections only idle
+        // to keep the connection alive, so they should not be woken up by every change.
+        Set<MPDCommands.MPD_IDLE_SUBSYSTEM> quietSubsystems = EnumSet.of(MPDCommands.MPD_IDLE_SUBSYSTEM.MPD_IDLE_SUBSYSTEM_DATABASE);
+
+        mControlConnection = new MPDConnection("Command");
+        mControlConnection.setIdleSubsystems(quietSubsystems);
+        mControlConnection.setTagTypes(TRACK_TAGS);
+
+        mStatusConnection = new MPDConnection("Status");
+        mStatusConnection.setIdleSubsystems(EnumSet.allOf(MPDCommands.MPD_IDLE_SUBSYSTEM.class));
+        mStatusConnection.setTagTypes(TRACK_TAGS);
+
+        mQueryConnections = new MPDConnection[QUERY_CONNECTION_COUNT];
+        for (int i = 0; i < QUERY_CONNECTION_COUNT; i++) {
+            mQueryConnections[i] = new MPDConnection("Query" + i);
+            mQueryConnections[i].setIdleSubsystems(quietSubsystems);
+            mQueryConnections[i].setTagTypes(TRACK_TAGS);
+        }
+
+        mArtworkConnection = new MPDConnection("Artwork");
+        mArtworkConnection.setIdleSubsystems(quietSubsystems);
+        mArtworkConnection.setTagTypes(ARTWORK_TAGS);
+    }
+
+    /**
+     * Returns the first connection of the given role.
+     *
+     * @param role Role of the connection
+     * @return The MPDConnection object for this role
+     */
+    public MPDConnection getConnection(CONNECTION_ROLE role) {
+        return getConnection(role, 0);
+    }
+
+    /**
+     * Returns the connection of a role for a specific lane.
+     *
+     * @param role Role of the connection
+     * @param lane Index of the lane, only relevant for roles with more than one connection.
+     * @return The MPDConnection object for this role and lane
+     */
+    public MPDConnection getConnection(CONNECTION_ROLE role, int lane) {
+        switch (role) {
+            case ROLE_CONTROL:
+                return mControlConnection;
+            case ROLE_STATUS:
+                return mStatusConnection;
+            case ROLE_QUERY:
+                return mQueryConnections[lane];
+            case ROLE_ARTWORK:
+                return mArtworkConnection;
+        }
+        return null;
+    }
+
+    /**
+     * @param role Role to get the number of connections for
+     * @return The number of connections available for this role
+     */
+    public int getLaneCount(CONNECTION_ROLE role) {
+        if (role == CONNECTION_ROLE.ROLE_QUERY) {
+            return QUERY_CONNECTION_COUNT;
+        }
+        return 1;
+    }
+
+    /**
+     * Sets the server parameters for all connections of this pool. The connections still need
+     * to be connected afterwards.
+     *
+     * @param hostname Hostname to connect to. Can also be an ip.
+     * @param password Password for the server to authenticate with. Can be left empty.
+     * @param port     TCP port to connect to.
+     */
+    public synchronized void setServerParameters(String hostname, String password, int port) {
+        mControlConnection.setServerParameters(hostname, password, port);
+        mStatusConnection.setServerParameters(hostname, password, port);
+        for (MPDConnection connection : mQueryConnections) {
+            connection.setServerParameters(hostname, password, port);
+        }
+        mArtworkConnection.setServerParameters(hostname, password, port);
+    }
+
+    /**
+     * Sets the cache for the server capabilities of all connections. Connections that find the
+     * capabilities of the server version in the cache skip the "commands" and "tagtypes" requests.
+     *
+     * @param cache Cache for the current server or null to disable caching.
+     */
+    public synchronized void setCapabilityCache(MPDConnection.MPDCapabilityCache cache) {
+        for (MPDConnection connection : getConnections()) {
+            connection.setCapabilityCache(cache);
+        }
+    }
+
+    /**
+     * @return True if one of the connections uses capabilities from the cache, that were not
+     * verified with the server yet.
+     */
+    public boolean hasCachedCapabilities() {
+        for (MPDConnection connection : getConnections()) {
+            if (connection.hasCachedCapabilities()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Requests the capabilities from the server with one connection and hands the result to all
+     * other connections. This blocks until the server answered, so do not call it from the UI thread.
+     *
+     * @param source Connection used to request the capabilities
+     * @return The current capabilities or null if the request failed.
+     */
+    public MPDCapabilities refreshServerCapabilities(MPDConnection source) {
+        MPDCapabilities capabilities = source.refreshServerCapabilities();
+        if (null == capabilities) {
+            return null;
+        }
+        for (MPDConnection connection : getConnections()) {
+            if (connection != source) {
+                connection.setServerCapabilities(capabilities);
+            }
+        }
+        return capabilities;
+    }
+
+    /**
+     * @return All connections of this pool
+     */
+    private List<MPDConnection> getConnections() {
+        List<MPDConnection> connections = new ArrayList<>();
+        connections.add(mControlConnection);
+        connections.add(mStatusConnection);
+        Collections.addAll(connections, mQueryConnections);
+        connections.add(mArtworkConnection);
+        return connections;
+    }
+
+    /**
+     * @return True if the control connection is connected. This is used as an indicator
+     * for the state of the whole pool.
+     */
+    public boolean isConnected() {
+        return mControlConnection.isConnected();
+    }
+}
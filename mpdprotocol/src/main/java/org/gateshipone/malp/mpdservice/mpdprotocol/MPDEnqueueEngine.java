@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFile;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
+
+/**
+ * Adds artists, albums and search results to the current playlist or a saved playlist.
+ * <p/>
+ * If the server supports it, the tracks are selected by MPD itself (findadd, searchadd,
+ * searchaddpl with filter expressions) so no track list is transferred to the client. Otherwise
+ * the tracks are requested once and added with a single command list.
+ * <p/>
+ * All methods return true if the server responded with ok.
+ */
+public class MPDEnqueueEngine {
+    private final MPDConnection mConnection;
+
+    MPDEnqueueEngine(MPDConnection connection) {
+        mConnection = connection;
+    }
+
+    /**
+     * Adds all tracks of an album to the current playlist.
+     *
+     * @param albumName  Name of the album
+     * @param artistName Only tracks where this is the artist or album artist are added. Can be
+     *                   empty to add all tracks of the album.
+     * @param mbid       MusicBrainz album id to filter with. Can be empty.
+     * @return True if server responded with ok
+     */
+    public boolean addAlbumTracks(String albumName, String artistName, String mbid) {
+        MPDCapabilities capabilities = mConnection.getServerCapabilities();
+        if (null == capabilities) {
+            // Not connected
+            return false;
+        }
+
+        if (capabilities.hasFindAdd() && capabilities.hasFilterExpressions()) {
+            String albumFilter = MPDCommands.MPD_FILTER_TAG_EQUALS(MPDCommands.MPD_TAG_ALBUM, albumName);
+            if (!mbid.isEmpty()) {
+                albumFilter = MPDCommands.MPD_FILTER_AND(albumFilter, MPDCommands.MPD_FILTER_TAG_EQUALS(MPDCommands.MPD_TAG_ALBUM_MBID, mbid));
+            }
+
+            List<String> commands = new ArrayList<>();
+            if (artistName.isEmpty()) {
+                commands.add(MPDCommands.MPD_COMMAND_FIND_ADD_FILTER(albumFilter));
+            } else {
+                commands.addAll(findAddArtistCommands(artistName, albumFilter));
+            }
+            return addServerSide(commands);
+        } else if (capabilities.hasFindAdd() && artistName.isEmpty()) {
+            // The legacy syntax can not express "artist or album artist", only use it without artist.
+            List<String> commands = new ArrayList<>();
+            commands.add(MPDCommands.MPD_COMMAND_FIND_ADD_ALBUM_TRACKS(albumName, mbid));
+            return addServerSide(commands);
+        }
+
+        synchronized (mConnection) {
+            return addTrackList(mConnection.getArtistAlbumTracks(albumName, artistName, mbid));
+        }
+    }
+
+    /**
+     * Adds all tracks of an artist to the current playlist. Tracks are added if the artist is
+     * either the artist or the album artist of the track.
+     *
+     * @param artistName Name of the artist
+     * @return True if server responded with ok
+     */
+    public boolean addArtist(String artistName) {
+        MPDCapabilities capabilities = mConnection.getServerCapabilities();
+        if (null == capabilities) {
+            return false;
+        }
+
+        if (capabilities.hasFindAdd() && capabilities.hasFilterExpressions()) {
+            return addServerSide(findAddArtistCommands(artistName, null));
+        }
+
+        // Get the tracks of the artist and the album artist in one round trip
+        MPDCommandPipeline pipeline = new MPDCommandPipeline();
+        MPDCommandPipeline.PipelinedCommand<List<MPDFileEntry>> albumArtistTracks = pipeline.addFileListCommand(MPDCommands.MPD_COMMAND_REQUEST_ALBUMARTIST_TRACKS(artistName));
+        MPDCommandPipeline.PipelinedCommand<List<MPDFileEntry>> artistTracks = pipeline.addFileListCommand(MPDCommands.MPD_COMMAND_REQUEST_ARTIST_TRACKS(artistName));
+
+        synchronized (mConnection) {
+            mConnection.executePipeline(pipeline);
+            if (!artistTracks.isSuccessful()) {
+                return false;
+            }
+
+            // Remove tracks found by both requests and sort them by album and track number
+            Map<String, MPDFileEntry> uniqueTracks = new LinkedHashMap<>();
+            for (MPDFileEntry track : albumArtistTracks.getResult()) {
+                uniqueTracks.put(track.getPath(), track);
+            }
+            for (MPDFileEntry track : artistTracks.getResult()) {
+                uniqueTracks.put(track.getPath(), track);
+            }
+
+            TreeMap<String, List<MPDFileEntry>> albums = new TreeMap<>();
+            for (MPDFileEntry track : uniqueTracks.values()) {
+                if (!(track instanceof MPDFile)) {
+                    continue;
+                }
+                String album = ((MPDFile) track).getTrackAlbum();
+                List<MPDFileEntry> albumTracks = albums.get(album);
+                if (null == albumTracks) {
+                    albumTracks = new ArrayList<>();
+                    albums.put(album, albumTracks);
+                }
+                albumTracks.add(track);
+            }
+
+            List<MPDFileEntry> tracks = new ArrayList<>(uniqueTracks.size());
+            for (List<MPDFileEntry> albumTracks : albums.values()) {
+                MPDSortHelper.sortFileListNumeric(albumTracks);
+                tracks.addAll(albumTracks);
+            }
+
+            return addTrackList(tracks);
+        }
+    }
+
+    /**
+     * Adds the results of a search to the current playlist.
+     *
+     * @param term The search term to use
+     * @param type The type of items to search
+     * @return True if server responded with ok
+     */
+    public boolean addSearchedFiles(String term, MPDCommands.MPD_SEARCH_TYPE type) {
+        MPDCapabilities capabilities = mConnection.getServerCapabilities();
+        if (null == capabilities) {
+            return false;
+        }
+
+        if (capabilities.hasSearchAdd()) {
+            List<String> commands = new ArrayList<>();
+            commands.add(MPDCommands.MPD_COMMAND_ADD_SEARCH_FILES(term, type));
+            return addServerSide(commands);
+        }
+
+        synchronized (mConnection) {
+            return addTrackList(mConnection.getSearchedFiles(term, type));
+        }
+    }
+
+    /**
+     * Adds the results of a search to a saved playlist. The playlist is created if it does not exist.
+     *
+     * @param playlistName Name of the saved playlist
+     * @param term         The search term to use
+     * @param type         The type of items to search
+     * @return True if server responded with ok
+     */
+    public boolean addSearchedFilesToPlaylist(String playlistName, String term, MPDCommands.MPD_SEARCH_TYPE type) {
+        MPDCapabilities capabilities = mConnection.getServerCapabilities();
+        if (null == capabilities) {
+            return false;
+        }
+
+        if (capabilities.hasSearchAddPlaylist()) {
+            List<String> commands = new ArrayList<>();
+            commands.add(MPDCommands.MPD_COMMAND_ADD_SEARCH_FILES_TO_PLAYLIST(playlistName, term, type));
+            return addServerSide(commands);
+        }
+
+        synchronized (mConnection) {
+            return mConnection.addTrackListToPlaylist(playlistName, mConnection.getSearchedFiles(term, type));
+        }
+    }
+
+    /**
+     * Creates the findadd commands for all tracks where the artist is either the artist or the
+     * album artist. MPD has no "or" in filter expressions, so the second command excludes the
+     * tracks already added by the first one.
+     *
+     * @param artistName   Name of the artist
+     * @param extraFilter  Additional filter expression for both commands, can be null
+     * @return List of findadd commands
+     */
+    private static List<String> findAddArtistCommands(String artistName, String extraFilter) {
+        String albumArtistFilter = MPDCommands.MPD_FILTER_TAG_EQUALS(MPDCommands.MPD_TAG_ALBUM_ARTIST, artistName);
+        String artistFilter = MPDCommands.MPD_FILTER_AND(MPDCommands.MPD_FILTER_TAG_EQUALS(MPDCommands.MPD_TAG_ARTIST, artistName), MPDCommands.MPD_FILTER_NOT(albumArtistFilter));
+
+        List<String> commands = new ArrayList<>();
+        if (null != extraFilter) {
+            commands.add(MPDCommands.MPD_COMMAND_FIND_ADD_FILTER(MPDCommands.MPD_FILTER_AND(extraFilter, albumArtistFilter)));
+            commands.add(MPDCommands.MPD_COMMAND_FIND_ADD_FILTER(MPDCommands.MPD_FILTER_AND(extraFilter, artistFilter)));
+        } else {
+            commands.add(MPDCommands.MPD_COMMAND_FIND_ADD_FILTER(albumArtistFilter));
+            commands.add(MPDCommands.MPD_COMMAND_FIND_ADD_FILTER(artistFilter));
+        }
+        return commands;
+    }
+
+    /**
+     * Sends the add commands in one command list.
+     *
+     * @param commands Commands that add tracks on the server side
+     * @return True if server responded with ok
+     */
+    private boolean addServerSide(List<String> commands) {
+        MPDCommandPipeline pipeline = new MPDCommandPipeline();
+        for (String command : commands) {
+            pipeline.addCommand(command);
+        }
+        return mConnection.executePipeline(pipeline);
+    }
+
+    /**
+     * Adds the tracks with one command list to the current playlist.
+     *
+     * @param tracks Tracks to add
+     * @return True if server responded with ok
+     */
+    private boolean addTrackList(List<MPDFileEntry> tracks) {
+        return mConnection.addTrackList(tracks);
+    }
+}
@@ -0,0 +1,556 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Result of an asynchronous request to the server. This is a small replacement for
+ * CompletableFuture, which is not available on all supported Android versions.
+ * <p/>
+ * Results can be chained with {@link #thenApply(Function)} and {@link #thenCompose(AsyncFunction)},
+ * so that multiple requests (e.g. albums of an artist and then the tracks of these albums) can be
+ * combined to one future. Callbacks and chained functions run on the thread that completes the
+ * future, unless an {@link Executor} is given (e.g. one that posts to the UI thread).
+ * <p/>
+ * Cancelling a future also cancels the futures it was created from, so requests that are still
+ * waiting for a free connection are not sent to the server at all and running requests stop
+ * parsing their response.
+ *
+ * @param <T> Type of the result
+ */
+public class MPDFuture<T> implements Future<T> {
+
+    /**
+     * Synchronous transformation of a result.
+     */
+    public interface Function<I, O> {
+        O apply(I input) throws Exception;
+    }
+
+    /**
+     * Transformation of a result that starts another asynchronous request.
+     */
+    public interface AsyncFunction<I, O> {
+        MPDFuture<O> apply(I input) throws Exception;
+    }
+
+    /**
+     * Callback that is notified once the future is done.
+     */
+    public interface Callback<T> {
+        void onSuccess(T result);
+
+        /**
+         * @param error Cause of the failure. A {@link CancellationException} if the future was
+         *              cancelled, a {@link TimeoutException} if it timed out.
+         */
+        void onFailure(Throwable error);
+    }
+
+    private enum FUTURE_STATE {
+        STATE_PENDING,
+        STATE_SUCCEEDED,
+        STATE_FAILED,
+        STATE_CANCELLED
+    }
+
+    /**
+     * Executor that runs the task directly on the calling thread.
+     */
+    public static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    /**
+     * Timer thread shared by all futures with a timeout.
+     */
+    private static ScheduledThreadPoolExecutor mTimeoutScheduler;
+
+    private FUTURE_STATE mState = FUTURE_STATE.STATE_PENDING;
+
+    private T mResult;
+
+    private Throwable mError;
+
+    /**
+     * Listeners that are run when the future is done. Set to null afterwards.
+     */
+    private List<Runnable> mListeners = new ArrayList<>();
+
+    /**
+     * Futures this future depends on. Cancelled together with this future.
+     */
+    private final List<Future<?>> mUpstream = new CopyOnWriteArrayList<>();
+
+    public MPDFuture() {
+    }
+
+    /**
+     * @param result Result to use
+     * @return A future that already succeeded with the given result.
+     */
+    public static <T> MPDFuture<T> completed(T result) {
+        MPDFuture<T> future = new MPDFuture<>();
+        future.complete(result);
+        return future;
+    }
+
+    /**
+     * @param error Cause of the failure
+     * @return A future that already failed with the given error.
+     */
+    public static <T> MPDFuture<T> failed(Throwable error) {
+        MPDFuture<T> future = new MPDFuture<>();
+        future.fail(error);
+        return future;
+    }
+
+    /**
+     * Combines a list of futures to one future with the list of all results in the same order.
+     * The combined future fails as soon as one of the futures fails. In that case, and if the
+     * combined future is cancelled, all remaining futures are cancelled.
+     *
+     * @param futures Futures to combine
+     * @return Future for the list of all results
+     */
+    public static <T> MPDFuture<List<T>> allOf(final List<MPDFuture<T>> futures) {
+        final MPDFuture<List<T>> combined = new MPDFuture<>();
+        if (futures.isEmpty()) {
+            combined.complete(new ArrayList<T>());
+            return combined;
+        }
+
+        final AtomicInteger remaining = new AtomicInteger(futures.size());
+        for (MPDFuture<T> future : futures) {
+            combined.addUpstream(future);
+            future.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    if (remaining.decrementAndGet() == 0) {
+                        List<T> results = new ArrayList<>(futures.size());
+                        for (MPDFuture<T> future : futures) {
+                            results.add(future.getNow());
+                        }
+                        combined.complete(results);
+                    }
+                }
+            }, new Callback<T>() {
+                @Override
+                public void onSuccess(T result) {
+                }
+
+                @Override
+                public void onFailure(Throwable error) {
+                    combined.abort(FUTURE_STATE.STATE_FAILED, error);
+                }
+            });
+        }
+        return combined;
+    }
+
+    /**
+     * Completes the future successfully.
+     *
+     * @param result Result of the request
+     * @return True if the future was completed, false if it was already done.
+     */
+    public boolean complete(T result) {
+        List<Runnable> listeners;
+        synchronized (this) {
+            if (mState != FUTURE_STATE.STATE_PENDING) {
+                return false;
+            }
+            mState = FUTURE_STATE.STATE_SUCCEEDED;
+            mResult = result;
+            listeners = finish();
+        }
+        runListeners(listeners);
+        return true;
+    }
+
+    /**
+     * Completes the future with an error.
+     *
+     * @param error Cause of the failure
+     * @return True if the future was completed, false if it was already done.
+     */
+    public boolean fail(Throwable error) {
+        return setDone(FUTURE_STATE.STATE_FAILED, error);
+    }
+
+    /**
+     * Cancels the future and all futures it depends on. Requests of {@link MPDAsyncQueries} that
+     * are already sent to the server skip the rest of their response and their result is dropped.
+     *
+     * @param mayInterruptIfRunning Ignored, a running request is never interrupted.
+     * @return True if the future was cancelled, false if it was already done.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return abort(FUTURE_STATE.STATE_CANCELLED, new CancellationException());
+    }
+
+    /**
+     * Fails the future with a {@link TimeoutException} if it is not done after the given time.
+     * The futures this future depends on are cancelled in this case.
+     *
+     * @param timeout Time to wait for the result
+     * @param unit    Unit of the timeout
+     * @return This future
+     */
+    public MPDFuture<T> withTimeout(long timeout, TimeUnit unit) {
+        final ScheduledFuture<?> timer = getTimeoutScheduler().schedule(new Runnable() {
+            @Override
+            public void run() {
+                abort(FUTURE_STATE.STATE_FAILED, new TimeoutException());
+            }
+        }, timeout, unit);
+
+        // Remove the timer from the scheduler as soon as the result is there.
+        addListener(new Runnable() {
+            @Override
+            public void run() {
+                timer.cancel(false);
+            }
+        }, DIRECT_EXECUTOR);
+        return this;
+    }
+
+    /**
+     * Same as {@link #thenApply(Function, Executor)} but the function runs on the thread that
+     * completes this future.
+     */
+    public <O> MPDFuture<O> thenApply(Function<? super T, ? extends O> function) {
+        return thenApply(function, DIRECT_EXECUTOR);
+    }
+
+    /**
+     * Transforms the result of this future once it is available.
+     *
+     * @param function Function to apply on the result
+     * @param executor Executor used to run the function
+     * @return Future for the result of the function. Fails if this future fails or the function
+     * throws an exception.
+     */
+    public <O> MPDFuture<O> thenApply(final Function<? super T, ? extends O> function, Executor executor) {
+        final MPDFuture<O> future = new MPDFuture<>();
+        future.addUpstream(this);
+        addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (future.isDone()) {
+                    return;
+                }
+                try {
+                    future.complete(function.apply(mResult));
+                } catch (Exception e) {
+                    future.fail(e);
+                }
+            }
+        }, future.createErrorForwarder(), executor);
+        return future;
+    }
+
+    /**
+     * Same as {@link #thenCompose(AsyncFunction, Executor)} but the function runs on the thread
+     * that completes this future.
+     */
+    public <O> MPDFuture<O> thenCompose(AsyncFunction<? super T, O> function) {
+        return thenCompose(function, DIRECT_EXECUTOR);
+    }
+
+    /**
+     * Starts another asynchronous request with the result of this future.
+     *
+     * @param function Function that starts the next request
+     * @param executor Executor used to run the function
+     * @return Future for the result of the second request.
+     */
+    public <O> MPDFuture<O> thenCompose(final AsyncFunction<? super T, O> function, Executor executor) {
+        final MPDFuture<O> future = new MPDFuture<>();
+        future.addUpstream(this);
+        addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (future.isDone()) {
+                    return;
+                }
+                MPDFuture<O> next;
+                try {
+                    next = function.apply(mResult);
+                } catch (Exception e) {
+                    future.fail(e);
+                    return;
+                }
+                future.addUpstream(next);
+                next.whenComplete(new Callback<O>() {
+                    @Override
+                    public void onSuccess(O result) {
+                        future.complete(result);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable error) {
+                        future.setDone(FUTURE_STATE.STATE_FAILED, error);
+                    }
+                });
+            }
+        }, future.createErrorForwarder(), executor);
+        return future;
+    }
+
+    /**
+     * Same as {@link #whenComplete(Callback, Executor)} but the callback runs on the thread that
+     * completes this future.
+     */
+    public MPDFuture<T> whenComplete(Callback<? super T> callback) {
+        return whenComplete(callback, DIRECT_EXECUTOR);
+    }
+
+    /**
+     * Notifies the callback once the future is done.
+     *
+     * @param callback Callback to notify
+     * @param executor Executor used to run the callback
+     * @return This future
+     */
+    public MPDFuture<T> whenComplete(final Callback<? super T> callback, Executor executor) {
+        addListener(new Runnable() {
+            @Override
+            public void run() {
+                callback.onSuccess(mResult);
+            }
+        }, callback, executor);
+        return this;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return mState == FUTURE_STATE.STATE_CANCELLED;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return mState != FUTURE_STATE.STATE_PENDING;
+    }
+
+    @Override
+    public synchronized T get() throws InterruptedException, ExecutionException {
+        while (mState == FUTURE_STATE.STATE_PENDING) {
+            wait();
+        }
+        return getResult();
+    }
+
+    @Override
+    public synchronized T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        long remaining = unit.toNanos(timeout);
+        long deadline = System.nanoTime() + remaining;
+        while (mState == FUTURE_STATE.STATE_PENDING) {
+            if (remaining <= 0) {
+                throw new TimeoutException();
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            remaining = deadline - System.nanoTime();
+        }
+        return getResult();
+    }
+
+    /**
+     * @return The result if the future succeeded, null otherwise.
+     */
+    public synchronized T getNow() {
+        return mState == FUTURE_STATE.STATE_SUCCEEDED ? mResult : null;
+    }
+
+    /**
+     * Adds a future this future depends on. It is cancelled when this future is cancelled or
+     * times out.
+     *
+     * @param upstream Future to cancel together with this future.
+     */
+    void addUpstream(Future<?> upstream) {
+        mUpstream.add(upstream);
+        boolean aborted;
+        synchronized (this) {
+            aborted = mState == FUTURE_STATE.STATE_CANCELLED || mError instanceof TimeoutException;
+        }
+        if (aborted) {
+            upstream.cancel(false);
+        }
+    }
+
+    private T getResult() throws ExecutionException {
+        switch (mState) {
+            case STATE_CANCELLED:
+                throw new CancellationException();
+            case STATE_FAILED:
+                throw new ExecutionException(mError);
+            default:
+                return mResult;
+        }
+    }
+
+    /**
+     * Completes the future with an error and cancels the futures it depends on.
+     */
+    private boolean abort(FUTURE_STATE state, Throwable error) {
+        // Completing the future releases the upstream list, so keep a copy.
+        List<Future<?>> upstreamFutures = new ArrayList<>(mUpstream);
+        if (!setDone(state, error)) {
+            return false;
+        }
+        for (Future<?> upstream : upstreamFutures) {
+            upstream.cancel(false);
+        }
+        return true;
+    }
+
+    private boolean setDone(FUTURE_STATE state, Throwable error) {
+        List<Runnable> listeners;
+        synchronized (this) {
+            if (mState != FUTURE_STATE.STATE_PENDING) {
+                return false;
+            }
+            mState = state;
+            mError = error;
+            listeners = finish();
+        }
+        runListeners(listeners);
+        return true;
+    }
+
+    /**
+     * Wakes up all waiting threads. Must be called with the lock held.
+     *
+     * @return The listeners to run after the lock is released.
+     */
+    private List<Runnable> finish() {
+        List<Runnable> listeners = mListeners;
+        mListeners = null;
+        mUpstream.clear();
+        notifyAll();
+        return listeners;
+    }
+
+    private static void runListeners(List<Runnable> listeners) {
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    /**
+     * @return Callback that fails this future with the error of another future.
+     */
+    private <I> Callback<I> createErrorForwarder() {
+        return new Callback<I>() {
+            @Override
+            public void onSuccess(I result) {
+            }
+
+            @Override
+            public void onFailure(Throwable error) {
+                setDone(FUTURE_STATE.STATE_FAILED, error);
+            }
+        };
+    }
+
+    private void addListener(Runnable onSuccess, Callback<?> onFailure) {
+        addListener(onSuccess, onFailure, DIRECT_EXECUTOR);
+    }
+
+    private void addListener(Runnable listener, Executor executor) {
+        addListener(listener, null, executor);
+    }
+
+    /**
+     * Adds a listener that is run on the executor once the future is done. If the future is
+     * already done the listener is run immediately.
+     *
+     * @param onSuccess Run if the future succeeded
+     * @param onFailure Notified if the future failed or was cancelled, can be null.
+     * @param executor  Executor to run the listener with
+     */
+    private void addListener(final Runnable onSuccess, final Callback<?> onFailure, final Executor executor) {
+        Runnable listener = new Runnable() {
+            @Override
+            public void run() {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        Throwable error;
+                        synchronized (MPDFuture.this) {
+                            error = mError;
+                        }
+                        if (null == error) {
+                            onSuccess.run();
+                        } else if (null != onFailure) {
+                            onFailure.onFailure(error);
+                        }
+                    }
+                });
+            }
+        };
+
+        synchronized (this) {
+            if (null != mListeners) {
+                mListeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    private static synchronized ScheduledThreadPoolExecutor getTimeoutScheduler() {
+        if (null == mTimeoutScheduler) {
+            mTimeoutScheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "MPDFuture-Timeout");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            // Timers of futures that are already done should not stay in the queue.
+            mTimeoutScheduler.setRemoveOnCancelPolicy(true);
+        }
+        return mTimeoutScheduler;
+    }
+}
@@ -0,0 +1,693 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDArtist;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDDirectory;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFile;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDStatistics;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDTrackStore;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Copy of the complete database of a server, created from "listallinfo". The queries of the
+ * library views (artists, albums, album tracks, files) are answered from this copy with the same
+ * results as the corresponding methods of {@link MPDConnection}, but without any request to the
+ * server.
+ * <p/>
+ * The entries are kept in a {@link MPDTrackStore}, so a library with 100000 tracks needs about
+ * 20 MB. The albums of the artists and the sorted tracks of the albums are indexed when the
+ * library is created (see {@link MPDNavigationIndex}). A library is not changed after it is
+ * created and can be used by multiple threads.
+ * <p/>
+ * {@link #update(MPDConnection)} creates a new library with the changes of the server database
+ * and only transfers the directories that changed.
+ */
+public class MPDLibrary {
+    private static final String TAG = MPDLibrary.class.getSimpleName();
+
+    static final String FILE_HEADER = "MPDLIBRARY 1";
+
+    /**
+     * Maximum number of commands that are sent in one command list during an update.
+     */
+    private static final int UPDATE_PIPELINE_SIZE = 256;
+
+    private final MPDTrackStore mEntries;
+
+    /**
+     * Time of the last database update of the server when the copy was created, see
+     * {@link MPDStatistics#getLastDBUpdate()}.
+     */
+    private final long mDatabaseUpdate;
+
+    /**
+     * Indices of the entries of every directory by the path of the directory, "" for the root
+     * directory.
+     */
+    private final HashMap<String, int[]> mDirectories;
+
+    /**
+     * Albums of the artists and tracks of the albums.
+     */
+    private final MPDNavigationIndex mNavigationIndex;
+
+    /**
+     * Created on the first request, see {@link #getSearchIndex()}.
+     */
+    private volatile MPDSearchIndex mSearchIndex;
+
+    /**
+     * @param entries        All entries of the database. The store is used directly and must not
+     *                       be changed afterwards.
+     * @param databaseUpdate Time of the last database update of the server
+     */
+    public MPDLibrary(MPDTrackStore entries, long databaseUpdate) {
+        mEntries = entries;
+        mDatabaseUpdate = databaseUpdate;
+        mDirectories = createDirectoryIndex(mEntries);
+        mNavigationIndex = MPDNavigationIndex.create(mEntries);
+    }
+
+    /**
+     * Creates the copy of the database of the server the connection is connected to. This
+     * transfers the complete database and can take a long time.
+     *
+     * @param connection Connection to use
+     * @return The library or null if the database could not be received completely
+     */
+    public static MPDLibrary create(MPDConnection connection) {
+        MPDStatistics statistics = connection.getServerStatistics();
+        if (!connection.isConnected()) {
+            return null;
+        }
+
+        final MPDTrackStore entries = new MPDTrackStore();
+        boolean complete = connection.getAllTracks(new MPDConnection.MPDFileListChunkListener() {
+            @Override
+            public void onFileListChunk(List<MPDFileEntry> chunk, int start, int end) {
+                entries.addAll(chunk);
+            }
+        });
+        if (!complete) {
+            return null;
+        }
+        entries.trimToSize();
+        return new MPDLibrary(entries, statistics.getLastDBUpdate());
+    }
+
+    /**
+     * Creates a copy of the current database of the server from this library by transferring
+     * only the parts that changed:
+     * <ul>
+     * <li>Directories with a changed modification time are listed again and compared with the
+     * entries of this library.</li>
+     * <li>For all other directories the number of tracks within them is compared, so that changes
+     * in subdirectories are found. The modification time of a directory does not change if
+     * something changes in one of its subdirectories.</li>
+     * <li>The tracks modified since the last update are requested to get the changed tags of
+     * files that were edited in place. This needs MPD 0.19+, for older servers null is
+     * returned.</li>
+     * </ul>
+     * A file that was replaced by another one in a directory whose modification time and number
+     * of tracks stay the same is not found. If the number of tracks of the result does not match
+     * the statistics of the server, null is returned and the library has to be created again.
+     *
+     * @param connection Connection to use
+     * @return This library if the database did not change, the new library or null if the update
+     * failed.
+     */
+    public MPDLibrary update(MPDConnection connection) {
+        MPDStatistics statistics = connection.getServerStatistics();
+        if (!connection.isConnected()) {
+            return null;
+        }
+        if (statistics.getLastDBUpdate() == mDatabaseUpdate) {
+            return this;
+        }
+
+        MPDCapabilities capabilities = connection.getServerCapabilities();
+        if (null == capabilities || !capabilities.hasModifiedSince()) {
+            // Changed tags can not be found
+            return null;
+        }
+        LibraryUpdate update = new LibraryUpdate();
+        if (!update.compareDirectories(connection, capabilities.hasFilterExpressions())
+                || !update.compareModifiedTracks(connection)) {
+            return null;
+        }
+
+        MPDTrackStore entries = update.createEntries();
+        int songCount = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.getType(i) == MPDTrackStore.ENTRY_TYPE.FILE) {
+                songCount++;
+            }
+        }
+        if (songCount != statistics.getSongCount()) {
+            MPDLog.v(TAG, "Update incomplete, " + songCount + " instead of " + statistics.getSongCount() + " tracks");
+            return null;
+        }
+        return new MPDLibrary(entries, statistics.getLastDBUpdate());
+    }
+
+    /**
+     * Reads a library that was written with {@link #writeTo(File)}.
+     *
+     * @throws IOException If the file can not be read or does not contain a library
+     */
+    public static MPDLibrary readFrom(File file) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (!FILE_HEADER.equals(input.readUTF())) {
+                throw new IOException("Unknown file format: " + file);
+            }
+            long databaseUpdate = input.readLong();
+            return new MPDLibrary(MPDTrackStore.readFrom(input), databaseUpdate);
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Writes the library to a file. To replace an existing copy, write to a temporary file and
+     * rename it afterwards, so no incomplete copy is left if writing fails.
+     */
+    public void writeTo(File file) throws IOException {
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            output.writeUTF(FILE_HEADER);
+            output.writeLong(mDatabaseUpdate);
+            mEntries.writeTo(output);
+        } finally {
+            output.close();
+        }
+    }
+
+    public long getDatabaseUpdate() {
+        return mDatabaseUpdate;
+    }
+
+    /**
+     * @return Number of entries (tracks, directories and playlists) of the library
+     */
+    public int getEntryCount() {
+        return mEntries.size();
+    }
+
+    /**
+     * Returns the index to search the tracks of this library. It is created on the first call,
+     * which takes some time for large libraries. Use {@link #hasSearchIndex()} to check if it is
+     * ready.
+     */
+    public MPDSearchIndex getSearchIndex() {
+        MPDSearchIndex searchIndex = mSearchIndex;
+        if (null == searchIndex) {
+            synchronized (this) {
+                if (null == mSearchIndex) {
+                    mSearchIndex = MPDSearchIndex.create(mEntries);
+                }
+                searchIndex = mSearchIndex;
+            }
+        }
+        return searchIndex;
+    }
+
+    /**
+     * @return True if {@link #getSearchIndex()} returns without creating the index
+     */
+    public boolean hasSearchIndex() {
+        return null != mSearchIndex;
+    }
+
+    /**
+     * Same result as {@link MPDConnection#getArtists()}.
+     */
+    public List<MPDArtist> getArtists() {
+        return createArtists(MPDTrackStore.TAG_COLUMN.ARTIST);
+    }
+
+    /**
+     * Same result as {@link MPDConnection#getAlbumArtists()}.
+     */
+    public List<MPDArtist> getAlbumArtists() {
+        return createArtists(MPDTrackStore.TAG_COLUMN.ALBUM_ARTIST);
+    }
+
+    /**
+     * Same result as {@link MPDConnection#getAlbums()}.
+     */
+    public List<MPDAlbum> getAlbums() {
+        return mNavigationIndex.getAlbums();
+    }
+
+    /**
+     * Same result as {@link MPDConnection#getAlbumsInPath(String)}.
+     */
+    public List<MPDAlbum> getAlbumsInPath(String path) {
+        AlbumCollector albums = new AlbumCollector();
+
+        // Visit the directory and all its subdirectories
+        ArrayDeque<String> directories = new ArrayDeque<>();
+        directories.add(path);
+        while (!directories.isEmpty()) {
+            int[] entries = mDirectories.get(directories.poll());
+            if (null == entries) {
+                continue;
+            }
+            for (int index : entries) {
+                if (mEntries.getType(index) == MPDTrackStore.ENTRY_TYPE.DIRECTORY) {
+                    directories.add(mEntries.getText(index, MPDTrackStore.TEXT_COLUMN.PATH));
+                } else {
+                    albums.add(index);
+                }
+            }
+        }
+        return albums.getAlbums();
+    }
+
+    /**
+     * Same result as {@link MPDConnection#getArtistAlbums(String)}.
+     */
+    public List<MPDAlbum> getArtistAlbums(String artistName) {
+        int artist = mEntries.getTagCode(artistName);
+        if (0 == artist) {
+            return new ArrayList<>();
+        }
+        return mNavigationIndex.getArtistAlbums(artist);
+    }
+
+    /**
+     * Same result as {@link MPDConnection#getAlbumTracks(String, String)}.
+     */
+    public List<MPDFileEntry> getAlbumTracks(String albumName, String mbid) {
+        return getArtistAlbumTracks(albumName, "", mbid);
+    }
+
+    /**
+     * Same result as {@link MPDConnection#getArtistAlbumTracks(String, String, String)}.
+     */
+    public List<MPDFileEntry> getArtistAlbumTracks(String albumName, String artistName, String mbid) {
+        // Tags are compared by their codes, 0 for the filters that are not used
+        int album = mEntries.getTagCode(albumName);
+        int artist = artistName.isEmpty() ? 0 : mEntries.getTagCode(artistName);
+        int albumMBID = mbid.isEmpty() ? 0 : mEntries.getTagCode(mbid);
+        if (0 == album || (0 == artist && !artistName.isEmpty()) || (0 == albumMBID && !mbid.isEmpty())) {
+            return new ArrayList<>();
+        }
+        return mNavigationIndex.getAlbumTracks(album, artist, albumMBID);
+    }
+
+    /**
+     * Same result as {@link MPDConnection#getFiles(String)}, except for the stored playlists
+     * that the server lists in the root directory. They are not part of the database.
+     *
+     * @param path Path of the directory, "" for the root directory
+     * @return Entries of the directory, empty if the directory does not exist
+     */
+    public List<MPDFileEntry> getFiles(String path) {
+        int[] entries = mDirectories.get(path);
+        if (null == entries) {
+            return new ArrayList<>();
+        }
+        List<MPDFileEntry> files = new ArrayList<>(entries.length);
+        for (int index : entries) {
+            files.add(mEntries.get(index));
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    private List<MPDArtist> createArtists(MPDTrackStore.TAG_COLUMN column) {
+        // Code of the first MBID of every artist by the code of its name, -1 for artists without
+        int[] mbids = new int[mEntries.getTagCodeCount()];
+        for (int i = 0; i < mEntries.size(); i++) {
+            int artist = mEntries.getTagCode(i, column);
+            if (0 != artist && mbids[artist] <= 0) {
+                int mbid = mEntries.getTagCode(i, MPDTrackStore.TAG_COLUMN.ARTIST_MBID);
+                mbids[artist] = 0 == mbid ? -1 : mbid;
+            }
+        }
+
+        // Like the server list without duplicates, every artist has its first MBID
+        List<MPDArtist> artistList = new ArrayList<>();
+        for (int artist = 1; artist < mbids.length; artist++) {
+            if (0 != mbids[artist]) {
+                MPDArtist mpdArtist = new MPDArtist(mEntries.getTagValue(artist));
+                if (mbids[artist] > 0) {
+                    mpdArtist.addMBID(mEntries.getTagValue(mbids[artist]));
+                }
+                artistList.add(mpdArtist);
+            }
+        }
+        Collections.sort(artistList);
+        return artistList;
+    }
+
+    /**
+     * Collects the albums of tracks, grouped by album artist and MBID like the album lists of
+     * the server.
+     */
+    private class AlbumCollector {
+        private final Set<MPDAlbum> mAlbums = new HashSet<>();
+
+        /* Codes of the last added album, the tracks of an album are usually next to each other */
+        private int mLastName;
+        private int mLastArtist;
+        private int mLastMBID;
+
+        private void add(int index) {
+            int name = mEntries.getTagCode(index, MPDTrackStore.TAG_COLUMN.ALBUM);
+            int artist = mEntries.getTagCode(index, MPDTrackStore.TAG_COLUMN.ALBUM_ARTIST);
+            int mbid = mEntries.getTagCode(index, MPDTrackStore.TAG_COLUMN.ALBUM_MBID);
+            if (0 == name || (name == mLastName && artist == mLastArtist && mbid == mLastMBID)) {
+                return;
+            }
+            mLastName = name;
+            mLastArtist = artist;
+            mLastMBID = mbid;
+
+            MPDAlbum album = new MPDAlbum(mEntries.getTagValue(name));
+            if (0 != artist) {
+                album.setArtistName(mEntries.getTagValue(artist));
+            }
+            if (0 != mbid) {
+                album.setMBID(mEntries.getTagValue(mbid));
+            }
+            mAlbums.add(album);
+        }
+
+        private List<MPDAlbum> getAlbums() {
+            List<MPDAlbum> albumList = new ArrayList<>(mAlbums);
+            MPDSortHelper.sortAlbumList(albumList);
+            return albumList;
+        }
+    }
+
+    /**
+     * Differences between this library and the database of the server.
+     */
+    private class LibraryUpdate {
+        /* Entries of this library that are removed or listed again */
+        private final BitSet mRemoved = new BitSet(mEntries.size());
+
+        /* Entries of the listed directories */
+        private final List<MPDFileEntry> mAdded = new ArrayList<>();
+        private final Set<String> mAddedPaths = new HashSet<>();
+
+        /* Modified tracks of directories that were not listed, by the index of the old entry */
+        private final HashMap<Integer, MPDFileEntry> mReplaced = new HashMap<>();
+
+        /* Directories to list */
+        private final List<String> mListDirectories = new ArrayList<>();
+
+        /* Unchanged directories whose number of tracks is compared */
+        private final List<String> mCountDirectories = new ArrayList<>();
+
+        /**
+         * Walks through the directories of the server, starting at the root directory.
+         *
+         * @return False if a request failed
+         */
+        private boolean compareDirectories(MPDConnection connection, boolean filterExpressions) {
+            mListDirectories.add("");
+            while (!mListDirectories.isEmpty() || !mCountDirectories.isEmpty()) {
+                MPDCommandPipeline pipeline = new MPDCommandPipeline();
+                List<String> listed = takeBatch(mListDirectories, UPDATE_PIPELINE_SIZE);
+                List<String> counted = takeBatch(mCountDirectories, UPDATE_PIPELINE_SIZE - listed.size());
+
+                List<MPDCommandPipeline.PipelinedCommand<List<MPDFileEntry>>> listings = new ArrayList<>(listed.size());
+                for (String directory : listed) {
+                    listings.add(pipeline.addFileListCommand(MPDCommands.MPD_COMMAND_GET_FILES_INFO(directory)));
+                }
+                List<MPDCommandPipeline.PipelinedCommand<Integer>> counts = new ArrayList<>(counted.size());
+                for (String directory : counted) {
+                    counts.add(pipeline.addSongCountCommand(MPDCommands.MPD_COMMAND_COUNT_BASE(directory, filterExpressions)));
+                }
+                if (!connection.executePipeline(pipeline)) {
+                    return false;
+                }
+
+                for (int i = 0; i < listed.size(); i++) {
+                    compareDirectory(listed.get(i), listings.get(i).getResult());
+                }
+                for (int i = 0; i < counted.size(); i++) {
+                    if (counts.get(i).getResult() != countTracks(counted.get(i))) {
+                        mListDirectories.add(counted.get(i));
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Compares the entries of a directory of the server with the entries of this library.
+         */
+        private void compareDirectory(String directory, List<MPDFileEntry> serverEntries) {
+            HashMap<String, Integer> entries = new HashMap<>();
+            int[] indices = mDirectories.get(directory);
+            if (null != indices) {
+                for (int index : indices) {
+                    entries.put(mEntries.getText(index, MPDTrackStore.TEXT_COLUMN.PATH), index);
+                }
+            }
+
+            // The listing replaces the entries of the directory to keep the order of the server
+            for (MPDFileEntry serverEntry : serverEntries) {
+                MPDTrackStore.ENTRY_TYPE type = getType(serverEntry);
+                if (directory.isEmpty() && type == MPDTrackStore.ENTRY_TYPE.PLAYLIST) {
+                    // Stored playlists of the server, not part of the database
+                    continue;
+                }
+
+                Integer index = entries.remove(serverEntry.getPath());
+                if (null != index) {
+                    MPDTrackStore.ENTRY_TYPE oldType = mEntries.getType(index);
+                    if (oldType == MPDTrackStore.ENTRY_TYPE.DIRECTORY && type != MPDTrackStore.ENTRY_TYPE.DIRECTORY) {
+                        removeDirectory(serverEntry.getPath());
+                    }
+                    mRemoved.set(index);
+                }
+                if (type == MPDTrackStore.ENTRY_TYPE.DIRECTORY) {
+                    if (null != index && mEntries.getType(index) == type
+                            && equals(mEntries.getText(index, MPDTrackStore.TEXT_COLUMN.LAST_MODIFIED), serverEntry.getLastModified())) {
+                        mCountDirectories.add(serverEntry.getPath());
+                    } else {
+                        mListDirectories.add(serverEntry.getPath());
+                    }
+                }
+                mAdded.add(serverEntry);
+                mAddedPaths.add(serverEntry.getPath());
+            }
+
+            // Entries that are gone
+            for (Map.Entry<String, Integer> entry : entries.entrySet()) {
+                int index = entry.getValue();
+                if (directory.isEmpty() && mEntries.getType(index) == MPDTrackStore.ENTRY_TYPE.PLAYLIST) {
+                    continue;
+                }
+                if (mEntries.getType(index) == MPDTrackStore.ENTRY_TYPE.DIRECTORY) {
+                    removeDirectory(entry.getKey());
+                }
+                mRemoved.set(index);
+            }
+        }
+
+        /**
+         * Replaces the tracks that were modified since the last update of this library.
+         *
+         * @return False if the request failed or a track is unknown
+         */
+        private boolean compareModifiedTracks(MPDConnection connection) {
+            List<MPDFileEntry> tracks = connection.getTracksModifiedSince(mDatabaseUpdate);
+            if (null == tracks) {
+                return false;
+            }
+            for (MPDFileEntry track : tracks) {
+                if (mAddedPaths.contains(track.getPath())) {
+                    continue;
+                }
+                int index = findEntry(track.getPath());
+                if (index < 0 || mRemoved.get(index)) {
+                    return false;
+                }
+                mReplaced.put(index, track);
+            }
+            return true;
+        }
+
+        private MPDTrackStore createEntries() {
+            MPDTrackStore entries = new MPDTrackStore(mEntries.size() - mRemoved.cardinality() + mAdded.size());
+            for (int i = 0; i < mEntries.size(); i++) {
+                MPDFileEntry replacement = mReplaced.get(i);
+                if (null != replacement) {
+                    entries.add(replacement);
+                } else if (!mRemoved.get(i)) {
+                    entries.addEntry(mEntries, i);
+                }
+            }
+            entries.addAll(mAdded);
+            entries.trimToSize();
+            return entries;
+        }
+
+        /**
+         * Marks all entries within a directory and its subdirectories as removed.
+         */
+        private void removeDirectory(String path) {
+            ArrayDeque<String> directories = new ArrayDeque<>();
+            directories.add(path);
+            while (!directories.isEmpty()) {
+                int[] indices = mDirectories.get(directories.poll());
+                if (null == indices) {
+                    continue;
+                }
+                for (int index : indices) {
+                    if (mEntries.getType(index) == MPDTrackStore.ENTRY_TYPE.DIRECTORY) {
+                        directories.add(mEntries.getText(index, MPDTrackStore.TEXT_COLUMN.PATH));
+                    }
+                    mRemoved.set(index);
+                }
+            }
+        }
+
+        /**
+         * @return Number of tracks of this library within the directory and its subdirectories
+         */
+        private int countTracks(String path) {
+            int count = 0;
+            ArrayDeque<String> directories = new ArrayDeque<>();
+            directories.add(path);
+            while (!directories.isEmpty()) {
+                int[] indices = mDirectories.get(directories.poll());
+                if (null == indices) {
+                    continue;
+                }
+                for (int index : indices) {
+                    if (mEntries.getType(index) == MPDTrackStore.ENTRY_TYPE.DIRECTORY) {
+                        directories.add(mEntries.getText(index, MPDTrackStore.TEXT_COLUMN.PATH));
+                    } else if (mEntries.getType(index) == MPDTrackStore.ENTRY_TYPE.FILE) {
+                        count++;
+                    }
+                }
+            }
+            return count;
+        }
+
+        /**
+         * @return Index of the entry of this library with the path, -1 if there is none
+         */
+        private int findEntry(String path) {
+            int[] indices = mDirectories.get(getParent(path));
+            if (null != indices) {
+                for (int index : indices) {
+                    if (path.equals(mEntries.getText(index, MPDTrackStore.TEXT_COLUMN.PATH))) {
+                        return index;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        private boolean equals(String first, String second) {
+            return null == first ? null == second : first.equals(second);
+        }
+    }
+
+    private static List<String> takeBatch(List<String> list, int size) {
+        List<String> batch = new ArrayList<>(list.subList(0, Math.min(size, list.size())));
+        list.subList(0, batch.size()).clear();
+        return batch;
+    }
+
+    private static MPDTrackStore.ENTRY_TYPE getType(MPDFileEntry entry) {
+        if (entry instanceof MPDFile) {
+            return MPDTrackStore.ENTRY_TYPE.FILE;
+        } else if (entry instanceof MPDDirectory) {
+            return MPDTrackStore.ENTRY_TYPE.DIRECTORY;
+        }
+        return MPDTrackStore.ENTRY_TYPE.PLAYLIST;
+    }
+
+    /**
+     * Groups the entries by the directory they are in.
+     */
+    private static HashMap<String, int[]> createDirectoryIndex(MPDTrackStore entries) {
+        String[] parents = new String[entries.size()];
+        HashMap<String, int[]> counts = new HashMap<>();
+        for (int i = 0; i < entries.size(); i++) {
+            String path = entries.getText(i, MPDTrackStore.TEXT_COLUMN.PATH);
+            if (null == path) {
+                continue;
+            }
+            String parent = getParent(path);
+            int[] count = counts.get(parent);
+            if (null == count) {
+                count = new int[1];
+                counts.put(parent, count);
+            }
+            count[0]++;
+            parents[i] = parent;
+        }
+
+        HashMap<String, int[]> directories = new HashMap<>(counts.size() * 2);
+        for (Map.Entry<String, int[]> count : counts.entrySet()) {
+            directories.put(count.getKey(), new int[count.getValue()[0]]);
+            // Reused as the number of entries that are filled in
+            count.getValue()[0] = 0;
+        }
+        for (int i = 0; i < parents.length; i++) {
+            if (null != parents[i]) {
+                directories.get(parents[i])[counts.get(parents[i])[0]++] = i;
+            }
+        }
+        return directories;
+    }
+
+    /**
+     * @return Path of the directory that contains the entry, "" for the root directory
+     */
+    static String getParent(String path) {
+        int separator = path.lastIndexOf('/');
+        return separator < 0 ? "" : path.substring(0, separator);
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Keeps a copy of the database of the current server on the device (see {@link MPDLibrary}), so
+ * that the library views can be shown without waiting for the server.
+ * <p/>
+ * The mirror is disabled by default and enabled by {@link #setFile(File)} with the file of the
+ * current server. {@link #refresh()} loads the copy from this file and updates it with the changes
+ * of the server database (see {@link MPDLibrary#update(MPDConnection)}). The complete database is
+ * only transferred if there is no copy yet or the update failed. Afterwards the search index of
+ * the copy is created (see {@link MPDLibrary#getSearchIndex()}).
+ */
+public class MPDLibraryMirror {
+    private static final String TAG = MPDLibraryMirror.class.getSimpleName();
+
+    /**
+     * Request that is answered with the copy of the database.
+     */
+    public interface Query<T> {
+        /**
+         * @param library Copy of the database of the current server
+         * @return Result of the request
+         */
+        T run(MPDLibrary library);
+    }
+
+    private static MPDLibraryMirror mInstance;
+
+    private ExecutorService mQueryExecutor;
+
+    private File mFile;
+
+    private volatile MPDLibrary mLibrary;
+
+    private MPDFuture<MPDLibrary> mRefresh;
+
+    public static synchronized MPDLibraryMirror getInstance() {
+        if (null == mInstance) {
+            mInstance = new MPDLibraryMirror();
+        }
+        return mInstance;
+    }
+
+    private MPDLibraryMirror() {
+    }
+
+    /**
+     * Sets the file of the current server. The library of the previous file is dropped.
+     *
+     * @param file File to keep the copy of the database in, null to disable the mirror.
+     */
+    public synchronized void setFile(File file) {
+        if (null == file ? null == mFile : file.equals(mFile)) {
+            return;
+        }
+        mFile = file;
+        mLibrary = null;
+        if (null != mRefresh) {
+            mRefresh.cancel(false);
+            mRefresh = null;
+        }
+    }
+
+    /**
+     * Deletes the copy of a server. If it is the copy of the current server, the mirror is
+     * disabled until {@link #setFile(File)} is called again.
+     *
+     * @param file File of the copy
+     */
+    public synchronized void deleteFile(File file) {
+        if (file.equals(mFile)) {
+            setFile(null);
+        }
+        if (file.exists() && !file.delete()) {
+            MPDLog.e(TAG, "Could not delete library copy: " + file);
+        }
+    }
+
+    /**
+     * @return File of the current server, null if the mirror is disabled
+     */
+    public synchronized File getFile() {
+        return mFile;
+    }
+
+    /**
+     * @return Copy of the database of the current server or null if the mirror is disabled or
+     * no copy is available yet. The copy might be outdated until {@link #refresh()} finished.
+     */
+    public MPDLibrary getLibrary() {
+        return mLibrary;
+    }
+
+    /**
+     * Runs a request with the copy of the database in the background. Looking up the entries of
+     * a large database takes too long for the UI thread.
+     *
+     * @param query Request to run
+     * @return Future for the result of the request or null if no copy is available, then the
+     * request has to be sent to the server.
+     */
+    public <T> MPDFuture<T> query(final Query<T> query) {
+        final MPDLibrary library = mLibrary;
+        if (null == library) {
+            return null;
+        }
+
+        final MPDFuture<T> future = new MPDFuture<>();
+        getQueryExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                if (future.isDone()) {
+                    return;
+                }
+                try {
+                    future.complete(query.run(library));
+                } catch (Exception e) {
+                    future.fail(e);
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Loads the copy of the database from the file if necessary and updates it if the database
+     * of the server was updated since the copy was created. Calls while a refresh is running
+     * return the running refresh.
+     *
+     * @return Future for the current library
+     */
+    public synchronized MPDFuture<MPDLibrary> refresh() {
+        if (null == mFile) {
+            return MPDFuture.failed(new IllegalStateException("Library mirror is disabled"));
+        }
+        if (null != mRefresh && !mRefresh.isDone()) {
+            return mRefresh;
+        }
+
+        final File file = mFile;
+        final MPDLibrary currentLibrary = mLibrary;
+        mRefresh = MPDAsyncQueries.getInstance().submit(new MPDAsyncQueries.Query<MPDLibrary>() {
+            @Override
+            public MPDLibrary run(MPDConnection connection) {
+                MPDLibrary library = refreshLibrary(connection, file, currentLibrary);
+                if (null != library) {
+                    // Create the search index here, so the search can use it once it is ready
+                    library.getSearchIndex();
+                }
+                return library;
+            }
+        });
+        return mRefresh;
+    }
+
+    private MPDLibrary refreshLibrary(MPDConnection connection, File file, MPDLibrary library) {
+        if (null == library && file.isFile()) {
+            try {
+                library = MPDLibrary.readFrom(file);
+                // The stored copy can be used while the server is checked
+                setLibrary(file, library);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        MPDLibrary newLibrary = null;
+        if (null != library) {
+            newLibrary = library.update(connection);
+            if (newLibrary == library) {
+                return library;
+            }
+        }
+        if (!connection.isConnected()) {
+            return library;
+        }
+
+        if (null == newLibrary) {
+            MPDLog.v(TAG, "Creating new copy of the database");
+            newLibrary = MPDLibrary.create(connection);
+            if (null == newLibrary) {
+                return null;
+            }
+        }
+        library = newLibrary;
+        if (!isCurrentFile(file)) {
+            // The copy was deleted or the server was switched meanwhile
+            return library;
+        }
+        File tempFile = new File(file.getPath() + ".tmp");
+        try {
+            library.writeTo(tempFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        replaceFile(file, tempFile, library);
+        return library;
+    }
+
+    /**
+     * Replaces the copy with the written file and uses the new library. The file is checked
+     * again under the lock, because the copy might have been deleted during the write. The
+     * write itself runs without the lock, it takes too long to block {@link #setFile(File)}.
+     *
+     * @param file     File of the copy
+     * @param tempFile File the new library was written to
+     * @param library  New library
+     */
+    private synchronized void replaceFile(File file, File tempFile, MPDLibrary library) {
+        if (!file.equals(mFile)) {
+            if (tempFile.exists() && !tempFile.delete()) {
+                MPDLog.e(TAG, "Could not delete library copy: " + tempFile);
+            }
+            return;
+        }
+        if (tempFile.exists() && !tempFile.renameTo(file)) {
+            MPDLog.e(TAG, "Could not replace library copy: " + file);
+        }
+        mLibrary = library;
+    }
+
+    private synchronized ExecutorService getQueryExecutor() {
+        if (null == mQueryExecutor) {
+            mQueryExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "MPDLibraryMirror-Query");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return mQueryExecutor;
+    }
+
+    private synchronized boolean isCurrentFile(File file) {
+        return file.equals(mFile);
+    }
+
+    private synchronized void setLibrary(File file, MPDLibrary library) {
+        // Ignore the result if the mirror was switched to another server meanwhile
+        if (file.equals(mFile)) {
+            mLibrary = library;
+        }
+    }
+}
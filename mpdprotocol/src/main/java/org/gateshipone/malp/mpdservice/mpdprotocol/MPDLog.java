@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+
+/**
+ * Logging of the protocol implementation. The protocol classes do not depend on Android, so the
+ * application sets a {@link Logger} that forwards the messages to the platform log. Without a
+ * logger all messages are dropped.
+ */
+public class MPDLog {
+
+    public interface Logger {
+        void v(String tag, String message);
+
+        void w(String tag, String message);
+
+        void e(String tag, String message);
+    }
+
+    private static volatile Logger mLogger;
+
+    private MPDLog() {
+    }
+
+    /**
+     * @param logger Logger to use for all messages of the protocol classes, null to drop them.
+     */
+    public static void setLogger(Logger logger) {
+        mLogger = logger;
+    }
+
+    public static void v(String tag, String message) {
+        Logger logger = mLogger;
+        if (null != logger) {
+            logger.v(tag, message);
+        }
+    }
+
+    public static void w(String tag, String message) {
+        Logger logger = mLogger;
+        if (null != logger) {
+            logger.w(tag, message);
+        }
+    }
+
+    public static void e(String tag, String message) {
+        Logger logger = mLogger;
+        if (null != logger) {
+            logger.e(tag, message);
+        }
+    }
+}
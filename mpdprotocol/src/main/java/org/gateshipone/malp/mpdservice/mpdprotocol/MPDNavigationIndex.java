@@ -0,0 +1,387 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDTrackStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Albums of the artists and tracks of the albums of a {@link MPDLibrary}, so that the library
+ * views can go from an artist to its albums and from an album to its tracks without looking at
+ * every track of the library.
+ * <p/>
+ * Albums are grouped by name, album artist and MBID like {@link MPDAlbum#equals(Object)}. The
+ * tracks of every album are sorted by disc and track number when the index is created. Artists,
+ * albums and MBIDs are kept as tag codes, see
+ * {@link MPDTrackStore#getTagCode(int, MPDTrackStore.TAG_COLUMN)}.
+ */
+class MPDNavigationIndex {
+    private final MPDTrackStore mEntries;
+
+    /* Tag codes of name, album artist (0 if none) and MBID (0 if none) of every album */
+    private final int[] mAlbumNames;
+    private final int[] mAlbumArtists;
+    private final int[] mAlbumMBIDs;
+
+    /**
+     * Sorted tracks of every album, the indices of the tracks of album i are
+     * mAlbumTracks[mAlbumTrackStarts[i]] up to mAlbumTracks[mAlbumTrackStarts[i + 1]].
+     */
+    private final int[] mAlbumTrackStarts;
+    private final int[] mAlbumTracks;
+
+    /**
+     * Albums of every album name by the tag code of the name, same layout as the album tracks.
+     */
+    private final int[] mNameAlbumStarts;
+    private final int[] mNameAlbums;
+
+    /**
+     * Albums of every artist by the tag code of the artist, same layout as the album tracks. An
+     * album belongs to an artist if the artist is the artist or album artist of one of its
+     * tracks.
+     */
+    private final int[] mArtistAlbumStarts;
+    private final int[] mArtistAlbums;
+
+    private MPDNavigationIndex(MPDTrackStore entries, int[] albumNames, int[] albumArtists, int[] albumMBIDs,
+                               int[] trackAlbums) {
+        mEntries = entries;
+        mAlbumNames = albumNames;
+        mAlbumArtists = albumArtists;
+        mAlbumMBIDs = albumMBIDs;
+
+        int albumCount = albumNames.length;
+        int codeCount = entries.getTagCodeCount();
+
+        // Tracks in the order of the library, sorted per album afterwards
+        mAlbumTrackStarts = new int[albumCount + 1];
+        for (int album : trackAlbums) {
+            if (album >= 0) {
+                mAlbumTrackStarts[album + 1]++;
+            }
+        }
+        toStarts(mAlbumTrackStarts);
+        mAlbumTracks = new int[mAlbumTrackStarts[albumCount]];
+        int[] fill = Arrays.copyOf(mAlbumTrackStarts, albumCount);
+        for (int i = 0; i < trackAlbums.length; i++) {
+            if (trackAlbums[i] >= 0) {
+                mAlbumTracks[fill[trackAlbums[i]]++] = i;
+            }
+        }
+        for (int album = 0; album < albumCount; album++) {
+            sortTracks(mAlbumTracks, mAlbumTrackStarts[album], mAlbumTrackStarts[album + 1]);
+        }
+
+        mNameAlbumStarts = new int[codeCount + 1];
+        for (int name : albumNames) {
+            mNameAlbumStarts[name + 1]++;
+        }
+        toStarts(mNameAlbumStarts);
+        mNameAlbums = new int[albumCount];
+        fill = Arrays.copyOf(mNameAlbumStarts, codeCount);
+        for (int album = 0; album < albumCount; album++) {
+            mNameAlbums[fill[albumNames[album]]++] = album;
+        }
+
+        // Albums of the artists, the last album of every artist skips most duplicates
+        int[] lastAlbums = new int[codeCount];
+        Arrays.fill(lastAlbums, -1);
+        int[] artistAlbumCounts = new int[codeCount + 1];
+        int[] pairArtists = new int[2 * trackAlbums.length];
+        int[] pairAlbums = new int[2 * trackAlbums.length];
+        int pairCount = 0;
+        for (int i = 0; i < trackAlbums.length; i++) {
+            int album = trackAlbums[i];
+            if (album < 0) {
+                continue;
+            }
+            // The artist of the track, then the album artist of the album
+            int artist = entries.getTagCode(i, MPDTrackStore.TAG_COLUMN.ARTIST);
+            for (int column = 0; column < 2; column++) {
+                if (0 != artist && album != lastAlbums[artist]) {
+                    lastAlbums[artist] = album;
+                    artistAlbumCounts[artist + 1]++;
+                    pairArtists[pairCount] = artist;
+                    pairAlbums[pairCount] = album;
+                    pairCount++;
+                }
+                artist = albumArtists[album];
+            }
+        }
+        toStarts(artistAlbumCounts);
+        int[] artistAlbums = new int[pairCount];
+        fill = Arrays.copyOf(artistAlbumCounts, codeCount);
+        for (int pair = 0; pair < pairCount; pair++) {
+            artistAlbums[fill[pairArtists[pair]]++] = pairAlbums[pair];
+        }
+
+        // Remove the remaining duplicates of albums whose tracks are not next to each other
+        mArtistAlbumStarts = new int[codeCount + 1];
+        int albums = 0;
+        for (int artist = 0; artist < codeCount; artist++) {
+            int start = artistAlbumCounts[artist];
+            int end = artistAlbumCounts[artist + 1];
+            Arrays.sort(artistAlbums, start, end);
+            mArtistAlbumStarts[artist] = albums;
+            for (int i = start; i < end; i++) {
+                if (i == start || artistAlbums[i] != artistAlbums[i - 1]) {
+                    artistAlbums[albums++] = artistAlbums[i];
+                }
+            }
+        }
+        mArtistAlbumStarts[codeCount] = albums;
+        mArtistAlbums = Arrays.copyOf(artistAlbums, albums);
+    }
+
+    /**
+     * Creates the index of all tracks of the store in one pass over the tracks.
+     *
+     * @param entries Entries of a library, must not be changed afterwards
+     */
+    static MPDNavigationIndex create(MPDTrackStore entries) {
+        HashMap<AlbumKey, Integer> albumIds = new HashMap<>();
+        AlbumKey key = new AlbumKey();
+        List<AlbumKey> albums = new ArrayList<>();
+
+        int[] trackAlbums = new int[entries.size()];
+        int lastAlbum = -1;
+        for (int i = 0; i < entries.size(); i++) {
+            trackAlbums[i] = -1;
+            if (entries.getType(i) != MPDTrackStore.ENTRY_TYPE.FILE) {
+                continue;
+            }
+            key.mName = entries.getTagCode(i, MPDTrackStore.TAG_COLUMN.ALBUM);
+            if (0 == key.mName) {
+                continue;
+            }
+            key.mArtist = entries.getTagCode(i, MPDTrackStore.TAG_COLUMN.ALBUM_ARTIST);
+            key.mMBID = entries.getTagCode(i, MPDTrackStore.TAG_COLUMN.ALBUM_MBID);
+
+            // The tracks of an album are usually next to each other
+            if (lastAlbum < 0 || !key.equals(albums.get(lastAlbum))) {
+                Integer album = albumIds.get(key);
+                if (null == album) {
+                    album = albums.size();
+                    AlbumKey albumKey = new AlbumKey(key);
+                    albums.add(albumKey);
+                    albumIds.put(albumKey, album);
+                }
+                lastAlbum = album;
+            }
+            trackAlbums[i] = lastAlbum;
+        }
+
+        int[] albumNames = new int[albums.size()];
+        int[] albumArtists = new int[albums.size()];
+        int[] albumMBIDs = new int[albums.size()];
+        for (int album = 0; album < albums.size(); album++) {
+            albumNames[album] = albums.get(album).mName;
+            albumArtists[album] = albums.get(album).mArtist;
+            albumMBIDs[album] = albums.get(album).mMBID;
+        }
+        return new MPDNavigationIndex(entries, albumNames, albumArtists, albumMBIDs, trackAlbums);
+    }
+
+    /**
+     * @return All albums, sorted like the album list of the server
+     */
+    List<MPDAlbum> getAlbums() {
+        List<MPDAlbum> albums = new ArrayList<>(mAlbumNames.length);
+        for (int album = 0; album < mAlbumNames.length; album++) {
+            albums.add(createAlbum(album));
+        }
+        MPDSortHelper.sortAlbumList(albums);
+        return albums;
+    }
+
+    /**
+     * @param artist Tag code of the artist
+     * @return Albums with tracks of the artist as artist or album artist
+     */
+    List<MPDAlbum> getArtistAlbums(int artist) {
+        List<MPDAlbum> albums = new ArrayList<>();
+        for (int i = mArtistAlbumStarts[artist]; i < mArtistAlbumStarts[artist + 1]; i++) {
+            albums.add(createAlbum(mArtistAlbums[i]));
+        }
+        MPDSortHelper.sortAlbumList(albums);
+        return albums;
+    }
+
+    /**
+     * @param name   Tag code of the album name
+     * @param artist Tag code of the artist or album artist of the tracks, 0 for all tracks
+     * @param mbid   Tag code of the album MBID, 0 for all MBIDs
+     * @return Tracks of all albums with this name, sorted like
+     * {@link MPDSortHelper#sortFileListNumeric(List)}
+     */
+    List<MPDFileEntry> getAlbumTracks(int name, int artist, int mbid) {
+        List<Integer> tracks = new ArrayList<>();
+        int albumCount = 0;
+        for (int i = mNameAlbumStarts[name]; i < mNameAlbumStarts[name + 1]; i++) {
+            int album = mNameAlbums[i];
+            if (0 != mbid && mbid != mAlbumMBIDs[album]) {
+                continue;
+            }
+            int trackCount = tracks.size();
+            boolean allTracks = 0 == artist || artist == mAlbumArtists[album];
+            for (int track = mAlbumTrackStarts[album]; track < mAlbumTrackStarts[album + 1]; track++) {
+                if (allTracks || artist == mEntries.getTagCode(mAlbumTracks[track], MPDTrackStore.TAG_COLUMN.ARTIST)) {
+                    tracks.add(mAlbumTracks[track]);
+                }
+            }
+            if (tracks.size() > trackCount) {
+                albumCount++;
+            }
+        }
+
+        // The tracks of one album are already sorted, tracks of multiple albums are merged
+        if (albumCount > 1) {
+            Collections.sort(tracks, new TrackComparator(mEntries));
+        }
+
+        List<MPDFileEntry> files = new ArrayList<>(tracks.size());
+        for (int track : tracks) {
+            files.add(mEntries.get(track));
+        }
+        return files;
+    }
+
+    private MPDAlbum createAlbum(int album) {
+        MPDAlbum mpdAlbum = new MPDAlbum(mEntries.getTagValue(mAlbumNames[album]));
+        if (0 != mAlbumArtists[album]) {
+            mpdAlbum.setArtistName(mEntries.getTagValue(mAlbumArtists[album]));
+        }
+        if (0 != mAlbumMBIDs[album]) {
+            mpdAlbum.setMBID(mEntries.getTagValue(mAlbumMBIDs[album]));
+        }
+        return mpdAlbum;
+    }
+
+    /**
+     * Sorts the tracks of one album, they are usually already in the right order.
+     */
+    private void sortTracks(int[] tracks, int start, int end) {
+        TrackComparator comparator = new TrackComparator(mEntries);
+        boolean sorted = true;
+        for (int i = start + 1; i < end && sorted; i++) {
+            sorted = comparator.compare(tracks[i - 1], tracks[i]) <= 0;
+        }
+        if (sorted) {
+            return;
+        }
+
+        Integer[] sortedTracks = new Integer[end - start];
+        for (int i = start; i < end; i++) {
+            sortedTracks[i - start] = tracks[i];
+        }
+        Arrays.sort(sortedTracks, comparator);
+        for (int i = start; i < end; i++) {
+            tracks[i] = sortedTracks[i - start];
+        }
+    }
+
+    /**
+     * Converts the counts of every element, starting at index 1, to the start of the element.
+     */
+    private static void toStarts(int[] counts) {
+        for (int i = 1; i < counts.length; i++) {
+            counts[i] += counts[i - 1];
+        }
+    }
+
+    /**
+     * Orders tracks by album MBID, disc and track number like {@link MPDSortHelper}. Tracks with
+     * the same numbers keep the order of the library.
+     */
+    private static class TrackComparator implements Comparator<Integer> {
+        private final MPDTrackStore mEntries;
+
+        private TrackComparator(MPDTrackStore entries) {
+            mEntries = entries;
+        }
+
+        @Override
+        public int compare(Integer first, Integer second) {
+            int firstMBID = mEntries.getTagCode(first, MPDTrackStore.TAG_COLUMN.ALBUM_MBID);
+            int secondMBID = mEntries.getTagCode(second, MPDTrackStore.TAG_COLUMN.ALBUM_MBID);
+            if (firstMBID != secondMBID) {
+                String firstValue = 0 == firstMBID ? "" : mEntries.getTagValue(firstMBID);
+                String secondValue = 0 == secondMBID ? "" : mEntries.getTagValue(secondMBID);
+                int result = firstValue.compareTo(secondValue);
+                if (0 != result) {
+                    return result;
+                }
+            }
+            int result = compareNumbers(first, second, MPDTrackStore.NUMBER_COLUMN.DISC_NUMBER);
+            if (0 == result) {
+                result = compareNumbers(first, second, MPDTrackStore.NUMBER_COLUMN.TRACK_NUMBER);
+            }
+            return 0 == result ? Integer.compare(first, second) : result;
+        }
+
+        private int compareNumbers(int first, int second, MPDTrackStore.NUMBER_COLUMN column) {
+            return Integer.compare(mEntries.getNumber(first, column), mEntries.getNumber(second, column));
+        }
+    }
+
+    /**
+     * Tag codes of an album while the index is created.
+     */
+    private static class AlbumKey {
+        private int mName;
+        private int mArtist;
+        private int mMBID;
+
+        private AlbumKey() {
+        }
+
+        private AlbumKey(AlbumKey other) {
+            mName = other.mName;
+            mArtist = other.mArtist;
+            mMBID = other.mMBID;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof AlbumKey)) {
+                return false;
+            }
+            AlbumKey key = (AlbumKey) object;
+            return mName == key.mName && mArtist == key.mArtist && mMBID == key.mMBID;
+        }
+
+        @Override
+        public int hashCode() {
+            return (mName * 31 + mArtist) * 31 + mMBID;
+        }
+    }
+}
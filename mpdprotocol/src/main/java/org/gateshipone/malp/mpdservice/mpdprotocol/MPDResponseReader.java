@@ -0,0 +1,733 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDTrackStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reader for the line based responses of MPD. It works directly on a reusable byte buffer
+ * filled from the socket stream instead of creating a String for every line.
+ * <p/>
+ * A response line ("key: value") is read with {@link #readResponseLine()}. The key is looked up in
+ * a precomputed table and returned as {@link RESPONSE_KEY}, so parsers can switch over it instead
+ * of checking all known prefixes. Numbers are parsed in place, only string values are decoded
+ * (explicitly as UTF-8).
+ * <p/>
+ * This class is not thread-safe. MPDConnection guarantees that only one thread reads at a time.
+ */
+public class MPDResponseReader {
+    /**
+     * Returned by the number parsing methods if the value is not a valid number.
+     */
+    public static final int INVALID_NUMBER = Integer.MIN_VALUE;
+
+    /**
+     * Initial size of the read buffer. It grows if a single line does not fit.
+     */
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private static final Charset UTF8 = StandardCharsets.UTF_8;
+
+    /**
+     * Keys of MPD responses known by the parsers.
+     */
+    public enum RESPONSE_KEY {
+        KEY_UNKNOWN(null),
+
+        /* File, directory and playlist responses */
+        KEY_FILE(MPDResponses.MPD_RESPONSE_FILE),
+        KEY_DIRECTORY(MPDResponses.MPD_RESPONSE_DIRECTORY),
+        KEY_PLAYLIST(MPDResponses.MPD_RESPONSE_PLAYLIST),
+        KEY_LAST_MODIFIED(MPDResponses.MPD_RESPONSE_LAST_MODIFIED),
+        KEY_TITLE(MPDResponses.MPD_RESPONSE_TRACK_TITLE),
+        KEY_ARTIST(MPDResponses.MPD_RESPONSE_ARTIST_NAME),
+        KEY_ALBUM_ARTIST(MPDResponses.MPD_RESPONSE_ALBUM_ARTIST_NAME),
+        KEY_ALBUM(MPDResponses.MPD_RESPONSE_ALBUM_NAME),
+        KEY_DATE(MPDResponses.MPD_RESPONSE_DATE),
+        KEY_ALBUM_MBID(MPDResponses.MPD_RESPONSE_ALBUM_MBID),
+        KEY_ARTIST_MBID(MPDResponses.MPD_RESPONSE_ARTIST_MBID),
+        KEY_ALBUM_ARTIST_MBID(MPDResponses.MPD_RESPONSE_ALBUM_ARTIST_MBID),
+        KEY_TRACK_MBID(MPDResponses.MPD_RESPONSE_TRACK_MBID),
+        KEY_TRACK_TIME(MPDResponses.MPD_RESPONSE_TRACK_TIME),
+        KEY_TRACK_NUMBER(MPDResponses.MPD_RESPONSE_TRACK_NUMBER),
+        KEY_DISC_NUMBER(MPDResponses.MPD_RESPONSE_DISC_NUMBER),
+        KEY_SONG_POS(MPDResponses.MPD_RESPONSE_SONG_POS),
+        KEY_SONG_ID(MPDResponses.MPD_RESPONSE_SONG_ID),
+
+        /* Status responses ("playlist" is shared with KEY_PLAYLIST) */
+        KEY_VOLUME(MPDResponses.MPD_RESPONSE_VOLUME),
+        KEY_REPEAT(MPDResponses.MPD_RESPONSE_REPEAT),
+        KEY_RANDOM(MPDResponses.MPD_RESPONSE_RANDOM),
+        KEY_SINGLE(MPDResponses.MPD_RESPONSE_SINGLE),
+        KEY_CONSUME(MPDResponses.MPD_RESPONSE_CONSUME),
+        KEY_PLAYLIST_LENGTH(MPDResponses.MPD_RESPONSE_PLAYLIST_LENGTH),
+        KEY_PLAYBACK_STATE(MPDResponses.MPD_RESPONSE_PLAYBACK_STATE),
+        KEY_CURRENT_SONG_INDEX(MPDResponses.MPD_RESPONSE_CURRENT_SONG_INDEX),
+        KEY_CURRENT_SONG_ID(MPDResponses.MPD_RESPONSE_CURRENT_SONG_ID),
+        KEY_NEXT_SONG_INDEX(MPDResponses.MPD_RESPONSE_NEXT_SONG_INDEX),
+        KEY_NEXT_SONG_ID(MPDResponses.MPD_RESPONSE_NEXT_SONG_ID),
+        KEY_TIME_INFORMATION_OLD(MPDResponses.MPD_RESPONSE_TIME_INFORMATION_OLD),
+        KEY_ELAPSED_TIME(MPDResponses.MPD_RESPONSE_ELAPSED_TIME),
+        KEY_DURATION(MPDResponses.MPD_RESPONSE_DURATION),
+        KEY_BITRATE(MPDResponses.MPD_RESPONSE_BITRATE),
+        KEY_AUDIO_INFORMATION(MPDResponses.MPD_RESPONSE_AUDIO_INFORMATION),
+        KEY_UPDATING_DB(MPDResponses.MPD_RESPONSE_UPDATING_DB),
+        KEY_ERROR(MPDResponses.MPD_RESPONSE_ERROR),
+
+        /* Count and statistics responses */
+        KEY_SONGS(MPDResponses.MPD_STATS_SONGS),
+
+        /* Binary responses */
+        KEY_BINARY_SIZE(MPDResponses.MPD_RESPONSE_BINARY_SIZE),
+        KEY_BINARY_TYPE(MPDResponses.MPD_RESPONSE_BINARY_TYPE),
+        KEY_BINARY(MPDResponses.MPD_RESPONSE_BINARY);
+
+        /**
+         * Key as sent by MPD without the ": " separator
+         */
+        private final byte[] mKey;
+
+        RESPONSE_KEY(String response) {
+            if (null == response) {
+                mKey = null;
+            } else {
+                // Strip the ": " from the response prefix
+                mKey = response.substring(0, response.length() - 2).getBytes(UTF8);
+            }
+        }
+    }
+
+    /**
+     * Size of the key lookup table. Must be a power of two and larger than the number of keys.
+     */
+    private static final int KEY_TABLE_SIZE = 128;
+
+    /**
+     * Open addressing hash table used to look up the keys without creating a String.
+     */
+    private static final RESPONSE_KEY[] KEY_TABLE = new RESPONSE_KEY[KEY_TABLE_SIZE];
+
+    static {
+        for (RESPONSE_KEY key : RESPONSE_KEY.values()) {
+            if (null == key.mKey) {
+                continue;
+            }
+            int index = hashKey(key.mKey, 0, key.mKey.length) & (KEY_TABLE_SIZE - 1);
+            while (null != KEY_TABLE[index]) {
+                index = (index + 1) & (KEY_TABLE_SIZE - 1);
+            }
+            KEY_TABLE[index] = key;
+        }
+    }
+
+    private final InputStream mInputStream;
+
+    private byte[] mBuffer;
+
+    /* Position of the next unread byte in the buffer */
+    private int mPosition;
+
+    /* End of the valid data in the buffer */
+    private int mLimit;
+
+    /* Current line in the buffer (without line break) */
+    private int mLineStart;
+    private int mLineEnd;
+
+    /* Start of the value of the current line (after "key: ") */
+    private int mValueStart;
+
+    private RESPONSE_KEY mKey;
+
+    private boolean mResponseEnd;
+
+    private boolean mACK;
+
+    /* Statistics for the MPDCommandMetrics, only growing */
+    private long mBytesRead;
+    private long mLinesRead;
+    private long mSongsRead;
+    private long mReadNanos;
+
+    private MPDSessionRecorder mRecorder;
+
+    /**
+     * Pool for repeating values, kept for the lifetime of the connection
+     */
+    private final MPDStringPool mStringPool;
+
+    public MPDResponseReader(InputStream inputStream) {
+        mInputStream = inputStream;
+        mBuffer = new byte[BUFFER_SIZE];
+        mPosition = 0;
+        mLimit = 0;
+        mKey = RESPONSE_KEY.KEY_UNKNOWN;
+        mStringPool = new MPDStringPool();
+    }
+
+    /**
+     * @return True if data can be read without blocking.
+     * @throws IOException
+     */
+    public boolean ready() throws IOException {
+        return mPosition < mLimit || mInputStream.available() > 0;
+    }
+
+    /**
+     * Blocks until at least one byte is available. The byte stays in the buffer.
+     *
+     * @return The next byte or -1 if the stream ended.
+     * @throws IOException Also thrown if the socket timeout expired.
+     */
+    public int peek() throws IOException {
+        if (mPosition == mLimit) {
+            mPosition = 0;
+            mLimit = 0;
+            int read = readStream(mBuffer, 0, mBuffer.length);
+            if (read <= 0) {
+                return -1;
+            }
+            mLimit = read;
+        }
+        return mBuffer[mPosition] & 0xFF;
+    }
+
+    /**
+     * Reads the next line as a String. Used for responses that are not parsed key by key.
+     *
+     * @return The line without line break or null if the stream ended.
+     * @throws IOException
+     */
+    public String readLine() throws IOException {
+        if (!nextLine()) {
+            return null;
+        }
+        return new String(mBuffer, mLineStart, mLineEnd - mLineStart, UTF8);
+    }
+
+    /**
+     * Reads the binary data that follows a "binary: N" line. MPD sends exactly N raw bytes
+     * followed by a line break, which is skipped as well. The data is not interpreted, so it
+     * may contain line breaks or invalid UTF-8.
+     *
+     * @param destination Array to copy the data to
+     * @param offset      Position in the array to start copying to
+     * @param length      Number of bytes to read (value of the "binary" line)
+     * @return True if all data was read, false if the stream ended before.
+     * @throws IOException
+     */
+    public boolean readBinary(byte[] destination, int offset, int length) throws IOException {
+        // Data that is already buffered
+        int buffered = Math.min(length, mLimit - mPosition);
+        System.arraycopy(mBuffer, mPosition, destination, offset, buffered);
+        mPosition += buffered;
+        offset += buffered;
+        length -= buffered;
+
+        // Read the rest directly into the destination without copying it through the buffer
+        while (length > 0) {
+            int read = readStream(destination, offset, length);
+            if (read == -1) {
+                return false;
+            }
+            offset += read;
+            length -= read;
+        }
+
+        // Skip the line break after the data
+        if (peek() == '\n') {
+            mPosition++;
+        }
+        return true;
+    }
+
+    /**
+     * Skips the binary data that follows a "binary: N" line, e.g. because the file changed
+     * between two chunks. Like {@link #readBinary(byte[], int, int)} the line break after the
+     * data is skipped as well, so the next line is the following response line.
+     *
+     * @param length Number of bytes to skip (value of the "binary" line)
+     * @return True if all data was skipped, false if the stream ended before.
+     * @throws IOException
+     */
+    public boolean skipBinary(int length) throws IOException {
+        int buffered = Math.min(length, mLimit - mPosition);
+        mPosition += buffered;
+        length -= buffered;
+
+        if (length > 0) {
+            byte[] scratch = new byte[Math.min(length, mBuffer.length)];
+            while (length > 0) {
+                int read = readStream(scratch, 0, Math.min(length, scratch.length));
+                if (read == -1) {
+                    return false;
+                }
+                length -= read;
+            }
+        }
+
+        if (peek() == '\n') {
+            mPosition++;
+        }
+        return true;
+    }
+
+    /**
+     * Reads the next line and splits it into key and value.
+     *
+     * @return True if a line was read, false if the stream ended.
+     * @throws IOException
+     */
+    public boolean readResponseLine() throws IOException {
+        if (!nextLine()) {
+            mKey = RESPONSE_KEY.KEY_UNKNOWN;
+            mResponseEnd = true;
+            mACK = false;
+            return false;
+        }
+
+        // Responses of a command list started with command_list_ok_begin are separated by list_OK
+        mACK = startsWith(MPDResponses.MPD_RESPONSE_ACK);
+        mResponseEnd = mACK || startsWith(MPDResponses.MPD_RESPONSE_OK) || isLine(MPDResponses.MPD_RESPONSE_LIST_OK);
+
+        // Find the separator between key and value
+        int separator = mLineStart;
+        while (separator < mLineEnd && mBuffer[separator] != ':') {
+            separator++;
+        }
+        if (separator == mLineEnd || mResponseEnd) {
+            mKey = RESPONSE_KEY.KEY_UNKNOWN;
+            mValueStart = mLineEnd;
+            return true;
+        }
+
+        mKey = lookupKey(mLineStart, separator);
+        if (mKey == RESPONSE_KEY.KEY_FILE) {
+            mSongsRead++;
+        }
+        mValueStart = separator + 1;
+        if (mValueStart < mLineEnd && mBuffer[mValueStart] == ' ') {
+            mValueStart++;
+        }
+        return true;
+    }
+
+    /**
+     * Skips the remaining lines of the current response without splitting them into key and
+     * value. Afterwards the current line is the line that ends the response (OK, ACK or list_OK),
+     * the same as if the lines were read with {@link #readResponseLine()}.
+     *
+     * @return True if the end of the response was read, false if the stream ended.
+     * @throws IOException
+     */
+    public boolean skipResponse() throws IOException {
+        mKey = RESPONSE_KEY.KEY_UNKNOWN;
+        while (nextLine()) {
+            mACK = startsWith(MPDResponses.MPD_RESPONSE_ACK);
+            mResponseEnd = mACK || startsWith(MPDResponses.MPD_RESPONSE_OK) || isLine(MPDResponses.MPD_RESPONSE_LIST_OK);
+            if (mResponseEnd) {
+                mValueStart = mLineEnd;
+                return true;
+            }
+        }
+        mResponseEnd = true;
+        mACK = false;
+        return false;
+    }
+
+    /**
+     * @return True if the current line ends the response (OK or ACK).
+     */
+    public boolean isResponseEnd() {
+        return mResponseEnd;
+    }
+
+    /**
+     * @return True if the current line is an error response (ACK).
+     */
+    public boolean isACK() {
+        return mACK;
+    }
+
+    /**
+     * @return The complete current line decoded as UTF-8. Used for error messages.
+     */
+    public String getLine() {
+        return new String(mBuffer, mLineStart, mLineEnd - mLineStart, UTF8);
+    }
+
+    /**
+     * @return Key of the current line. KEY_UNKNOWN if the key is not known to the parsers.
+     */
+    public RESPONSE_KEY getKey() {
+        return mKey;
+    }
+
+    /**
+     * @return Value of the current line decoded as UTF-8.
+     */
+    public String getValue() {
+        return new String(mBuffer, mValueStart, mLineEnd - mValueStart, UTF8);
+    }
+
+    /**
+     * Same as {@link #getValue()} but equal values share one String instance. Use this for tags
+     * that repeat across many songs (artist, album, date, MBIDs) and not for unique ones
+     * (title, file), which would only fill the pool.
+     *
+     * @return Value of the current line decoded as UTF-8.
+     */
+    public String getPooledValue() {
+        return mStringPool.get(mBuffer, mValueStart, mLineEnd);
+    }
+
+    /**
+     * Sets the value of the current line as text of an entry of the store. The value is copied
+     * as UTF-8 without decoding it.
+     *
+     * @param store  Store to set the value in
+     * @param index  Index of the entry
+     * @param column Column to set the value for
+     */
+    public void copyValue(MPDTrackStore store, int index, MPDTrackStore.TEXT_COLUMN column) {
+        store.setText(index, column, mBuffer, mValueStart, mLineEnd);
+    }
+
+    /**
+     * Checks if the value of the current line equals the given ASCII string without decoding it.
+     *
+     * @param value ASCII string to compare with
+     * @return True if equal, false otherwise
+     */
+    public boolean valueEquals(String value) {
+        int length = mLineEnd - mValueStart;
+        if (length != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (mBuffer[mValueStart + i] != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The value of the current line as integer or {@link #INVALID_NUMBER}.
+     */
+    public int getIntValue() {
+        return getIntField(0, (byte) 0);
+    }
+
+    /**
+     * Parses a field of a value that consists of multiple numbers, like "3/12" for track numbers
+     * or "44100:24:2" for the audio format. Spaces around the number are ignored.
+     *
+     * @param field     Index of the field to parse
+     * @param separator Separator between the fields
+     * @return The parsed number or {@link #INVALID_NUMBER} if the field is missing or not a number.
+     */
+    public int getIntField(int field, byte separator) {
+        int position = findField(field, separator);
+        if (position < 0) {
+            return INVALID_NUMBER;
+        }
+
+        while (position < mLineEnd && mBuffer[position] == ' ') {
+            position++;
+        }
+
+        boolean negative = false;
+        if (position < mLineEnd && mBuffer[position] == '-') {
+            negative = true;
+            position++;
+        }
+
+        int digitStart = position;
+        long value = 0;
+        while (position < mLineEnd && mBuffer[position] >= '0' && mBuffer[position] <= '9') {
+            value = value * 10 + (mBuffer[position] - '0');
+            if (value > Integer.MAX_VALUE) {
+                return INVALID_NUMBER;
+            }
+            position++;
+        }
+        if (position == digitStart) {
+            return INVALID_NUMBER;
+        }
+
+        while (position < mLineEnd && mBuffer[position] == ' ') {
+            position++;
+        }
+        if (position != mLineEnd && (separator == 0 || mBuffer[position] != separator)) {
+            return INVALID_NUMBER;
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    /**
+     * Parses a decimal value (like "123.456" of elapsed) and rounds it to the next integer.
+     *
+     * @return The rounded value or {@link #INVALID_NUMBER} if the value is not a number.
+     */
+    public int getRoundedDecimalValue() {
+        int position = mValueStart;
+        long integerPart = 0;
+        int digitStart = position;
+        while (position < mLineEnd && mBuffer[position] >= '0' && mBuffer[position] <= '9') {
+            integerPart = integerPart * 10 + (mBuffer[position] - '0');
+            if (integerPart > Integer.MAX_VALUE) {
+                return INVALID_NUMBER;
+            }
+            position++;
+        }
+        if (position == digitStart) {
+            return INVALID_NUMBER;
+        }
+        if (position < mLineEnd) {
+            if (mBuffer[position] != '.') {
+                return INVALID_NUMBER;
+            }
+            position++;
+            // Only the first decimal place is relevant for rounding
+            if (position < mLineEnd && mBuffer[position] >= '5' && mBuffer[position] <= '9') {
+                integerPart++;
+            }
+        }
+        return (int) integerPart;
+    }
+
+    /**
+     * Returns a field of a value that consists of multiple parts as String.
+     *
+     * @param field     Index of the field
+     * @param separator Separator between the fields
+     * @return The field or null if it is missing.
+     */
+    public String getStringField(int field, byte separator) {
+        int start = findField(field, separator);
+        if (start < 0) {
+            return null;
+        }
+        int end = start;
+        while (end < mLineEnd && mBuffer[end] != separator) {
+            end++;
+        }
+        return new String(mBuffer, start, end - start, UTF8);
+    }
+
+    /**
+     * @return The number of separated fields of the current value.
+     */
+    public int getFieldCount(byte separator) {
+        int count = 1;
+        for (int i = mValueStart; i < mLineEnd; i++) {
+            if (mBuffer[i] == separator) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int findField(int field, byte separator) {
+        int position = mValueStart;
+        while (field > 0) {
+            while (position < mLineEnd && mBuffer[position] != separator) {
+                position++;
+            }
+            if (position == mLineEnd) {
+                return -1;
+            }
+            position++;
+            field--;
+        }
+        return position;
+    }
+
+    private boolean startsWith(String prefix) {
+        if (mLineEnd - mLineStart < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (mBuffer[mLineStart + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isLine(String line) {
+        return (mLineEnd - mLineStart == line.length()) && startsWith(line);
+    }
+
+    private RESPONSE_KEY lookupKey(int start, int end) {
+        int index = hashKey(mBuffer, start, end) & (KEY_TABLE_SIZE - 1);
+        RESPONSE_KEY key;
+        while (null != (key = KEY_TABLE[index])) {
+            byte[] keyBytes = key.mKey;
+            if (keyBytes.length == end - start) {
+                int i = 0;
+                while (i < keyBytes.length && keyBytes[i] == mBuffer[start + i]) {
+                    i++;
+                }
+                if (i == keyBytes.length) {
+                    return key;
+                }
+            }
+            index = (index + 1) & (KEY_TABLE_SIZE - 1);
+        }
+        return RESPONSE_KEY.KEY_UNKNOWN;
+    }
+
+    private static int hashKey(byte[] data, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = hash * 31 + data[i];
+        }
+        return hash ^ (hash >>> 7);
+    }
+
+    /**
+     * @param recorder Recorder that gets all data read from the stream, null to disable recording
+     */
+    void setRecorder(MPDSessionRecorder recorder) {
+        mRecorder = recorder;
+    }
+
+    /**
+     * @return Number of bytes read from the stream since the creation of the reader
+     */
+    public long getBytesRead() {
+        return mBytesRead;
+    }
+
+    /**
+     * @return Number of lines read since the creation of the reader
+     */
+    public long getLinesRead() {
+        return mLinesRead;
+    }
+
+    /**
+     * @return Number of songs ("file:" lines) read with {@link #readResponseLine()} since the
+     * creation of the reader
+     */
+    public long getSongsRead() {
+        return mSongsRead;
+    }
+
+    /**
+     * @return Time in ns spent blocked in reads from the stream since the creation of the reader
+     */
+    public long getReadNanos() {
+        return mReadNanos;
+    }
+
+    /**
+     * @return True if the current line ends the response of a command or of a whole command list
+     * (OK or ACK). In contrast to {@link #isResponseEnd()} this is false for list_OK.
+     */
+    public boolean isFinalResponseLine() {
+        return startsWith(MPDResponses.MPD_RESPONSE_OK) || startsWith(MPDResponses.MPD_RESPONSE_ACK);
+    }
+
+    /**
+     * Moves to the next line in the buffer. The buffer is refilled (and grown if necessary)
+     * so that the complete line is always in one piece in the buffer.
+     *
+     * @return True if a line is available, false if the stream ended.
+     * @throws IOException
+     */
+    private boolean nextLine() throws IOException {
+        int scan = mPosition;
+        while (true) {
+            while (scan < mLimit) {
+                if (mBuffer[scan] == '\n') {
+                    setLine(mPosition, scan);
+                    mPosition = scan + 1;
+                    return true;
+                }
+                scan++;
+            }
+
+            // No complete line in the buffer. Move the beginning of the line to the buffer start.
+            if (mPosition > 0) {
+                System.arraycopy(mBuffer, mPosition, mBuffer, 0, mLimit - mPosition);
+                scan -= mPosition;
+                mLimit -= mPosition;
+                mPosition = 0;
+            }
+            if (mLimit == mBuffer.length) {
+                byte[] newBuffer = new byte[mBuffer.length * 2];
+                System.arraycopy(mBuffer, 0, newBuffer, 0, mLimit);
+                mBuffer = newBuffer;
+            }
+
+            int read = readStream(mBuffer, mLimit, mBuffer.length - mLimit);
+            if (read == -1) {
+                if (mLimit > mPosition) {
+                    // Last line without line break
+                    setLine(mPosition, mLimit);
+                    mPosition = mLimit;
+                    return true;
+                }
+                return false;
+            }
+            mLimit += read;
+        }
+    }
+
+    /**
+     * Reads from the stream and keeps track of the read bytes and of the time blocked in the read.
+     */
+    private int readStream(byte[] destination, int offset, int length) throws IOException {
+        long start = System.nanoTime();
+        try {
+            int read = mInputStream.read(destination, offset, length);
+            if (read > 0) {
+                mBytesRead += read;
+                if (null != mRecorder) {
+                    mRecorder.recordResponse(destination, offset, read);
+                }
+            }
+            return read;
+        } finally {
+            mReadNanos += System.nanoTime() - start;
+        }
+    }
+
+    private void setLine(int start, int end) {
+        mLinesRead++;
+        if (end > start && mBuffer[end - 1] == '\r') {
+            end--;
+        }
+        mLineStart = start;
+        mLineEnd = end;
+        mValueStart = end;
+    }
+}
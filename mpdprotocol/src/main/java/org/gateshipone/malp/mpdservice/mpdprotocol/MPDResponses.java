@@ -23,6 +23,12 @@ package org.gateshipone.malp.mpdservice.mpdprotocol;
 
 
 public class MPDResponses {
+    public static final String MPD_RESPONSE_OK = "OK";
+    public static final String MPD_RESPONSE_ACK = "ACK";
+    public static final String MPD_RESPONSE_LIST_OK = "list_OK";
+
+    public static final String MPD_RESPONSE_CHANGED = "changed: ";
+
     public static final String MPD_RESPONSE_ALBUM_NAME = "Album: ";
     public static final String MPD_RESPONSE_ALBUM_MBID = "MUSICBRAINZ_ALBUMID: ";
 
@@ -84,6 +90,11 @@ public class MPDResponses {
     public static final String MPD_STATS_DB_PLAYTIME = "db_playtime: ";
     public static final String MPD_STATS_DB_LAST_UPDATE = "db_update: ";
 
+    /* Binary responses (albumart, readpicture) */
+    public static final String MPD_RESPONSE_BINARY_SIZE = "size: ";
+    public static final String MPD_RESPONSE_BINARY_TYPE = "type: ";
+    public static final String MPD_RESPONSE_BINARY = "binary: ";
+
     public static final String MPD_COMMAND = "command: ";
     public static final String MPD_TAGTYPE = "tagtype: ";
 }
\ No newline at end of file
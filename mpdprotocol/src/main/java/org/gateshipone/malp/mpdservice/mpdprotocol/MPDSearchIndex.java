@@ -0,0 +1,469 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDTrackStore;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Index of the words of the tracks of a {@link MPDLibrary}. It is fast enough to search on every
+ * key stroke while the search term is typed.
+ * <p/>
+ * Titles, artists, album artists, albums and paths are split into words of letters and digits.
+ * A track matches if every word of the search term is the beginning of a word in the searched
+ * fields. Unlike the "search" command of MPD a word is not found by a part in its middle.
+ * Results are ranked by the field a word is found in (title before artist, album and path),
+ * complete words before beginnings of words and all words in one field before words spread over
+ * multiple fields. Tracks with the same rank keep the order of the library.
+ * <p/>
+ * The words are kept sorted in one char array, so all words beginning with a search word are
+ * next to each other. For every word the index contains the tracks whose title or path contain
+ * it and the tag codes (see {@link MPDTrackStore#getTagCode(int, MPDTrackStore.TAG_COLUMN)})
+ * of the artists and albums that contain it. A library with 200000 tracks needs about 20 MB.
+ */
+public class MPDSearchIndex {
+    /* Fields of the track postings */
+    private static final int FIELD_TITLE = 0;
+    private static final int FIELD_PATH = 1;
+    private static final int FIELD_BITS = 1;
+    private static final int FIELD_MASK = (1 << FIELD_BITS) - 1;
+
+    /* Rank of a word found in a field. Doubled for complete words. */
+    private static final int WEIGHT_TITLE = 4;
+    private static final int WEIGHT_ARTIST = 3;
+    private static final int WEIGHT_ALBUM = 2;
+    private static final int WEIGHT_PATH = 1;
+    private static final int MAX_WORD_RANK = 2 * WEIGHT_TITLE;
+
+    /* Added once if all words are found in the same field, the path is not counted */
+    private static final int RANK_SAME_FIELD = MAX_WORD_RANK;
+
+    /* Bits of the fields in which a word is found */
+    private static final int FOUND_TITLE = 1;
+    private static final int FOUND_ARTIST = 2;
+    private static final int FOUND_ALBUM_ARTIST = 4;
+    private static final int FOUND_ALBUM = 8;
+
+    private final MPDTrackStore mEntries;
+
+    /**
+     * Sorted words, the characters of word i are mWordChars[mWordStarts[i]] up to
+     * mWordChars[mWordStarts[i + 1]].
+     */
+    private final char[] mWordChars;
+    private final int[] mWordStarts;
+
+    /**
+     * Tracks containing a word in their title or path (index << FIELD_BITS | field), from
+     * mTrackPostings[mTrackPostingStarts[word]] up to mTrackPostings[mTrackPostingStarts[word + 1]].
+     */
+    private final int[] mTrackPostingStarts;
+    private final int[] mTrackPostings;
+
+    /**
+     * Tag codes of artists and albums containing a word, like the track postings.
+     */
+    private final int[] mTagPostingStarts;
+    private final int[] mTagPostings;
+
+    /* Tag codes of every entry, copied from the store to check them without method calls */
+    private final int[] mArtists;
+    private final int[] mAlbumArtists;
+    private final int[] mAlbums;
+
+    /* Reused by the searches */
+    private final int[] mRanks;
+    private final int[] mWordRanks;
+    private final int[] mTagRanks;
+    private final int[] mFields;
+    private final int[] mWordFields;
+
+    private MPDSearchIndex(MPDTrackStore entries, WordCollector words, int[] trackWords, int[] trackWordStarts, int[] tagWords, int[] tagWordCodes, int tagWordCount) {
+        mEntries = entries;
+        int entryCount = entries.size();
+
+        // Sort the words and replace the ids by their position
+        String[] sortedWords = words.mWords.toArray(new String[words.mWords.size()]);
+        Arrays.sort(sortedWords);
+        int[] positions = new int[sortedWords.length];
+        int charCount = 0;
+        for (int i = 0; i < sortedWords.length; i++) {
+            positions[words.mIds.get(sortedWords[i])] = i;
+            charCount += sortedWords[i].length();
+        }
+        mWordChars = new char[charCount];
+        mWordStarts = new int[sortedWords.length + 1];
+        for (int i = 0; i < sortedWords.length; i++) {
+            sortedWords[i].getChars(0, sortedWords[i].length(), mWordChars, mWordStarts[i]);
+            mWordStarts[i + 1] = mWordStarts[i] + sortedWords[i].length();
+        }
+
+        // Postings of every word, in the order of the entries
+        mTrackPostingStarts = new int[sortedWords.length + 1];
+        mTrackPostings = new int[trackWordStarts[entryCount]];
+        for (int i = 0; i < mTrackPostings.length; i++) {
+            mTrackPostingStarts[positions[trackWords[i] >>> FIELD_BITS] + 1]++;
+        }
+        for (int i = 0; i < sortedWords.length; i++) {
+            mTrackPostingStarts[i + 1] += mTrackPostingStarts[i];
+        }
+        int[] next = Arrays.copyOf(mTrackPostingStarts, sortedWords.length);
+        for (int entry = 0; entry < entryCount; entry++) {
+            for (int i = trackWordStarts[entry]; i < trackWordStarts[entry + 1]; i++) {
+                int word = positions[trackWords[i] >>> FIELD_BITS];
+                mTrackPostings[next[word]++] = entry << FIELD_BITS | (trackWords[i] & FIELD_MASK);
+            }
+        }
+
+        mTagPostingStarts = new int[sortedWords.length + 1];
+        mTagPostings = new int[tagWordCount];
+        for (int i = 0; i < tagWordCount; i++) {
+            mTagPostingStarts[positions[tagWords[i]] + 1]++;
+        }
+        for (int i = 0; i < sortedWords.length; i++) {
+            mTagPostingStarts[i + 1] += mTagPostingStarts[i];
+        }
+        next = Arrays.copyOf(mTagPostingStarts, sortedWords.length);
+        for (int i = 0; i < tagWordCount; i++) {
+            mTagPostings[next[positions[tagWords[i]]]++] = tagWordCodes[i];
+        }
+
+        mArtists = new int[entryCount];
+        mAlbumArtists = new int[entryCount];
+        mAlbums = new int[entryCount];
+        for (int i = 0; i < entryCount; i++) {
+            mArtists[i] = entries.getTagCode(i, MPDTrackStore.TAG_COLUMN.ARTIST);
+            mAlbumArtists[i] = entries.getTagCode(i, MPDTrackStore.TAG_COLUMN.ALBUM_ARTIST);
+            mAlbums[i] = entries.getTagCode(i, MPDTrackStore.TAG_COLUMN.ALBUM);
+        }
+
+        mRanks = new int[entryCount];
+        mWordRanks = new int[entryCount];
+        mFields = new int[entryCount];
+        mWordFields = new int[entryCount];
+        mTagRanks = new int[entries.getTagCodeCount()];
+    }
+
+    /**
+     * Creates the index for all tracks of a store. The store must not be changed afterwards.
+     */
+    static MPDSearchIndex create(MPDTrackStore entries) {
+        WordCollector words = new WordCollector();
+        List<String> split = new ArrayList<>();
+
+        // Words of the titles and paths of every track
+        IntList trackWords = new IntList();
+        int[] trackWordStarts = new int[entries.size() + 1];
+        boolean[] usedCodes = new boolean[entries.getTagCodeCount()];
+        for (int i = 0; i < entries.size(); i++) {
+            trackWordStarts[i] = trackWords.mSize;
+            if (entries.getType(i) != MPDTrackStore.ENTRY_TYPE.FILE) {
+                continue;
+            }
+            addWords(entries.getText(i, MPDTrackStore.TEXT_COLUMN.TITLE), FIELD_TITLE, words, split, trackWords, trackWordStarts[i]);
+            addWords(entries.getText(i, MPDTrackStore.TEXT_COLUMN.PATH), FIELD_PATH, words, split, trackWords, trackWordStarts[i]);
+            usedCodes[entries.getTagCode(i, MPDTrackStore.TAG_COLUMN.ARTIST)] = true;
+            usedCodes[entries.getTagCode(i, MPDTrackStore.TAG_COLUMN.ALBUM_ARTIST)] = true;
+            usedCodes[entries.getTagCode(i, MPDTrackStore.TAG_COLUMN.ALBUM)] = true;
+        }
+        trackWordStarts[entries.size()] = trackWords.mSize;
+
+        // Words of the artists and albums, every value only once
+        IntList tagWords = new IntList();
+        IntList tagWordCodes = new IntList();
+        for (int code = 1; code < usedCodes.length; code++) {
+            if (!usedCodes[code]) {
+                continue;
+            }
+            splitWords(entries.getTagValue(code), split);
+            for (int i = 0; i < split.size(); i++) {
+                if (split.indexOf(split.get(i)) == i) {
+                    tagWords.add(words.getId(split.get(i)));
+                    tagWordCodes.add(code);
+                }
+            }
+        }
+
+        return new MPDSearchIndex(entries, words, trackWords.mValues, trackWordStarts, tagWords.mValues, tagWordCodes.mValues, tagWords.mSize);
+    }
+
+    /**
+     * Searches the tracks like the search command of MPD, but by the beginnings of words.
+     *
+     * @param term Words to search for
+     * @param type Fields to search in
+     * @return Matching tracks, ranked. The objects are created when they are requested from the
+     * list.
+     */
+    public synchronized List<MPDFileEntry> search(String term, MPDCommands.MPD_SEARCH_TYPE type) {
+        List<String> searchWords = new ArrayList<>();
+        splitWords(term, searchWords);
+        if (searchWords.isEmpty()) {
+            return new SearchResultList(new int[0]);
+        }
+
+        boolean title = type == MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_TRACK || type == MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_ANY;
+        boolean path = type == MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_FILE || type == MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_ANY;
+        boolean artist = type == MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_ARTIST || type == MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_ANY;
+        boolean albumArtist = type == MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_ANY;
+        boolean album = type == MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_ALBUM || type == MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_ANY;
+
+        int entryCount = mRanks.length;
+        for (int word = 0; word < searchWords.size(); word++) {
+            char[] prefix = searchWords.get(word).toCharArray();
+            int first = findWord(prefix, false);
+            int end = findWord(prefix, true);
+            // Only the first word of the range can be the complete word
+            int completeEnd = first < end && mWordStarts[first + 1] - mWordStarts[first] == prefix.length ? first + 1 : first;
+
+            Arrays.fill(mWordRanks, 0);
+            Arrays.fill(mWordFields, 0);
+            if (title || path) {
+                for (int i = mTrackPostingStarts[first]; i < mTrackPostingStarts[end]; i++) {
+                    int field = mTrackPostings[i] & FIELD_MASK;
+                    int weight = FIELD_TITLE == field ? (title ? WEIGHT_TITLE : 0) : (path ? WEIGHT_PATH : 0);
+                    int rank = i < mTrackPostingStarts[completeEnd] ? 2 * weight : weight;
+                    int entry = mTrackPostings[i] >>> FIELD_BITS;
+                    if (rank > mWordRanks[entry]) {
+                        mWordRanks[entry] = rank;
+                    }
+                    if (FIELD_TITLE == field && title) {
+                        mWordFields[entry] = FOUND_TITLE;
+                    }
+                }
+            }
+
+            if ((artist || albumArtist || album) && mTagPostingStarts[first] < mTagPostingStarts[end]) {
+                Arrays.fill(mTagRanks, 0);
+                for (int i = mTagPostingStarts[first]; i < mTagPostingStarts[end]; i++) {
+                    int rank = i < mTagPostingStarts[completeEnd] ? 2 : 1;
+                    if (rank > mTagRanks[mTagPostings[i]]) {
+                        mTagRanks[mTagPostings[i]] = rank;
+                    }
+                }
+                for (int entry = 0; entry < entryCount; entry++) {
+                    int rank = mWordRanks[entry];
+                    int fields = mWordFields[entry];
+                    if (artist && 0 != mTagRanks[mArtists[entry]]) {
+                        rank = Math.max(rank, WEIGHT_ARTIST * mTagRanks[mArtists[entry]]);
+                        fields |= FOUND_ARTIST;
+                    }
+                    if (albumArtist && 0 != mTagRanks[mAlbumArtists[entry]]) {
+                        rank = Math.max(rank, WEIGHT_ARTIST * mTagRanks[mAlbumArtists[entry]]);
+                        fields |= FOUND_ALBUM_ARTIST;
+                    }
+                    if (album && 0 != mTagRanks[mAlbums[entry]]) {
+                        rank = Math.max(rank, WEIGHT_ALBUM * mTagRanks[mAlbums[entry]]);
+                        fields |= FOUND_ALBUM;
+                    }
+                    mWordRanks[entry] = rank;
+                    mWordFields[entry] = fields;
+                }
+            }
+
+            // Every word has to be found
+            for (int entry = 0; entry < entryCount; entry++) {
+                if (0 == word) {
+                    mRanks[entry] = mWordRanks[entry];
+                    mFields[entry] = mWordFields[entry];
+                } else if (0 == mWordRanks[entry]) {
+                    mRanks[entry] = 0;
+                } else if (0 != mRanks[entry]) {
+                    mRanks[entry] += mWordRanks[entry];
+                    mFields[entry] &= mWordFields[entry];
+                }
+            }
+        }
+        for (int entry = 0; entry < entryCount; entry++) {
+            if (0 != mRanks[entry] && 0 != mFields[entry]) {
+                mRanks[entry] += RANK_SAME_FIELD;
+            }
+        }
+
+        // Sort by rank with counting sort, equal ranks keep the order of the library
+        int[] rankCounts = new int[searchWords.size() * MAX_WORD_RANK + RANK_SAME_FIELD + 1];
+        for (int entry = 0; entry < entryCount; entry++) {
+            rankCounts[mRanks[entry]]++;
+        }
+        int resultCount = entryCount - rankCounts[0];
+        int position = 0;
+        for (int rank = rankCounts.length - 1; rank > 0; rank--) {
+            int count = rankCounts[rank];
+            rankCounts[rank] = position;
+            position += count;
+        }
+        int[] results = new int[resultCount];
+        for (int entry = 0; entry < entryCount; entry++) {
+            if (0 != mRanks[entry]) {
+                results[rankCounts[mRanks[entry]]++] = entry;
+            }
+        }
+        return new SearchResultList(results);
+    }
+
+    /**
+     * Finds the range of the words beginning with a prefix.
+     *
+     * @param prefix Beginning of the words
+     * @param end    False to find the first word of the range, true to find the end of the range
+     * @return Position in the sorted words
+     */
+    private int findWord(char[] prefix, boolean end) {
+        int low = 0;
+        int high = mWordStarts.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = comparePrefix(middle, prefix);
+            if (comparison < 0 || (end && 0 == comparison)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compares the beginning of a word with the prefix.
+     *
+     * @return 0 if the word begins with the prefix, otherwise the order of the word and the prefix
+     */
+    private int comparePrefix(int word, char[] prefix) {
+        int start = mWordStarts[word];
+        int length = mWordStarts[word + 1] - start;
+        for (int i = 0; i < prefix.length; i++) {
+            if (i == length) {
+                return -1;
+            }
+            int difference = mWordChars[start + i] - prefix[i];
+            if (0 != difference) {
+                return difference;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Adds the word ids of a text to the words of the current track, every word once per field.
+     */
+    private static void addWords(String text, int field, WordCollector words, List<String> split, IntList trackWords, int trackStart) {
+        if (null == text) {
+            return;
+        }
+        splitWords(text, split);
+        int fieldStart = trackWords.mSize;
+        for (String word : split) {
+            int value = words.getId(word) << FIELD_BITS | field;
+            if (!trackWords.contains(value, fieldStart)) {
+                trackWords.add(value);
+            }
+        }
+    }
+
+    /**
+     * Splits a text into lower case words of letters and digits.
+     */
+    private static void splitWords(String text, List<String> words) {
+        words.clear();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordCharacter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordCharacter && start < 0) {
+                start = i;
+            } else if (!wordCharacter && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+    }
+
+    /**
+     * Assigns ids to the words while the index is created.
+     */
+    private static class WordCollector {
+        private final HashMap<String, Integer> mIds = new HashMap<>();
+        private final List<String> mWords = new ArrayList<>();
+
+        private int getId(String word) {
+            Integer id = mIds.get(word);
+            if (null == id) {
+                id = mWords.size();
+                mIds.put(word, id);
+                mWords.add(word);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Growing int array for the creation of the index.
+     */
+    private static class IntList {
+        private int[] mValues = new int[1024];
+        private int mSize;
+
+        private void add(int value) {
+            if (mSize == mValues.length) {
+                mValues = Arrays.copyOf(mValues, mSize * 2);
+            }
+            mValues[mSize++] = value;
+        }
+
+        private boolean contains(int value, int start) {
+            for (int i = start; i < mSize; i++) {
+                if (mValues[i] == value) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Result of a search, the objects of the tracks are created when they are requested.
+     */
+    private class SearchResultList extends AbstractList<MPDFileEntry> implements RandomAccess {
+        private final int[] mIndices;
+
+        private SearchResultList(int[] indices) {
+            mIndices = indices;
+        }
+
+        @Override
+        public MPDFileEntry get(int index) {
+            return mEntries.get(mIndices[index]);
+        }
+
+        @Override
+        public int size() {
+            return mIndices.length;
+        }
+    }
+}
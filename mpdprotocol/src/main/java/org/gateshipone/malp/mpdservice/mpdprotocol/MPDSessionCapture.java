@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Session recorded by the {@link MPDSessionRecorder}. The records are grouped into exchanges:
+ * the lines of one request (a single command or a complete command list) together with all data
+ * the server sent until the next request.
+ */
+public class MPDSessionCapture {
+    private static final String TAG = MPDSessionCapture.class.getSimpleName();
+
+    /**
+     * Data received from the server.
+     */
+    public static class Chunk {
+        private final long mTime;
+        private final byte[] mData;
+
+        private Chunk(long time, byte[] data) {
+            mTime = time;
+            mData = data;
+        }
+
+        /**
+         * @return Time of the reception in microseconds since the start of the recording
+         */
+        public long getTime() {
+            return mTime;
+        }
+
+        public byte[] getData() {
+            return mData;
+        }
+    }
+
+    /**
+     * One request of the client and the response of the server.
+     */
+    public static class Exchange {
+        private final long mTime;
+        private final String mRequest;
+        private final List<Chunk> mResponse;
+
+        private Exchange(long time, String request) {
+            mTime = time;
+            mRequest = request;
+            mResponse = new ArrayList<>();
+        }
+
+        /**
+         * @return Time of the request in microseconds since the start of the recording
+         */
+        public long getTime() {
+            return mTime;
+        }
+
+        /**
+         * @return Lines of the request, separated by '\n'. Empty for the greeting of the server.
+         */
+        public String getRequest() {
+            return mRequest;
+        }
+
+        public List<Chunk> getResponse() {
+            return Collections.unmodifiableList(mResponse);
+        }
+
+        /**
+         * @return All response data of this exchange
+         */
+        public byte[] getResponseData() {
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            for (Chunk chunk : mResponse) {
+                data.write(chunk.mData, 0, chunk.mData.length);
+            }
+            return data.toByteArray();
+        }
+    }
+
+    private final String mConnectionID;
+
+    private final List<Exchange> mExchanges;
+
+    private MPDSessionCapture(String connectionID, List<Exchange> exchanges) {
+        mConnectionID = connectionID;
+        mExchanges = exchanges;
+    }
+
+    /**
+     * @return ID of the recorded connection (e.g. "Status")
+     */
+    public String getConnectionID() {
+        return mConnectionID;
+    }
+
+    /**
+     * @return Exchanges in recorded order. The first one is the greeting of the server with an
+     * empty request.
+     */
+    public List<Exchange> getExchanges() {
+        return Collections.unmodifiableList(mExchanges);
+    }
+
+    /**
+     * Reads a recording created by the {@link MPDSessionRecorder}.
+     *
+     * @param file File to read
+     * @return The parsed session
+     * @throws IOException If the file can not be read or is not a session recording
+     */
+    public static MPDSessionCapture read(File file) throws IOException {
+        InputStream input = new BufferedInputStream(new FileInputStream(file));
+        try {
+            String header = readHeaderLine(input);
+            if (null == header || !header.startsWith(MPDSessionRecorder.FILE_HEADER)) {
+                throw new IOException("Not a session recording: " + file);
+            }
+            String connectionID = header.substring(MPDSessionRecorder.FILE_HEADER.length()).trim();
+
+            List<Exchange> exchanges = new ArrayList<>();
+            exchanges.add(new Exchange(0, ""));
+            try {
+                readRecords(input, file, exchanges);
+            } catch (EOFException e) {
+                // A recording of a killed application can end in the middle of a record, use
+                // the complete records
+                MPDLog.w(TAG, "Truncated session recording: " + file);
+            }
+            return new MPDSessionCapture(connectionID, exchanges);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid record in " + file + ": " + e.getMessage());
+        } finally {
+            input.close();
+        }
+    }
+
+    private static void readRecords(InputStream input, File file, List<Exchange> exchanges) throws IOException {
+        Exchange exchange = exchanges.get(0);
+        StringBuilder commandList = null;
+        String line;
+        while ((line = readHeaderLine(input)) != null) {
+            String[] record = line.split(" ", 3);
+            if (record.length < 3 || record[0].length() != 1) {
+                throw new IOException("Invalid record in " + file + ": " + line);
+            }
+            long time = Long.parseLong(record[1]);
+            if (record[0].charAt(0) == MPDSessionRecorder.RECORD_COMMAND) {
+                String command = record[2];
+                // Lines of a command list form one request
+                if (null != commandList) {
+                    commandList.append('\n').append(command);
+                    if (command.equals(MPDCommands.MPD_END_COMMAND_LIST)) {
+                        exchange = new Exchange(time, commandList.toString());
+                        exchanges.add(exchange);
+                        commandList = null;
+                    }
+                } else if (command.equals(MPDCommands.MPD_START_COMMAND_LIST) || command.equals(MPDCommands.MPD_START_COMMAND_LIST_OK)) {
+                    commandList = new StringBuilder(command);
+                } else {
+                    exchange = new Exchange(time, command);
+                    exchanges.add(exchange);
+                }
+            } else if (record[0].charAt(0) == MPDSessionRecorder.RECORD_RESPONSE) {
+                byte[] data = new byte[Integer.parseInt(record[2])];
+                readFully(input, data);
+                if (input.read() != '\n') {
+                    throw new IOException("Invalid response record in " + file);
+                }
+                exchange.mResponse.add(new Chunk(time, data));
+            } else {
+                throw new IOException("Invalid record in " + file + ": " + line);
+            }
+        }
+    }
+
+    /**
+     * Reads a line of a record header.
+     *
+     * @return The line without the line break or null at the end of the file
+     */
+    private static String readHeaderLine(InputStream input) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int read;
+        while ((read = input.read()) != '\n') {
+            if (read == -1) {
+                if (line.size() == 0) {
+                    return null;
+                }
+                throw new EOFException("Truncated record");
+            }
+            line.write(read);
+        }
+        return new String(line.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void readFully(InputStream input, byte[] data) throws IOException {
+        int offset = 0;
+        while (offset < data.length) {
+            int read = input.read(data, offset, data.length - offset);
+            if (read == -1) {
+                throw new EOFException("Truncated record");
+            }
+            offset += read;
+        }
+    }
+}
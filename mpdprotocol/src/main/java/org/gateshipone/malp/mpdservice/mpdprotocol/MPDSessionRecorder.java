@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Debugging aid that records the complete traffic of a connection with timestamps, so that
+ * problems with a specific server can be reproduced without access to it (see
+ * {@link MPDSessionCapture}).
+ * <p>
+ * Recording is disabled by default and enabled for all connections that are established after
+ * {@link #setRecordDirectory(File)} was called with a directory. Every connection creates its own
+ * file. Passwords are not recorded.
+ * <p>
+ * File format: a header line "MPDSESSION 1 ID" followed by records. Timestamps are in
+ * microseconds since the start of the recording.
+ * <pre>
+ * C TIME COMMAND        Line sent by the client
+ * S TIME LENGTH         Data received from the server, followed by LENGTH raw bytes and '\n'
+ * </pre>
+ */
+public class MPDSessionRecorder {
+    private static final String TAG = MPDSessionRecorder.class.getSimpleName();
+
+    static final String FILE_HEADER = "MPDSESSION 1";
+
+    public static final String FILE_EXTENSION = ".mpdsession";
+
+    static final char RECORD_COMMAND = 'C';
+
+    static final char RECORD_RESPONSE = 'S';
+
+    private static volatile File mRecordDirectory;
+
+    private final File mFile;
+
+    private final OutputStream mOutput;
+
+    private final long mStartNanos;
+
+    private boolean mClosed;
+
+    /**
+     * @param directory Directory to record new connections to, null to disable recording.
+     */
+    public static void setRecordDirectory(File directory) {
+        mRecordDirectory = directory;
+    }
+
+    /**
+     * @return Directory new connections are recorded to, null if recording is disabled.
+     */
+    public static File getRecordDirectory() {
+        return mRecordDirectory;
+    }
+
+    /**
+     * Starts the recording of a new connection if recording is enabled.
+     *
+     * @param connectionID ID of the connection, used for the file name
+     * @return The recorder or null if recording is disabled or the file could not be created.
+     */
+    static MPDSessionRecorder startRecording(String connectionID) {
+        File directory = mRecordDirectory;
+        if (null == directory) {
+            return null;
+        }
+
+        String date = new SimpleDateFormat("yyyyMMdd-HHmmss-SSS", Locale.US).format(new Date());
+        File file = new File(directory, connectionID + '-' + date + FILE_EXTENSION);
+        try {
+            return new MPDSessionRecorder(file, connectionID);
+        } catch (IOException e) {
+            MPDLog.e(TAG, "Could not create session recording: " + file);
+            return null;
+        }
+    }
+
+    private MPDSessionRecorder(File file, String connectionID) throws IOException {
+        mFile = file;
+        mOutput = new BufferedOutputStream(new FileOutputStream(file));
+        mStartNanos = System.nanoTime();
+        mOutput.write((FILE_HEADER + ' ' + connectionID + '\n').getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Records the lines sent to the server. The file is flushed afterwards, so a recording is
+     * complete up to the last command even if the application is killed.
+     *
+     * @param command One or more lines (command lists) without the final line break
+     */
+    synchronized void recordCommand(String command) {
+        if (mClosed) {
+            return;
+        }
+        long time = getTime();
+        try {
+            for (String line : command.split("\n")) {
+                if (line.startsWith(MPDCommands.MPD_COMMAND_PASSWORD)) {
+                    line = MPDCommands.MPD_COMMAND_PASSWORD + "\"\"";
+                }
+                writeRecordHeader(RECORD_COMMAND, time, line);
+            }
+            mOutput.flush();
+        } catch (IOException e) {
+            handleError();
+        }
+    }
+
+    /**
+     * Records data received from the server.
+     */
+    synchronized void recordResponse(byte[] data, int offset, int length) {
+        if (mClosed) {
+            return;
+        }
+        try {
+            writeRecordHeader(RECORD_RESPONSE, getTime(), String.valueOf(length));
+            mOutput.write(data, offset, length);
+            mOutput.write('\n');
+        } catch (IOException e) {
+            handleError();
+        }
+    }
+
+    synchronized void close() {
+        if (mClosed) {
+            return;
+        }
+        mClosed = true;
+        try {
+            mOutput.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void writeRecordHeader(char type, long time, String value) throws IOException {
+        mOutput.write((String.valueOf(type) + ' ' + time + ' ' + value + '\n').getBytes(StandardCharsets.UTF_8));
+    }
+
+    private long getTime() {
+        return (System.nanoTime() - mStartNanos) / 1000;
+    }
+
+    private void handleError() {
+        MPDLog.e(TAG, "Could not write session recording, stopped recording to: " + mFile);
+        close();
+    }
+}
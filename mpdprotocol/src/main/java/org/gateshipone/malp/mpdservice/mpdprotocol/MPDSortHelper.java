@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFile;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+public class MPDSortHelper {
+
+    /**
+     * Orders {@link MPDFile} objects by their index and all other elements after them.
+     */
+    private static final Comparator<MPDFileEntry> INDEX_COMPARATOR = new Comparator<MPDFileEntry>() {
+        @Override
+        public int compare(MPDFileEntry first, MPDFileEntry second) {
+            boolean firstFile = first instanceof MPDFile;
+            boolean secondFile = second instanceof MPDFile;
+            if (firstFile && secondFile) {
+                return Integer.signum(((MPDFile) first).indexCompare((MPDFile) second));
+            } else if (firstFile) {
+                return -1;
+            } else if (secondFile) {
+                return 1;
+            }
+            return 0;
+        }
+    };
+
+    /**
+     * Orders albums by their name like {@link MPDAlbum#compareTo(MPDAlbum)}, albums with the
+     * same name by their artist and MBID.
+     */
+    private static final Comparator<MPDAlbum> ALBUM_COMPARATOR = new Comparator<MPDAlbum>() {
+        @Override
+        public int compare(MPDAlbum first, MPDAlbum second) {
+            int result = first.compareTo(second);
+            if (0 == result) {
+                result = first.getArtistName().compareTo(second.getArtistName());
+            }
+            if (0 == result) {
+                result = first.getMBID().compareTo(second.getMBID());
+            }
+            return result;
+        }
+    };
+
+    /**
+     * Sorts a list of {@link MPDFileEntry} objects in the right order of their index (if
+     * the objects are from type {@link MPDFile}. All other elements are located at the end of the list.
+     * The sort is stable, elements with the same index keep their order.
+     * @param inList List of objects to sort.
+     */
+    public static void sortFileListNumeric(List<MPDFileEntry> inList) {
+        Collections.sort(inList, INDEX_COMPARATOR);
+    }
+
+    /**
+     * Sorts a list of albums by their name. Albums with the same name are sorted by their artist
+     * and MBID, so the order does not depend on the order of the input.
+     * @param inList List of albums to sort.
+     */
+    public static void sortAlbumList(List<MPDAlbum> inList) {
+        Collections.sort(inList, ALBUM_COMPARATOR);
+    }
+}
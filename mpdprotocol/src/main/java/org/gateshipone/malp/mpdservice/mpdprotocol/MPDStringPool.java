@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Pool of decoded tag values, so that equal values (artist, album, date, MBIDs) of many songs
+ * share one String instead of every song getting its own copy. A 50k song library has only a
+ * few thousand distinct values of these tags.
+ * <p/>
+ * Values are looked up by their UTF-8 bytes directly in the read buffer, so a value that is
+ * already in the pool costs no allocation at all. The pool is an open addressing hash table
+ * that grows up to {@link #MAX_CAPACITY} slots. If it is full it is cleared and starts again,
+ * this bounds the memory of the pool and keeps the values of the current response.
+ * <p/>
+ * This class is not thread-safe, it is used by one {@link MPDResponseReader}.
+ */
+class MPDStringPool {
+    private static final Charset UTF8 = StandardCharsets.UTF_8;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Maximum number of slots. Must be a power of two. At most half of them are used.
+     */
+    private static final int MAX_CAPACITY = 32 * 1024;
+
+    /**
+     * Longer values are not pooled, they are most likely unique (e.g. comments).
+     */
+    static final int MAX_VALUE_LENGTH = 256;
+
+    private String[] mValues;
+
+    /**
+     * Hashes of the values, to skip comparing most of the values in a probe sequence.
+     */
+    private int[] mHashes;
+
+    private int mSize;
+
+    MPDStringPool() {
+        mValues = new String[INITIAL_CAPACITY];
+        mHashes = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Returns the pooled String for the UTF-8 encoded value. The value is decoded and added to
+     * the pool if it is not part of it yet.
+     *
+     * @param data  Buffer containing the value
+     * @param start Start of the value in the buffer
+     * @param end   End of the value in the buffer (exclusive)
+     * @return The decoded value, the same instance for equal values.
+     */
+    String get(byte[] data, int start, int end) {
+        if (end - start > MAX_VALUE_LENGTH) {
+            return new String(data, start, end - start, UTF8);
+        }
+
+        int hash = hash(data, start, end);
+        int mask = mValues.length - 1;
+        int index = hash & mask;
+        String value;
+        while (null != (value = mValues[index])) {
+            if (mHashes[index] == hash && equalsUTF8(value, data, start, end)) {
+                return value;
+            }
+            index = (index + 1) & mask;
+        }
+
+        value = new String(data, start, end - start, UTF8);
+        if ((mSize + 1) * 2 > mValues.length) {
+            if (mValues.length < MAX_CAPACITY) {
+                grow();
+            } else {
+                clear();
+            }
+            // Slot changed with the new table
+            mask = mValues.length - 1;
+            index = hash & mask;
+            while (null != mValues[index]) {
+                index = (index + 1) & mask;
+            }
+        }
+        mValues[index] = value;
+        mHashes[index] = hash;
+        mSize++;
+        return value;
+    }
+
+    /**
+     * Removes all values from the pool.
+     */
+    void clear() {
+        Arrays.fill(mValues, null);
+        mSize = 0;
+    }
+
+    private void grow() {
+        String[] oldValues = mValues;
+        int[] oldHashes = mHashes;
+        mValues = new String[oldValues.length * 2];
+        mHashes = new int[oldValues.length * 2];
+        int mask = mValues.length - 1;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (null != oldValues[i]) {
+                int index = oldHashes[i] & mask;
+                while (null != mValues[index]) {
+                    index = (index + 1) & mask;
+                }
+                mValues[index] = oldValues[i];
+                mHashes[index] = oldHashes[i];
+            }
+        }
+    }
+
+    private static int hash(byte[] data, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = hash * 31 + data[i];
+        }
+        // Spread the higher bits, only the lower ones select the slot
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Compares a String with UTF-8 encoded bytes without decoding them. ASCII characters are
+     * compared directly, the rest of the String is encoded at the first other character.
+     */
+    private static boolean equalsUTF8(String value, byte[] data, int start, int end) {
+        int length = value.length();
+        int position = start;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                byte[] encoded = value.substring(i).getBytes(UTF8);
+                if (encoded.length != end - position) {
+                    return false;
+                }
+                for (byte b : encoded) {
+                    if (b != data[position++]) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            if (position == end || data[position] != c) {
+                return false;
+            }
+            position++;
+        }
+        return position == end;
+    }
+}
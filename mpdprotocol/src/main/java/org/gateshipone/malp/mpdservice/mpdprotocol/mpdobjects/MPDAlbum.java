@@ -22,10 +22,11 @@
 package org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects;
 
 
-import android.os.Parcel;
-import android.os.Parcelable;
+import java.io.Serializable;
+
+public class MPDAlbum implements MPDGenericItem, Comparable<MPDAlbum>, Serializable {
+    private static final long serialVersionUID = 1L;
 
-public class MPDAlbum implements MPDGenericItem, Comparable<MPDAlbum>, Parcelable {
     /* Album properties */
     private String mName;
 
@@ -45,25 +46,6 @@ public class MPDAlbum implements MPDGenericItem, Comparable<MPDAlbum>, Parcelabl
 
     /* Getters */
 
-    protected MPDAlbum(Parcel in) {
-        mName = in.readString();
-        mMBID = in.readString();
-        mArtistName = in.readString();
-        mImageFetching = in.readByte() != 0;
-    }
-
-    public static final Creator<MPDAlbum> CREATOR = new Creator<MPDAlbum>() {
-        @Override
-        public MPDAlbum createFromParcel(Parcel in) {
-            return new MPDAlbum(in);
-        }
-
-        @Override
-        public MPDAlbum[] newArray(int size) {
-            return new MPDAlbum[size];
-        }
-    };
-
     public String getName() {
         return mName;
     }
@@ -127,17 +109,4 @@ public class MPDAlbum implements MPDGenericItem, Comparable<MPDAlbum>, Parcelabl
     public synchronized boolean getFetching() {
         return mImageFetching;
     }
-
-    @Override
-    public int describeContents() {
-        return 0;
-    }
-
-    @Override
-    public void writeToParcel(Parcel dest, int flags) {
-        dest.writeString(mName);
-        dest.writeString(mMBID);
-        dest.writeString(mArtistName);
-        dest.writeByte((byte) (mImageFetching ? 1 : 0));
-    }
 }
@@ -22,12 +22,13 @@
 package org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects;
 
 
-import android.os.Parcel;
-import android.os.Parcelable;
+import java.io.Serializable;
 
 import java.util.ArrayList;
 
-public class MPDArtist implements MPDGenericItem, Comparable<MPDArtist>, Parcelable {
+public class MPDArtist implements MPDGenericItem, Comparable<MPDArtist>, Serializable {
+    private static final long serialVersionUID = 1L;
+
     /* Artist properties */
     private String pArtistName;
 
@@ -41,24 +42,6 @@ public class MPDArtist implements MPDGenericItem, Comparable<MPDArtist>, Parcela
         pMBIDs = new ArrayList<>();
     }
 
-    protected MPDArtist(Parcel in) {
-        pArtistName = in.readString();
-        pMBIDs = in.createStringArrayList();
-        mImageFetching = in.readByte() != 0;
-    }
-
-    public static final Creator<MPDArtist> CREATOR = new Creator<MPDArtist>() {
-        @Override
-        public MPDArtist createFromParcel(Parcel in) {
-            return new MPDArtist(in);
-        }
-
-        @Override
-        public MPDArtist[] newArray(int size) {
-            return new MPDArtist[size];
-        }
-    };
-
     public String getArtistName() {
         return pArtistName;
     }
@@ -100,6 +83,12 @@ public class MPDArtist implements MPDGenericItem, Comparable<MPDArtist>, Parcela
         return true;
     }
 
+    @Override
+    public int hashCode() {
+        // The MBIDs can be added later, so only the name is used
+        return pArtistName.hashCode();
+    }
+
     @Override
     public int compareTo(MPDArtist another) {
         if (another.equals(this)) {
@@ -125,17 +114,4 @@ public class MPDArtist implements MPDGenericItem, Comparable<MPDArtist>, Parcela
     public synchronized boolean getFetching() {
         return mImageFetching;
     }
-
-    @Override
-    public int describeContents() {
-        return 0;
-    }
-
-    @Override
-    public void writeToParcel(Parcel dest, int flags) {
-        dest.writeString(pArtistName);
-        String[] mbids = pMBIDs.toArray(new String[pMBIDs.size()]);
-        dest.writeStringArray(mbids);
-        dest.writeByte(mImageFetching ? (byte)1 : (byte)0);
-    }
 }
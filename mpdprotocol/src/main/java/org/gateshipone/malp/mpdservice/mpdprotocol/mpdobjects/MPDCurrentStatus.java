@@ -22,10 +22,10 @@
 package org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects;
 
 
-import android.os.Parcel;
-import android.os.Parcelable;
+import java.io.Serializable;
 
-public class MPDCurrentStatus implements Parcelable{
+public class MPDCurrentStatus implements Serializable {
+    private static final long serialVersionUID = 1L;
 
     public enum MPD_PLAYBACK_STATE {
         MPD_PLAYING,
@@ -120,27 +120,6 @@ public class MPDCurrentStatus implements Parcelable{
      */
     private MPD_PLAYBACK_STATE pPlaybackState;
 
-    protected MPDCurrentStatus(Parcel in) {
-        /* Create this object from parcel */
-        pVolume = in.readInt();
-        pRepeat = in.readInt();
-        pRandom = in.readInt();
-        pSinglePlayback = in.readInt();
-        pConsume = in.readInt();
-        pPlaylistVersion = in.readInt();
-        pPlaylistLength = in.readInt();
-        pCurrentSongIndex = in.readInt();
-        pNextSongIndex = in.readInt();
-        pSamplerate = in.readInt();
-        pBitDepth = in.readString();
-        pChannelCount = in.readInt();
-        pBitrate = in.readInt();
-        pElapsedTime = in.readInt();
-        pTrackLength = in.readInt();
-        pUpdateDBJob = in.readInt();
-        pPlaybackState = MPD_PLAYBACK_STATE.values()[in.readInt()];
-    }
-
     public MPDCurrentStatus() {
         pVolume = 0;
         pRepeat = 0;
@@ -327,48 +306,6 @@ public class MPDCurrentStatus implements Parcelable{
     }
 
 
-    @Override
-    public void writeToParcel(Parcel dest, int flags) {
-        /* Serialize the class attributes here */
-        dest.writeInt(pVolume);
-        dest.writeInt(pRepeat);
-        dest.writeInt(pRandom);
-        dest.writeInt(pSinglePlayback);
-        dest.writeInt(pConsume);
-        dest.writeInt(pPlaylistVersion);
-        dest.writeInt(pPlaylistLength);
-        dest.writeInt(pCurrentSongIndex);
-        dest.writeInt(pNextSongIndex);
-        dest.writeInt(pSamplerate);
-        dest.writeString(pBitDepth);
-        dest.writeInt(pChannelCount);
-        dest.writeInt(pBitrate);
-        dest.writeInt(pElapsedTime);
-        dest.writeInt(pTrackLength);
-        dest.writeInt(pUpdateDBJob);
-        /* Convert enum-type to int here and back when deserializing */
-        dest.writeInt(pPlaybackState.ordinal());
-    }
-
-    @Override
-    public int describeContents() {
-        return 0;
-    }
-
-    public static final Creator<MPDCurrentStatus> CREATOR = new Creator<MPDCurrentStatus>() {
-        @Override
-        public MPDCurrentStatus createFromParcel(Parcel in) {
-            return new MPDCurrentStatus(in);
-        }
-
-        @Override
-        public MPDCurrentStatus[] newArray(int size) {
-            return new MPDCurrentStatus[size];
-        }
-    };
-
-
-
     public String printStatus() {
         /* String output for debug purposes */
         String retString = "";
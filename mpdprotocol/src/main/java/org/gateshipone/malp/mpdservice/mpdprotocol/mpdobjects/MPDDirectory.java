@@ -23,6 +23,7 @@ package org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects;
 
 
 public class MPDDirectory extends MPDFileEntry implements MPDGenericItem {
+    private static final long serialVersionUID = 1L;
 
     public MPDDirectory(String path) {
         super(path);
@@ -22,16 +22,15 @@
 package org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects;
 
 
-import android.os.Parcel;
-import android.os.Parcelable;
+import java.io.Serializable;
 
 /**
  * This class represents an MPDFile. This is the same type for tracks and files.
  * This is used for tracks in playlist, album, search results,... and for music files when
  * retrieving an directory listing from the mpd server.
  */
-public class MPDFile extends MPDFileEntry implements MPDGenericItem, Parcelable {
-
+public class MPDFile extends MPDFileEntry implements MPDGenericItem, Serializable {
+    private static final long serialVersionUID = 1L;
 
     /**
      * Title of the song
@@ -137,39 +136,6 @@ public class MPDFile extends MPDFileEntry implements MPDGenericItem, Parcelable
         pLength = 0;
     }
 
-    /**
-     * Create a MPDFile from a parcel
-     *
-     * @param in Parcel to deserialize
-     */
-    protected MPDFile(Parcel in) {
-        super(in.readString());
-
-        /**
-         * Deserialize all properties. Check with serialization method. BOTH NEED TO BE EQUIVALENT
-         */
-        pTrackTitle = in.readString();
-        pTrackAlbum = in.readString();
-        pTrackArtist = in.readString();
-        pTrackAlbumArtist = in.readString();
-
-        pDate = in.readString();
-
-        pTrackMBID = in.readString();
-        pTrackAlbumMBID = in.readString();
-        pTrackArtistMBID = in.readString();
-        pTrackAlbumArtistMBID = in.readString();
-
-        pLength = in.readInt();
-        pTrackNumber = in.readInt();
-        pAlbumTrackCount = in.readInt();
-        pDiscNumber = in.readInt();
-        pAlbumDiscCount = in.readInt();
-
-        pSongPosition = in.readInt();
-        pSongID = in.readInt();
-    }
-
     public String getTrackTitle() {
         return pTrackTitle;
     }
@@ -308,73 +274,6 @@ public class MPDFile extends MPDFileEntry implements MPDGenericItem, Parcelable
     }
 
 
-    /**
-     * Describes if it is a special parcel type (no)
-     *
-     * @return 0
-     */
-    @Override
-    public int describeContents() {
-        return 0;
-    }
-
-    /**
-     * Static creator class to create MPDFile objects from parcels.
-     */
-    public static final Creator<MPDFile> CREATOR = new Creator<MPDFile>() {
-        /**
-         * Create a new MPDFile with parcel creator.
-         * @param in Parcel to use for creating the MPDFile object
-         * @return The deserialized MPDFile object
-         */
-        @Override
-        public MPDFile createFromParcel(Parcel in) {
-            return new MPDFile(in);
-        }
-
-        /**
-         * Used to create an array of MPDFile objects
-         * @param size Size of the array to create
-         * @return The created array
-         */
-        @Override
-        public MPDFile[] newArray(int size) {
-            return new MPDFile[size];
-        }
-    };
-
-    /**
-     * Serialized the MPDFile object to a parcel. Check that this method is equivalent with the
-     * deserializing creator above.
-     *
-     * @param dest  Parcel to write the properties to
-     * @param flags Special flags
-     */
-    @Override
-    public void writeToParcel(Parcel dest, int flags) {
-        // Serialize MPDFile properties
-        dest.writeString(mPath);
-        dest.writeString(pTrackTitle);
-        dest.writeString(pTrackAlbum);
-        dest.writeString(pTrackArtist);
-        dest.writeString(pTrackAlbumArtist);
-
-        dest.writeString(pDate);
-
-        dest.writeString(pTrackMBID);
-        dest.writeString(pTrackAlbumMBID);
-        dest.writeString(pTrackArtistMBID);
-        dest.writeString(pTrackAlbumArtistMBID);
-
-        dest.writeInt(pLength);
-        dest.writeInt(pTrackNumber);
-        dest.writeInt(pAlbumTrackCount);
-        dest.writeInt(pDiscNumber);
-        dest.writeInt(pAlbumDiscCount);
-        dest.writeInt(pSongPosition);
-        dest.writeInt(pSongID);
-    }
-
     public int indexCompare(MPDFile compFile) {
         if ( !pTrackAlbumMBID.equals(compFile.pTrackAlbumMBID)) {
             return pTrackAlbumMBID.compareTo(compFile.pTrackAlbumMBID);
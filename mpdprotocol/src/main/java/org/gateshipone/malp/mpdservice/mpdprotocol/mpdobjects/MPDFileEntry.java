@@ -21,7 +21,11 @@
 
 package org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects;
 
-public abstract class MPDFileEntry implements MPDGenericItem,Comparable<MPDFileEntry> {
+import java.io.Serializable;
+
+public abstract class MPDFileEntry implements MPDGenericItem,Comparable<MPDFileEntry>,Serializable {
+    private static final long serialVersionUID = 1L;
+
     protected String mPath;
 
     // FIXME to some date format of java
@@ -23,8 +23,7 @@ package org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects;
 
 
 public class MPDPlaylist extends MPDFileEntry implements MPDGenericItem {
-
-
+    private static final long serialVersionUID = 1L;
 
     public MPDPlaylist(String path) {
         super(path);
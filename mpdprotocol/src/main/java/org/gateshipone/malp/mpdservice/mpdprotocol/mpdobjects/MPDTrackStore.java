@@ -0,0 +1,958 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects;
+
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.RandomAccess;
+
+/**
+ * Compact list of tracks for large queues and library listings. Instead of one {@link MPDFile}
+ * object with its own Strings per track, the entries are stored column by column:
+ * <ul>
+ * <li>Numbers (length, track number, ...) in int arrays</li>
+ * <li>Tags that are shared by many tracks (artist, album, date, MBIDs) as codes of a dictionary
+ * of their values</li>
+ * <li>Unique texts (path, title, ...) as UTF-8 in one byte array</li>
+ * </ul>
+ * Columns are only allocated once a value is set for any entry, so tags the server does not send
+ * cost nothing. {@link #get(int)} creates a new {@link MPDFile} (or {@link MPDDirectory},
+ * {@link MPDPlaylist}) for the entry on every call. Changes to that object are not written back,
+ * use {@link #set(int, MPDFileEntry)} for that. Entries can be null.
+ * <p/>
+ * A store can share its storage with read-only snapshots (see {@link #snapshot()}). Appending
+ * to the store is possible without copying, the storage is copied before entries that are part
+ * of a snapshot are changed.
+ * <p/>
+ * This class is not thread-safe, like {@link java.util.ArrayList}.
+ */
+public class MPDTrackStore extends AbstractList<MPDFileEntry> implements RandomAccess {
+    private static final Charset UTF8 = StandardCharsets.UTF_8;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private static final int INITIAL_TEXT_CAPACITY = 4 * 1024;
+
+    private static final int INITIAL_DICTIONARY_CAPACITY = 64;
+
+    public enum ENTRY_TYPE {
+        NONE,
+        FILE,
+        DIRECTORY,
+        PLAYLIST
+    }
+
+    /**
+     * Columns for values that are (mostly) unique for every entry.
+     */
+    public enum TEXT_COLUMN {
+        PATH,
+        TITLE,
+        TRACK_MBID,
+        LAST_MODIFIED
+    }
+
+    /**
+     * Columns for values that are shared by many entries.
+     */
+    public enum TAG_COLUMN {
+        ARTIST,
+        ALBUM_ARTIST,
+        ALBUM,
+        DATE,
+        ARTIST_MBID,
+        ALBUM_MBID,
+        ALBUM_ARTIST_MBID
+    }
+
+    public enum NUMBER_COLUMN {
+        LENGTH,
+        TRACK_NUMBER,
+        ALBUM_TRACK_COUNT,
+        DISC_NUMBER,
+        ALBUM_DISC_COUNT,
+        SONG_POSITION,
+        SONG_ID
+    }
+
+    private static final ENTRY_TYPE[] ENTRY_TYPES = ENTRY_TYPE.values();
+
+    private int mSize;
+
+    /**
+     * Ordinal of the {@link ENTRY_TYPE} of every entry. The length of this array is the capacity.
+     */
+    private byte[] mTypes;
+
+    /**
+     * Number columns, indexed by the ordinal of {@link NUMBER_COLUMN}. Null until a value other
+     * than 0 is set.
+     */
+    private final int[][] mNumbers;
+
+    /**
+     * Tag columns with the codes of the values in {@link #mDictionary}, 0 if not set. Null until
+     * a value is set.
+     */
+    private final int[][] mTags;
+
+    /**
+     * Text columns with the position + 1 of the values in {@link #mText}, 0 if not set. Null
+     * until a value is set.
+     */
+    private final int[][] mTexts;
+
+    /**
+     * Values of the tags by their code. Code 0 is not used. Values are only appended, so the
+     * dictionary never needs to be copied for snapshots.
+     */
+    private String[] mDictionary;
+    private int mDictionarySize;
+
+    /**
+     * Codes of the values of the tags. Null for snapshots.
+     */
+    private final HashMap<String, Integer> mDictionaryCodes;
+
+    /**
+     * Texts, every text is stored as its length (7 bits per byte, highest bit set if another byte
+     * follows) followed by the UTF-8 bytes. Texts are only appended, changed texts stay in the
+     * array as garbage until it is compacted.
+     */
+    private byte[] mText;
+    private int mTextSize;
+    private int mTextGarbage;
+
+    /**
+     * Number of entries that are shared with snapshots, these are copied before they are changed.
+     */
+    private int mSharedSize;
+
+    private final boolean mReadOnly;
+
+    public MPDTrackStore() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * @param capacity Number of entries to allocate memory for
+     */
+    public MPDTrackStore(int capacity) {
+        mTypes = new byte[Math.max(capacity, 1)];
+        mNumbers = new int[NUMBER_COLUMN.values().length][];
+        mTags = new int[TAG_COLUMN.values().length][];
+        mTexts = new int[TEXT_COLUMN.values().length][];
+
+        mDictionary = new String[INITIAL_DICTIONARY_CAPACITY];
+        mDictionarySize = 1;
+        mDictionaryCodes = new HashMap<>();
+
+        mText = new byte[INITIAL_TEXT_CAPACITY];
+        mReadOnly = false;
+    }
+
+    /**
+     * Creates a read-only snapshot of the given store.
+     */
+    private MPDTrackStore(MPDTrackStore store) {
+        mSize = store.mSize;
+        mTypes = store.mTypes;
+        // Copy the outer arrays, columns the store allocates later are not part of the snapshot.
+        mNumbers = store.mNumbers.clone();
+        mTags = store.mTags.clone();
+        mTexts = store.mTexts.clone();
+
+        mDictionary = store.mDictionary;
+        mDictionarySize = store.mDictionarySize;
+        mDictionaryCodes = null;
+
+        mText = store.mText;
+        mTextSize = store.mTextSize;
+        mReadOnly = true;
+    }
+
+    /**
+     * Creates a read-only list of the current entries of this store. The storage is shared, this
+     * does not copy the entries. Entries appended to this store later are not part of the
+     * snapshot.
+     *
+     * @return Snapshot of the store that can not be changed
+     */
+    public MPDTrackStore snapshot() {
+        if (!mReadOnly) {
+            mSharedSize = mSize;
+        }
+        return new MPDTrackStore(this);
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Creates the object for the entry. This allocates a new object on every call.
+     *
+     * @param index Index of the entry
+     * @return {@link MPDFile}, {@link MPDDirectory} or {@link MPDPlaylist} or null if the entry is null
+     */
+    @Override
+    public MPDFileEntry get(int index) {
+        checkIndex(index);
+
+        MPDFileEntry entry;
+        switch (ENTRY_TYPES[mTypes[index]]) {
+            case FILE:
+                entry = createFile(index);
+                break;
+            case DIRECTORY:
+                entry = new MPDDirectory(getText(index, TEXT_COLUMN.PATH, ""));
+                break;
+            case PLAYLIST:
+                entry = new MPDPlaylist(getText(index, TEXT_COLUMN.PATH, ""));
+                break;
+            default:
+                return null;
+        }
+        entry.setLastModified(getText(index, TEXT_COLUMN.LAST_MODIFIED, null));
+        return entry;
+    }
+
+    @Override
+    public MPDFileEntry set(int index, MPDFileEntry entry) {
+        checkIndex(index);
+        prepareWrite(index);
+
+        MPDFileEntry oldEntry = get(index);
+        writeEntry(index, entry);
+        return oldEntry;
+    }
+
+    @Override
+    public void add(int index, MPDFileEntry entry) {
+        if (index < 0 || index > mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+        }
+        prepareWrite(index);
+        ensureCapacity(mSize + 1);
+
+        if (index < mSize) {
+            moveEntries(index, index + 1, mSize - index);
+            clearEntries(index, index + 1);
+        }
+        mSize++;
+        modCount++;
+        writeEntry(index, entry);
+    }
+
+    /**
+     * Appends the entries of the collection. Entries of another {@link MPDTrackStore} are copied
+     * column by column, without creating objects for them.
+     */
+    @Override
+    public boolean addAll(Collection<? extends MPDFileEntry> collection) {
+        if (!(collection instanceof MPDTrackStore) || collection == this) {
+            return super.addAll(collection);
+        }
+        prepareWrite(mSize);
+
+        MPDTrackStore store = (MPDTrackStore) collection;
+        ensureCapacity(mSize + store.mSize);
+        for (int i = 0; i < store.mSize; i++) {
+            copyEntry(store, i);
+        }
+        modCount++;
+        return store.mSize != 0;
+    }
+
+    /**
+     * Appends a copy of an entry of another store, without creating an object for it.
+     *
+     * @param store Store containing the entry
+     * @param index Index of the entry in the other store
+     * @return Index of the new entry
+     */
+    public int addEntry(MPDTrackStore store, int index) {
+        store.checkIndex(index);
+        prepareWrite(mSize);
+        ensureCapacity(mSize + 1);
+        copyEntry(store, index);
+        modCount++;
+        return mSize - 1;
+    }
+
+    /**
+     * Appends the entry of the other store, the capacity must be large enough.
+     */
+    private void copyEntry(MPDTrackStore store, int i) {
+        int index = mSize++;
+        mTypes[index] = store.mTypes[i];
+
+        for (int column = 0; column < mTexts.length; column++) {
+            int[] positions = store.mTexts[column];
+            if (null != positions && 0 != positions[i]) {
+                int position = positions[i] - 1;
+                int length = store.getTextLength(position);
+                ensureTextCapacity(length);
+                getColumn(mTexts, column)[index] = mTextSize + 1;
+                System.arraycopy(store.mText, position, mText, mTextSize, length);
+                mTextSize += length;
+            }
+        }
+        for (int column = 0; column < mTags.length; column++) {
+            int[] codes = store.mTags[column];
+            if (null != codes && 0 != codes[i]) {
+                getColumn(mTags, column)[index] = encode(store.mDictionary[codes[i]]);
+            }
+        }
+        for (int column = 0; column < mNumbers.length; column++) {
+            int[] numbers = store.mNumbers[column];
+            if (null != numbers && 0 != numbers[i]) {
+                getColumn(mNumbers, column)[index] = numbers[i];
+            }
+        }
+    }
+
+    @Override
+    public MPDFileEntry remove(int index) {
+        checkIndex(index);
+        MPDFileEntry oldEntry = get(index);
+        removeRange(index, index + 1);
+        return oldEntry;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex >= toIndex) {
+            return;
+        }
+        prepareWrite(fromIndex);
+
+        // The texts of the removed entries are garbage now
+        for (int[] positions : mTexts) {
+            if (null != positions) {
+                for (int i = fromIndex; i < toIndex; i++) {
+                    releaseText(positions[i]);
+                }
+            }
+        }
+
+        moveEntries(toIndex, fromIndex, mSize - toIndex);
+        clearEntries(mSize - (toIndex - fromIndex), mSize);
+        mSize -= toIndex - fromIndex;
+        modCount++;
+    }
+
+    @Override
+    public void clear() {
+        if (mReadOnly) {
+            throw new UnsupportedOperationException("Snapshots can not be changed");
+        }
+        // Start with new arrays, snapshots can still use the old ones.
+        mTypes = new byte[INITIAL_CAPACITY];
+        Arrays.fill(mNumbers, null);
+        Arrays.fill(mTags, null);
+        Arrays.fill(mTexts, null);
+
+        mDictionary = new String[INITIAL_DICTIONARY_CAPACITY];
+        mDictionarySize = 1;
+        mDictionaryCodes.clear();
+
+        mText = new byte[INITIAL_TEXT_CAPACITY];
+        mTextSize = 0;
+        mTextGarbage = 0;
+
+        mSize = 0;
+        mSharedSize = 0;
+        modCount++;
+    }
+
+    /**
+     * Reduces the memory of the store to what is needed for the current entries.
+     */
+    public void trimToSize() {
+        if (mReadOnly) {
+            return;
+        }
+        if (mTextGarbage > 0) {
+            compactText(0);
+        } else if (mTextSize < mText.length) {
+            mText = Arrays.copyOf(mText, mTextSize);
+        }
+        if (mSize < mTypes.length) {
+            resize(mSize);
+        }
+        if (mDictionarySize < mDictionary.length) {
+            mDictionary = Arrays.copyOf(mDictionary, mDictionarySize);
+        }
+    }
+
+    /**
+     * Appends an entry with all values unset. The values can be set with the set methods
+     * afterwards. This is used to fill the store without creating objects for the entries.
+     *
+     * @param type Type of the entry
+     * @return Index of the new entry
+     */
+    public int addEntry(ENTRY_TYPE type) {
+        prepareWrite(mSize);
+        ensureCapacity(mSize + 1);
+        mTypes[mSize] = (byte) type.ordinal();
+        modCount++;
+        return mSize++;
+    }
+
+    public ENTRY_TYPE getType(int index) {
+        checkIndex(index);
+        return ENTRY_TYPES[mTypes[index]];
+    }
+
+    /**
+     * Sets a text to the UTF-8 encoded value.
+     *
+     * @param index  Index of the entry
+     * @param column Column of the value
+     * @param data   Buffer containing the value
+     * @param start  Start of the value in the buffer
+     * @param end    End of the value in the buffer (exclusive)
+     */
+    public void setText(int index, TEXT_COLUMN column, byte[] data, int start, int end) {
+        checkIndex(index);
+        prepareWrite(index);
+
+        int length = end - start;
+        ensureTextCapacity(length + 5);
+
+        int[] positions = getColumn(mTexts, column.ordinal());
+        releaseText(positions[index]);
+        positions[index] = mTextSize + 1;
+
+        // Length as 7 bit groups, the highest bit is set if another group follows
+        int remaining = length;
+        while (remaining >= 0x80) {
+            mText[mTextSize++] = (byte) (remaining | 0x80);
+            remaining >>>= 7;
+        }
+        mText[mTextSize++] = (byte) remaining;
+
+        System.arraycopy(data, start, mText, mTextSize, length);
+        mTextSize += length;
+    }
+
+    /**
+     * @param index  Index of the entry
+     * @param column Column of the value
+     * @param value  Value to set or null to unset it
+     */
+    public void setText(int index, TEXT_COLUMN column, String value) {
+        if (null == value) {
+            checkIndex(index);
+            int[] positions = mTexts[column.ordinal()];
+            if (null != positions && 0 != positions[index]) {
+                prepareWrite(index);
+                positions = mTexts[column.ordinal()];
+                releaseText(positions[index]);
+                positions[index] = 0;
+            }
+            return;
+        }
+        byte[] data = value.getBytes(UTF8);
+        setText(index, column, data, 0, data.length);
+    }
+
+    /**
+     * @return The value or null if not set
+     */
+    public String getText(int index, TEXT_COLUMN column) {
+        checkIndex(index);
+        return getText(index, column, null);
+    }
+
+    public void setTag(int index, TAG_COLUMN column, String value) {
+        checkIndex(index);
+        if (null == value && null == mTags[column.ordinal()]) {
+            return;
+        }
+        prepareWrite(index);
+        getColumn(mTags, column.ordinal())[index] = null == value ? 0 : encode(value);
+    }
+
+    /**
+     * @return The value or null if not set. Equal values are the same instance.
+     */
+    public String getTag(int index, TAG_COLUMN column) {
+        checkIndex(index);
+        return getTag(index, column, null);
+    }
+
+    /**
+     * Returns the code of the value of a tag. Equal values have the same code in all tag columns,
+     * so entries can be compared without comparing Strings.
+     *
+     * @return Code of the value or 0 if not set
+     */
+    public int getTagCode(int index, TAG_COLUMN column) {
+        checkIndex(index);
+        int[] codes = mTags[column.ordinal()];
+        return null == codes ? 0 : codes[index];
+    }
+
+    /**
+     * Returns the code of a tag value. Not supported by snapshots.
+     *
+     * @return Code of the value or 0 if the value is not known, then no entry has this value
+     */
+    public int getTagCode(String value) {
+        if (mReadOnly) {
+            throw new UnsupportedOperationException("Snapshots can not look up codes");
+        }
+        Integer code = mDictionaryCodes.get(value);
+        return null == code ? 0 : code;
+    }
+
+    /**
+     * @return Value of a tag code, see {@link #getTagCode(int, TAG_COLUMN)}
+     */
+    public String getTagValue(int code) {
+        if (code <= 0 || code >= mDictionarySize) {
+            throw new IndexOutOfBoundsException("Code: " + code + ", Codes: " + mDictionarySize);
+        }
+        return mDictionary[code];
+    }
+
+    /**
+     * @return Number of tag codes, all codes are less than this
+     */
+    public int getTagCodeCount() {
+        return mDictionarySize;
+    }
+
+    public void setNumber(int index, NUMBER_COLUMN column, int value) {
+        checkIndex(index);
+        if (0 == value && null == mNumbers[column.ordinal()]) {
+            return;
+        }
+        prepareWrite(index);
+        getColumn(mNumbers, column.ordinal())[index] = value;
+    }
+
+    /**
+     * @return The value or 0 if not set
+     */
+    public int getNumber(int index, NUMBER_COLUMN column) {
+        checkIndex(index);
+        int[] numbers = mNumbers[column.ordinal()];
+        return null == numbers ? 0 : numbers[index];
+    }
+
+    /**
+     * Writes all entries to the stream. The store can be recreated with
+     * {@link #readFrom(DataInputStream)}.
+     */
+    public void writeTo(DataOutputStream output) throws IOException {
+        output.writeInt(mSize);
+        output.write(mTypes, 0, mSize);
+        writeColumns(output, mNumbers);
+        writeColumns(output, mTags);
+        writeColumns(output, mTexts);
+
+        output.writeInt(mDictionarySize);
+        for (int code = 1; code < mDictionarySize; code++) {
+            byte[] value = mDictionary[code].getBytes(UTF8);
+            output.writeInt(value.length);
+            output.write(value);
+        }
+
+        // Garbage in the texts is written as well, the positions of the texts stay valid
+        output.writeInt(mTextSize);
+        output.write(mText, 0, mTextSize);
+    }
+
+    /**
+     * Reads a store that was written with {@link #writeTo(DataOutputStream)}.
+     *
+     * @throws IOException If the stream can not be read or does not contain a valid store
+     */
+    public static MPDTrackStore readFrom(DataInputStream input) throws IOException {
+        int size = input.readInt();
+        if (size < 0) {
+            throw new IOException("Invalid size: " + size);
+        }
+        MPDTrackStore store = new MPDTrackStore(size);
+        input.readFully(store.mTypes, 0, size);
+        for (int i = 0; i < size; i++) {
+            if (store.mTypes[i] < 0 || store.mTypes[i] >= ENTRY_TYPES.length) {
+                throw new IOException("Invalid entry type: " + store.mTypes[i]);
+            }
+        }
+        store.readColumns(input, store.mNumbers, size);
+        store.readColumns(input, store.mTags, size);
+        store.readColumns(input, store.mTexts, size);
+
+        int dictionarySize = input.readInt();
+        if (dictionarySize < 1) {
+            throw new IOException("Invalid dictionary size: " + dictionarySize);
+        }
+        store.mDictionary = new String[dictionarySize];
+        for (int code = 1; code < dictionarySize; code++) {
+            byte[] value = new byte[input.readInt()];
+            input.readFully(value);
+            store.mDictionary[code] = new String(value, UTF8);
+            store.mDictionaryCodes.put(store.mDictionary[code], code);
+        }
+        store.mDictionarySize = dictionarySize;
+
+        int textSize = input.readInt();
+        if (textSize < 0) {
+            throw new IOException("Invalid text size: " + textSize);
+        }
+        store.mText = new byte[textSize];
+        input.readFully(store.mText);
+        store.mTextSize = textSize;
+
+        // Check the references, so that a broken file can not cause errors later
+        for (int[] codes : store.mTags) {
+            checkReferences(codes, size, dictionarySize);
+        }
+        for (int[] positions : store.mTexts) {
+            checkReferences(positions, size, textSize + 1);
+        }
+
+        store.mSize = size;
+        return store;
+    }
+
+    private void writeColumns(DataOutputStream output, int[][] columns) throws IOException {
+        output.writeInt(columns.length);
+        for (int[] values : columns) {
+            output.writeBoolean(null != values);
+            if (null != values) {
+                ByteBuffer buffer = ByteBuffer.allocate(mSize * 4);
+                buffer.asIntBuffer().put(values, 0, mSize);
+                output.write(buffer.array());
+            }
+        }
+    }
+
+    private void readColumns(DataInputStream input, int[][] columns, int size) throws IOException {
+        int count = input.readInt();
+        if (count != columns.length) {
+            throw new IOException("Invalid column count: " + count);
+        }
+        for (int column = 0; column < count; column++) {
+            if (input.readBoolean()) {
+                byte[] buffer = new byte[size * 4];
+                input.readFully(buffer);
+                ByteBuffer.wrap(buffer).asIntBuffer().get(getColumn(columns, column), 0, size);
+            }
+        }
+    }
+
+    private static void checkReferences(int[] values, int size, int limit) throws IOException {
+        if (null == values) {
+            return;
+        }
+        for (int i = 0; i < size; i++) {
+            if (values[i] < 0 || values[i] >= limit) {
+                throw new IOException("Invalid reference: " + values[i]);
+            }
+        }
+    }
+
+    private MPDFile createFile(int index) {
+        MPDFile file = new MPDFile(getText(index, TEXT_COLUMN.PATH, ""));
+
+        file.setTrackTitle(getText(index, TEXT_COLUMN.TITLE, ""));
+        file.setTrackMBID(getText(index, TEXT_COLUMN.TRACK_MBID, ""));
+
+        file.setTrackArtist(getTag(index, TAG_COLUMN.ARTIST, ""));
+        file.setTrackAlbumArtist(getTag(index, TAG_COLUMN.ALBUM_ARTIST, ""));
+        file.setTrackAlbum(getTag(index, TAG_COLUMN.ALBUM, ""));
+        file.setDate(getTag(index, TAG_COLUMN.DATE, ""));
+        file.setTrackArtistMBID(getTag(index, TAG_COLUMN.ARTIST_MBID, ""));
+        file.setTrackAlbumMBID(getTag(index, TAG_COLUMN.ALBUM_MBID, ""));
+        file.setTrackAlbumArtistMBID(getTag(index, TAG_COLUMN.ALBUM_ARTIST_MBID, ""));
+
+        file.setLength(getNumber(index, NUMBER_COLUMN.LENGTH));
+        file.setTrackNumber(getNumber(index, NUMBER_COLUMN.TRACK_NUMBER));
+        file.setAlbumTrackCount(getNumber(index, NUMBER_COLUMN.ALBUM_TRACK_COUNT));
+        file.setDiscNumber(getNumber(index, NUMBER_COLUMN.DISC_NUMBER));
+        file.psetAlbumDiscCount(getNumber(index, NUMBER_COLUMN.ALBUM_DISC_COUNT));
+        file.setSongPosition(getNumber(index, NUMBER_COLUMN.SONG_POSITION));
+        file.setSongID(getNumber(index, NUMBER_COLUMN.SONG_ID));
+        return file;
+    }
+
+    /**
+     * Sets all values of the entry at the index to the values of the given entry.
+     */
+    private void writeEntry(int index, MPDFileEntry entry) {
+        ENTRY_TYPE type;
+        if (null == entry) {
+            type = ENTRY_TYPE.NONE;
+        } else if (entry instanceof MPDFile) {
+            type = ENTRY_TYPE.FILE;
+        } else if (entry instanceof MPDDirectory) {
+            type = ENTRY_TYPE.DIRECTORY;
+        } else if (entry instanceof MPDPlaylist) {
+            type = ENTRY_TYPE.PLAYLIST;
+        } else {
+            throw new IllegalArgumentException("Unknown entry: " + entry.getClass().getName());
+        }
+        mTypes[index] = (byte) type.ordinal();
+
+        setText(index, TEXT_COLUMN.PATH, null == entry ? null : entry.getPath());
+        setText(index, TEXT_COLUMN.LAST_MODIFIED, null == entry ? null : entry.getLastModified());
+
+        // Empty values are not stored, they are the defaults of MPDFile
+        MPDFile file = type == ENTRY_TYPE.FILE ? (MPDFile) entry : null;
+        setText(index, TEXT_COLUMN.TITLE, null == file ? null : emptyToNull(file.getTrackTitle()));
+        setText(index, TEXT_COLUMN.TRACK_MBID, null == file ? null : emptyToNull(file.getTrackMBID()));
+
+        setTag(index, TAG_COLUMN.ARTIST, null == file ? null : emptyToNull(file.getTrackArtist()));
+        setTag(index, TAG_COLUMN.ALBUM_ARTIST, null == file ? null : emptyToNull(file.getTrackAlbumArtist()));
+        setTag(index, TAG_COLUMN.ALBUM, null == file ? null : emptyToNull(file.getTrackAlbum()));
+        setTag(index, TAG_COLUMN.DATE, null == file ? null : emptyToNull(file.getDate()));
+        setTag(index, TAG_COLUMN.ARTIST_MBID, null == file ? null : emptyToNull(file.getTrackArtistMBID()));
+        setTag(index, TAG_COLUMN.ALBUM_MBID, null == file ? null : emptyToNull(file.getTrackAlbumMBID()));
+        setTag(index, TAG_COLUMN.ALBUM_ARTIST_MBID, null == file ? null : emptyToNull(file.getTrackAlbumArtistMBID()));
+
+        setNumber(index, NUMBER_COLUMN.LENGTH, null == file ? 0 : file.getLength());
+        setNumber(index, NUMBER_COLUMN.TRACK_NUMBER, null == file ? 0 : file.getTrackNumber());
+        setNumber(index, NUMBER_COLUMN.ALBUM_TRACK_COUNT, null == file ? 0 : file.getAlbumTrackCount());
+        setNumber(index, NUMBER_COLUMN.DISC_NUMBER, null == file ? 0 : file.getDiscNumber());
+        setNumber(index, NUMBER_COLUMN.ALBUM_DISC_COUNT, null == file ? 0 : file.getAlbumDiscCount());
+        setNumber(index, NUMBER_COLUMN.SONG_POSITION, null == file ? 0 : file.getSongPosition());
+        setNumber(index, NUMBER_COLUMN.SONG_ID, null == file ? 0 : file.getSongID());
+    }
+
+    private static String emptyToNull(String value) {
+        return null == value || value.isEmpty() ? null : value;
+    }
+
+    private String getText(int index, TEXT_COLUMN column, String defaultValue) {
+        int[] positions = mTexts[column.ordinal()];
+        if (null == positions || 0 == positions[index]) {
+            return defaultValue;
+        }
+
+        int position = positions[index] - 1;
+        int length = 0;
+        int shift = 0;
+        byte lengthByte;
+        do {
+            lengthByte = mText[position++];
+            length |= (lengthByte & 0x7F) << shift;
+            shift += 7;
+        } while (lengthByte < 0);
+
+        return new String(mText, position, length, UTF8);
+    }
+
+    private String getTag(int index, TAG_COLUMN column, String defaultValue) {
+        int[] codes = mTags[column.ordinal()];
+        if (null == codes || 0 == codes[index]) {
+            return defaultValue;
+        }
+        return mDictionary[codes[index]];
+    }
+
+    /**
+     * @param position Position of a text in {@link #mText}
+     * @return Number of bytes the text uses, including its length
+     */
+    private int getTextLength(int position) {
+        int start = position;
+        int length = 0;
+        int shift = 0;
+        byte lengthByte;
+        do {
+            lengthByte = mText[position++];
+            length |= (lengthByte & 0x7F) << shift;
+            shift += 7;
+        } while (lengthByte < 0);
+        return position - start + length;
+    }
+
+    /**
+     * Marks a text as garbage.
+     *
+     * @param position Position + 1 of the text, 0 if no text is set
+     */
+    private void releaseText(int position) {
+        if (0 != position) {
+            mTextGarbage += getTextLength(position - 1);
+        }
+    }
+
+    private int encode(String value) {
+        Integer code = mDictionaryCodes.get(value);
+        if (null == code) {
+            if (mDictionarySize == mDictionary.length) {
+                mDictionary = Arrays.copyOf(mDictionary, mDictionarySize * 2);
+            }
+            code = mDictionarySize;
+            mDictionary[mDictionarySize++] = value;
+            mDictionaryCodes.put(value, code);
+        }
+        return code;
+    }
+
+    /**
+     * Returns the column and allocates it if it does not exist yet.
+     */
+    private int[] getColumn(int[][] columns, int column) {
+        int[] values = columns[column];
+        if (null == values) {
+            values = new int[mTypes.length];
+            columns[column] = values;
+        }
+        return values;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+        }
+    }
+
+    /**
+     * Must be called before the entry at the index or an entry behind it is changed. Copies the
+     * columns if the entry is shared with a snapshot.
+     */
+    private void prepareWrite(int index) {
+        if (mReadOnly) {
+            throw new UnsupportedOperationException("Snapshots can not be changed");
+        }
+        if (index < mSharedSize) {
+            resize(mTypes.length);
+            mSharedSize = 0;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > mTypes.length) {
+            resize(Math.max(capacity, mTypes.length + (mTypes.length >> 1)));
+        }
+    }
+
+    /**
+     * Copies all columns to new arrays of the given capacity.
+     */
+    private void resize(int capacity) {
+        mTypes = Arrays.copyOf(mTypes, capacity);
+        resizeColumns(mNumbers, capacity);
+        resizeColumns(mTags, capacity);
+        resizeColumns(mTexts, capacity);
+    }
+
+    private static void resizeColumns(int[][] columns, int capacity) {
+        for (int column = 0; column < columns.length; column++) {
+            if (null != columns[column]) {
+                columns[column] = Arrays.copyOf(columns[column], capacity);
+            }
+        }
+    }
+
+    private void moveEntries(int from, int to, int count) {
+        System.arraycopy(mTypes, from, mTypes, to, count);
+        moveColumns(mNumbers, from, to, count);
+        moveColumns(mTags, from, to, count);
+        moveColumns(mTexts, from, to, count);
+    }
+
+    private static void moveColumns(int[][] columns, int from, int to, int count) {
+        for (int[] values : columns) {
+            if (null != values) {
+                System.arraycopy(values, from, values, to, count);
+            }
+        }
+    }
+
+    /**
+     * Unsets all values of the entries without marking their texts as garbage.
+     */
+    private void clearEntries(int fromIndex, int toIndex) {
+        Arrays.fill(mTypes, fromIndex, toIndex, (byte) 0);
+        clearColumns(mNumbers, fromIndex, toIndex);
+        clearColumns(mTags, fromIndex, toIndex);
+        clearColumns(mTexts, fromIndex, toIndex);
+    }
+
+    private static void clearColumns(int[][] columns, int fromIndex, int toIndex) {
+        for (int[] values : columns) {
+            if (null != values) {
+                Arrays.fill(values, fromIndex, toIndex, 0);
+            }
+        }
+    }
+
+    private void ensureTextCapacity(int length) {
+        if (mTextSize + length <= mText.length) {
+            return;
+        }
+        if (mTextGarbage > mTextSize / 2) {
+            compactText(Math.max(length, (mTextSize - mTextGarbage) / 2));
+        } else {
+            mText = Arrays.copyOf(mText, Math.max(mTextSize + length, mText.length * 2));
+        }
+    }
+
+    /**
+     * Copies the texts of all entries to a new array without the garbage. The text columns are
+     * copied as well, snapshots still use the old arrays.
+     *
+     * @param extra Number of bytes to allocate in addition to the texts
+     */
+    private void compactText(int extra) {
+        byte[] text = new byte[mTextSize - mTextGarbage + extra];
+        int size = 0;
+        for (int column = 0; column < mTexts.length; column++) {
+            if (null == mTexts[column]) {
+                continue;
+            }
+            int[] positions = mTexts[column].clone();
+            for (int i = 0; i < mSize; i++) {
+                if (0 != positions[i]) {
+                    int position = positions[i] - 1;
+                    int length = getTextLength(position);
+                    System.arraycopy(mText, position, text, size, length);
+                    positions[i] = size + 1;
+                    size += length;
+                }
+            }
+            mTexts[column] = positions;
+        }
+        mText = text;
+        mTextSize = size;
+        mTextGarbage = 0;
+    }
+}
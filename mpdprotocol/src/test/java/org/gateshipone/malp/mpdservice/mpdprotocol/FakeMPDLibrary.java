@@ -0,0 +1,539 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFile;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * Synthetic music library for the {@link FakeMPDServer}. Tracks are not stored but computed
+ * from their index, so libraries with hundreds of thousands of tracks only cost a few bytes.
+ * The same seed always creates the same library, so results of different runs are comparable.
+ * <p>
+ * Every third artist has one album without MusicBrainz artist ids. A grouped artist list will
+ * then contain this artist twice (with and without MBID), like it happens with real libraries.
+ * Every tenth album is called {@link #COMMON_ALBUM_NAME}, so finding an album by its name alone
+ * returns the tracks of many unrelated albums, like compilations do in real libraries.
+ * <p>
+ * Tracks can be removed, restored and changed to simulate updates of the database. Like on a
+ * file system, adding or removing tracks changes the Last-Modified time of their directory, but
+ * changing a track only changes the time of the track. Changes must not be made while requests
+ * are running.
+ */
+class FakeMPDLibrary {
+    static final String TAG_FILE = "file";
+    static final String TAG_DIRECTORY = "directory";
+    static final String TAG_LAST_MODIFIED = "Last-Modified";
+    static final String TAG_TIME = "Time";
+    static final String TAG_DURATION = "duration";
+    static final String TAG_ARTIST = "Artist";
+    static final String TAG_ALBUM_ARTIST = "AlbumArtist";
+    static final String TAG_TITLE = "Title";
+    static final String TAG_ALBUM = "Album";
+    static final String TAG_TRACK = "Track";
+    static final String TAG_DATE = "Date";
+    static final String TAG_GENRE = "Genre";
+    static final String TAG_DISC = "Disc";
+    static final String TAG_ARTIST_MBID = "MUSICBRAINZ_ARTISTID";
+    static final String TAG_ALBUM_MBID = "MUSICBRAINZ_ALBUMID";
+    static final String TAG_ALBUM_ARTIST_MBID = "MUSICBRAINZ_ALBUMARTISTID";
+    static final String TAG_TRACK_MBID = "MUSICBRAINZ_TRACKID";
+    static final String TAG_COMPOSER = "Composer";
+    static final String TAG_PERFORMER = "Performer";
+    static final String TAG_COMMENT = "Comment";
+    static final String TAG_LABEL = "Label";
+
+    /**
+     * Tags as announced by "tagtypes"
+     */
+    static final String[] TAG_TYPES = {TAG_ARTIST, TAG_ALBUM_ARTIST, TAG_ALBUM, TAG_TITLE, TAG_TRACK, TAG_DATE,
+            TAG_GENRE, TAG_DISC, TAG_ARTIST_MBID, TAG_ALBUM_MBID, TAG_ALBUM_ARTIST_MBID, TAG_TRACK_MBID,
+            TAG_COMPOSER, TAG_PERFORMER, TAG_COMMENT, TAG_LABEL};
+
+    /**
+     * Tags in the order they are written for every track
+     */
+    private static final String[] TRACK_TAGS = {TAG_FILE, TAG_LAST_MODIFIED, TAG_TIME, TAG_DURATION, TAG_ARTIST,
+            TAG_ALBUM_ARTIST, TAG_TITLE, TAG_ALBUM, TAG_TRACK, TAG_DATE, TAG_GENRE, TAG_DISC, TAG_COMPOSER,
+            TAG_PERFORMER, TAG_COMMENT, TAG_LABEL, TAG_ARTIST_MBID, TAG_ALBUM_MBID, TAG_ALBUM_ARTIST_MBID,
+            TAG_TRACK_MBID};
+
+    /**
+     * Entries of a song response that are not tags and therefore always sent
+     */
+    private static final String[] SONG_PROPERTIES = {TAG_FILE, TAG_LAST_MODIFIED, TAG_TIME, TAG_DURATION};
+
+    static final int TRACKS_PER_ALBUM = 12;
+    static final int ALBUMS_PER_ARTIST = 5;
+
+    static final String COMMON_ALBUM_NAME = "Greatest Hits";
+
+    private static final String ROOT_DIRECTORY = "music";
+    private static final String FILE_PREFIX = ROOT_DIRECTORY + '/';
+    private static final String ARTIST_DIRECTORY = "Artist ";
+    private static final String ALBUM_DIRECTORY = "Album ";
+
+    private static final String DIRECTORY_LAST_MODIFIED = "2016-10-01T12:00:00Z";
+
+    /**
+     * Time of the database update (seconds since the epoch) before any changes
+     */
+    private static final long DATABASE_UPDATE = 1483228800;
+    private static final String FILE_TITLE = " - Title ";
+    private static final String FILE_SUFFIX = ".flac";
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final int mTrackCount;
+
+    private final long mSeed;
+
+    private final BitSet mRemovedTracks = new BitSet();
+
+    /* Number of the last change of every changed track */
+    private final Map<Integer, Integer> mTrackChanges = new HashMap<>();
+
+    private final Map<String, String> mDirectoryLastModified = new HashMap<>();
+
+    /* Number of changes made to the library */
+    private int mChangeCount;
+
+    FakeMPDLibrary(int trackCount, long seed) {
+        mTrackCount = trackCount;
+        mSeed = seed;
+    }
+
+    /**
+     * @return Number of tracks including the removed ones. Tracks are numbered from 0 to this.
+     */
+    int getTrackCount() {
+        return mTrackCount;
+    }
+
+    /**
+     * @return False if the track was removed
+     */
+    boolean hasTrack(int track) {
+        return !mRemovedTracks.get(track);
+    }
+
+    /**
+     * @return Number of tracks that are not removed
+     */
+    int getSongCount() {
+        return mTrackCount - mRemovedTracks.cardinality();
+    }
+
+    /**
+     * @return Time of the last change (seconds since the epoch) as sent with "stats"
+     */
+    long getDatabaseUpdate() {
+        return getChangeTime(mChangeCount) + (mChangeCount > 0 ? 60 : 0);
+    }
+
+    /**
+     * Removes tracks from the library, like deleting their files.
+     */
+    void removeTracks(int from, int to) {
+        setTracksRemoved(from, to, true);
+    }
+
+    /**
+     * Restores removed tracks, like adding their files again.
+     */
+    void restoreTracks(int from, int to) {
+        setTracksRemoved(from, to, false);
+    }
+
+    /**
+     * Changes the title and the Last-Modified time of tracks, like editing the tags of the files.
+     */
+    void changeTracks(int from, int to) {
+        mChangeCount++;
+        for (int track = from; track < to; track++) {
+            mTrackChanges.put(track, mChangeCount);
+        }
+    }
+
+    private void setTracksRemoved(int from, int to, boolean removed) {
+        mChangeCount++;
+        String lastModified = formatTime(getChangeTime(mChangeCount));
+        for (int album = from / TRACKS_PER_ALBUM; album <= (to - 1) / TRACKS_PER_ALBUM; album++) {
+            int artist = album / ALBUMS_PER_ARTIST;
+            boolean albumExisted = hasAlbum(album);
+            boolean artistExisted = hasArtist(artist);
+            int albumStart = album * TRACKS_PER_ALBUM;
+            mRemovedTracks.set(Math.max(from, albumStart), Math.min(to, albumStart + TRACKS_PER_ALBUM), removed);
+            mDirectoryLastModified.put(getAlbumDirectory(album), lastModified);
+            if (albumExisted != hasAlbum(album)) {
+                // The directory of the album was created or deleted
+                mDirectoryLastModified.put(getArtistDirectory(artist), lastModified);
+            }
+            if (artistExisted != hasArtist(artist)) {
+                mDirectoryLastModified.put(ROOT_DIRECTORY, lastModified);
+            }
+        }
+    }
+
+    private boolean hasAlbum(int album) {
+        int start = album * TRACKS_PER_ALBUM;
+        return mRemovedTracks.nextClearBit(start) < Math.min(start + TRACKS_PER_ALBUM, mTrackCount);
+    }
+
+    private boolean hasArtist(int artist) {
+        for (int album = artist * ALBUMS_PER_ARTIST; album < Math.min((artist + 1) * ALBUMS_PER_ARTIST, getAlbumCount()); album++) {
+            if (hasAlbum(album)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long getChangeTime(int change) {
+        return DATABASE_UPDATE + change * 3600L;
+    }
+
+    private static String formatTime(long time) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.ROOT);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date(time * 1000));
+    }
+
+    int getAlbumCount() {
+        return (mTrackCount + TRACKS_PER_ALBUM - 1) / TRACKS_PER_ALBUM;
+    }
+
+    int getArtistCount() {
+        return (getAlbumCount() + ALBUMS_PER_ARTIST - 1) / ALBUMS_PER_ARTIST;
+    }
+
+    /**
+     * Returns the canonical name of a tag as used in responses.
+     *
+     * @param name Name of the tag in any case, as used in commands
+     * @return Canonical name or null if the tag is not known
+     */
+    static String getCanonicalTag(String name) {
+        for (String tag : TRACK_TAGS) {
+            if (tag.equalsIgnoreCase(name)) {
+                return tag;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the value of a tag for a track.
+     *
+     * @param track Index of the track in the library
+     * @param tag   Canonical name of the tag
+     * @return Value of the tag or null if the track does not have this tag
+     */
+    String getTag(int track, String tag) {
+        int album = track / TRACKS_PER_ALBUM;
+        int artist = album / ALBUMS_PER_ARTIST;
+        int albumTrack = (track % TRACKS_PER_ALBUM) + 1;
+        switch (tag) {
+            case TAG_FILE:
+                return getAlbumDirectory(album) + '/' + albumTrack + FILE_TITLE + track + FILE_SUFFIX;
+            case TAG_LAST_MODIFIED:
+                if (mTrackChanges.containsKey(track)) {
+                    return formatTime(getChangeTime(mTrackChanges.get(track)));
+                }
+                return "2016-0" + (1 + hash(track, 1) % 9) + "-1" + hash(track, 2) % 10 + "T12:00:00Z";
+            case TAG_TIME:
+                return String.valueOf(getTrackLength(track));
+            case TAG_DURATION:
+                return getTrackLength(track) + "." + hash(track, 3) % 1000;
+            case TAG_ARTIST:
+            case TAG_ALBUM_ARTIST:
+                return "Artist " + artist;
+            case TAG_TITLE:
+                if (mTrackChanges.containsKey(track)) {
+                    return "Title " + track + " (changed " + mTrackChanges.get(track) + ')';
+                }
+                return "Title " + track;
+            case TAG_ALBUM:
+                if (album % 10 == 9) {
+                    return COMMON_ALBUM_NAME;
+                }
+                return "Album " + album;
+            case TAG_TRACK:
+                return albumTrack + "/" + TRACKS_PER_ALBUM;
+            case TAG_DATE:
+                return String.valueOf(1960 + (album % 57));
+            case TAG_GENRE:
+                return "Genre " + (artist % 20);
+            case TAG_DISC:
+                return "1/1";
+            case TAG_COMPOSER:
+                return "Composer " + (artist % 50);
+            case TAG_PERFORMER:
+                return "Orchestra " + (album % 30) + "; Conductor " + (album % 17);
+            case TAG_COMMENT:
+                return "Recorded live in concert hall " + (album % 11) + ", remastered " + (2000 + album % 17);
+            case TAG_LABEL:
+                return "Label " + (artist % 40);
+            case TAG_ARTIST_MBID:
+            case TAG_ALBUM_ARTIST_MBID:
+                if (artist % 3 == 0 && album % ALBUMS_PER_ARTIST == ALBUMS_PER_ARTIST - 1) {
+                    return null;
+                }
+                return createMBID(artist, 4);
+            case TAG_ALBUM_MBID:
+                return createMBID(album, 5);
+            case TAG_TRACK_MBID:
+                return createMBID(track, 6);
+        }
+        return null;
+    }
+
+    /**
+     * @return Length of the track in seconds
+     */
+    int getTrackLength(int track) {
+        return 120 + hash(track, 7) % 400;
+    }
+
+    /**
+     * Returns the directories that contain the track, from the top directory down. Every album
+     * has its own directory in the directory of its artist.
+     */
+    String[] getDirectories(int track) {
+        int album = track / TRACKS_PER_ALBUM;
+        return new String[]{ROOT_DIRECTORY, getArtistDirectory(album / ALBUMS_PER_ARTIST), getAlbumDirectory(album)};
+    }
+
+    String getDirectoryLastModified(String path) {
+        String lastModified = mDirectoryLastModified.get(path);
+        return null == lastModified ? DIRECTORY_LAST_MODIFIED : lastModified;
+    }
+
+    /**
+     * Lists the contents of a directory.
+     *
+     * @param path        Path of the directory, "" for the root directory
+     * @param directories Receives the paths of the subdirectories
+     * @param tracks      Receives the tracks in the directory
+     * @return False if the directory does not exist
+     */
+    boolean listDirectory(String path, List<String> directories, List<Integer> tracks) {
+        if (path.isEmpty()) {
+            directories.add(ROOT_DIRECTORY);
+            return true;
+        }
+        if (path.equals(ROOT_DIRECTORY)) {
+            for (int artist = 0; artist < getArtistCount(); artist++) {
+                if (hasArtist(artist)) {
+                    directories.add(getArtistDirectory(artist));
+                }
+            }
+            return true;
+        }
+
+        String[] names = path.split("/");
+        if (names.length < 2 || names.length > 3 || !names[0].equals(ROOT_DIRECTORY)) {
+            return false;
+        }
+        int artist = parseDirectoryNumber(names[1], ARTIST_DIRECTORY, getArtistCount());
+        if (artist < 0 || !hasArtist(artist)) {
+            return false;
+        }
+        if (names.length == 2) {
+            for (int album = artist * ALBUMS_PER_ARTIST; album < Math.min((artist + 1) * ALBUMS_PER_ARTIST, getAlbumCount()); album++) {
+                if (hasAlbum(album)) {
+                    directories.add(getAlbumDirectory(album));
+                }
+            }
+            return true;
+        }
+        int album = parseDirectoryNumber(names[2], ALBUM_DIRECTORY, getAlbumCount());
+        if (album < 0 || album / ALBUMS_PER_ARTIST != artist || !hasAlbum(album)) {
+            return false;
+        }
+        for (int track = album * TRACKS_PER_ALBUM; track < Math.min((album + 1) * TRACKS_PER_ALBUM, mTrackCount); track++) {
+            if (hasTrack(track)) {
+                tracks.add(track);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the tracks that can be within a directory, so filters on the directory do not need
+     * to check all tracks.
+     *
+     * @param path Path of a directory
+     * @return First track and end of the tracks, all tracks if the path is not a known directory
+     */
+    int[] getTrackRange(String path) {
+        String[] names = path.split("/");
+        if (names.length >= 2 && names.length <= 3 && names[0].equals(ROOT_DIRECTORY)) {
+            int artist = parseDirectoryNumber(names[1], ARTIST_DIRECTORY, getArtistCount());
+            int album = names.length == 3 ? parseDirectoryNumber(names[2], ALBUM_DIRECTORY, getAlbumCount()) : -1;
+            if (names.length == 2 && artist >= 0) {
+                int from = artist * ALBUMS_PER_ARTIST * TRACKS_PER_ALBUM;
+                return new int[]{from, Math.min(from + ALBUMS_PER_ARTIST * TRACKS_PER_ALBUM, mTrackCount)};
+            } else if (album >= 0 && album / ALBUMS_PER_ARTIST == artist) {
+                int from = album * TRACKS_PER_ALBUM;
+                return new int[]{from, Math.min(from + TRACKS_PER_ALBUM, mTrackCount)};
+            }
+        }
+        return new int[]{0, mTrackCount};
+    }
+
+    private static String getArtistDirectory(int artist) {
+        return FILE_PREFIX + ARTIST_DIRECTORY + artist;
+    }
+
+    private static String getAlbumDirectory(int album) {
+        return getArtistDirectory(album / ALBUMS_PER_ARTIST) + '/' + ALBUM_DIRECTORY + album;
+    }
+
+    /**
+     * @return The number of a directory name like "Album 12" or -1 if the name is not valid
+     */
+    private static int parseDirectoryNumber(String name, String prefix, int count) {
+        if (!name.startsWith(prefix)) {
+            return -1;
+        }
+        try {
+            int number = Integer.parseInt(name.substring(prefix.length()));
+            return (number >= 0 && number < count) ? number : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Finds the track for a file path created by this library.
+     *
+     * @return Index of the track or -1 if the path does not belong to this library
+     */
+    int getTrackForPath(String path) {
+        int start = path.lastIndexOf(FILE_TITLE);
+        if (!path.startsWith(FILE_PREFIX) || start < 0 || !path.endsWith(FILE_SUFFIX)) {
+            return -1;
+        }
+        try {
+            int track = Integer.parseInt(path.substring(start + FILE_TITLE.length(), path.length() - FILE_SUFFIX.length()));
+            return (track >= 0 && track < mTrackCount && hasTrack(track)) ? track : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Appends all tags of a track in the format of a song response.
+     */
+    void appendTrack(StringBuilder response, int track) {
+        appendTrack(response, track, null);
+    }
+
+    /**
+     * Appends the tags of a track in the format of a song response.
+     *
+     * @param enabledTags Tags enabled with "tagtypes", null for all tags
+     */
+    void appendTrack(StringBuilder response, int track, Set<String> enabledTags) {
+        for (String tag : TRACK_TAGS) {
+            if (null != enabledTags && !enabledTags.contains(tag) && !isSongProperty(tag)) {
+                continue;
+            }
+            String value = getTag(track, tag);
+            if (null != value) {
+                response.append(tag).append(": ").append(value).append('\n');
+            }
+        }
+    }
+
+    private static boolean isSongProperty(String tag) {
+        for (String property : SONG_PROPERTIES) {
+            if (property.equals(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates a shuffled list of album tracks as they are handed to {@link MPDSortHelper}.
+     */
+    static List<MPDFileEntry> createShuffledAlbumTracks(int trackCount, long seed) {
+        Random random = new Random(seed);
+        List<MPDFileEntry> tracks = new ArrayList<>(trackCount);
+        for (int i = 0; i < trackCount; i++) {
+            MPDFile track = new MPDFile(FILE_PREFIX + "Album/" + i + FILE_SUFFIX);
+            track.setTrackTitle("Title " + i);
+            track.setTrackAlbum("Album");
+            track.setTrackNumber((i % TRACKS_PER_ALBUM) + 1);
+            track.setDiscNumber((i / TRACKS_PER_ALBUM) + 1);
+            tracks.add(random.nextInt(tracks.size() + 1), track);
+        }
+        return tracks;
+    }
+
+    /**
+     * Creates a MBID in the usual 8-4-4-4-12 format.
+     */
+    private String createMBID(int item, int salt) {
+        long high = mix(mSeed + ((long) salt << 32) + item);
+        long low = mix(high);
+        char[] mbid = new char[36];
+        int position = 0;
+        for (int i = 0; i < 32; i++) {
+            if (i == 8 || i == 12 || i == 16 || i == 20) {
+                mbid[position++] = '-';
+            }
+            long bits = i < 16 ? high >>> (60 - i * 4) : low >>> (60 - (i - 16) * 4);
+            mbid[position++] = HEX_DIGITS[(int) (bits & 0xf)];
+        }
+        return new String(mbid);
+    }
+
+    private int hash(int item, int salt) {
+        return (int) (mix(mSeed + ((long) salt << 32) + item) >>> 33);
+    }
+
+    /**
+     * Mixing function of SplitMix64, gives well distributed values for consecutive inputs.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+}
@@ -0,0 +1,1401 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-process MPD server on the loopback interface that speaks enough of the real protocol to
+ * drive {@link MPDConnection} through all of its code paths:
+ * <ul>
+ * <li>idle/noidle, including "changed:" notifications between clients</li>
+ * <li>command lists (command_list_begin and command_list_ok_begin)</li>
+ * <li>ACK errors for unknown commands, bad arguments and missing files</li>
+ * <li>"list" with legacy filters and "group", "find"/"search" with legacy filters and
+ * filter expressions, "window" ranges and "playlistinfo" ranges</li>
+ * <li>"count" and "searchcount" with the same filters as "find" and "search"</li>
+ * <li>a current playlist with song ids and versions ("plchanges")</li>
+ * </ul>
+ * The database is a {@link FakeMPDLibrary}. Responses for single commands can be overridden
+ * with {@link #setResponse(String, String)}. Network conditions can be simulated with
+ * {@link #setLatency(int)} and {@link #setBandwidth(int)}.
+ */
+class FakeMPDServer implements Runnable {
+    static final int ACK_ERROR_ARG = 2;
+    static final int ACK_ERROR_UNKNOWN = 5;
+    static final int ACK_ERROR_NO_EXIST = 50;
+
+    /**
+     * Commands as announced by "commands"
+     */
+    static final String[] COMMANDS = {"add", "addid", "albumart", "binarylimit", "clear", "close", "commands",
+            "consume", "count", "currentsong", "delete", "find", "findadd", "idle", "list", "listallinfo", "listplaylists", "lsinfo",
+            "move", "next", "noidle", "outputs", "password", "pause", "ping", "play", "playlistinfo", "plchanges",
+            "previous", "random", "readpicture", "repeat", "search", "searchadd", "searchaddpl", "searchcount", "seek", "setvol",
+            "single", "stats", "status", "stop", "tagtypes", "toggleoutput", "update"};
+
+    /* Responses are flushed to the socket when this many characters are buffered */
+    private static final int RESPONSE_BUFFER_SIZE = 64 * 1024;
+
+    private static final String IDLE_PLAYLIST = "playlist";
+    private static final String IDLE_PLAYER = "player";
+    private static final String IDLE_MIXER = "mixer";
+    private static final String IDLE_OPTIONS = "options";
+    private static final String IDLE_OUTPUT = "output";
+    private static final String IDLE_UPDATE = "update";
+    private static final String IDLE_STORED_PLAYLIST = "stored_playlist";
+
+    private final ServerSocket mServerSocket;
+
+    private final String mVersion;
+
+    private final FakeMPDLibrary mLibrary;
+
+    private final Thread mThread;
+
+    private final List<ClientSession> mSessions;
+
+    /* Scripted responses by command prefix, the first matching prefix is used */
+    private final Map<String, String> mScriptedResponses;
+
+    private volatile String[] mCommands;
+
+    /* Delay before each response in milliseconds */
+    private volatile int mLatency;
+
+    /* Maximum transfer rate in bytes per second, 0 for unlimited */
+    private volatile int mBandwidth;
+
+    /* Current playlist and player state, guarded by mQueue */
+    private final List<QueueEntry> mQueue;
+    private int mPlaylistVersion;
+    private int mNextSongID;
+    private int mCurrentSong;
+    private String mPlaybackState;
+    private int mVolume;
+    private boolean mRandom;
+    private boolean mRepeat;
+    private boolean mSingle;
+    private boolean mConsume;
+    private boolean mOutputEnabled;
+
+    /**
+     * Entry of the current playlist.
+     */
+    private static class QueueEntry {
+        private final int mTrack;
+        private final int mSongID;
+
+        /* Playlist version that last changed the position of this entry */
+        private int mVersion;
+
+        private QueueEntry(int track, int songID, int version) {
+            mTrack = track;
+            mSongID = songID;
+            mVersion = version;
+        }
+    }
+
+    /**
+     * Error that is sent to the client as "ACK [error@index] {command} message".
+     */
+    private static class AckException extends Exception {
+        private final int mError;
+
+        private AckException(int error, String message) {
+            super(message);
+            mError = error;
+        }
+    }
+
+    /**
+     * Matches tracks of the library, created from the arguments of find, search and list.
+     */
+    private interface TrackFilter {
+        boolean matches(int track);
+    }
+
+    /**
+     * @param version Version that is announced in the greeting (e.g. "0.20.0")
+     * @param library Database of the server
+     */
+    FakeMPDServer(String version, FakeMPDLibrary library) throws IOException {
+        mServerSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        mVersion = version;
+        mLibrary = library;
+        mSessions = new CopyOnWriteArrayList<>();
+        mScriptedResponses = new LinkedHashMap<>();
+        mCommands = COMMANDS;
+        mQueue = new ArrayList<>();
+        mPlaybackState = "stop";
+        mVolume = 80;
+        mOutputEnabled = true;
+        mThread = new Thread(this, "FakeMPDServer");
+        mThread.setDaemon(true);
+    }
+
+    /**
+     * Overrides the response for all commands starting with the prefix. The response must not
+     * contain the final "OK". Responses like "ACK [50@0] {albumart} No file exists" are sent as
+     * errors.
+     */
+    void setResponse(String commandPrefix, String response) {
+        synchronized (mScriptedResponses) {
+            mScriptedResponses.put(commandPrefix, response);
+        }
+    }
+
+    /**
+     * Executes the command once and serves the stored response for all commands starting with
+     * it afterwards. This keeps the time to create large responses out of measurements.
+     */
+    void cacheResponse(String command) throws IOException {
+        ResponseWriter writer = new ResponseWriter(null);
+        List<String> arguments = parseArguments(command);
+        try {
+            execute(arguments.get(0), arguments.subList(1, arguments.size()), writer);
+        } catch (AckException e) {
+            throw new IOException(command + ": " + e.getMessage());
+        }
+        setResponse(command, writer.mBuffer.toString());
+    }
+
+    /**
+     * Sets the commands that are announced by "commands", e.g. to simulate older servers.
+     * This does not disable the commands.
+     */
+    void setCommands(String... commands) {
+        mCommands = commands;
+    }
+
+    /**
+     * @param latency Delay before each response in milliseconds
+     */
+    void setLatency(int latency) {
+        mLatency = latency;
+    }
+
+    /**
+     * @param bandwidth Maximum transfer rate in bytes per second, 0 for unlimited
+     */
+    void setBandwidth(int bandwidth) {
+        mBandwidth = bandwidth;
+    }
+
+    /**
+     * Replaces the current playlist with the first tracks of the library.
+     */
+    void fillQueue(int trackCount) {
+        synchronized (mQueue) {
+            mQueue.clear();
+            mPlaylistVersion++;
+            for (int i = 0; i < trackCount && i < mLibrary.getTrackCount(); i++) {
+                mQueue.add(new QueueEntry(i, mNextSongID++, mPlaylistVersion));
+            }
+            mCurrentSong = 0;
+            mPlaybackState = "play";
+        }
+        notifyIdle(IDLE_PLAYLIST);
+    }
+
+    int getPort() {
+        return mServerSocket.getLocalPort();
+    }
+
+    void start() {
+        mThread.start();
+    }
+
+    void stop() throws IOException {
+        mServerSocket.close();
+        for (ClientSession session : mSessions) {
+            session.close();
+        }
+    }
+
+    @Override
+    public void run() {
+        while (!mServerSocket.isClosed()) {
+            try {
+                ClientSession session = new ClientSession(mServerSocket.accept());
+                mSessions.add(session);
+                Thread client = new Thread(session, "FakeMPDClient");
+                client.setDaemon(true);
+                client.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Notifies all idling clients that are interested in the subsystem.
+     */
+    private void notifyIdle(String subsystem) {
+        for (ClientSession session : mSessions) {
+            session.notifyIdle(subsystem);
+        }
+    }
+
+    /**
+     * Connection of one client.
+     */
+    private class ClientSession implements Runnable {
+        private final Socket mSocket;
+
+        private final OutputStream mOutput;
+
+        /* Idle state, guarded by this */
+        private boolean mIdling;
+        private Set<String> mIdleSubsystems;
+        private final Set<String> mPendingEvents;
+
+        /* Tags enabled with "tagtypes", null for all tags */
+        private volatile Set<String> mEnabledTags;
+
+        private ClientSession(Socket socket) throws IOException {
+            mSocket = socket;
+            mOutput = socket.getOutputStream();
+            mPendingEvents = new LinkedHashSet<>();
+        }
+
+        @Override
+        public void run() {
+            try {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(mSocket.getInputStream(), StandardCharsets.UTF_8));
+                new ResponseWriter(this).append("OK MPD ").append(mVersion).append('\n').finish();
+
+                String command;
+                while ((command = reader.readLine()) != null) {
+                    if (command.equals(MPDCommands.MPD_START_COMMAND_LIST) || command.equals(MPDCommands.MPD_START_COMMAND_LIST_OK)) {
+                        List<String> commandList = new ArrayList<>();
+                        String listCommand;
+                        while ((listCommand = reader.readLine()) != null && !listCommand.equals(MPDCommands.MPD_END_COMMAND_LIST)) {
+                            commandList.add(listCommand);
+                        }
+                        executeCommandList(commandList, command.equals(MPDCommands.MPD_START_COMMAND_LIST_OK));
+                    } else if (command.equals(MPDCommands.MPD_COMMAND_START_IDLE) || command.startsWith(MPDCommands.MPD_COMMAND_START_IDLE + ' ')) {
+                        startIdle(parseArguments(command));
+                    } else if (command.equals(MPDCommands.MPD_COMMAND_STOP_IDLE)) {
+                        stopIdle();
+                    } else if (command.equals(MPDCommands.MPD_COMMAND_CLOSE)) {
+                        break;
+                    } else {
+                        executeCommandList(Arrays.asList(command), false);
+                    }
+                }
+            } catch (IOException e) {
+                // Client disconnected
+            }
+            close();
+        }
+
+        private void close() {
+            mSessions.remove(this);
+            try {
+                mSocket.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+
+        private void startIdle(List<String> arguments) throws IOException {
+            synchronized (this) {
+                mIdleSubsystems = new HashSet<>(arguments.subList(1, arguments.size()));
+                mIdling = true;
+                String pendingEvent = null;
+                for (String event : mPendingEvents) {
+                    if (isIdleSubsystem(event)) {
+                        pendingEvent = event;
+                        break;
+                    }
+                }
+                if (null != pendingEvent) {
+                    sendIdleEvent(pendingEvent);
+                }
+            }
+        }
+
+        private synchronized void stopIdle() throws IOException {
+            if (mIdling) {
+                mIdling = false;
+                new ResponseWriter(this).append("OK\n").finish();
+            }
+        }
+
+        private synchronized void notifyIdle(String subsystem) {
+            if (mIdling && isIdleSubsystem(subsystem)) {
+                try {
+                    sendIdleEvent(subsystem);
+                } catch (IOException e) {
+                    close();
+                }
+            } else {
+                mPendingEvents.add(subsystem);
+            }
+        }
+
+        private boolean isIdleSubsystem(String subsystem) {
+            return mIdleSubsystems.isEmpty() || mIdleSubsystems.contains(subsystem);
+        }
+
+        private void sendIdleEvent(String subsystem) throws IOException {
+            mIdling = false;
+            mPendingEvents.remove(subsystem);
+            new ResponseWriter(this).append("changed: ").append(subsystem).append("\nOK\n").finish();
+        }
+
+        /**
+         * Executes the commands and sends their responses. Single commands are executed as a list
+         * with one entry. The list is aborted with an ACK when a command fails.
+         */
+        private void executeCommandList(List<String> commands, boolean listOK) throws IOException {
+            ResponseWriter writer = new ResponseWriter(this);
+            for (int i = 0; i < commands.size(); i++) {
+                String command = commands.get(i);
+                List<String> arguments = parseArguments(command);
+                String name = arguments.isEmpty() ? "" : arguments.get(0);
+                try {
+                    if (!executeScripted(command, writer)) {
+                        execute(name, arguments.subList(1, arguments.size()), writer);
+                    }
+                } catch (AckException e) {
+                    writer.append("ACK [").append(e.mError).append('@').append(i).append("] {").append(name)
+                            .append("} ").append(e.getMessage()).append('\n').finish();
+                    return;
+                }
+                if (listOK) {
+                    writer.append("list_OK\n");
+                }
+            }
+            writer.append("OK\n").finish();
+        }
+    }
+
+    /**
+     * Buffers a response and writes it to the socket of a client. Without a client the
+     * response is only buffered. The configured latency is
+     * added before the first byte, the configured bandwidth limits the transfer rate.
+     */
+    private class ResponseWriter {
+        private final ClientSession mSession;
+
+        private final StringBuilder mBuffer;
+
+        private long mStartTime;
+
+        private long mBytesWritten;
+
+        private ResponseWriter(ClientSession session) {
+            mSession = session;
+            mBuffer = new StringBuilder();
+        }
+
+        private ResponseWriter append(String value) {
+            mBuffer.append(value);
+            return this;
+        }
+
+        private ResponseWriter append(char value) {
+            mBuffer.append(value);
+            return this;
+        }
+
+        private ResponseWriter append(int value) {
+            mBuffer.append(value);
+            return this;
+        }
+
+        private ResponseWriter line(String key, Object value) throws IOException {
+            mBuffer.append(key).append(": ").append(value).append('\n');
+            flushIfFull();
+            return this;
+        }
+
+        private void appendTrack(int track) throws IOException {
+            mLibrary.appendTrack(mBuffer, track, null == mSession ? null : mSession.mEnabledTags);
+            flushIfFull();
+        }
+
+        private void flushIfFull() throws IOException {
+            if (null != mSession && mBuffer.length() >= RESPONSE_BUFFER_SIZE) {
+                flush();
+            }
+        }
+
+        private void finish() throws IOException {
+            flush();
+            mSession.mOutput.flush();
+        }
+
+        private void flush() throws IOException {
+            if (mBuffer.length() == 0) {
+                return;
+            }
+            if (mStartTime == 0) {
+                sleep(mLatency);
+                mStartTime = System.nanoTime();
+            }
+            byte[] data = mBuffer.toString().getBytes(StandardCharsets.UTF_8);
+            mBuffer.setLength(0);
+
+            int bandwidth = mBandwidth;
+            if (bandwidth <= 0) {
+                mSession.mOutput.write(data);
+                return;
+            }
+            // Write slices of 10 ms and wait until the transfer time of the written data passed
+            int sliceSize = Math.max(1, bandwidth / 100);
+            for (int offset = 0; offset < data.length; offset += sliceSize) {
+                int length = Math.min(sliceSize, data.length - offset);
+                mSession.mOutput.write(data, offset, length);
+                mSession.mOutput.flush();
+                mBytesWritten += length;
+                long due = mStartTime + mBytesWritten * 1000000000L / bandwidth;
+                sleep((due - System.nanoTime()) / 1000000);
+            }
+        }
+    }
+
+    /**
+     * Checks for a scripted response and sends it.
+     *
+     * @return True if a scripted response was found
+     */
+    private boolean executeScripted(String command, ResponseWriter writer) throws IOException, AckException {
+        String response = null;
+        synchronized (mScriptedResponses) {
+            for (Map.Entry<String, String> entry : mScriptedResponses.entrySet()) {
+                if (command.startsWith(entry.getKey())) {
+                    response = entry.getValue();
+                    break;
+                }
+            }
+        }
+        if (null == response) {
+            return false;
+        }
+        if (response.startsWith("ACK [")) {
+            // Aborts a command list like a real error, the index is set by the caller
+            int error;
+            try {
+                error = Integer.parseInt(response.substring(5, response.indexOf('@')));
+            } catch (RuntimeException e) {
+                error = ACK_ERROR_UNKNOWN;
+            }
+            throw new AckException(error, response.substring(response.indexOf('}') + 1).trim());
+        }
+        writer.append(response);
+        writer.flushIfFull();
+        return true;
+    }
+
+    /**
+     * Executes a command of the protocol. Arguments are validated before the first line of the
+     * response is written, so a failing command never leaves a partial response.
+     */
+    private void execute(String command, List<String> arguments, ResponseWriter writer) throws IOException, AckException {
+        switch (command) {
+            case "ping":
+            case "password":
+            case "binarylimit":
+            case "listplaylists":
+                break;
+            case "commands":
+                for (String name : mCommands) {
+                    writer.line("command", name);
+                }
+                break;
+            case "tagtypes":
+                executeTagTypes(arguments, writer);
+                break;
+            case "status":
+                writeStatus(writer);
+                break;
+            case "stats":
+                writer.line("artists", mLibrary.getArtistCount());
+                writer.line("albums", mLibrary.getAlbumCount());
+                writer.line("songs", mLibrary.getSongCount());
+                writer.line("uptime", 3600);
+                writer.line("db_playtime", mLibrary.getSongCount() * 320L);
+                writer.line("db_update", mLibrary.getDatabaseUpdate());
+                writer.line("playtime", 1800);
+                break;
+            case "currentsong":
+                synchronized (mQueue) {
+                    if (mCurrentSong < mQueue.size()) {
+                        writeQueueEntries(writer, mQueue.subList(mCurrentSong, mCurrentSong + 1), mCurrentSong);
+                    }
+                }
+                break;
+            case "playlistinfo":
+                writePlaylistInfo(arguments, writer);
+                break;
+            case "plchanges":
+                writePlaylistChanges(parseInteger(arguments, 0), writer);
+                break;
+            case "listallinfo":
+                writeDatabase(arguments.isEmpty() ? "" : arguments.get(0), writer);
+                break;
+            case "lsinfo":
+                writeDirectory(arguments.isEmpty() ? "" : arguments.get(0), writer);
+                break;
+            case "list":
+                writeTagList(arguments, writer);
+                break;
+            case "find":
+            case "search":
+                writeTracks(createFilter(arguments, command.equals("search")), parseWindow(arguments), writer);
+                break;
+            case "count":
+            case "searchcount":
+                writeCount(createFilter(arguments, command.equals("searchcount")), writer);
+                break;
+            case "findadd":
+            case "searchadd":
+                addTracks(createFilter(arguments, command.equals("searchadd")));
+                break;
+            case "searchaddpl":
+                // Stored playlists are not part of this server, only check the arguments
+                if (arguments.isEmpty()) {
+                    throw new AckException(ACK_ERROR_ARG, "too few arguments for \"searchaddpl\"");
+                }
+                createFilter(arguments.subList(1, arguments.size()), true);
+                notifyIdle(IDLE_STORED_PLAYLIST);
+                break;
+            case "add":
+                addTracks(createBaseFilter(requireArgument(arguments, 0)));
+                break;
+            case "addid":
+                writer.line("Id", addTrack(requireArgument(arguments, 0), arguments.size() > 1 ? parseInteger(arguments, 1) : -1));
+                break;
+            case "clear":
+                synchronized (mQueue) {
+                    mQueue.clear();
+                    mPlaylistVersion++;
+                    mCurrentSong = 0;
+                    mPlaybackState = "stop";
+                }
+                notifyIdle(IDLE_PLAYLIST);
+                break;
+            case "delete":
+                deleteTrack(parseInteger(arguments, 0));
+                break;
+            case "move":
+                moveTrack(parseInteger(arguments, 0), parseInteger(arguments, 1));
+                break;
+            case "play":
+            case "pause":
+            case "stop":
+            case "next":
+            case "previous":
+            case "seek":
+                changePlayback(command, arguments);
+                break;
+            case "random":
+            case "repeat":
+            case "single":
+            case "consume":
+                changeOption(command, parseInteger(arguments, 0) == 1);
+                break;
+            case "setvol":
+                synchronized (mQueue) {
+                    mVolume = parseInteger(arguments, 0);
+                }
+                notifyIdle(IDLE_MIXER);
+                break;
+            case "outputs":
+                writer.line("outputid", 0);
+                writer.line("outputname", "Fake output");
+                writer.line("outputenabled", mOutputEnabled ? 1 : 0);
+                break;
+            case "toggleoutput":
+                parseInteger(arguments, 0);
+                mOutputEnabled = !mOutputEnabled;
+                notifyIdle(IDLE_OUTPUT);
+                break;
+            case "update":
+                writer.line("updating_db", 1);
+                notifyIdle(IDLE_UPDATE);
+                break;
+            case "albumart":
+            case "readpicture":
+                requireArgument(arguments, 0);
+                throw new AckException(ACK_ERROR_NO_EXIST, "No file exists");
+            default:
+                throw new AckException(ACK_ERROR_UNKNOWN, "unknown command \"" + command + '\"');
+        }
+    }
+
+    private void writeStatus(ResponseWriter writer) throws IOException {
+        synchronized (mQueue) {
+            writer.line("volume", mVolume);
+            writer.line("repeat", mRepeat ? 1 : 0);
+            writer.line("random", mRandom ? 1 : 0);
+            writer.line("single", mSingle ? 1 : 0);
+            writer.line("consume", mConsume ? 1 : 0);
+            writer.line("playlist", mPlaylistVersion);
+            writer.line("playlistlength", mQueue.size());
+            writer.line("mixrampdb", "0.000000");
+            writer.line("state", mPlaybackState);
+            if (!mPlaybackState.equals("stop") && mCurrentSong < mQueue.size()) {
+                QueueEntry entry = mQueue.get(mCurrentSong);
+                int length = mLibrary.getTrackLength(entry.mTrack);
+                writer.line("song", mCurrentSong);
+                writer.line("songid", entry.mSongID);
+                writer.line("time", (length / 3) + ":" + length);
+                writer.line("elapsed", (length / 3) + ".121");
+                writer.line("bitrate", 987);
+                writer.line("duration", length + ".000");
+                writer.line("audio", "44100:16:2");
+                if (mCurrentSong + 1 < mQueue.size()) {
+                    writer.line("nextsong", mCurrentSong + 1);
+                    writer.line("nextsongid", mQueue.get(mCurrentSong + 1).mSongID);
+                }
+            }
+        }
+    }
+
+    private void writePlaylistInfo(List<String> arguments, ResponseWriter writer) throws IOException, AckException {
+        List<QueueEntry> entries;
+        int start = 0;
+        synchronized (mQueue) {
+            if (arguments.isEmpty()) {
+                entries = new ArrayList<>(mQueue);
+            } else {
+                int[] range = parseRange(arguments.get(0));
+                if (range[0] >= mQueue.size() || (range[1] - range[0] == 1 && range[1] > mQueue.size())) {
+                    throw new AckException(ACK_ERROR_ARG, "Bad song index");
+                }
+                start = range[0];
+                entries = new ArrayList<>(mQueue.subList(start, Math.min(range[1], mQueue.size())));
+            }
+        }
+        writeQueueEntries(writer, entries, start);
+    }
+
+    private void writePlaylistChanges(int version, ResponseWriter writer) throws IOException {
+        List<QueueEntry> entries;
+        synchronized (mQueue) {
+            entries = new ArrayList<>(mQueue);
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i).mVersion > version) {
+                writeQueueEntries(writer, entries.subList(i, i + 1), i);
+            }
+        }
+    }
+
+    private void writeQueueEntries(ResponseWriter writer, List<QueueEntry> entries, int start) throws IOException {
+        for (int i = 0; i < entries.size(); i++) {
+            QueueEntry entry = entries.get(i);
+            writer.appendTrack(entry.mTrack);
+            writer.line("Pos", start + i);
+            writer.line("Id", entry.mSongID);
+        }
+    }
+
+    private void writeTracks(TrackFilter filter, int[] window, ResponseWriter writer) throws IOException {
+        int match = 0;
+        for (int track = 0; track < mLibrary.getTrackCount(); track++) {
+            if (mLibrary.hasTrack(track) && (null == filter || filter.matches(track))) {
+                if (null == window || (match >= window[0] && match < window[1])) {
+                    writer.appendTrack(track);
+                }
+                match++;
+            }
+        }
+    }
+
+    /**
+     * Handles "listallinfo [PATH]". Like MPD every directory is listed before its contents.
+     */
+    private void writeDatabase(String path, ResponseWriter writer) throws IOException {
+        String base = trimPath(path);
+        String[] lastDirectories = null;
+        int lastAlbum = -1;
+        TrackFilter filter = createBaseFilter(base);
+        for (int track = 0; track < mLibrary.getTrackCount(); track++) {
+            if (!mLibrary.hasTrack(track) || !filter.matches(track)) {
+                continue;
+            }
+            // The directories only change with the album
+            if (track / FakeMPDLibrary.TRACKS_PER_ALBUM != lastAlbum) {
+                lastAlbum = track / FakeMPDLibrary.TRACKS_PER_ALBUM;
+                String[] directories = mLibrary.getDirectories(track);
+                for (int i = 0; i < directories.length; i++) {
+                    if ((null == lastDirectories || !directories[i].equals(lastDirectories[i]))
+                            && (base.isEmpty() || directories[i].startsWith(base + '/'))) {
+                        writeDirectoryEntry(directories[i], writer);
+                    }
+                }
+                lastDirectories = directories;
+            }
+            writer.appendTrack(track);
+        }
+    }
+
+    /**
+     * Handles "lsinfo [PATH]".
+     */
+    private void writeDirectory(String path, ResponseWriter writer) throws IOException, AckException {
+        List<String> directories = new ArrayList<>();
+        List<Integer> tracks = new ArrayList<>();
+        if (!mLibrary.listDirectory(trimPath(path), directories, tracks)) {
+            throw new AckException(ACK_ERROR_NO_EXIST, "No such directory");
+        }
+        for (String directory : directories) {
+            writeDirectoryEntry(directory, writer);
+        }
+        for (int track : tracks) {
+            writer.appendTrack(track);
+        }
+    }
+
+    private void writeDirectoryEntry(String directory, ResponseWriter writer) throws IOException {
+        writer.line(FakeMPDLibrary.TAG_DIRECTORY, directory);
+        writer.line(FakeMPDLibrary.TAG_LAST_MODIFIED, mLibrary.getDirectoryLastModified(directory));
+    }
+
+    /**
+     * @return The path without leading and trailing slashes, "" for the root directory
+     */
+    private static String trimPath(String path) {
+        int start = 0;
+        int end = path.length();
+        while (start < end && path.charAt(start) == '/') {
+            start++;
+        }
+        while (end > start && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        return path.substring(start, end);
+    }
+
+    private void writeCount(TrackFilter filter, ResponseWriter writer) throws IOException {
+        int songs = 0;
+        long playtime = 0;
+        for (int track = 0; track < mLibrary.getTrackCount(); track++) {
+            if (mLibrary.hasTrack(track) && filter.matches(track)) {
+                songs++;
+                playtime += mLibrary.getTrackLength(track);
+            }
+        }
+        writer.line("songs", songs);
+        writer.line("playtime", playtime);
+    }
+
+    /**
+     * Handles "list TAG [ARTIST] [FILTER...] [group GROUPTAG]...". Values are written in the
+     * order of the library, each followed by its group values, like MPD 0.20 does.
+     */
+    private void writeTagList(List<String> arguments, ResponseWriter writer) throws IOException, AckException {
+        String tag = FakeMPDLibrary.getCanonicalTag(requireArgument(arguments, 0));
+        if (null == tag) {
+            throw new AckException(ACK_ERROR_ARG, "Unknown tag type: " + arguments.get(0));
+        }
+
+        List<String> groups = new ArrayList<>();
+        int end = arguments.size();
+        while (end >= 3 && arguments.get(end - 2).equalsIgnoreCase("group")) {
+            String group = FakeMPDLibrary.getCanonicalTag(arguments.get(end - 1));
+            if (null == group) {
+                throw new AckException(ACK_ERROR_ARG, "Unknown tag type: " + arguments.get(end - 1));
+            }
+            groups.add(0, group);
+            end -= 2;
+        }
+
+        List<String> filterArguments = new ArrayList<>(arguments.subList(1, end));
+        if (filterArguments.size() == 1 && tag.equals(FakeMPDLibrary.TAG_ALBUM) && !filterArguments.get(0).startsWith("(")) {
+            // Legacy form "list album ARTIST"
+            filterArguments.add(0, FakeMPDLibrary.TAG_ARTIST);
+        }
+        TrackFilter filter = filterArguments.isEmpty() ? null : createFilter(filterArguments, false);
+
+        Set<List<String>> values = new LinkedHashSet<>();
+        for (int track = 0; track < mLibrary.getTrackCount(); track++) {
+            if (mLibrary.hasTrack(track) && (null == filter || filter.matches(track))) {
+                List<String> value = new ArrayList<>(groups.size() + 1);
+                value.add(getTagValue(track, tag));
+                for (String group : groups) {
+                    value.add(getTagValue(track, group));
+                }
+                values.add(value);
+            }
+        }
+        for (List<String> value : values) {
+            writer.line(tag, value.get(0));
+            for (int i = 0; i < groups.size(); i++) {
+                writer.line(groups.get(i), value.get(i + 1));
+            }
+        }
+    }
+
+    private String getTagValue(int track, String tag) {
+        String value = mLibrary.getTag(track, tag);
+        return null == value ? "" : value;
+    }
+
+    private void addTracks(TrackFilter filter) throws AckException {
+        int added = 0;
+        synchronized (mQueue) {
+            mPlaylistVersion++;
+            for (int track = 0; track < mLibrary.getTrackCount(); track++) {
+                if (mLibrary.hasTrack(track) && filter.matches(track)) {
+                    mQueue.add(new QueueEntry(track, mNextSongID++, mPlaylistVersion));
+                    added++;
+                }
+            }
+            if (added == 0) {
+                mPlaylistVersion--;
+            }
+        }
+        if (added > 0) {
+            notifyIdle(IDLE_PLAYLIST);
+        }
+    }
+
+    private int addTrack(String path, int position) throws AckException {
+        int track = mLibrary.getTrackForPath(path);
+        if (track < 0) {
+            throw new AckException(ACK_ERROR_NO_EXIST, "No such song");
+        }
+        int songID;
+        synchronized (mQueue) {
+            if (position > mQueue.size()) {
+                throw new AckException(ACK_ERROR_ARG, "Bad song index");
+            }
+            mPlaylistVersion++;
+            songID = mNextSongID++;
+            if (position < 0) {
+                mQueue.add(new QueueEntry(track, songID, mPlaylistVersion));
+            } else {
+                mQueue.add(position, new QueueEntry(track, songID, mPlaylistVersion));
+                markChanged(position, mQueue.size());
+            }
+        }
+        notifyIdle(IDLE_PLAYLIST);
+        return songID;
+    }
+
+    private void deleteTrack(int position) throws AckException {
+        synchronized (mQueue) {
+            if (position < 0 || position >= mQueue.size()) {
+                throw new AckException(ACK_ERROR_ARG, "Bad song index");
+            }
+            mPlaylistVersion++;
+            mQueue.remove(position);
+            markChanged(position, mQueue.size());
+        }
+        notifyIdle(IDLE_PLAYLIST);
+    }
+
+    private void moveTrack(int from, int to) throws AckException {
+        synchronized (mQueue) {
+            if (from < 0 || from >= mQueue.size() || to < 0 || to >= mQueue.size()) {
+                throw new AckException(ACK_ERROR_ARG, "Bad song index");
+            }
+            mPlaylistVersion++;
+            mQueue.add(to, mQueue.remove(from));
+            markChanged(Math.min(from, to), Math.max(from, to) + 1);
+        }
+        notifyIdle(IDLE_PLAYLIST);
+    }
+
+    /**
+     * Sets the version of all positions in the range to the current playlist version.
+     * Must be called with mQueue locked.
+     */
+    private void markChanged(int start, int end) {
+        for (int i = start; i < end; i++) {
+            mQueue.get(i).mVersion = mPlaylistVersion;
+        }
+    }
+
+    private void changePlayback(String command, List<String> arguments) throws AckException {
+        synchronized (mQueue) {
+            switch (command) {
+                case "play":
+                    if (!arguments.isEmpty()) {
+                        int position = parseInteger(arguments, 0);
+                        if (position < 0 || position >= mQueue.size()) {
+                            throw new AckException(ACK_ERROR_ARG, "Bad song index");
+                        }
+                        mCurrentSong = position;
+                    }
+                    mPlaybackState = "play";
+                    break;
+                case "pause":
+                    mPlaybackState = (!arguments.isEmpty() && parseInteger(arguments, 0) == 0) ? "play" : "pause";
+                    break;
+                case "stop":
+                    mPlaybackState = "stop";
+                    break;
+                case "next":
+                    mCurrentSong = Math.min(mCurrentSong + 1, Math.max(0, mQueue.size() - 1));
+                    break;
+                case "previous":
+                    mCurrentSong = Math.max(mCurrentSong - 1, 0);
+                    break;
+                case "seek":
+                    parseInteger(arguments, 1);
+                    break;
+            }
+        }
+        notifyIdle(IDLE_PLAYER);
+    }
+
+    private void changeOption(String option, boolean value) {
+        synchronized (mQueue) {
+            switch (option) {
+                case "random":
+                    mRandom = value;
+                    break;
+                case "repeat":
+                    mRepeat = value;
+                    break;
+                case "single":
+                    mSingle = value;
+                    break;
+                case "consume":
+                    mConsume = value;
+                    break;
+            }
+        }
+        notifyIdle(IDLE_OPTIONS);
+    }
+
+    /**
+     * Creates a filter from the arguments of find/search. Either one filter expression or
+     * pairs of "TAG VALUE". An optional "window START:END" at the end is ignored here.
+     *
+     * @param search True for case insensitive substring matches (search), false for exact
+     *               matches (find)
+     */
+    private TrackFilter createFilter(List<String> arguments, boolean search) throws AckException {
+        int end = arguments.size();
+        if (end >= 2 && arguments.get(end - 2).equals("window")) {
+            end -= 2;
+        }
+        if (end == 0) {
+            throw new AckException(ACK_ERROR_ARG, "too few arguments");
+        }
+        if (arguments.get(0).startsWith("(")) {
+            return new FilterExpressionParser(arguments.get(0)).parse();
+        }
+        if (end % 2 != 0) {
+            throw new AckException(ACK_ERROR_ARG, "Incorrect number of filter arguments");
+        }
+        final List<TrackFilter> filters = new ArrayList<>();
+        for (int i = 0; i < end; i += 2) {
+            filters.add(createTagFilter(arguments.get(i), search ? "contains" : "==", arguments.get(i + 1)));
+        }
+        return createAndFilter(filters);
+    }
+
+    private TrackFilter createBaseFilter(final String path) {
+        final String prefix = path.endsWith("/") || path.isEmpty() ? path : path + '/';
+        final int[] range = mLibrary.getTrackRange(trimPath(path));
+        return new TrackFilter() {
+            @Override
+            public boolean matches(int track) {
+                if (track < range[0] || track >= range[1]) {
+                    return false;
+                }
+                String file = mLibrary.getTag(track, FakeMPDLibrary.TAG_FILE);
+                return file.equals(path) || file.startsWith(prefix);
+            }
+        };
+    }
+
+    /**
+     * @param time Seconds since the epoch or ISO 8601 time in UTC
+     */
+    private TrackFilter createModifiedSinceFilter(String time) throws AckException {
+        final long since;
+        try {
+            if (time.matches("[0-9]+")) {
+                since = Long.parseLong(time) * 1000;
+            } else {
+                since = parseTime(time);
+            }
+        } catch (NumberFormatException | ParseException e) {
+            throw new AckException(ACK_ERROR_ARG, "Failed to parse time stamp: " + time);
+        }
+        // Times in UTC in the same format can be compared as strings
+        final String sinceTime = createTimeFormat().format(new Date(since));
+        return new TrackFilter() {
+            @Override
+            public boolean matches(int track) {
+                return mLibrary.getTag(track, FakeMPDLibrary.TAG_LAST_MODIFIED).compareTo(sinceTime) > 0;
+            }
+        };
+    }
+
+    private static long parseTime(String time) throws ParseException {
+        return createTimeFormat().parse(time).getTime();
+    }
+
+    private static SimpleDateFormat createTimeFormat() {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.ROOT);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format;
+    }
+
+    private TrackFilter createTagFilter(String tagName, final String operator, final String value) throws AckException {
+        final String[] tags;
+        if (tagName.equalsIgnoreCase("any")) {
+            tags = FakeMPDLibrary.TAG_TYPES;
+        } else if (tagName.equalsIgnoreCase("base")) {
+            return createBaseFilter(value);
+        } else if (tagName.equalsIgnoreCase("modified-since")) {
+            return createModifiedSinceFilter(value);
+        } else {
+            String tag = FakeMPDLibrary.getCanonicalTag(tagName);
+            if (null == tag) {
+                throw new AckException(ACK_ERROR_ARG, "Unknown filter type: " + tagName);
+            }
+            tags = new String[]{tag};
+        }
+        if (!operator.equals("==") && !operator.equals("!=") && !operator.equals("contains")) {
+            throw new AckException(ACK_ERROR_ARG, "Unknown filter operator: " + operator);
+        }
+        final String lowerValue = value.toLowerCase(Locale.ROOT);
+        return new TrackFilter() {
+            @Override
+            public boolean matches(int track) {
+                boolean matches = false;
+                for (String tag : tags) {
+                    String tagValue = getTagValue(track, tag);
+                    if (operator.equals("contains")) {
+                        matches = tagValue.toLowerCase(Locale.ROOT).contains(lowerValue);
+                    } else {
+                        matches = tagValue.equals(value);
+                    }
+                    if (matches) {
+                        break;
+                    }
+                }
+                return operator.equals("!=") != matches;
+            }
+        };
+    }
+
+    private static TrackFilter createAndFilter(final List<TrackFilter> filters) {
+        return new TrackFilter() {
+            @Override
+            public boolean matches(int track) {
+                for (TrackFilter filter : filters) {
+                    if (!filter.matches(track)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Lists the enabled tags or changes them with "clear", "all", "enable" and "disable".
+     */
+    private void executeTagTypes(List<String> arguments, ResponseWriter writer) throws IOException, AckException {
+        ClientSession session = writer.mSession;
+        Set<String> enabledTags = null == session ? null : session.mEnabledTags;
+        if (arguments.isEmpty()) {
+            for (String tag : FakeMPDLibrary.TAG_TYPES) {
+                if (null == enabledTags || enabledTags.contains(tag)) {
+                    writer.line("tagtype", tag);
+                }
+            }
+            return;
+        }
+
+        Set<String> newTags = new HashSet<>(null == enabledTags ? Arrays.asList(FakeMPDLibrary.TAG_TYPES) : enabledTags);
+        switch (arguments.get(0)) {
+            case "clear":
+                newTags.clear();
+                break;
+            case "all":
+                newTags = null;
+                break;
+            case "enable":
+            case "disable":
+                if (arguments.size() < 2) {
+                    throw new AckException(ACK_ERROR_ARG, "Not enough arguments");
+                }
+                for (String name : arguments.subList(1, arguments.size())) {
+                    String tag = FakeMPDLibrary.getCanonicalTag(name);
+                    if (null == tag || !Arrays.asList(FakeMPDLibrary.TAG_TYPES).contains(tag)) {
+                        throw new AckException(ACK_ERROR_ARG, "Unknown tag type: " + name);
+                    }
+                    if (arguments.get(0).equals("enable")) {
+                        newTags.add(tag);
+                    } else {
+                        newTags.remove(tag);
+                    }
+                }
+                break;
+            default:
+                throw new AckException(ACK_ERROR_ARG, "Unknown sub command");
+        }
+        if (null != session) {
+            session.mEnabledTags = newTags;
+        }
+    }
+
+    /**
+     * Parser for the filter expressions of MPD 0.21: "(TAG == 'VALUE')", "(TAG != 'VALUE')",
+     * "(TAG contains 'VALUE')", "(base 'PATH')", "(modified-since 'TIME')", "(!EXPRESSION)" and
+     * "(EXPRESSION AND EXPRESSION ...)". Values are quoted with single or double quotes.
+     */
+    private class FilterExpressionParser {
+        private final String mExpression;
+
+        private int mPosition;
+
+        private FilterExpressionParser(String expression) {
+            mExpression = expression;
+        }
+
+        private TrackFilter parse() throws AckException {
+            TrackFilter filter = parseExpression();
+            skipWhitespace();
+            if (mPosition != mExpression.length()) {
+                throw error();
+            }
+            return filter;
+        }
+
+        private TrackFilter parseExpression() throws AckException {
+            expect('(');
+            skipWhitespace();
+            if (peek() == '!') {
+                mPosition++;
+                final TrackFilter negated = parseExpression();
+                expect(')');
+                return new TrackFilter() {
+                    @Override
+                    public boolean matches(int track) {
+                        return !negated.matches(track);
+                    }
+                };
+            }
+            if (peek() == '(') {
+                List<TrackFilter> filters = new ArrayList<>();
+                filters.add(parseExpression());
+                while (true) {
+                    skipWhitespace();
+                    if (peek() == ')') {
+                        mPosition++;
+                        return createAndFilter(filters);
+                    }
+                    if (!parseWord().equals("AND")) {
+                        throw error();
+                    }
+                    skipWhitespace();
+                    filters.add(parseExpression());
+                }
+            }
+            String tag = parseWord();
+            skipWhitespace();
+            TrackFilter filter;
+            if (tag.equals("base")) {
+                filter = createBaseFilter(parseQuoted());
+            } else if (tag.equals("modified-since")) {
+                filter = createModifiedSinceFilter(parseQuoted());
+            } else {
+                String operator = parseWord();
+                skipWhitespace();
+                filter = createTagFilter(tag, operator, parseQuoted());
+            }
+            expect(')');
+            return filter;
+        }
+
+        private String parseWord() throws AckException {
+            int start = mPosition;
+            while (mPosition < mExpression.length() && !Character.isWhitespace(mExpression.charAt(mPosition))
+                    && mExpression.charAt(mPosition) != ')' && mExpression.charAt(mPosition) != '\'' && mExpression.charAt(mPosition) != '"') {
+                mPosition++;
+            }
+            if (start == mPosition) {
+                throw error();
+            }
+            return mExpression.substring(start, mPosition);
+        }
+
+        private String parseQuoted() throws AckException {
+            char quote = peek();
+            if (quote != '"' && quote != '\'') {
+                throw error();
+            }
+            mPosition++;
+            StringBuilder value = new StringBuilder();
+            while (mPosition < mExpression.length() && mExpression.charAt(mPosition) != quote) {
+                if (mExpression.charAt(mPosition) == '\\' && mPosition + 1 < mExpression.length()) {
+                    mPosition++;
+                }
+                value.append(mExpression.charAt(mPosition++));
+            }
+            expect(quote);
+            return value.toString();
+        }
+
+        private void expect(char character) throws AckException {
+            skipWhitespace();
+            if (peek() != character) {
+                throw error();
+            }
+            mPosition++;
+        }
+
+        private char peek() {
+            return mPosition < mExpression.length() ? mExpression.charAt(mPosition) : 0;
+        }
+
+        private void skipWhitespace() {
+            while (mPosition < mExpression.length() && Character.isWhitespace(mExpression.charAt(mPosition))) {
+                mPosition++;
+            }
+        }
+
+        private AckException error() {
+            return new AckException(ACK_ERROR_ARG, "Failed to parse filter expression at " + mPosition + ": " + mExpression);
+        }
+    }
+
+    /**
+     * @return The range of a trailing "window START:END" argument or null if there is none
+     */
+    private static int[] parseWindow(List<String> arguments) throws AckException {
+        int size = arguments.size();
+        if (size >= 2 && arguments.get(size - 2).equals("window")) {
+            return parseRange(arguments.get(size - 1));
+        }
+        return null;
+    }
+
+    /**
+     * Parses "START:END" or a single position "POS" (range POS:POS+1).
+     */
+    private static int[] parseRange(String range) throws AckException {
+        try {
+            int separator = range.indexOf(':');
+            if (separator < 0) {
+                int position = Integer.parseInt(range);
+                return new int[]{position, position + 1};
+            }
+            int start = Integer.parseInt(range.substring(0, separator));
+            int end = separator + 1 == range.length() ? Integer.MAX_VALUE : Integer.parseInt(range.substring(separator + 1));
+            if (start < 0 || end < start) {
+                throw new AckException(ACK_ERROR_ARG, "Bad range: " + range);
+            }
+            return new int[]{start, end};
+        } catch (NumberFormatException e) {
+            throw new AckException(ACK_ERROR_ARG, "Integer or range expected: " + range);
+        }
+    }
+
+    private static int parseInteger(List<String> arguments, int index) throws AckException {
+        String argument = requireArgument(arguments, index);
+        try {
+            return Integer.parseInt(argument);
+        } catch (NumberFormatException e) {
+            throw new AckException(ACK_ERROR_ARG, "Integer expected: " + argument);
+        }
+    }
+
+    private static String requireArgument(List<String> arguments, int index) throws AckException {
+        if (index >= arguments.size()) {
+            throw new AckException(ACK_ERROR_ARG, "too few arguments");
+        }
+        return arguments.get(index);
+    }
+
+    /**
+     * Splits a command line into the command and its arguments. Arguments can be quoted with
+     * double quotes, backslashes escape the next character inside quotes.
+     */
+    static List<String> parseArguments(String line) {
+        List<String> arguments = new ArrayList<>();
+        int position = 0;
+        while (position < line.length()) {
+            char character = line.charAt(position);
+            if (Character.isWhitespace(character)) {
+                position++;
+            } else if (character == '"') {
+                StringBuilder argument = new StringBuilder();
+                position++;
+                while (position < line.length() && line.charAt(position) != '"') {
+                    if (line.charAt(position) == '\\' && position + 1 < line.length()) {
+                        position++;
+                    }
+                    argument.append(line.charAt(position++));
+                }
+                arguments.add(argument.toString());
+                position++;
+            } else {
+                int start = position;
+                while (position < line.length() && !Character.isWhitespace(line.charAt(position))) {
+                    position++;
+                }
+                arguments.add(line.substring(start, position));
+            }
+        }
+        return arguments;
+    }
+
+    private static void sleep(long milliseconds) {
+        if (milliseconds <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(milliseconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
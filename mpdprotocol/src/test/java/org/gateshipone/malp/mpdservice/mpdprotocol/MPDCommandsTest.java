@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class MPDCommandsTest {
+    /**
+     * Values that break commands if they are not escaped
+     */
+    private static final String[] VALUES = {"plain", "with \"quotes\"", "trailing\\", "\\\"", "back\\slash", "", "Bj\u00f6rk"};
+
+    /**
+     * Splits a command into its arguments like MPD does. Arguments are separated by spaces,
+     * quoted arguments may contain spaces and escape quotes and backslashes with a backslash.
+     */
+    private static List<String> parseArguments(String command) {
+        List<String> arguments = new ArrayList<>();
+        int position = 0;
+        while (position < command.length()) {
+            if (command.charAt(position) == ' ') {
+                position++;
+                continue;
+            }
+            StringBuilder argument = new StringBuilder();
+            if (command.charAt(position) == '"') {
+                position++;
+                while (command.charAt(position) != '"') {
+                    if (command.charAt(position) == '\\') {
+                        position++;
+                    }
+                    argument.append(command.charAt(position));
+                    position++;
+                }
+                position++;
+            } else {
+                while (position < command.length() && command.charAt(position) != ' ') {
+                    argument.append(command.charAt(position));
+                    position++;
+                }
+            }
+            arguments.add(argument.toString());
+        }
+        return arguments;
+    }
+
+    @Test
+    public void escapesSearchAddArguments() {
+        for (String value : VALUES) {
+            assertEquals(Arrays.asList("searchadd", "any", value),
+                    parseArguments(MPDCommands.MPD_COMMAND_ADD_SEARCH_FILES(value, MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_ANY)));
+            assertEquals(Arrays.asList("searchaddpl", value, "title", value),
+                    parseArguments(MPDCommands.MPD_COMMAND_ADD_SEARCH_FILES_TO_PLAYLIST(value, value, MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_TRACK)));
+        }
+    }
+
+    @Test
+    public void escapesSearchArguments() {
+        for (String value : VALUES) {
+            assertEquals(Arrays.asList("search", "artist", value),
+                    parseArguments(MPDCommands.MPD_COMMAND_SEARCH_FILES(value, MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_ARTIST)));
+            assertEquals(Arrays.asList("search", "any", value, "window", "0:50"),
+                    parseArguments(MPDCommands.MPD_COMMAND_SEARCH_FILES_WINDOW(value, MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_ANY, 0, 50)));
+            assertEquals(Arrays.asList("searchcount", "any", value),
+                    parseArguments(MPDCommands.MPD_COMMAND_SEARCH_COUNT(value, MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_ANY)));
+        }
+    }
+
+    @Test
+    public void usesSearchTypeTags() {
+        assertEquals("searchadd title \"a\"", MPDCommands.MPD_COMMAND_ADD_SEARCH_FILES("a", MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_TRACK));
+        assertEquals("searchadd album \"a\"", MPDCommands.MPD_COMMAND_ADD_SEARCH_FILES("a", MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_ALBUM));
+        assertEquals("searchadd artist \"a\"", MPDCommands.MPD_COMMAND_ADD_SEARCH_FILES("a", MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_ARTIST));
+        assertEquals("searchadd file \"a\"", MPDCommands.MPD_COMMAND_ADD_SEARCH_FILES("a", MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_FILE));
+        assertEquals("searchadd any \"a\"", MPDCommands.MPD_COMMAND_ADD_SEARCH_FILES("a", MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_ANY));
+    }
+
+    @Test
+    public void escapesFilterExpressionsTwice() {
+        for (String value : VALUES) {
+            String filter = MPDCommands.MPD_FILTER_AND(MPDCommands.MPD_FILTER_TAG_EQUALS(MPDCommands.MPD_TAG_ALBUM, value),
+                    MPDCommands.MPD_FILTER_NOT(MPDCommands.MPD_FILTER_TAG_EQUALS(MPDCommands.MPD_TAG_ARTIST, value)));
+            List<String> arguments = parseArguments(MPDCommands.MPD_COMMAND_FIND_ADD_FILTER(filter));
+            assertEquals(2, arguments.size());
+            assertEquals("findadd", arguments.get(0));
+            assertEquals(filter, arguments.get(1));
+
+            // The value is quoted a second time inside of the expression
+            List<String> expression = parseArguments(arguments.get(1));
+            assertEquals(Arrays.asList("((Album", "==", value, ")", "AND", "(!(Artist", "==", value, ")))"), expression);
+        }
+    }
+
+    @Test
+    public void escapesAlbumTrackClauses() {
+        for (String album : VALUES) {
+            assertEquals(Arrays.asList("find", "album", album), parseArguments(MPDCommands.MPD_COMMAND_REQUEST_ALBUM_TRACKS(album)));
+            for (String value : VALUES) {
+                if (value.isEmpty()) {
+                    continue;
+                }
+                assertEquals(Arrays.asList("find", "album", album, MPDCommands.MPD_TAG_ALBUM_ARTIST, value, MPDCommands.MPD_TAG_ALBUM_MBID, value),
+                        parseArguments(MPDCommands.MPD_COMMAND_REQUEST_ALBUM_TRACKS(album, MPDCommands.MPD_TAG_ALBUM_ARTIST, value, value)));
+            }
+        }
+        // Empty artist and MBID add no clauses
+        assertEquals("find album \"a\"", MPDCommands.MPD_COMMAND_REQUEST_ALBUM_TRACKS("a", MPDCommands.MPD_TAG_ARTIST, "", ""));
+    }
+
+    @Test
+    public void escapesFindAddAlbumTracks() {
+        for (String album : VALUES) {
+            assertEquals(Arrays.asList("findadd", MPDCommands.MPD_TAG_ALBUM, album), parseArguments(MPDCommands.MPD_COMMAND_FIND_ADD_ALBUM_TRACKS(album, "")));
+            for (String mbid : VALUES) {
+                if (mbid.isEmpty()) {
+                    continue;
+                }
+                assertEquals(Arrays.asList("findadd", MPDCommands.MPD_TAG_ALBUM, album, MPDCommands.MPD_TAG_ALBUM_MBID, mbid),
+                        parseArguments(MPDCommands.MPD_COMMAND_FIND_ADD_ALBUM_TRACKS(album, mbid)));
+            }
+        }
+    }
+
+    @Test
+    public void escapesBinaryRequests() {
+        for (String value : VALUES) {
+            assertEquals(Arrays.asList("albumart", value, "8192"), parseArguments(MPDCommands.MPD_COMMAND_GET_ALBUMART(value, 8192)));
+            assertEquals(Arrays.asList("readpicture", value, "0"), parseArguments(MPDCommands.MPD_COMMAND_READ_PICTURE(value, 0)));
+        }
+    }
+}
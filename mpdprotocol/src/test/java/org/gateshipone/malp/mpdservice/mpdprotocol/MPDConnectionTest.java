@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDCurrentStatus;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs requests of {@link MPDConnection} against the {@link FakeMPDServer}.
+ */
+public class MPDConnectionTest {
+    private static final int TRACK_COUNT = 200;
+
+    private static final long SEED = 0x636f6e6eL;
+
+    /**
+     * Collects the chunks of a chunked request.
+     */
+    private static class ChunkCollector implements MPDConnection.MPDFileListChunkListener {
+        private final List<MPDFileEntry> mEntries = new ArrayList<>();
+
+        @Override
+        public void onFileListChunk(List<MPDFileEntry> chunk, int start, int end) {
+            assertEquals(mEntries.size(), start);
+            mEntries.addAll(chunk);
+            assertEquals(mEntries.size(), end);
+        }
+    }
+
+    private FakeMPDServer mServer;
+
+    private MPDConnection mConnection;
+
+    @Before
+    public void connect() throws IOException {
+        mServer = new FakeMPDServer("0.21.0", new FakeMPDLibrary(TRACK_COUNT, SEED));
+        mServer.start();
+
+        mConnection = new MPDConnection("Test");
+        mConnection.setServerParameters("127.0.0.1", "", mServer.getPort());
+        mConnection.connectToServer();
+        assertTrue(mConnection.isConnected());
+    }
+
+    @After
+    public void disconnect() throws IOException {
+        mConnection.disconnectFromServer();
+        mServer.stop();
+    }
+
+    @Test
+    public void pipelineCountsSongs() {
+        MPDCommandPipeline pipeline = new MPDCommandPipeline();
+        MPDCommandPipeline.PipelinedCommand<Integer> count = pipeline.addSongCountCommand(MPDCommands.MPD_COMMAND_SEARCH_COUNT("", MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_FILE));
+        MPDCommandPipeline.PipelinedCommand<MPDCurrentStatus> status = pipeline.addStatus();
+
+        assertTrue(mConnection.executePipeline(pipeline));
+        assertEquals(TRACK_COUNT, (int) count.getResult());
+        assertNotNull(status.getResult());
+    }
+
+    @Test
+    public void pipelineRejectsInvalidSongCount() {
+        mServer.setResponse(MPDCommands.MPD_COMMAND_SEARCH_COUNT_CMD_NAME, "songs: many\nplaytime: 0\n");
+
+        MPDCommandPipeline pipeline = new MPDCommandPipeline();
+        MPDCommandPipeline.PipelinedCommand<Integer> count = pipeline.addSongCountCommand(MPDCommands.MPD_COMMAND_SEARCH_COUNT("a", MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_ANY));
+        MPDCommandPipeline.PipelinedCommand<MPDCurrentStatus> status = pipeline.addStatus();
+
+        assertFalse(mConnection.executePipeline(pipeline));
+        assertFalse(count.isSuccessful());
+        // The following response is still parsed, the connection stays usable
+        assertTrue(status.isSuccessful());
+        assertTrue(mConnection.isConnected());
+        assertNotNull(mConnection.getCurrentServerStatus());
+    }
+
+    @Test
+    public void countsSearchedFiles() {
+        assertEquals(TRACK_COUNT, mConnection.getSearchedFilesCount("", MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_FILE));
+
+        mServer.setResponse(MPDCommands.MPD_COMMAND_SEARCH_COUNT_CMD_NAME, "songs: 7\nplaytime: 0\n");
+        assertEquals(7, mConnection.getSearchedFilesCount("a", MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_ANY));
+    }
+
+    @Test
+    public void rejectsInvalidSearchedFilesCount() {
+        mServer.setResponse(MPDCommands.MPD_COMMAND_SEARCH_COUNT_CMD_NAME, "songs: many\nplaytime: 0\n");
+        assertEquals(-1, mConnection.getSearchedFilesCount("a", MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_ANY));
+        assertTrue(mConnection.isConnected());
+        assertNotNull(mConnection.getCurrentServerStatus());
+
+        mServer.setResponse(MPDCommands.MPD_COMMAND_SEARCH_COUNT_CMD_NAME, "ACK [2@0] {searchcount} failed");
+        assertEquals(-1, mConnection.getSearchedFilesCount("a", MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_ANY));
+        assertTrue(mConnection.isConnected());
+        assertNotNull(mConnection.getCurrentServerStatus());
+    }
+
+    @Test
+    public void playlistChangesReportFailure() {
+        mServer.fillQueue(50);
+
+        ChunkCollector changes = new ChunkCollector();
+        assertTrue(mConnection.getCurrentPlaylistChanges(0, changes));
+        assertEquals(50, changes.mEntries.size());
+
+        mServer.setResponse(MPDCommands.MPD_COMMAND_GET_CURRENT_PLAYLIST_CHANGES(0), "ACK [5@0] {plchanges} failed");
+        assertFalse(mConnection.getCurrentPlaylistChanges(0, new ChunkCollector()));
+        assertTrue(mConnection.isConnected());
+    }
+
+    @Test
+    public void cancelledPlaylistChangesReportFailure() {
+        mServer.fillQueue(50);
+
+        MPDCancellationToken token = new MPDCancellationToken();
+        token.cancel();
+        mConnection.setCancellationToken(token);
+        try {
+            assertFalse(mConnection.getCurrentPlaylistChanges(0, new ChunkCollector()));
+        } finally {
+            mConnection.setCancellationToken(null);
+        }
+        // The skipped response does not disturb the next request
+        assertNotNull(mConnection.getCurrentServerStatus());
+    }
+
+    @Test
+    public void chunkedRequestsReportFailure() {
+        mServer.fillQueue(50);
+
+        ChunkCollector playlist = new ChunkCollector();
+        assertTrue(mConnection.getCurrentPlaylist(playlist));
+        assertEquals(50, playlist.mEntries.size());
+
+        // The fake server has no saved playlists, so this fails with ACK
+        assertFalse(mConnection.getSavedPlaylist("missing", new ChunkCollector()));
+
+        mServer.setResponse(MPDCommands.MPD_COMMAND_GET_CURRENT_PLAYLIST, "ACK [5@0] {playlistinfo} failed");
+        assertFalse(mConnection.getCurrentPlaylist(new ChunkCollector()));
+        assertTrue(mConnection.isConnected());
+    }
+
+    @Test
+    public void cancelledChunkedRequestsReportFailure() {
+        mServer.fillQueue(50);
+
+        MPDCancellationToken token = new MPDCancellationToken();
+        token.cancel();
+        mConnection.setCancellationToken(token);
+        try {
+            assertFalse(mConnection.getCurrentPlaylist(new ChunkCollector()));
+            assertFalse(mConnection.getSearchedFiles("a", MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_ANY, new ChunkCollector()));
+        } finally {
+            mConnection.setCancellationToken(null);
+        }
+        assertNotNull(mConnection.getCurrentServerStatus());
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDDirectory;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFile;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Changes the database of the {@link FakeMPDServer} and checks that {@link MPDLibrary#update}
+ * finds the same library as {@link MPDLibrary#create}.
+ */
+public class MPDLibraryTest {
+    private static final int TRACK_COUNT = 300;
+
+    private static final long SEED = 0x6c696272L;
+
+    private FakeMPDLibrary mDatabase;
+
+    private FakeMPDServer mServer;
+
+    private MPDConnection mConnection;
+
+    @Before
+    public void connect() throws IOException {
+        mDatabase = new FakeMPDLibrary(TRACK_COUNT, SEED);
+        mServer = new FakeMPDServer("0.21.0", mDatabase);
+        mServer.start();
+
+        mConnection = new MPDConnection("Test");
+        mConnection.setServerParameters("127.0.0.1", "", mServer.getPort());
+        mConnection.connectToServer();
+        assertTrue(mConnection.isConnected());
+    }
+
+    @After
+    public void disconnect() throws IOException {
+        mConnection.disconnectFromServer();
+        mServer.stop();
+    }
+
+    /**
+     * Lists all entries of a library, with the tags an update has to refresh, and its albums.
+     */
+    private static List<String> describe(MPDLibrary library) {
+        List<String> description = new ArrayList<>();
+        List<String> directories = new ArrayList<>();
+        directories.add("");
+        while (!directories.isEmpty()) {
+            for (MPDFileEntry entry : library.getFiles(directories.remove(directories.size() - 1))) {
+                if (entry instanceof MPDDirectory) {
+                    directories.add(entry.getPath());
+                    description.add(entry.getPath());
+                } else if (entry instanceof MPDFile) {
+                    description.add(entry.getPath() + '|' + entry.getLastModified() + '|' + ((MPDFile) entry).getTrackTitle());
+                }
+            }
+        }
+        for (MPDAlbum album : library.getAlbums()) {
+            description.add(album.getName() + '|' + album.getArtistName() + '|' + album.getMBID());
+        }
+        return description;
+    }
+
+    /**
+     * Updates the library and compares the result with a new copy of the database.
+     */
+    private MPDLibrary assertUpdated(MPDLibrary library) {
+        MPDLibrary updated = library.update(mConnection);
+        assertNotNull(updated);
+        MPDLibrary created = MPDLibrary.create(mConnection);
+        assertNotNull(created);
+
+        assertEquals(created.getDatabaseUpdate(), updated.getDatabaseUpdate());
+        assertEquals(created.getEntryCount(), updated.getEntryCount());
+        assertEquals(describe(created), describe(updated));
+        return updated;
+    }
+
+    @Test
+    public void keepsUnchangedLibrary() {
+        MPDLibrary library = MPDLibrary.create(mConnection);
+        assertNotNull(library);
+        assertSame(library, library.update(mConnection));
+    }
+
+    @Test
+    public void removesTracksOfAlbum() {
+        MPDLibrary library = MPDLibrary.create(mConnection);
+        mDatabase.removeTracks(14, 18);
+        assertUpdated(library);
+    }
+
+    @Test
+    public void removesAlbum() {
+        MPDLibrary library = MPDLibrary.create(mConnection);
+        // The album directory disappears from the directory of its artist
+        mDatabase.removeTracks(2 * FakeMPDLibrary.TRACKS_PER_ALBUM, 3 * FakeMPDLibrary.TRACKS_PER_ALBUM);
+        assertUpdated(library);
+    }
+
+    @Test
+    public void removesArtist() {
+        MPDLibrary library = MPDLibrary.create(mConnection);
+        mDatabase.removeTracks(0, FakeMPDLibrary.ALBUMS_PER_ARTIST * FakeMPDLibrary.TRACKS_PER_ALBUM);
+        assertUpdated(library);
+    }
+
+    @Test
+    public void addsTracks() {
+        mDatabase.removeTracks(100, 130);
+        MPDLibrary library = MPDLibrary.create(mConnection);
+        mDatabase.restoreTracks(100, 130);
+        assertUpdated(library);
+    }
+
+    @Test
+    public void changesTags() {
+        MPDLibrary library = MPDLibrary.create(mConnection);
+        mDatabase.changeTracks(40, 44);
+        assertUpdated(library);
+    }
+
+    @Test
+    public void appliesSuccessiveChanges() {
+        MPDLibrary library = MPDLibrary.create(mConnection);
+        mDatabase.removeTracks(70, 75);
+        mDatabase.changeTracks(200, 203);
+        library = assertUpdated(library);
+
+        mDatabase.restoreTracks(70, 72);
+        mDatabase.removeTracks(250, 262);
+        assertUpdated(library);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDArtist;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the album tracks of {@link MPDNavigationIndex} with the album tracks of the
+ * {@link FakeMPDServer}, for a new copy of the database and for an updated one.
+ */
+public class MPDNavigationIndexTest {
+    private static final int TRACK_COUNT = 400;
+
+    private static final long SEED = 0x6e617669L;
+
+    private FakeMPDLibrary mDatabase;
+
+    private FakeMPDServer mServer;
+
+    private MPDConnection mConnection;
+
+    @Before
+    public void connect() throws IOException {
+        mDatabase = new FakeMPDLibrary(TRACK_COUNT, SEED);
+        mServer = new FakeMPDServer("0.21.0", mDatabase);
+        mServer.start();
+
+        mConnection = new MPDConnection("Test");
+        mConnection.setServerParameters("127.0.0.1", "", mServer.getPort());
+        mConnection.connectToServer();
+        assertTrue(mConnection.isConnected());
+    }
+
+    @After
+    public void disconnect() throws IOException {
+        mConnection.disconnectFromServer();
+        mServer.stop();
+    }
+
+    private static List<String> paths(List<MPDFileEntry> entries) {
+        List<String> paths = new ArrayList<>();
+        for (MPDFileEntry entry : entries) {
+            paths.add(entry.getPath());
+        }
+        return paths;
+    }
+
+    /**
+     * Requests the tracks of every album from the library and from the server, without filter,
+     * filtered by the MBID and filtered by every artist.
+     */
+    private void assertSameAlbumTracks(MPDLibrary library) {
+        List<MPDAlbum> albums = mConnection.getAlbums();
+        assertNotNull(albums);
+        assertFalse(albums.isEmpty());
+
+        List<MPDArtist> artists = mConnection.getArtists();
+        assertNotNull(artists);
+        artists.add(new MPDArtist("Unknown artist"));
+
+        for (MPDAlbum album : albums) {
+            String name = album.getName();
+            assertEquals(name, paths(mConnection.getAlbumTracks(name, "")), paths(library.getAlbumTracks(name, "")));
+            assertEquals(name, paths(mConnection.getAlbumTracks(name, album.getMBID())), paths(library.getAlbumTracks(name, album.getMBID())));
+            for (MPDArtist artist : artists) {
+                String artistName = artist.getArtistName();
+                assertEquals(name + " " + artistName, paths(mConnection.getArtistAlbumTracks(name, artistName, album.getMBID())),
+                        paths(library.getArtistAlbumTracks(name, artistName, album.getMBID())));
+            }
+        }
+        assertTrue(library.getAlbumTracks("Unknown album", "").isEmpty());
+    }
+
+    @Test
+    public void findsAlbumTracks() {
+        MPDLibrary library = MPDLibrary.create(mConnection);
+        assertNotNull(library);
+
+        // Albums of different artists share this name and have to be merged
+        assertTrue(mConnection.getAlbumTracks(FakeMPDLibrary.COMMON_ALBUM_NAME, "").size() > FakeMPDLibrary.TRACKS_PER_ALBUM);
+        assertSameAlbumTracks(library);
+    }
+
+    @Test
+    public void findsAlbumTracksAfterUpdate() {
+        mDatabase.removeTracks(100, 120);
+        MPDLibrary library = MPDLibrary.create(mConnection);
+        assertNotNull(library);
+
+        // The restored tracks are added at the end of the updated library
+        mDatabase.restoreTracks(100, 120);
+        mDatabase.removeTracks(230, 236);
+        mDatabase.changeTracks(300, 310);
+        library = library.update(mConnection);
+        assertNotNull(library);
+        assertSameAlbumTracks(library);
+    }
+}
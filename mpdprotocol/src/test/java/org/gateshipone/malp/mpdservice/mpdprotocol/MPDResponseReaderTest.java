@@ -0,0 +1,315 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MPDResponseReaderTest {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Returns at most a few bytes per read, like a slow socket. This moves lines and binary
+     * data across the refills of the buffer.
+     */
+    private static class TrickleInputStream extends InputStream {
+        private final InputStream mInput;
+
+        private int mRead;
+
+        TrickleInputStream(byte[] data) {
+            mInput = new ByteArrayInputStream(data);
+        }
+
+        @Override
+        public int read() throws IOException {
+            return mInput.read();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            mRead++;
+            return mInput.read(buffer, offset, Math.min(length, 1 + mRead % 7));
+        }
+    }
+
+    private static MPDResponseReader reader(String response) {
+        return new MPDResponseReader(new ByteArrayInputStream(response.getBytes(UTF8)));
+    }
+
+    private static byte[] concat(byte[]... parts) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            output.write(part);
+        }
+        return output.toByteArray();
+    }
+
+    @Test
+    public void dispatchesKnownKeys() throws IOException {
+        MPDResponseReader reader = reader("file: music/a.flac\nTitle: Song\nArtist: Bj\u00f6rk\nTrack: 3/12\nfoo: bar\nno separator\nOK\n");
+
+        assertTrue(reader.readResponseLine());
+        assertEquals(MPDResponseReader.RESPONSE_KEY.KEY_FILE, reader.getKey());
+        assertEquals("music/a.flac", reader.getValue());
+        assertFalse(reader.isResponseEnd());
+
+        assertTrue(reader.readResponseLine());
+        assertEquals(MPDResponseReader.RESPONSE_KEY.KEY_TITLE, reader.getKey());
+        assertEquals("Song", reader.getValue());
+
+        assertTrue(reader.readResponseLine());
+        assertEquals(MPDResponseReader.RESPONSE_KEY.KEY_ARTIST, reader.getKey());
+        assertEquals("Bj\u00f6rk", reader.getValue());
+        assertFalse(reader.valueEquals("Bj"));
+
+        assertTrue(reader.readResponseLine());
+        assertEquals(MPDResponseReader.RESPONSE_KEY.KEY_TRACK_NUMBER, reader.getKey());
+
+        assertTrue(reader.readResponseLine());
+        assertEquals(MPDResponseReader.RESPONSE_KEY.KEY_UNKNOWN, reader.getKey());
+        assertEquals("foo: bar", reader.getLine());
+
+        assertTrue(reader.readResponseLine());
+        assertEquals(MPDResponseReader.RESPONSE_KEY.KEY_UNKNOWN, reader.getKey());
+
+        assertTrue(reader.readResponseLine());
+        assertTrue(reader.isResponseEnd());
+        assertFalse(reader.isACK());
+
+        assertFalse(reader.readResponseLine());
+    }
+
+    @Test
+    public void keysAreCaseSensitive() throws IOException {
+        MPDResponseReader reader = reader("title: Song\nTitle: Song\n");
+
+        assertTrue(reader.readResponseLine());
+        assertEquals(MPDResponseReader.RESPONSE_KEY.KEY_UNKNOWN, reader.getKey());
+        assertTrue(reader.readResponseLine());
+        assertEquals(MPDResponseReader.RESPONSE_KEY.KEY_TITLE, reader.getKey());
+    }
+
+    @Test
+    public void stripsCarriageReturn() throws IOException {
+        MPDResponseReader reader = reader("volume: 80\r\nOK\r\n");
+
+        assertTrue(reader.readResponseLine());
+        assertEquals(MPDResponseReader.RESPONSE_KEY.KEY_VOLUME, reader.getKey());
+        assertEquals(80, reader.getIntValue());
+        assertTrue(reader.readResponseLine());
+        assertTrue(reader.isResponseEnd());
+    }
+
+    @Test
+    public void parsesIntegers() throws IOException {
+        MPDResponseReader reader = reader("volume: 42\nvolume: -1\nvolume:  7 \nvolume: abc\nvolume: 99999999999\nvolume: 12x\nvolume:\n");
+
+        int[] expected = {42, -1, 7, MPDResponseReader.INVALID_NUMBER, MPDResponseReader.INVALID_NUMBER,
+                MPDResponseReader.INVALID_NUMBER, MPDResponseReader.INVALID_NUMBER};
+        for (int value : expected) {
+            assertTrue(reader.readResponseLine());
+            assertEquals(value, reader.getIntValue());
+        }
+    }
+
+    @Test
+    public void parsesFields() throws IOException {
+        MPDResponseReader reader = reader("Track: 3/12\naudio: 44100:24:2\nTrack: 7\nTrack: /12\n");
+
+        assertTrue(reader.readResponseLine());
+        assertEquals(3, reader.getIntField(0, (byte) '/'));
+        assertEquals(12, reader.getIntField(1, (byte) '/'));
+        assertEquals(MPDResponseReader.INVALID_NUMBER, reader.getIntField(2, (byte) '/'));
+        // Without separator the complete value has to be a number
+        assertEquals(MPDResponseReader.INVALID_NUMBER, reader.getIntValue());
+
+        assertTrue(reader.readResponseLine());
+        assertEquals(3, reader.getFieldCount((byte) ':'));
+        assertEquals(44100, reader.getIntField(0, (byte) ':'));
+        assertEquals(24, reader.getIntField(1, (byte) ':'));
+        assertEquals("2", reader.getStringField(2, (byte) ':'));
+        assertNull(reader.getStringField(3, (byte) ':'));
+
+        assertTrue(reader.readResponseLine());
+        assertEquals(7, reader.getIntField(0, (byte) '/'));
+        assertEquals(MPDResponseReader.INVALID_NUMBER, reader.getIntField(1, (byte) '/'));
+
+        assertTrue(reader.readResponseLine());
+        assertEquals(MPDResponseReader.INVALID_NUMBER, reader.getIntField(0, (byte) '/'));
+        assertEquals(12, reader.getIntField(1, (byte) '/'));
+    }
+
+    @Test
+    public void roundsDecimals() throws IOException {
+        MPDResponseReader reader = reader("elapsed: 123.456\nelapsed: 1.5\nelapsed: 9\nelapsed: .5\nelapsed: 1,5\n");
+
+        int[] expected = {123, 2, 9, MPDResponseReader.INVALID_NUMBER, MPDResponseReader.INVALID_NUMBER};
+        for (int value : expected) {
+            assertTrue(reader.readResponseLine());
+            assertEquals(value, reader.getRoundedDecimalValue());
+        }
+    }
+
+    @Test
+    public void detectsResponseEnds() throws IOException {
+        MPDResponseReader reader = reader("volume: 5\nlist_OK\nACK [50@1] {albumart} No file exists\nOK\n");
+
+        assertTrue(reader.readResponseLine());
+        assertFalse(reader.isResponseEnd());
+
+        assertTrue(reader.readResponseLine());
+        assertTrue(reader.isResponseEnd());
+        assertFalse(reader.isACK());
+        assertEquals(MPDResponseReader.RESPONSE_KEY.KEY_UNKNOWN, reader.getKey());
+
+        assertTrue(reader.readResponseLine());
+        assertTrue(reader.isResponseEnd());
+        assertTrue(reader.isACK());
+        assertEquals("ACK [50@1] {albumart} No file exists", reader.getLine());
+
+        assertTrue(reader.readResponseLine());
+        assertTrue(reader.isResponseEnd());
+        assertFalse(reader.isACK());
+    }
+
+    @Test
+    public void skipsResponses() throws IOException {
+        MPDResponseReader reader = reader("file: a\nTitle: b\nlist_OK\nfile: c\nTitle: d\nACK [2@0] {} error\nvolume: 3\nOK\nfile: e\n");
+
+        // Stops at list_OK, the next response of the command list is read normally
+        assertTrue(reader.skipResponse());
+        assertTrue(reader.isResponseEnd());
+        assertFalse(reader.isACK());
+        assertTrue(reader.readResponseLine());
+        assertEquals(MPDResponseReader.RESPONSE_KEY.KEY_FILE, reader.getKey());
+        assertEquals("c", reader.getValue());
+
+        assertTrue(reader.skipResponse());
+        assertTrue(reader.isACK());
+
+        assertTrue(reader.skipResponse());
+        assertTrue(reader.isResponseEnd());
+        assertFalse(reader.isACK());
+
+        // The stream ends before the response
+        assertFalse(reader.skipResponse());
+        assertTrue(reader.isResponseEnd());
+    }
+
+    @Test
+    public void readsBinaryData() throws IOException {
+        // The data contains line breaks, an "OK" line and invalid UTF-8
+        byte[] data = {'O', 'K', '\n', (byte) 0xff, 0, '\n', 'x'};
+        byte[] response = concat("size: 7\nbinary: 7\n".getBytes(UTF8), data, "\nOK\n".getBytes(UTF8));
+        MPDResponseReader reader = new MPDResponseReader(new ByteArrayInputStream(response));
+
+        assertTrue(reader.readResponseLine());
+        assertEquals(MPDResponseReader.RESPONSE_KEY.KEY_BINARY_SIZE, reader.getKey());
+        assertEquals(7, reader.getIntValue());
+        assertTrue(reader.readResponseLine());
+        assertEquals(MPDResponseReader.RESPONSE_KEY.KEY_BINARY, reader.getKey());
+
+        byte[] destination = new byte[9];
+        assertTrue(reader.readBinary(destination, 1, reader.getIntValue()));
+        assertArrayEquals(data, Arrays.copyOfRange(destination, 1, 8));
+
+        assertTrue(reader.readResponseLine());
+        assertTrue(reader.isResponseEnd());
+        assertFalse(reader.isACK());
+    }
+
+    @Test
+    public void readsLargeBinaryDataInPieces() throws IOException {
+        byte[] data = new byte[100 * 1024];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31);
+        }
+        byte[] response = concat(("binary: " + data.length + '\n').getBytes(UTF8), data, "\nOK\n".getBytes(UTF8));
+        MPDResponseReader reader = new MPDResponseReader(new TrickleInputStream(response));
+
+        assertTrue(reader.readResponseLine());
+        byte[] destination = new byte[data.length];
+        assertTrue(reader.readBinary(destination, 0, reader.getIntValue()));
+        assertArrayEquals(data, destination);
+        assertTrue(reader.readResponseLine());
+        assertTrue(reader.isResponseEnd());
+    }
+
+    @Test
+    public void skipsBinaryData() throws IOException {
+        byte[] data = new byte[40 * 1024];
+        Arrays.fill(data, (byte) '\n');
+        byte[] response = concat(("binary: " + data.length + '\n').getBytes(UTF8), data, "\nOK\nvolume: 1\n".getBytes(UTF8));
+        MPDResponseReader reader = new MPDResponseReader(new TrickleInputStream(response));
+
+        assertTrue(reader.readResponseLine());
+        assertTrue(reader.skipBinary(reader.getIntValue()));
+        assertTrue(reader.readResponseLine());
+        assertTrue(reader.isResponseEnd());
+        assertTrue(reader.readResponseLine());
+        assertEquals(MPDResponseReader.RESPONSE_KEY.KEY_VOLUME, reader.getKey());
+    }
+
+    @Test
+    public void failsOnTruncatedBinaryData() throws IOException {
+        MPDResponseReader reader = reader("binary: 10\n12345");
+
+        assertTrue(reader.readResponseLine());
+        assertFalse(reader.readBinary(new byte[10], 0, 10));
+
+        reader = reader("binary: 10\n12345");
+        assertTrue(reader.readResponseLine());
+        assertFalse(reader.skipBinary(10));
+    }
+
+    @Test
+    public void readsLinesLongerThanTheBuffer() throws IOException {
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < 50000; i++) {
+            title.append((char) ('a' + i % 26));
+        }
+        MPDResponseReader reader = new MPDResponseReader(new TrickleInputStream(("Title: " + title + "\nOK").getBytes(UTF8)));
+
+        assertTrue(reader.readResponseLine());
+        assertEquals(MPDResponseReader.RESPONSE_KEY.KEY_TITLE, reader.getKey());
+        assertEquals(title.toString(), reader.getValue());
+
+        // Last line without line break
+        assertTrue(reader.readResponseLine());
+        assertTrue(reader.isResponseEnd());
+        assertFalse(reader.readResponseLine());
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFile;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Searches a copy of the database of the {@link FakeMPDServer} with {@link MPDSearchIndex} and
+ * compares the results with the search of the server and with a search over all tracks.
+ */
+public class MPDSearchIndexTest {
+    private static final int TRACK_COUNT = 300;
+
+    private static final long SEED = 0x73656172L;
+
+    private static final String[] TERMS = {"title 12", "TI 1", "greatest hits", "gr", "artist", "Artist 4",
+            "album 1 title", "4", "flac", "hits title 119", "x", "music/artist 2/album"};
+
+    private FakeMPDServer mServer;
+
+    private MPDConnection mConnection;
+
+    private MPDLibrary mLibrary;
+
+    @Before
+    public void connect() throws IOException {
+        mServer = new FakeMPDServer("0.21.0", new FakeMPDLibrary(TRACK_COUNT, SEED));
+        mServer.start();
+
+        mConnection = new MPDConnection("Test");
+        mConnection.setServerParameters("127.0.0.1", "", mServer.getPort());
+        mConnection.connectToServer();
+        assertTrue(mConnection.isConnected());
+
+        mLibrary = MPDLibrary.create(mConnection);
+        assertNotNull(mLibrary);
+    }
+
+    @After
+    public void disconnect() throws IOException {
+        mConnection.disconnectFromServer();
+        mServer.stop();
+    }
+
+    private static TreeSet<String> paths(List<MPDFileEntry> entries) {
+        TreeSet<String> paths = new TreeSet<>();
+        for (MPDFileEntry entry : entries) {
+            paths.add(entry.getPath());
+        }
+        return paths;
+    }
+
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        for (String word : text.toLowerCase().split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Searches all tracks for the documented matches: every word of the term begins a word of
+     * one of the searched fields.
+     */
+    private List<MPDFileEntry> searchAllTracks(String term, MPDCommands.MPD_SEARCH_TYPE type) {
+        List<MPDFileEntry> results = new ArrayList<>();
+        List<String> searchWords = words(term);
+        if (searchWords.isEmpty()) {
+            return results;
+        }
+        for (MPDFileEntry entry : mConnection.getSearchedFiles("", MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_FILE)) {
+            MPDFile track = (MPDFile) entry;
+            List<String> fieldWords = new ArrayList<>();
+            switch (type) {
+                case MPD_SEARCH_TRACK:
+                    fieldWords.addAll(words(track.getTrackTitle()));
+                    break;
+                case MPD_SEARCH_ALBUM:
+                    fieldWords.addAll(words(track.getTrackAlbum()));
+                    break;
+                case MPD_SEARCH_ARTIST:
+                    fieldWords.addAll(words(track.getTrackArtist()));
+                    break;
+                case MPD_SEARCH_FILE:
+                    fieldWords.addAll(words(track.getPath()));
+                    break;
+                case MPD_SEARCH_ANY:
+                    fieldWords.addAll(words(track.getTrackTitle()));
+                    fieldWords.addAll(words(track.getTrackAlbum()));
+                    fieldWords.addAll(words(track.getTrackArtist()));
+                    fieldWords.addAll(words(track.getTrackAlbumArtist()));
+                    fieldWords.addAll(words(track.getPath()));
+                    break;
+            }
+
+            boolean matches = true;
+            for (String searchWord : searchWords) {
+                boolean found = false;
+                for (String word : fieldWords) {
+                    found |= word.startsWith(searchWord);
+                }
+                matches &= found;
+            }
+            if (matches) {
+                results.add(track);
+            }
+        }
+        return results;
+    }
+
+    @Test
+    public void findsBeginningsOfWords() {
+        MPDSearchIndex index = mLibrary.getSearchIndex();
+        for (String term : TERMS) {
+            for (MPDCommands.MPD_SEARCH_TYPE type : MPDCommands.MPD_SEARCH_TYPE.values()) {
+                assertEquals(term + " " + type, paths(searchAllTracks(term, type)), paths(index.search(term, type)));
+            }
+        }
+    }
+
+    @Test
+    public void findsSameTracksAsServer() {
+        // MPD finds parts of words as well, these terms only match at the beginning of words
+        MPDSearchIndex index = mLibrary.getSearchIndex();
+        List<Object[]> searches = Arrays.asList(new Object[]{"Artist 3", MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_ARTIST},
+                new Object[]{"album 2", MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_ALBUM},
+                new Object[]{"Greatest Hits", MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_ALBUM},
+                new Object[]{"Title 12", MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_TRACK});
+        for (Object[] search : searches) {
+            String term = (String) search[0];
+            MPDCommands.MPD_SEARCH_TYPE type = (MPDCommands.MPD_SEARCH_TYPE) search[1];
+            TreeSet<String> expected = paths(mConnection.getSearchedFiles(term, type));
+            assertFalse(term, expected.isEmpty());
+            assertEquals(term, expected, paths(index.search(term, type)));
+        }
+    }
+
+    @Test
+    public void ranksCompleteWordsFirst() {
+        List<MPDFileEntry> results = mLibrary.getSearchIndex().search("title 12", MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_ANY);
+        assertTrue(results.size() > 1);
+        assertEquals("Title 12", ((MPDFile) results.get(0)).getTrackTitle());
+    }
+
+    @Test
+    public void ranksTitlesBeforePaths() {
+        // "title" is a word of every title and path. "1" begins the titles of some tracks, but
+        // also words in the paths of other tracks, like "Artist 1" or the track number.
+        List<MPDFileEntry> results = mLibrary.getSearchIndex().search("title 1", MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_ANY);
+        boolean titleMatch = true;
+        for (MPDFileEntry entry : results) {
+            boolean match = words(((MPDFile) entry).getTrackTitle()).get(1).startsWith("1");
+            assertTrue(entry.getPath(), titleMatch || !match);
+            titleMatch = match;
+        }
+    }
+
+    @Test
+    public void keepsLibraryOrderForEqualRanks() {
+        List<MPDFileEntry> results = mLibrary.getSearchIndex().search("greatest hits", MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_ALBUM);
+        assertFalse(results.isEmpty());
+        int lastTrack = -1;
+        for (MPDFileEntry entry : results) {
+            int track = Integer.parseInt(words(((MPDFile) entry).getTrackTitle()).get(1));
+            assertTrue(track > lastTrack);
+            lastTrack = track;
+        }
+    }
+
+    @Test
+    public void findsNothingWithoutWords() {
+        MPDSearchIndex index = mLibrary.getSearchIndex();
+        assertTrue(index.search("", MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_ANY).isEmpty());
+        assertTrue(index.search(" - ", MPDCommands.MPD_SEARCH_TYPE.MPD_SEARCH_ANY).isEmpty());
+    }
+}
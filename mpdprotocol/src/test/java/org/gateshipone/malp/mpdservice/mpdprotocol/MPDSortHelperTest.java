@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDDirectory;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFile;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDPlaylist;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MPDSortHelperTest {
+    private static MPDFile track(String path, String mbid, int disc, int track) {
+        MPDFile file = new MPDFile(path);
+        file.setTrackAlbumMBID(mbid);
+        file.setDiscNumber(disc);
+        file.setTrackNumber(track);
+        return file;
+    }
+
+    private static List<String> paths(List<MPDFileEntry> entries) {
+        List<String> paths = new ArrayList<>();
+        for (MPDFileEntry entry : entries) {
+            paths.add(entry.getPath());
+        }
+        return paths;
+    }
+
+    private static MPDAlbum album(String name, String artist, String mbid) {
+        MPDAlbum album = new MPDAlbum(name);
+        album.setArtistName(artist);
+        album.setMBID(mbid);
+        return album;
+    }
+
+    @Test
+    public void sortsByDiscAndTrack() {
+        List<MPDFileEntry> tracks = new ArrayList<>();
+        tracks.add(track("2-1", "", 2, 1));
+        tracks.add(track("1-10", "", 1, 10));
+        tracks.add(track("1-2", "", 1, 2));
+        tracks.add(track("2-0", "", 2, 0));
+        tracks.add(track("1-1", "", 1, 1));
+
+        MPDSortHelper.sortFileListNumeric(tracks);
+
+        assertEquals(Arrays.asList("1-1", "1-2", "1-10", "2-0", "2-1"), paths(tracks));
+    }
+
+    @Test
+    public void groupsTracksByAlbumMBID() {
+        List<MPDFileEntry> tracks = new ArrayList<>();
+        tracks.add(track("b-1", "b", 1, 1));
+        tracks.add(track("a-2", "a", 1, 2));
+        tracks.add(track("none-1", "", 1, 1));
+        tracks.add(track("a-1", "a", 1, 1));
+        tracks.add(track("b-2", "b", 1, 2));
+
+        MPDSortHelper.sortFileListNumeric(tracks);
+
+        assertEquals(Arrays.asList("none-1", "a-1", "a-2", "b-1", "b-2"), paths(tracks));
+    }
+
+    @Test
+    public void keepsOrderOfEqualIndexes() {
+        List<MPDFileEntry> tracks = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            tracks.add(track(String.valueOf(i), "", 1, i % 3));
+        }
+
+        MPDSortHelper.sortFileListNumeric(tracks);
+
+        for (int i = 1; i < tracks.size(); i++) {
+            MPDFile previous = (MPDFile) tracks.get(i - 1);
+            MPDFile current = (MPDFile) tracks.get(i);
+            assertTrue(previous.getTrackNumber() <= current.getTrackNumber());
+            if (previous.getTrackNumber() == current.getTrackNumber()) {
+                assertTrue(Integer.parseInt(previous.getPath()) < Integer.parseInt(current.getPath()));
+            }
+        }
+    }
+
+    @Test
+    public void movesOtherEntriesToTheEnd() {
+        List<MPDFileEntry> entries = new ArrayList<>();
+        entries.add(new MPDDirectory("directory"));
+        entries.add(track("3", "", 1, 3));
+        entries.add(new MPDPlaylist("playlist"));
+        entries.add(track("1", "", 1, 1));
+        entries.add(new MPDDirectory("another directory"));
+
+        MPDSortHelper.sortFileListNumeric(entries);
+
+        assertEquals(Arrays.asList("1", "3", "directory", "playlist", "another directory"), paths(entries));
+    }
+
+    @Test
+    public void sortsShuffledAlbums() {
+        List<MPDFileEntry> tracks = new ArrayList<>();
+        for (int disc = 1; disc <= 3; disc++) {
+            for (int number = 1; number <= 20; number++) {
+                tracks.add(track(disc + "-" + number, "", disc, number));
+            }
+        }
+        List<String> expected = paths(tracks);
+
+        Collections.shuffle(tracks, new Random(42));
+        MPDSortHelper.sortFileListNumeric(tracks);
+
+        assertEquals(expected, paths(tracks));
+    }
+
+    @Test
+    public void sortsAlbumsWithTheSameName() {
+        List<MPDAlbum> expected = Arrays.asList(album("a", "x", ""), album("B", "", "2"), album("b", "x", "1"),
+                album("b", "x", "2"), album("b", "y", ""), album("c", "", ""));
+
+        for (int seed = 0; seed < 10; seed++) {
+            List<MPDAlbum> albums = new ArrayList<>(expected);
+            Collections.shuffle(albums, new Random(seed));
+            MPDSortHelper.sortAlbumList(albums);
+            assertEquals(expected, albums);
+        }
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright (C) 2016 Team Gateship-One
+ * (Hendrik Borghorst & Frederik Luetkes)
+ *
+ * The AUTHORS.md file contains a detailed contributors list:
+ * <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects;
+
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Compares {@link MPDTrackStore} with an {@link ArrayList} on random operations.
+ */
+public class MPDTrackStoreTest {
+    private static final int ROUNDS = 100;
+
+    private static final int OPERATIONS = 400;
+
+    private final Random mRandom = new Random(42);
+
+    private String randomText(int maxLength) {
+        if (mRandom.nextInt(5) == 0) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder();
+        int length = mRandom.nextInt(maxLength);
+        for (int i = 0; i < length; i++) {
+            // Include characters that take more than one byte in UTF-8
+            builder.append((char) (mRandom.nextInt(10) == 0 ? '\u00e4' + mRandom.nextInt(50) : 'a' + mRandom.nextInt(26)));
+        }
+        if (mRandom.nextInt(30) == 0) {
+            // Texts longer than 127 bytes need more than one length byte
+            for (int i = 0; i < 200; i++) {
+                builder.append('x');
+            }
+        }
+        return builder.toString();
+    }
+
+    private MPDFileEntry randomEntry() {
+        switch (mRandom.nextInt(10)) {
+            case 0:
+                return null;
+            case 1: {
+                MPDDirectory directory = new MPDDirectory(randomText(20));
+                if (mRandom.nextBoolean()) {
+                    directory.setLastModified(randomText(5));
+                }
+                return directory;
+            }
+            case 2:
+                return new MPDPlaylist(randomText(20));
+            default:
+                break;
+        }
+
+        MPDFile file = new MPDFile(randomText(40));
+        file.setTrackTitle(randomText(20));
+        file.setTrackArtist("artist" + mRandom.nextInt(5));
+        if (mRandom.nextBoolean()) {
+            file.setTrackAlbum("album" + mRandom.nextInt(50));
+        }
+        file.setTrackAlbumArtist(randomText(3));
+        file.setDate(mRandom.nextBoolean() ? "" : "19" + mRandom.nextInt(9));
+        file.setTrackMBID(randomText(36));
+        file.setTrackAlbumMBID(mRandom.nextBoolean() ? "" : "album-mbid" + mRandom.nextInt(3));
+        file.setTrackArtistMBID("artist-mbid");
+        file.setTrackAlbumArtistMBID(mRandom.nextBoolean() ? "" : "album-artist-mbid");
+        file.setLength(mRandom.nextInt(3) == 0 ? 0 : mRandom.nextInt());
+        file.setTrackNumber(mRandom.nextInt(20));
+        file.setAlbumTrackCount(mRandom.nextInt(2));
+        file.setDiscNumber(mRandom.nextInt(3));
+        file.psetAlbumDiscCount(mRandom.nextInt(3));
+        file.setSongID(mRandom.nextInt(1000) - 5);
+        file.setSongPosition(mRandom.nextInt(5));
+        if (mRandom.nextBoolean()) {
+            file.setLastModified(randomText(20));
+        }
+        return file;
+    }
+
+    /**
+     * @return All values of the entry, the store creates new objects so they can not be compared directly
+     */
+    private static String describe(MPDFileEntry entry) {
+        if (null == entry) {
+            return "null";
+        }
+        StringBuilder builder = new StringBuilder();
+        builder.append(entry.getClass().getSimpleName()).append('|').append(entry.getPath())
+                .append('|').append(entry.getLastModified());
+        if (entry instanceof MPDFile) {
+            MPDFile file = (MPDFile) entry;
+            builder.append('|').append(file.getTrackTitle())
+                    .append('|').append(file.getTrackArtist())
+                    .append('|').append(file.getTrackAlbumArtist())
+                    .append('|').append(file.getTrackAlbum())
+                    .append('|').append(file.getDate())
+                    .append('|').append(file.getTrackMBID())
+                    .append('|').append(file.getTrackAlbumMBID())
+                    .append('|').append(file.getTrackArtistMBID())
+                    .append('|').append(file.getTrackAlbumArtistMBID())
+                    .append('|').append(file.getLength())
+                    .append('|').append(file.getTrackNumber())
+                    .append('|').append(file.getAlbumTrackCount())
+                    .append('|').append(file.getDiscNumber())
+                    .append('|').append(file.getAlbumDiscCount())
+                    .append('|').append(file.getSongID())
+                    .append('|').append(file.getSongPosition());
+        }
+        return builder.toString();
+    }
+
+    private static void assertEntries(String message, List<MPDFileEntry> expected, List<MPDFileEntry> actual) {
+        assertEquals(message + ": size", expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(message + ": entry " + i, describe(expected.get(i)), describe(actual.get(i)));
+        }
+    }
+
+    private static MPDTrackStore copy(MPDTrackStore store) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        store.writeTo(output);
+        output.flush();
+        return MPDTrackStore.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    @Test
+    public void behavesLikeArrayList() throws IOException {
+        for (int round = 0; round < ROUNDS; round++) {
+            List<MPDFileEntry> expected = new ArrayList<>();
+            MPDTrackStore store = mRandom.nextBoolean() ? new MPDTrackStore() : new MPDTrackStore(1);
+
+            List<List<MPDFileEntry>> expectedSnapshots = new ArrayList<>();
+            List<MPDTrackStore> snapshots = new ArrayList<>();
+
+            for (int operation = 0; operation < OPERATIONS; operation++) {
+                int size = expected.size();
+                switch (mRandom.nextInt(13)) {
+                    case 0:
+                    case 1:
+                    case 2:
+                    case 3: {
+                        MPDFileEntry entry = randomEntry();
+                        expected.add(entry);
+                        store.add(entry);
+                        break;
+                    }
+                    case 4:
+                        if (size > 0) {
+                            int index = mRandom.nextInt(size);
+                            MPDFileEntry entry = randomEntry();
+                            assertEquals(describe(expected.set(index, entry)), describe(store.set(index, entry)));
+                        }
+                        break;
+                    case 5: {
+                        int index = mRandom.nextInt(size + 1);
+                        MPDFileEntry entry = randomEntry();
+                        expected.add(index, entry);
+                        store.add(index, entry);
+                        break;
+                    }
+                    case 6:
+                        if (size > 0) {
+                            int index = mRandom.nextInt(size);
+                            assertEquals(describe(expected.remove(index)), describe(store.remove(index)));
+                        }
+                        break;
+                    case 7:
+                        if (size > 0) {
+                            int from = mRandom.nextInt(size);
+                            int to = from + mRandom.nextInt(size - from + 1);
+                            expected.subList(from, to).clear();
+                            store.subList(from, to).clear();
+                        }
+                        break;
+                    case 8: {
+                        MPDTrackStore other = new MPDTrackStore();
+                        int count = mRandom.nextInt(20);
+                        for (int i = 0; i < count; i++) {
+                            MPDFileEntry entry = randomEntry();
+                            other.add(entry);
+                            expected.add(entry);
+                        }
+                        if (mRandom.nextBoolean()) {
+                            other.trimToSize();
+                        }
+                        store.addAll(mRandom.nextBoolean() ? other : other.snapshot());
+                        break;
+                    }
+                    case 9:
+                        if (size > 0) {
+                            int index = mRandom.nextInt(size);
+                            expected.add(expected.get(index));
+                            store.addEntry(store.snapshot(), index);
+                        }
+                        break;
+                    case 10:
+                        expectedSnapshots.add(new ArrayList<>(expected));
+                        snapshots.add(store.snapshot());
+                        break;
+                    case 11:
+                        store.trimToSize();
+                        break;
+                    case 12:
+                        if (mRandom.nextInt(20) == 0) {
+                            expected.clear();
+                            store.clear();
+                        } else if (mRandom.nextInt(10) == 0) {
+                            Collections.reverse(expected);
+                            Collections.reverse(store);
+                        }
+                        break;
+                    default:
+                        break;
+                }
+                assertEntries("round " + round + " operation " + operation, expected, store);
+            }
+
+            for (int i = 0; i < snapshots.size(); i++) {
+                assertEntries("round " + round + " snapshot " + i, expectedSnapshots.get(i), snapshots.get(i));
+            }
+            assertEntries("round " + round + " copy", expected, copy(store));
+        }
+    }
+
+    @Test
+    public void compactsReplacedTexts() {
+        MPDTrackStore store = new MPDTrackStore();
+        List<MPDFileEntry> expected = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            MPDFile file = new MPDFile("file" + i);
+            store.add(file);
+            expected.add(file);
+        }
+
+        // Every set leaves the old texts as garbage, this has to compact the texts repeatedly
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            title.append('t');
+        }
+        for (int i = 0; i < 2000; i++) {
+            int index = mRandom.nextInt(expected.size());
+            MPDFile file = new MPDFile("file" + index + "-" + i);
+            file.setTrackTitle(title.toString() + i);
+            expected.set(index, file);
+            store.set(index, file);
+        }
+        assertEntries("compacted", expected, store);
+
+        store.trimToSize();
+        assertEntries("trimmed", expected, store);
+    }
+
+    @Test
+    public void snapshotsAreNotChanged() {
+        MPDTrackStore store = new MPDTrackStore();
+        MPDFile file = new MPDFile("a");
+        file.setTrackTitle("title");
+        store.add(file);
+
+        MPDTrackStore snapshot = store.snapshot();
+        store.setText(0, MPDTrackStore.TEXT_COLUMN.TITLE, "changed");
+        store.add(new MPDDirectory("b"));
+        store.subList(0, 1).clear();
+
+        assertEquals(1, snapshot.size());
+        assertEquals("title", snapshot.getText(0, MPDTrackStore.TEXT_COLUMN.TITLE));
+        assertEquals(1, store.size());
+        assertNull(store.getText(0, MPDTrackStore.TEXT_COLUMN.TITLE));
+
+        try {
+            snapshot.add(null);
+            fail("Snapshots must be read-only");
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
+    }
+}